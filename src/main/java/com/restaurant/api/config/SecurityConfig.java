@@ -123,8 +123,8 @@ public class SecurityConfig {
         // Các method FE sẽ dùng
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
 
-        // Các header được phép gửi kèm (quan trọng: Authorization)
-        config.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+        // Các header được phép gửi kèm (quan trọng: Authorization; Idempotency-Key cho API tạo order / thanh toán)
+        config.setAllowedHeaders(List.of("Authorization", "Content-Type", "Idempotency-Key"));
 
         // Header trả về cho FE
         config.setExposedHeaders(List.of("Authorization"));
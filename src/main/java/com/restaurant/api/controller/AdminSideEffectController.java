@@ -0,0 +1,30 @@
+package com.restaurant.api.controller;
+
+import com.restaurant.api.dto.sideeffect.SideEffectMetricsResponse;
+import com.restaurant.api.service.SideEffectDispatcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * AdminSideEffectController
+ * ------------------------------------------------------------
+ * Theo dõi hàng đợi tác vụ phụ (audit log / notification chạy sau commit):
+ *  - GET /api/admin/side-effects/metrics : độ sâu hàng đợi, độ trễ, số lỗi...
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin/side-effects")
+public class AdminSideEffectController {
+
+    private final SideEffectDispatcher sideEffectDispatcher;
+
+    @PreAuthorize("hasAuthority('SETTING_VIEW')")
+    @GetMapping("/metrics")
+    public ResponseEntity<SideEffectMetricsResponse> getMetrics() {
+        return ResponseEntity.ok(sideEffectDispatcher.getMetrics());
+    }
+}
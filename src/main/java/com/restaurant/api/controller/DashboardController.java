@@ -3,6 +3,7 @@ package com.restaurant.api.controller;
 import com.restaurant.api.dto.dashboard.DashboardSummaryResponse;
 import com.restaurant.api.dto.dashboard.RevenueByDateResponse;
 import com.restaurant.api.dto.dashboard.TopDishResponse;
+import com.restaurant.api.dto.dashboard.TrendingDishResponse;
 import com.restaurant.api.service.DashboardService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -32,6 +33,14 @@ import java.util.List;
  *  5) GET /api/dashboard/top-dishes
  *     → Danh sách món bán chạy (mặc định TOP 5)
  *
+ *  6) GET /api/dashboard/trending-dishes
+ *     → Món đang bán chạy trong 15 phút / 1 giờ / hôm nay (thời gian thực)
+ *
+ * Realtime:
+ *  - Số liệu summary / doanh thu 7 ngày được push lên /topic/dashboard
+ *    (DashboardRealtimePusher – chỉ phần thay đổi, tối đa 1 lần / chu kỳ)
+ *    → FE chỉ cần gọi các API trên 1 lần khi mở màn, không cần polling.
+ *
  * Lưu ý:
  *  - Toàn bộ API này yêu cầu JWT (đã cấu hình trong SecurityConfig).
  *  - Chỉ đọc dữ liệu (không ghi DB).
@@ -128,6 +137,7 @@ public class DashboardController {
      * ----------------------------------------------------------
      * Query param:
      *  - limit (optional): số lượng món muốn lấy, mặc định = 5
+     *  - excludeCanceled (optional): bỏ các món đã hủy, mặc định = false
      *
      * Mỗi phần tử trong list:
      *  - dishId        : ID món
@@ -140,9 +150,40 @@ public class DashboardController {
      */
     @GetMapping("/top-dishes")
     public ResponseEntity<List<TopDishResponse>> getTopDishes(
+            @RequestParam(name = "limit", required = false, defaultValue = "5") int limit,
+            @RequestParam(name = "excludeCanceled", required = false, defaultValue = "false") boolean excludeCanceled
+    ) {
+        List<TopDishResponse> list = dashboardService.getTopDishes(limit, excludeCanceled);
+        return ResponseEntity.ok(list);
+    }
+
+    // =====================================================================
+    // 6. MÓN ĐANG BÁN CHẠY (THỜI GIAN THỰC)
+    // =====================================================================
+
+    /**
+     * API trả về danh sách MÓN ĐANG BÁN CHẠY trong khung thời gian gần đây.
+     * ----------------------------------------------------------
+     * Query param:
+     *  - window (optional): 15m | 1h | today, mặc định = 15m
+     *  - limit  (optional): số lượng món muốn lấy, mặc định = 5
+     *
+     * Mỗi phần tử trong list:
+     *  - dishId       : ID món
+     *  - dishName     : tên món
+     *  - quantity     : số lượng được gọi trong khung thời gian
+     *  - overestimate  : sai số tối đa về phía dư
+     *  - underestimate : sai số tối đa về phía thiếu (khung 15m / 1h)
+     *
+     * GET /api/dashboard/trending-dishes
+     * GET /api/dashboard/trending-dishes?window=1h&limit=10
+     */
+    @GetMapping("/trending-dishes")
+    public ResponseEntity<List<TrendingDishResponse>> getTrendingDishes(
+            @RequestParam(name = "window", required = false, defaultValue = "15m") String window,
             @RequestParam(name = "limit", required = false, defaultValue = "5") int limit
     ) {
-        List<TopDishResponse> list = dashboardService.getTopDishes(limit);
+        List<TrendingDishResponse> list = dashboardService.getTrendingDishes(window, limit);
         return ResponseEntity.ok(list);
     }
 }
@@ -1,10 +1,12 @@
 package com.restaurant.api.controller;
 
+import com.restaurant.api.dto.kitchen.BulkUpdateKitchenItemStatusRequest;
 import com.restaurant.api.dto.kitchen.KitchenItemResponse;
 import com.restaurant.api.dto.kitchen.KitchenOrderResponse;
 import com.restaurant.api.dto.kitchen.UpdateKitchenItemStatusRequest;
 import com.restaurant.api.enums.OrderItemStatus;
 import com.restaurant.api.service.KitchenService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -22,6 +24,9 @@ import java.util.List;
  *
  *  - PUT  /api/kitchen/items/{orderItemId}/status
  *      → Cập nhật trạng thái 1 món (NEW → SENT_TO_KITCHEN → COOKING → DONE)
+ *
+ *  - PUT  /api/kitchen/items/status
+ *      → Cập nhật trạng thái nhiều món cùng lúc (cả phiếu)
  */
 @RestController
 @RequestMapping("/api/kitchen")
@@ -81,6 +86,30 @@ public class KitchenController {
         return ResponseEntity.ok(updated);
     }
 
+    /**
+     * API cập nhật trạng thái NHIỀU món cùng lúc từ màn hình bếp.
+     * ------------------------------------------------------------
+     * URL:
+     *  - PUT /api/kitchen/items/status
+     *
+     * Body (JSON):
+     *  {
+     *      "orderItemIds": [101, 102, 105],
+     *      "newStatus": "DONE",
+     *      "note": null
+     *  }
+     *
+     * 1 món không chuyển được → báo lỗi, không món nào bị đổi.
+     *
+     * @param req danh sách ID món + trạng thái mới + ghi chú
+     */
+    @PutMapping("/items/status")
+    public ResponseEntity<List<KitchenItemResponse>> updateKitchenItemsStatus(
+            @Valid @RequestBody BulkUpdateKitchenItemStatusRequest req
+    ) {
+        return ResponseEntity.ok(kitchenService.updateItemsStatus(req));
+    }
+
     /**
      * API lấy toàn bộ ORDER kèm danh sách món cho màn hình bếp.
      * ------------------------------------------------------------------
@@ -2,10 +2,13 @@ package com.restaurant.api.controller;
 
 import com.restaurant.api.dto.order.*;
 import com.restaurant.api.enums.OrderStatus;
+import com.restaurant.api.service.IdempotencyService;
 import com.restaurant.api.service.OrderService;
+import com.restaurant.api.service.OrderSummaryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
@@ -40,6 +43,10 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    // ✅ Chống tạo trùng order khi tablet retry (header Idempotency-Key)
+    private final IdempotencyService idempotencyService;
+    // ✅ Read model danh sách order (bảng order_summary)
+    private final OrderSummaryService orderSummaryService;
 
     // ============================================================
     // 1) TẠO ORDER MỚI
@@ -54,17 +61,22 @@ public class OrderController {
      *
      * @param principal        dữ liệu món khách gọi
      * @param req       user đăng nhập (dùng để lấy createdBy)
+     * @param idempotencyKey  header Idempotency-Key (optional) – retry cùng key không tạo order mới
      */
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(
             java.security.Principal principal,
-            @Valid @RequestBody OrderCreateRequest req
+            @Valid @RequestBody OrderCreateRequest req,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
     ) {
         // 👉 Lấy username trực tiếp từ JWT
         String username = principal.getName();
 
-        // 🟢 Gọi service xử lý
-        OrderResponse response = orderService.createOrder(req, username);
+        // 🟢 Gọi service xử lý (retry cùng Idempotency-Key → trả lại order đã tạo)
+        OrderResponse response = idempotencyService.execute(
+                "order.create", idempotencyKey, username, req, OrderResponse.class,
+                () -> orderService.createOrder(req, username)
+        );
 
         return ResponseEntity.ok(response);
     }
@@ -101,6 +113,38 @@ public class OrderController {
         return ResponseEntity.ok(list);
     }
 
+    /**
+     * API danh sách order dạng rút gọn (đọc từ read model order_summary)
+     * ------------------------------------------------------------
+     * - Cùng tham số filter với GET /api/orders
+     * - Mỗi order 1 dòng: mã, bàn, số món, tổng tiền, trạng thái
+     * - Không kèm danh sách món → xem chi tiết qua GET /api/orders/{id}
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<List<OrderSummaryResponse>> getOrderSummaries(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false)
+            @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+            LocalDateTime from,
+            @RequestParam(required = false)
+            @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+            LocalDateTime to,
+            @RequestParam(required = false) Boolean paid
+    ) {
+        return ResponseEntity.ok(orderSummaryService.getSummaries(status, from, to, paid));
+    }
+
+    /**
+     * API dựng lại toàn bộ read model order_summary từ dữ liệu gốc
+     * (dùng khi phát hiện danh sách order bị lệch).
+     */
+    @PostMapping("/summary/rebuild")
+    @PreAuthorize("hasAuthority('ORDER_UPDATE')")
+    public ResponseEntity<String> rebuildOrderSummaries() {
+        int rows = orderSummaryService.rebuild();
+        return ResponseEntity.ok("Đã dựng lại " + rows + " dòng order summary");
+    }
+
     // ============================================================
     // 3) LẤY CHI TIẾT 1 ORDER
     // ============================================================
@@ -216,13 +260,17 @@ public class OrderController {
     @PostMapping("/simple-create")
     public ResponseEntity<OrderResponse> createSimpleOrder(
             java.security.Principal principal,
-            @Valid @RequestBody SimpleOrderRequest req
+            @Valid @RequestBody SimpleOrderRequest req,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
     ) {
         // 👉 Lấy username từ JWT (giống createOrder)
         String username = principal.getName();
 
-        // 👉 Gọi service xử lý luồng Simple POS
-        OrderResponse response = orderService.simpleCreate(req, username);
+        // 👉 Gọi service xử lý luồng Simple POS (có chống trùng như createOrder)
+        OrderResponse response = idempotencyService.execute(
+                "order.simple-create", idempotencyKey, username, req, OrderResponse.class,
+                () -> orderService.simpleCreate(req, username)
+        );
 
         return ResponseEntity.ok(response);
     }
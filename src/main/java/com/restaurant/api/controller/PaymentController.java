@@ -4,6 +4,7 @@ import com.restaurant.api.dto.payment.CalcPaymentRequest;
 import com.restaurant.api.dto.payment.CalcPaymentResponse;
 import com.restaurant.api.dto.payment.PaymentRequest;
 import com.restaurant.api.dto.payment.PaymentResponse;
+import com.restaurant.api.service.IdempotencyService;
 import com.restaurant.api.service.MomoPaymentService;
 import com.restaurant.api.service.PaymentService;
 import jakarta.validation.Valid;
@@ -41,6 +42,8 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    // ✅ Chống thanh toán trùng khi client retry (header Idempotency-Key)
+    private final IdempotencyService idempotencyService;
 
     // =====================================================================
     // 1. TẠO PAYMENT CHO ORDER
@@ -63,15 +66,23 @@ public class PaymentController {
      *  - Tạo Payment
      *  - Tự động sinh Invoice + InvoiceItem
      *  - Chuyển order → PAID
+     *
+     * Header Idempotency-Key (optional):
+     *  - Client retry cùng key → nhận lại đúng response lần đầu
      */
     @PostMapping
     public ResponseEntity<PaymentResponse> createPayment(
             @Valid @RequestBody PaymentRequest req,
-            Principal principal
+            Principal principal,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
     ) {
         String username = principal.getName();  // Lấy username user đang đăng nhập
 
-        PaymentResponse res = paymentService.createPayment(req, username);
+        // Retry cùng Idempotency-Key → trả lại payment đã tạo, không chạy lại nghiệp vụ
+        PaymentResponse res = idempotencyService.execute(
+                "payment.create", idempotencyKey, username, req, PaymentResponse.class,
+                () -> paymentService.createPayment(req, username)
+        );
         return ResponseEntity.ok(res);
     }
 
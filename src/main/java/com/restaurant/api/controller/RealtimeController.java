@@ -0,0 +1,65 @@
+package com.restaurant.api.controller;
+
+import com.restaurant.api.dto.realtime.RealtimeMetricsResponse;
+import com.restaurant.api.dto.realtime.RealtimeReplayResponse;
+import com.restaurant.api.event.RealtimeEventLog;
+import com.restaurant.api.event.RealtimeEventPublisher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * RealtimeController
+ * ------------------------------------------------------------
+ * API hỗ trợ client WebSocket kết nối lại sau khi mất mạng.
+ *
+ *  - GET /api/realtime/replay?topic=kitchen&afterSeq=120&epoch=...
+ *      → Trả về các message đã gửi trên topic có seq > afterSeq
+ *        (seq / epoch lấy từ header STOMP của message cuối cùng đã nhận)
+ *      → snapshotRequired = true khi khoảng bị lỡ không còn trong bộ đệm
+ *        hoặc server đã khởi động lại → client tải lại toàn bộ qua REST
+ *
+ *  - GET /api/realtime/metrics
+ *      → Số payload / frame / byte đã gửi (đánh giá hiệu quả gộp message)
+ */
+@RestController
+@RequestMapping("/api/realtime")
+@RequiredArgsConstructor
+public class RealtimeController {
+
+    private static final String TOPIC_PREFIX = "/topic/";
+
+    private final RealtimeEventLog realtimeEventLog;
+    private final RealtimeEventPublisher realtimeEventPublisher;
+
+    /**
+     * Replay message realtime bị lỡ.
+     * ------------------------------------------------------------
+     * Query param:
+     *  - topic    : kitchen | orders | tables | ... (hoặc /topic/kitchen)
+     *  - afterSeq : seq cuối cùng client đã nhận (mặc định 0)
+     *  - epoch    : epoch client đã nhận (optional)
+     */
+    @GetMapping("/replay")
+    public ResponseEntity<RealtimeReplayResponse> replay(
+            @RequestParam String topic,
+            @RequestParam(required = false, defaultValue = "0") long afterSeq,
+            @RequestParam(required = false) String epoch
+    ) {
+        String destination = topic.startsWith(TOPIC_PREFIX) ? topic : TOPIC_PREFIX + topic;
+        if (destination.length() <= TOPIC_PREFIX.length() || afterSeq < 0) {
+            throw new RuntimeException("Tham số replay không hợp lệ");
+        }
+        return ResponseEntity.ok(realtimeEventLog.replay(destination, afterSeq, epoch));
+    }
+
+    /**
+     * Số liệu gửi message realtime (payload / frame / byte)
+     */
+    @GetMapping("/metrics")
+    @PreAuthorize("hasAuthority('SETTING_VIEW')")
+    public ResponseEntity<RealtimeMetricsResponse> metrics() {
+        return ResponseEntity.ok(realtimeEventPublisher.getMetrics());
+    }
+}
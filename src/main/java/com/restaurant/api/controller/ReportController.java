@@ -1,11 +1,20 @@
 package com.restaurant.api.controller;
 
 import com.restaurant.api.dto.report.*;
+import com.restaurant.api.service.DailyRollupService;
+import com.restaurant.api.service.ReportCacheService;
+import com.restaurant.api.service.ReportJobService;
 import com.restaurant.api.service.ReportService;
+import com.restaurant.api.util.AuthUtil;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -31,6 +40,16 @@ import org.springframework.web.bind.annotation.*;
  *  4. GET /api/reports/stock-entry
  *     → Báo cáo NHẬP KHO nguyên liệu
  *
+ *  5. POST /api/reports/rollups/rebuild
+ *     → Dựng lại bảng tổng hợp theo ngày cho 1 khoảng ngày
+ *
+ *  6. POST /api/reports/jobs, GET /api/reports/jobs/{id},
+ *     GET /api/reports/jobs/{id}/download
+ *     → Xuất báo cáo chạy nền: gửi job → poll trạng thái → tải file
+ *
+ *  7. GET /api/reports/cache/metrics
+ *     → Hit / miss / eviction của cache báo cáo theo ngày
+ *
  * Ghi chú:
  *  - Toàn bộ comment dùng tiếng Việt theo Rule 13.
  *  - Bảo mật: Các API này sẽ đi qua SecurityConfig, chỉ cho phép
@@ -43,6 +62,9 @@ import org.springframework.web.bind.annotation.*;
 public class ReportController {
 
     private final ReportService reportService;
+    private final DailyRollupService dailyRollupService;
+    private final ReportJobService reportJobService;
+    private final ReportCacheService reportCacheService;
 
     // ==================================================================
     // 1. BÁO CÁO DOANH THU THEO KHOẢNG NGÀY
@@ -99,6 +121,7 @@ public class ReportController {
      * Tham số:
      *  - fromDate, toDate (yyyy-MM-dd) – có thể null
      *  - limit (optional, default = 10)
+     *  - excludeCanceled (optional, default = false) – bỏ các món đã hủy
      *
      * Kết quả:
      *  - List<TopDishReportItem>:
@@ -118,9 +141,12 @@ public class ReportController {
             LocalDate toDate,
 
             @RequestParam(required = false, defaultValue = "10")
-            int limit
+            int limit,
+
+            @RequestParam(required = false, defaultValue = "false")
+            boolean excludeCanceled
     ) {
-        List<TopDishReportItem> result = reportService.getTopDishes(fromDate, toDate, limit);
+        List<TopDishReportItem> result = reportService.getTopDishes(fromDate, toDate, limit, excludeCanceled);
         return ResponseEntity.ok(result);
     }
 
@@ -196,6 +222,32 @@ public class ReportController {
         return ResponseEntity.ok(result);
     }
 
+    // ==================================================================
+    // 5. DỰNG LẠI BẢNG TỔNG HỢP THEO NGÀY
+    // ==================================================================
+
+    /**
+     * API: Tính lại bảng tổng hợp (daily_revenue, daily_dish_sales,
+     * daily_ingredient_movement) cho khoảng ngày từ dữ liệu gốc.
+     * --------------------------------------------------------------
+     * URL ví dụ:
+     *  - POST /api/reports/rollups/rebuild?fromDate=2025-01-01&toDate=2025-12-31
+     */
+    @PostMapping("/rollups/rebuild")
+    @PreAuthorize("hasAuthority('REPORT_REVENUE')")
+    public ResponseEntity<String> rebuildRollups(
+            @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate fromDate,
+
+            @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate toDate
+    ) {
+        int rows = dailyRollupService.rebuild(fromDate, toDate);
+        return ResponseEntity.ok("Đã dựng lại " + rows + " dòng tổng hợp từ " + fromDate + " đến " + toDate);
+    }
+
     // ============================================================
     // CÁC API JSON ĐÃ CÓ (getRevenueReport, getTopDishesReport, ...)
     // ============================================================
@@ -207,36 +259,38 @@ public class ReportController {
     // ============================================================
 
     @GetMapping("/revenue/export-excel")
-    public ResponseEntity<byte[]> exportRevenueExcel(
+    public ResponseEntity<StreamingResponseBody> exportRevenueExcel(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
 
-        byte[] data = reportService.exportRevenueToExcel(from, to);
+        // Ghi thẳng vào response (SXSSF + cursor) – không dựng byte[] toàn file
+        StreamingResponseBody body = out -> reportService.writeRevenueExcel(from, to, out);
         String fileName = buildFileName("revenue", "xlsx");
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
                 .contentType(MediaType.parseMediaType(
                         "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .body(data);
+                .body(body);
     }
 
     @GetMapping("/revenue/export-pdf")
-    public ResponseEntity<byte[]> exportRevenuePdf(
+    public ResponseEntity<StreamingResponseBody> exportRevenuePdf(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
 
-        byte[] data = reportService.exportRevenueToPdf(from, to);
+        // Ghi thẳng vào response (bảng PDF flush theo lô + cursor)
+        StreamingResponseBody body = out -> reportService.writeRevenuePdf(from, to, out);
         String fileName = buildFileName("revenue", "pdf");
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
                 .contentType(MediaType.APPLICATION_PDF)
-                .body(data);
+                .body(body);
     }
 
     // ============================================================
@@ -244,38 +298,42 @@ public class ReportController {
     // ============================================================
 
     @GetMapping("/top-dishes/export-excel")
-    public ResponseEntity<byte[]> exportTopDishesExcel(
+    public ResponseEntity<StreamingResponseBody> exportTopDishesExcel(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "false") boolean excludeCanceled) {
 
-        byte[] data = reportService.exportTopDishesToExcel(from, to, limit);
+        // Ghi thẳng vào response (SXSSF + cursor) – không dựng byte[] toàn file
+        StreamingResponseBody body = out -> reportService.writeTopDishesExcel(from, to, limit, excludeCanceled, out);
         String fileName = buildFileName("top-dishes", "xlsx");
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
                 .contentType(MediaType.parseMediaType(
                         "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .body(data);
+                .body(body);
     }
 
     @GetMapping("/top-dishes/export-pdf")
-    public ResponseEntity<byte[]> exportTopDishesPdf(
+    public ResponseEntity<StreamingResponseBody> exportTopDishesPdf(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "false") boolean excludeCanceled) {
 
-        byte[] data = reportService.exportTopDishesToPdf(from, to, limit);
+        // Ghi thẳng vào response (bảng PDF flush theo lô + cursor)
+        StreamingResponseBody body = out -> reportService.writeTopDishesPdf(from, to, limit, excludeCanceled, out);
         String fileName = buildFileName("top-dishes", "pdf");
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
                 .contentType(MediaType.APPLICATION_PDF)
-                .body(data);
+                .body(body);
     }
 
     // ============================================================
@@ -283,36 +341,38 @@ public class ReportController {
     // ============================================================
 
     @GetMapping("/ingredients/export-excel")
-    public ResponseEntity<byte[]> exportIngredientUsageExcel(
+    public ResponseEntity<StreamingResponseBody> exportIngredientUsageExcel(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
 
-        byte[] data = reportService.exportIngredientUsageToExcel(from, to);
+        // Ghi thẳng vào response (SXSSF + cursor) – không dựng byte[] toàn file
+        StreamingResponseBody body = out -> reportService.writeIngredientUsageExcel(from, to, out);
         String fileName = buildFileName("ingredients", "xlsx");
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
                 .contentType(MediaType.parseMediaType(
                         "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .body(data);
+                .body(body);
     }
 
     @GetMapping("/ingredients/export-pdf")
-    public ResponseEntity<byte[]> exportIngredientUsagePdf(
+    public ResponseEntity<StreamingResponseBody> exportIngredientUsagePdf(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
 
-        byte[] data = reportService.exportIngredientUsageToPdf(from, to);
+        // Ghi thẳng vào response (bảng PDF flush theo lô + cursor)
+        StreamingResponseBody body = out -> reportService.writeIngredientUsagePdf(from, to, out);
         String fileName = buildFileName("ingredients", "pdf");
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
                 .contentType(MediaType.APPLICATION_PDF)
-                .body(data);
+                .body(body);
     }
 
     // ============================================================
@@ -320,36 +380,89 @@ public class ReportController {
     // ============================================================
 
     @GetMapping("/stock-entry/export-excel")
-    public ResponseEntity<byte[]> exportStockEntryExcel(
+    public ResponseEntity<StreamingResponseBody> exportStockEntryExcel(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
 
-        byte[] data = reportService.exportStockEntryToExcel(from, to);
+        // Ghi thẳng vào response (SXSSF + cursor) – không dựng byte[] toàn file
+        StreamingResponseBody body = out -> reportService.writeStockEntryExcel(from, to, out);
         String fileName = buildFileName("stock-entry", "xlsx");
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
                 .contentType(MediaType.parseMediaType(
                         "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .body(data);
+                .body(body);
     }
 
     @GetMapping("/stock-entry/export-pdf")
-    public ResponseEntity<byte[]> exportStockEntryPdf(
+    public ResponseEntity<StreamingResponseBody> exportStockEntryPdf(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
 
-        byte[] data = reportService.exportStockEntryToPdf(from, to);
+        // Ghi thẳng vào response (bảng PDF flush theo lô + cursor)
+        StreamingResponseBody body = out -> reportService.writeStockEntryPdf(from, to, out);
         String fileName = buildFileName("stock-entry", "pdf");
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
                 .contentType(MediaType.APPLICATION_PDF)
-                .body(data);
+                .body(body);
+    }
+
+    // ============================================================
+    // 5. XUẤT BÁO CÁO CHẠY NỀN (JOB)
+    // ============================================================
+
+    /**
+     * API: Gửi job xuất báo cáo.
+     * --------------------------------------------------------------
+     * Trả jobId ngay, không giữ thread request trong lúc ghi file.
+     * Cùng tham số với job đang chạy → trả về job đó (không render lại).
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<ReportJobResponse> submitJob(@Valid @RequestBody ReportJobRequest request) {
+        return ResponseEntity.ok(reportJobService.submit(request, AuthUtil.getCurrentUsername()));
+    }
+
+    /**
+     * API: Trạng thái job (QUEUED / RUNNING / DONE / FAILED).
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ReportJobResponse> getJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(reportJobService.getStatus(jobId, AuthUtil.getCurrentUsername()));
+    }
+
+    /**
+     * API: Tải file của job đã DONE (đọc thẳng từ file trên đĩa).
+     */
+    @GetMapping("/jobs/{jobId}/download")
+    public ResponseEntity<Resource> downloadJob(@PathVariable String jobId) {
+        ReportJobService.ReportJobFile file =
+                reportJobService.getFile(jobId, AuthUtil.getCurrentUsername());
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + file.fileName())
+                .contentType(MediaType.parseMediaType(file.contentType()))
+                .contentLength(file.size())
+                .body(new FileSystemResource(file.path()));
+    }
+
+    // ============================================================
+    // 6. METRICS CACHE BÁO CÁO
+    // ============================================================
+
+    /**
+     * API: Số liệu cache báo cáo theo ngày (revenue / dish-sales / ingredient).
+     */
+    @GetMapping("/cache/metrics")
+    @PreAuthorize("hasAuthority('REPORT_REVENUE')")
+    public ResponseEntity<List<ReportCacheMetricsResponse>> getCacheMetrics() {
+        return ResponseEntity.ok(reportCacheService.getMetrics());
     }
 
     // ============================================================
@@ -14,5 +14,6 @@ public class InvoiceItemDto {
     private BigDecimal dishPrice;
     private Integer quantity;
     private BigDecimal subtotal;
+    private Boolean canceled; // null với file backup cũ → coi như false
     private LocalDateTime createdAt;
 }
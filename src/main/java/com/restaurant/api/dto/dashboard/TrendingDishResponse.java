@@ -0,0 +1,50 @@
+package com.restaurant.api.dto.dashboard;
+
+import lombok.*;
+
+/**
+ * TrendingDishResponse
+ * -------------------------------------------------------------
+ * DTO trả về danh sách MÓN ĐANG BÁN CHẠY theo thời gian thực.
+ *
+ * Dùng cho API:
+ *  - /api/dashboard/trending-dishes?window=15m|1h|today
+ *
+ * Quy ước:
+ *  - quantity : số lượng được gọi trong khung thời gian (ước lượng)
+ *  - Số thật nằm trong [quantity - overestimate, quantity + underestimate]
+ *  - overestimate = underestimate = 0 → con số chính xác
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TrendingDishResponse {
+
+    /**
+     * ID của món ăn.
+     */
+    private Long dishId;
+
+    /**
+     * Tên món ăn hiển thị trên Dashboard.
+     */
+    private String dishName;
+
+    /**
+     * Số lượng được gọi trong khung thời gian.
+     */
+    private Long quantity;
+
+    /**
+     * Sai số tối đa về phía DƯ của quantity.
+     */
+    private Long overestimate;
+
+    /**
+     * Sai số tối đa về phía THIẾU của quantity
+     * (chỉ khác 0 với khung gộp nhiều phút: 15m / 1h).
+     */
+    private Long underestimate;
+}
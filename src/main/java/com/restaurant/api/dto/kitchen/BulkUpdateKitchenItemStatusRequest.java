@@ -0,0 +1,45 @@
+package com.restaurant.api.dto.kitchen;
+
+import com.restaurant.api.enums.OrderItemStatus;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * BulkUpdateKitchenItemStatusRequest
+ * ------------------------------------------------------------
+ * Body gửi từ FE (màn hình bếp) khi cập nhật trạng thái NHIỀU món cùng lúc
+ * (vd: bấm "Bắt đầu nấu" / "Xong" cho cả phiếu của 1 bàn).
+ *
+ * Ví dụ:
+ *  {
+ *      "orderItemIds": [101, 102, 105],
+ *      "newStatus": "COOKING",
+ *      "note": "Bắt đầu chế biến"
+ *  }
+ *
+ * Quy ước:
+ *  - Tất cả món phải chuyển hợp lệ sang newStatus, 1 món sai → không món nào đổi
+ */
+@Data
+public class BulkUpdateKitchenItemStatusRequest {
+
+    /**
+     * Danh sách ID OrderItem cần cập nhật.
+     */
+    @NotEmpty(message = "Danh sách món không được để trống")
+    private List<Long> orderItemIds;
+
+    /**
+     * Trạng thái mới cho toàn bộ các món.
+     */
+    @NotNull(message = "Trạng thái mới không được để trống")
+    private OrderItemStatus newStatus;
+
+    /**
+     * Ghi chú (tuỳ chọn), áp cho tất cả các món.
+     */
+    private String note;
+}
@@ -0,0 +1,36 @@
+package com.restaurant.api.dto.order;
+
+import com.restaurant.api.enums.OrderStatus;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * OrderSummaryResponse
+ * ------------------------------------------------------------
+ * DTO 1 dòng trong danh sách order (đọc từ read model order_summary):
+ *  - Không kèm danh sách món (xem chi tiết: GET /api/orders/{id})
+ * ------------------------------------------------------------
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderSummaryResponse {
+
+    private Long orderId;           // ID order
+    private String orderCode;       // Mã order
+
+    private Long tableId;           // Bàn (có thể null – POS nhanh / takeaway)
+    private String tableName;
+
+    private Integer itemCount;      // Số dòng món chưa hủy
+    private BigDecimal activeTotal; // Tổng tiền các món chưa hủy
+
+    private OrderStatus status;     // Trạng thái order
+
+    private LocalDateTime createdAt;  // Ngày tạo order
+    private LocalDateTime updatedAt;  // Lần cập nhật gần nhất
+}
@@ -0,0 +1,29 @@
+package com.restaurant.api.dto.realtime;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * RealtimeEventResponse
+ * -------------------------------------------------------------
+ * 1 message realtime đã gửi trên 1 topic (dùng khi replay).
+ *
+ * Các trường chính:
+ *  - seq     : số thứ tự của message trên topic (tăng dần, liên tục)
+ *  - sentAt  : thời điểm server gửi
+ *  - payload : nội dung y hệt message đã gửi qua WebSocket
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RealtimeEventResponse {
+
+    private Long seq;
+
+    private LocalDateTime sentAt;
+
+    private Object payload;
+}
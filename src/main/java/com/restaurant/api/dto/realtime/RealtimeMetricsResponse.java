@@ -0,0 +1,45 @@
+package com.restaurant.api.dto.realtime;
+
+import lombok.*;
+
+/**
+ * RealtimeMetricsResponse
+ * -------------------------------------------------------------
+ * Số liệu gửi message realtime kể từ khi khởi động server.
+ *
+ * Dùng cho API:
+ *  - GET /api/realtime/metrics
+ *
+ * Các trường chính:
+ *  - batchWindowMs      : cửa sổ micro-batch đang dùng (0 = tắt)
+ *  - payloadsTotal      : số payload các service đã publish
+ *  - framesTotal        : số frame STOMP thực sự gửi lên broker
+ *  - framesSaved        : số frame tiết kiệm nhờ gộp message
+ *  - batchedFramesTotal : số frame dạng BATCH (gộp ≥ 2 payload)
+ *  - bytesTotal         : tổng byte JSON đã gửi
+ *  - avgBytesPerFrame   : byte trung bình mỗi frame
+ *  - discardedTotal     : payload bị bỏ do transaction rollback
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RealtimeMetricsResponse {
+
+    private Long batchWindowMs;
+
+    private Long payloadsTotal;
+
+    private Long framesTotal;
+
+    private Long framesSaved;
+
+    private Long batchedFramesTotal;
+
+    private Long bytesTotal;
+
+    private Long avgBytesPerFrame;
+
+    private Long discardedTotal;
+}
@@ -0,0 +1,42 @@
+package com.restaurant.api.dto.realtime;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * RealtimeReplayResponse
+ * -------------------------------------------------------------
+ * Kết quả replay các message realtime bị lỡ khi client mất kết nối.
+ *
+ * Dùng cho API:
+ *  - GET /api/realtime/replay
+ *
+ * Các trường chính:
+ *  - topic            : topic được replay (vd: /topic/kitchen)
+ *  - epoch            : mã phiên server (đổi sau mỗi lần khởi động)
+ *  - lastSeq          : seq mới nhất của topic hiện tại
+ *  - oldestSeq        : seq cũ nhất còn giữ trong bộ đệm
+ *  - snapshotRequired : true → khoảng bị lỡ nằm ngoài bộ đệm / server đã
+ *                       khởi động lại → client phải tải lại toàn bộ qua REST
+ *  - events           : các message có seq > afterSeq (theo thứ tự gửi)
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RealtimeReplayResponse {
+
+    private String topic;
+
+    private String epoch;
+
+    private Long lastSeq;
+
+    private Long oldestSeq;
+
+    private Boolean snapshotRequired;
+
+    private List<RealtimeEventResponse> events;
+}
@@ -0,0 +1,27 @@
+package com.restaurant.api.dto.report;
+
+import lombok.*;
+
+/**
+ * ReportCacheMetricsResponse
+ * ------------------------------------------------------------
+ * Số liệu theo dõi 1 cache báo cáo theo ngày (ReportCacheService).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportCacheMetricsResponse {
+
+    private String cache;          // revenue / dish-sales / ingredient
+    private int cachedDays;        // Số ngày đang nằm trong cache
+    private int maxDays;           // Số ngày tối đa được giữ
+
+    private long hits;             // Số ngày lấy được từ cache
+    private long misses;           // Số ngày đã khép phải nạp từ DB
+    private double hitRatio;       // hits / (hits + misses)
+
+    private long evictions;        // Số ngày bị bỏ do vượt maxDays
+    private long invalidations;    // Số ngày bị bỏ do dữ liệu ngày cũ thay đổi
+}
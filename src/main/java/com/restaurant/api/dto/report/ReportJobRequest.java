@@ -0,0 +1,32 @@
+package com.restaurant.api.dto.report;
+
+import com.restaurant.api.enums.ReportFileFormat;
+import com.restaurant.api.enums.ReportJobType;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * DTO request tạo job xuất báo cáo chạy nền.
+ * -------------------------------------------------
+ * - fromDate / toDate: null → không giới hạn phía đó (giống API export)
+ * - limit / excludeCanceled: chỉ dùng cho TOP_DISHES
+ */
+@Data
+public class ReportJobRequest {
+
+    @NotNull(message = "Loại báo cáo không được để trống")
+    private ReportJobType type;        // REVENUE / TOP_DISHES / INGREDIENT_USAGE / STOCK_ENTRY
+
+    @NotNull(message = "Định dạng file không được để trống")
+    private ReportFileFormat format;   // EXCEL / PDF
+
+    private LocalDate fromDate;        // Từ ngày (bao gồm)
+
+    private LocalDate toDate;          // Đến ngày (bao gồm)
+
+    private Integer limit;             // Số món tối đa (TOP_DISHES, mặc định 10)
+
+    private Boolean excludeCanceled;   // Bỏ phần món đã hủy (TOP_DISHES, mặc định false)
+}
@@ -0,0 +1,35 @@
+package com.restaurant.api.dto.report;
+
+import com.restaurant.api.enums.ReportFileFormat;
+import com.restaurant.api.enums.ReportJobStatus;
+import com.restaurant.api.enums.ReportJobType;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * ReportJobResponse
+ * ------------------------------------------------------------
+ * Trạng thái 1 job xuất báo cáo – FE poll tới khi DONE rồi gọi downloadUrl.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportJobResponse {
+
+    private String jobId;
+    private ReportJobType type;
+    private ReportFileFormat format;
+    private ReportJobStatus status;
+
+    private LocalDateTime createdAt;    // Thời điểm nhận job
+    private LocalDateTime startedAt;    // Worker bắt đầu ghi file
+    private LocalDateTime finishedAt;   // Xong / lỗi
+    private LocalDateTime expiresAt;    // Sau thời điểm này file bị dọn (chỉ khi DONE / FAILED)
+
+    private Long fileSize;              // Kích thước file (byte) khi DONE
+    private String downloadUrl;         // Chỉ có khi DONE
+    private String error;               // Chỉ có khi FAILED
+}
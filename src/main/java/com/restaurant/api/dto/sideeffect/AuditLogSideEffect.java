@@ -0,0 +1,31 @@
+package com.restaurant.api.dto.sideeffect;
+
+import com.restaurant.api.enums.AuditAction;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * AuditLogSideEffect
+ * ------------------------------------------------------------
+ * Dữ liệu 1 dòng audit log, được CHỤP SẴN trên thread nghiệp vụ
+ * (user, IP, User-Agent, JSON trước/sau) để worker ghi sau mà
+ * không cần request / security context.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditLogSideEffect {
+
+    private String username;        // User thực hiện (null = hệ thống)
+    private AuditAction action;
+    private String entity;
+    private Long entityId;
+    private String beforeData;      // JSON string
+    private String afterData;       // JSON string
+    private String ipAddress;
+    private String userAgent;
+    private LocalDateTime createdAt; // Thời điểm thao tác thực tế
+}
@@ -0,0 +1,24 @@
+package com.restaurant.api.dto.sideeffect;
+
+import com.restaurant.api.enums.NotificationType;
+import lombok.*;
+
+/**
+ * NotificationSideEffect
+ * ------------------------------------------------------------
+ * 1 thông báo do Rule Engine sinh ra (title / message đã dựng sẵn).
+ * Worker sẽ kiểm tra bật/tắt rule + chống spam rồi mới tạo notification.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationSideEffect {
+
+    private String ruleKey;         // Key setting bật/tắt rule (VD: notification.rule.order_created.enabled)
+    private NotificationType type;
+    private String title;
+    private String message;
+    private String link;
+}
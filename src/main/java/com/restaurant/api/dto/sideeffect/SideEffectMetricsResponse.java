@@ -0,0 +1,31 @@
+package com.restaurant.api.dto.sideeffect;
+
+import lombok.*;
+
+/**
+ * SideEffectMetricsResponse
+ * ------------------------------------------------------------
+ * Số liệu theo dõi hàng đợi tác vụ phụ (audit log / notification).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SideEffectMetricsResponse {
+
+    private int queueDepth;          // Số tác vụ đang chờ trong RAM
+    private int queueCapacity;       // Sức chứa hàng đợi RAM
+    private long outboxPending;      // Số dòng PENDING còn trong bảng side_effect_outbox
+    private long outboxDead;         // Số dòng DEAD (hết lượt thử lại, chờ xóa)
+
+    private long enqueuedTotal;      // Tổng số tác vụ đã nhận
+    private long processedTotal;     // Tổng số tác vụ xử lý xong
+    private long failedTotal;        // Tổng số lần xử lý thất bại
+    private long deadTotal;          // Số tác vụ chuyển DEAD (lỗi đủ max-attempts lần)
+    private long deferredTotal;      // Số tác vụ bị đẩy về outbox do hàng đợi đầy
+    private long batchesTotal;       // Số lô đã xử lý
+
+    private long oldestQueuedLagMs;  // Tác vụ cũ nhất đang chờ đã chờ bao lâu (ms)
+    private long lastBatchLagMs;     // Độ trễ lớn nhất (commit → ghi xong) của lô gần nhất (ms)
+}
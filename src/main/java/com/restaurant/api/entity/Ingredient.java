@@ -2,6 +2,7 @@ package com.restaurant.api.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -17,6 +18,9 @@ import java.time.LocalDateTime;
 @Builder
 @Entity
 @Table(name = "ingredient")
+// Chỉ UPDATE các cột thực sự thay đổi → sửa tên / xóa mềm không ghi đè
+// stock_quantity đang được trừ song song bằng IngredientRepository.applyStockDeltas
+@DynamicUpdate
 public class Ingredient {
 
     @Id
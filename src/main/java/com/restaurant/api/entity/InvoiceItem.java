@@ -15,6 +15,7 @@ import java.time.LocalDateTime;
  *  - dishPrice   : giá món
  *  - quantity    : số lượng mua
  *  - subtotal    : thành tiền (price × quantity)
+ *  - canceled    : món đã bị hủy (CANCELED) lúc thanh toán
  *
  * Thuộc về Invoice (quan hệ nhiều–1).
  *
@@ -54,6 +55,10 @@ public class InvoiceItem {
     @Column(nullable = false)
     private BigDecimal subtotal; // Thành tiền = dishPrice × quantity
 
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean canceled = false; // Món đã bị hủy tại thời điểm thanh toán (snapshot order_item.status)
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt; // Thời điểm tạo bản ghi
 
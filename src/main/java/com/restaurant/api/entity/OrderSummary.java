@@ -0,0 +1,57 @@
+package com.restaurant.api.entity;
+
+import com.restaurant.api.enums.OrderStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entity OrderSummary – Read model cho màn danh sách order.
+ * ------------------------------------------------------------
+ * - Mỗi order 1 dòng, dữ liệu đã "render sẵn" (mã, tên bàn, số món, tổng tiền)
+ * - CHỈ ĐỌC qua JPA (@Immutable): bảng được ghi bởi OrderSummaryService
+ *   bằng câu UPSERT tổng hợp từ orders / order_item / restaurant_table
+ * - Khớp với bảng order_summary trong Flyway V49
+ */
+@Entity
+@Immutable
+@Table(name = "order_summary")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId; // = orders.id
+
+    @Column(name = "order_code", nullable = false)
+    private String orderCode;
+
+    @Column(name = "table_id")
+    private Long tableId;
+
+    @Column(name = "table_name")
+    private String tableName; // Snapshot tên bàn
+
+    @Column(name = "item_count", nullable = false)
+    private Integer itemCount; // Số dòng món chưa hủy
+
+    @Column(name = "active_total", nullable = false)
+    private BigDecimal activeTotal; // Tổng tiền các món chưa hủy
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt; // Thời gian tạo order
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt; // Lần cập nhật projection gần nhất
+}
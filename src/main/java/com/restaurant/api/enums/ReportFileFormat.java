@@ -0,0 +1,35 @@
+package com.restaurant.api.enums;
+
+/**
+ * ReportFileFormat
+ * ============================================================
+ * Định dạng file xuất báo cáo: phần mở rộng + Content-Type khi tải về.
+ */
+public enum ReportFileFormat {
+
+    /**
+     * Excel (.xlsx)
+     */
+    EXCEL("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+
+    /**
+     * PDF
+     */
+    PDF("pdf", "application/pdf");
+
+    private final String extension;
+    private final String contentType;
+
+    ReportFileFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
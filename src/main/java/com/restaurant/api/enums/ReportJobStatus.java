@@ -0,0 +1,29 @@
+package com.restaurant.api.enums;
+
+/**
+ * ReportJobStatus
+ * ============================================================
+ * Trạng thái 1 job xuất báo cáo chạy nền (ReportJobService).
+ */
+public enum ReportJobStatus {
+
+    /**
+     * Đã nhận, đang chờ worker
+     */
+    QUEUED,
+
+    /**
+     * Worker đang ghi file
+     */
+    RUNNING,
+
+    /**
+     * Ghi xong – tải được qua /api/reports/jobs/{id}/download
+     */
+    DONE,
+
+    /**
+     * Lỗi khi xuất (xem trường error)
+     */
+    FAILED
+}
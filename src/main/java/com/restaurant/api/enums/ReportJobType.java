@@ -0,0 +1,40 @@
+package com.restaurant.api.enums;
+
+/**
+ * ReportJobType
+ * ============================================================
+ * Loại báo cáo có thể xuất qua job nền.
+ * filePrefix dùng đặt tên file tải về (giống API export đồng bộ).
+ */
+public enum ReportJobType {
+
+    /**
+     * Báo cáo doanh thu theo ngày
+     */
+    REVENUE("revenue"),
+
+    /**
+     * Báo cáo top món bán chạy (dùng thêm limit / excludeCanceled)
+     */
+    TOP_DISHES("top-dishes"),
+
+    /**
+     * Báo cáo nguyên liệu tiêu hao
+     */
+    INGREDIENT_USAGE("ingredients"),
+
+    /**
+     * Báo cáo nhập kho nguyên liệu
+     */
+    STOCK_ENTRY("stock-entry");
+
+    private final String filePrefix;
+
+    ReportJobType(String filePrefix) {
+        this.filePrefix = filePrefix;
+    }
+
+    public String getFilePrefix() {
+        return filePrefix;
+    }
+}
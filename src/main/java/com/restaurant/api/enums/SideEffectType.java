@@ -0,0 +1,20 @@
+package com.restaurant.api.enums;
+
+/**
+ * SideEffectType
+ * ============================================================
+ * Loại tác vụ phụ chạy bất đồng bộ sau khi nghiệp vụ commit
+ * (SideEffectDispatcher / bảng side_effect_outbox).
+ */
+public enum SideEffectType {
+
+    /**
+     * Ghi 1 dòng audit_log
+     */
+    AUDIT_LOG,
+
+    /**
+     * Tạo thông báo qua Rule Engine (notification + notification_user_status)
+     */
+    NOTIFICATION
+}
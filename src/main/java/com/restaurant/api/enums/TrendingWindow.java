@@ -0,0 +1,54 @@
+package com.restaurant.api.enums;
+
+/**
+ * TrendingWindow
+ * ============================================================
+ * Khung thời gian cho "món đang bán chạy" (TrendingDishTracker).
+ * code: giá trị query param ?window=... của /api/dashboard/trending-dishes
+ */
+public enum TrendingWindow {
+
+    /**
+     * 15 phút gần nhất
+     */
+    LAST_15_MIN("15m", 15),
+
+    /**
+     * 1 giờ gần nhất
+     */
+    LAST_1_HOUR("1h", 60),
+
+    /**
+     * Từ 00:00 hôm nay
+     */
+    TODAY("today", 0);
+
+    private final String code;
+    private final int minutes;
+
+    TrendingWindow(String code, int minutes) {
+        this.code = code;
+        this.minutes = minutes;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /** Số phút của khung (TODAY = 0 → tính theo ngày) */
+    public int getMinutes() {
+        return minutes;
+    }
+
+    /**
+     * Tìm theo code (15m / 1h / today), không phân biệt hoa thường.
+     */
+    public static TrendingWindow fromCode(String code) {
+        for (TrendingWindow w : values()) {
+            if (w.code.equalsIgnoreCase(code)) {
+                return w;
+            }
+        }
+        throw new RuntimeException("Khung thời gian không hợp lệ: " + code + " (15m | 1h | today)");
+    }
+}
@@ -0,0 +1,27 @@
+package com.restaurant.api.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DishesOrderedEvent
+ * ------------------------------------------------------------
+ * Domain event: khách vừa gọi thêm món (tạo order / sửa order gọi thêm).
+ * - dishes   : từng món + số lượng GỌI THÊM (không phải tổng của order)
+ * - orderedAt: thời điểm gọi món
+ * Dùng cho TrendingDishTracker (món bán chạy theo thời gian thực).
+ * Event này CHỈ dùng nội bộ, không gửi thẳng cho FE.
+ */
+public record DishesOrderedEvent(
+        Long orderId,
+        List<OrderedDish> dishes,
+        LocalDateTime orderedAt
+) {
+
+    /** 1 món được gọi thêm */
+    public record OrderedDish(
+            Long dishId,
+            String dishName,
+            int quantity
+    ) {}
+}
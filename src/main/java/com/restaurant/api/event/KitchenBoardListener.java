@@ -0,0 +1,55 @@
+package com.restaurant.api.event;
+
+import com.restaurant.api.enums.PosTableChangeReason;
+import com.restaurant.api.service.KitchenBoard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * KitchenBoardListener
+ * ------------------------------------------------------------
+ * Cập nhật KitchenBoard (món đang chế biến trong RAM)
+ * CHỈ SAU KHI transaction COMMIT thành công:
+ *  - Transaction rollback → board không bị ghi dữ liệu "ma"
+ *  - Mỗi event chỉ đọc lại đúng order / bàn liên quan
+ */
+@Component
+@RequiredArgsConstructor
+public class KitchenBoardListener {
+
+    private final KitchenBoard kitchenBoard;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        kitchenBoard.refreshOrder(event.getOrder().getId());
+    }
+
+    /** Sửa món, gọi thêm, hủy món, bếp đổi trạng thái món (updateItemStatus) */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderItemsChanged(OrderItemsChangedEvent event) {
+        kitchenBoard.refreshOrder(event.orderId());
+    }
+
+    /** Thanh toán / hủy order → món của order rời khỏi bếp */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        kitchenBoard.refreshOrder(event.orderId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderDeleted(OrderDeletedEvent event) {
+        kitchenBoard.removeOrder(event.orderId());
+    }
+
+    /**
+     * Chuyển / gộp bàn → tên bàn trên phiếu bếp thay đổi.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTableChanged(TableChangedEvent event) {
+        if (event.reason() == PosTableChangeReason.TABLE_STRUCTURE_CHANGED) {
+            kitchenBoard.refreshTable(event.tableId());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.restaurant.api.event;
+
+import com.restaurant.api.service.LiveDashboardMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * LiveDashboardMetricsListener
+ * ------------------------------------------------------------
+ * Cộng dồn số liệu dashboard trong RAM (LiveDashboardMetrics)
+ * CHỈ SAU KHI transaction COMMIT thành công:
+ *  - Transaction rollback → không cộng doanh thu / order "ma"
+ *  - Không đọc DB – chỉ cộng vào bộ đếm
+ */
+@Component
+@RequiredArgsConstructor
+public class LiveDashboardMetricsListener {
+
+    private final LiveDashboardMetrics liveDashboardMetrics;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPaymentCompleted(PaymentCompletedEvent event) {
+        liveDashboardMetrics.recordPayment(event.paidAt(), event.amount());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        liveDashboardMetrics.recordOrderCreated(event.getOrder().getCreatedAt());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderDeleted(OrderDeletedEvent event) {
+        liveDashboardMetrics.recordOrderDeleted();
+    }
+}
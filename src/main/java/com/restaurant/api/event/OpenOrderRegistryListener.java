@@ -0,0 +1,64 @@
+package com.restaurant.api.event;
+
+import com.restaurant.api.enums.PosTableChangeReason;
+import com.restaurant.api.service.OpenOrderRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * OpenOrderRegistryListener
+ * ------------------------------------------------------------
+ * Cập nhật OpenOrderRegistry (bàn → order đang mở trong RAM)
+ * CHỈ SAU KHI transaction COMMIT thành công:
+ *  - Transaction rollback → registry không bị ghi dữ liệu "ma"
+ *  - Mỗi event chỉ đọc lại đúng order / bàn liên quan
+ *  - @Order(PROJECTION_ORDER): chạy TRƯỚC các listener realtime
+ *    (payload /topic/tables đọc thống kê bàn từ registry)
+ */
+@Component
+@RequiredArgsConstructor
+public class OpenOrderRegistryListener {
+
+    /** Thứ tự chạy: trước OrderRealtimeListener.REALTIME_ORDER */
+    public static final int PROJECTION_ORDER = 0;
+
+    private final OpenOrderRegistry openOrderRegistry;
+
+    @Order(PROJECTION_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        openOrderRegistry.refreshOrder(event.getOrder().getId());
+    }
+
+    @Order(PROJECTION_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderItemsChanged(OrderItemsChangedEvent event) {
+        openOrderRegistry.refreshOrder(event.orderId());
+    }
+
+    @Order(PROJECTION_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        openOrderRegistry.refreshOrder(event.orderId());
+    }
+
+    @Order(PROJECTION_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderDeleted(OrderDeletedEvent event) {
+        openOrderRegistry.removeOrder(event.orderId());
+    }
+
+    /**
+     * Chuyển / gộp bàn → đọc lại order mở của từng bàn bị ảnh hưởng.
+     */
+    @Order(PROJECTION_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTableChanged(TableChangedEvent event) {
+        if (event.reason() == PosTableChangeReason.TABLE_STRUCTURE_CHANGED) {
+            openOrderRegistry.refreshTable(event.tableId());
+        }
+    }
+}
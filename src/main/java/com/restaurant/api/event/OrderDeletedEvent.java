@@ -0,0 +1,13 @@
+package com.restaurant.api.event;
+
+/**
+ * OrderDeletedEvent
+ * ------------------------------------------------------------
+ * Domain event: order (chưa thanh toán) đã bị xóa khỏi hệ thống.
+ * - tableId: bàn của order tại thời điểm xóa (có thể null)
+ * Event này CHỈ dùng nội bộ, không gửi thẳng cho FE.
+ */
+public record OrderDeletedEvent(
+        Long orderId,
+        Long tableId
+) {}
@@ -0,0 +1,12 @@
+package com.restaurant.api.event;
+
+/**
+ * OrderItemsChangedEvent
+ * ------------------------------------------------------------
+ * Domain event: danh sách món / trạng thái món của 1 order đã thay đổi
+ * (sửa món, gọi thêm, hủy món, bếp đổi trạng thái món...).
+ * Event này CHỈ dùng nội bộ, không gửi thẳng cho FE.
+ */
+public record OrderItemsChangedEvent(
+        Long orderId
+) {}
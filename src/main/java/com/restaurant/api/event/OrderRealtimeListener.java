@@ -1,51 +1,92 @@
 package com.restaurant.api.event;
 
 import com.restaurant.api.entity.OrderItem;
+import com.restaurant.api.enums.OrderItemStatus;
+import com.restaurant.api.service.RealtimePayloadFactory;
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.transaction.event.TransactionPhase;
 
+import java.util.List;
 import java.util.Map;
 
 /**
  * OrderRealtimeListener
  * ------------------------------------------------------------
- * Lắng nghe OrderCreatedEvent và bắn realtime
+ * Lắng nghe các event domain của Order và bắn realtime
  * CHỈ SAU KHI transaction COMMIT thành công.
+ *
+ * Payload tự đủ dữ liệu (RealtimePayloadFactory) → client áp thẳng
+ * vào state, không cần gọi lại REST sau mỗi event.
+ *
+ * @Order(REALTIME_ORDER): chạy SAU các listener cập nhật dữ liệu trong RAM
+ * (OpenOrderRegistryListener...) → payload đọc được trạng thái mới nhất.
  */
 @Component
 @RequiredArgsConstructor
 public class OrderRealtimeListener {
 
+    /** Thứ tự chạy của các listener realtime (sau các projection trong RAM) */
+    public static final int REALTIME_ORDER = 100;
+
     private final RealtimeEventPublisher realtimeEventPublisher;
+    private final RealtimePayloadFactory realtimePayloadFactory;
 
     /**
-     * Bắn realtime cho bếp sau khi transaction commit
+     * Order mới: /topic/orders (luôn có) + /topic/kitchen (khi auto_send_kitchen)
      */
+    @Order(REALTIME_ORDER)
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
     public void handleOrderCreated(OrderCreatedEvent event) {
 
         // 1) Realtime cho Order (LUÔN CÓ)
         realtimeEventPublisher.publishOrder(
-                Map.of(
-                        "event", "ORDER_CREATED",
-                        "orderId", event.getOrder().getId()
-                )
+                realtimePayloadFactory.orderCreated(event.getOrder(), event.getOrderItems())
         );
 
         // 2) Realtime cho Kitchen (CHỈ KHI auto_send_kitchen)
+        //    → 1 message cho cả order (không gửi từng món)
         if (event.isAutoSendKitchen()) {
-            for (OrderItem oi : event.getOrderItems()) {
+            List<OrderItem> kitchenItems = event.getOrderItems().stream()
+                    .filter(oi -> oi.getStatus() != OrderItemStatus.CANCELED)
+                    .toList();
+            if (!kitchenItems.isEmpty()) {
                 realtimeEventPublisher.publishKitchen(
-                        Map.of(
-                                "event", "ORDER_CREATED",
-                                "orderItemId", oi.getId(),
-                                "orderId", event.getOrder().getId()
-                        )
+                        realtimePayloadFactory.kitchenItemsAdded(event.getOrder(), kitchenItems)
                 );
             }
         }
     }
+
+    /**
+     * Sửa món / gọi thêm / hủy món → gửi lại order + món mới nhất
+     */
+    @Order(REALTIME_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void handleOrderItemsChanged(OrderItemsChangedEvent event) {
+        Map<String, Object> payload = realtimePayloadFactory.orderUpdated(event.orderId());
+        if (payload != null) {
+            realtimeEventPublisher.publishOrder(payload);
+        }
+    }
+
+    @Order(REALTIME_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void handleOrderStatusChanged(OrderStatusChangedEvent event) {
+        Map<String, Object> payload = realtimePayloadFactory.orderStatusChanged(
+                event.orderId(), event.oldStatus(), event.newStatus());
+        if (payload != null) {
+            realtimeEventPublisher.publishOrder(payload);
+        }
+    }
+
+    @Order(REALTIME_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void handleOrderDeleted(OrderDeletedEvent event) {
+        realtimeEventPublisher.publishOrder(
+                realtimePayloadFactory.orderDeleted(event.orderId(), event.tableId())
+        );
+    }
 }
@@ -0,0 +1,16 @@
+package com.restaurant.api.event;
+
+import com.restaurant.api.enums.OrderStatus;
+
+/**
+ * OrderStatusChangedEvent
+ * ------------------------------------------------------------
+ * Domain event: trạng thái order đã thay đổi
+ * (NEW → SERVING, SERVING → PAID, hủy order...).
+ * Event này CHỈ dùng nội bộ, không gửi thẳng cho FE.
+ */
+public record OrderStatusChangedEvent(
+        Long orderId,
+        OrderStatus oldStatus,
+        OrderStatus newStatus
+) {}
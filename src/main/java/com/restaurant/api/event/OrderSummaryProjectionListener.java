@@ -0,0 +1,49 @@
+package com.restaurant.api.event;
+
+import com.restaurant.api.enums.PosTableChangeReason;
+import com.restaurant.api.service.OrderSummaryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * OrderSummaryProjectionListener
+ * ------------------------------------------------------------
+ * Giữ bảng read model order_summary luôn khớp với dữ liệu order.
+ *
+ * - Chạy BEFORE_COMMIT: projection được ghi trong CÙNG transaction
+ *   với thay đổi nghiệp vụ → commit cùng nhau / rollback cùng nhau
+ * - Mỗi event chỉ tổng hợp lại đúng order (hoặc bàn) liên quan
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderSummaryProjectionListener {
+
+    private final OrderSummaryService orderSummaryService;
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        orderSummaryService.refreshOrder(event.getOrder().getId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onOrderItemsChanged(OrderItemsChangedEvent event) {
+        orderSummaryService.refreshOrder(event.orderId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        orderSummaryService.refreshOrder(event.orderId());
+    }
+
+    /**
+     * Chuyển / gộp bàn → cập nhật tên bàn của các order đang mở liên quan.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onTableChanged(TableChangedEvent event) {
+        if (event.reason() == PosTableChangeReason.TABLE_STRUCTURE_CHANGED) {
+            orderSummaryService.refreshOpenOrdersOfTable(event.tableId());
+        }
+    }
+}
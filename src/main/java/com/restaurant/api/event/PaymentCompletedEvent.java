@@ -0,0 +1,19 @@
+package com.restaurant.api.event;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * PaymentCompletedEvent
+ * ------------------------------------------------------------
+ * Domain event: 1 hóa đơn vừa được thanh toán (InvoiceService tạo invoice).
+ * - amount: invoice.total_amount (số tiền cuối cùng)
+ * - paidAt: invoice.paid_at (ngày ghi nhận doanh thu)
+ * Event này CHỈ dùng nội bộ, không gửi thẳng cho FE.
+ */
+public record PaymentCompletedEvent(
+        Long invoiceId,
+        Long orderId,
+        BigDecimal amount,
+        LocalDateTime paidAt
+) {}
@@ -0,0 +1,157 @@
+package com.restaurant.api.event;
+
+import com.restaurant.api.dto.realtime.RealtimeEventResponse;
+import com.restaurant.api.dto.realtime.RealtimeReplayResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * RealtimeEventLog – Nhật ký message realtime để replay khi client kết nối lại
+ * =====================================================================
+ * Tablet bếp / máy POS mất kết nối SockJS vài giây (Wi-Fi chập chờn)
+ * → các message gửi trong khoảng đó bị mất, trước đây client chỉ còn
+ *   cách tải lại toàn bộ qua REST (KitchenController / TableController).
+ *
+ * Mỗi message gửi qua RealtimeEventPublisher được:
+ *  - Gắn seq tăng dần, liên tục THEO TỪNG TOPIC (header STOMP "seq")
+ *    + epoch của phiên server (header "epoch", đổi sau mỗi lần khởi động)
+ *  - Giữ lại trong bộ đệm vòng cố định (realtime.replay.buffer-size / topic)
+ *
+ * Client:
+ *  - Nhớ seq cuối cùng đã nhận của mỗi topic
+ *  - Thấy seq nhảy cóc hoặc vừa kết nối lại → gọi
+ *      GET /api/realtime/replay?topic=...&afterSeq=...&epoch=...
+ *    + Còn trong bộ đệm → nhận lại đúng các message bị lỡ
+ *    + Ngoài bộ đệm / khác epoch → snapshotRequired = true → tải lại qua REST
+ *
+ * Cấp seq + ghi bộ đệm + gửi message chạy dưới lock của topic
+ * → thứ tự seq trên WebSocket luôn tăng dần.
+ * =====================================================================
+ */
+@Component
+public class RealtimeEventLog {
+
+    /** Tên header STOMP chứa seq */
+    public static final String SEQ_HEADER = "seq";
+
+    /** Tên header STOMP chứa epoch */
+    public static final String EPOCH_HEADER = "epoch";
+
+    /** Mã phiên server: seq bắt đầu lại từ 1 sau mỗi lần khởi động */
+    private final String epoch = UUID.randomUUID().toString();
+
+    private final int bufferSize;
+
+    private final Map<String, TopicLog> topics = new ConcurrentHashMap<>();
+
+    public RealtimeEventLog(@Value("${realtime.replay.buffer-size:1000}") int bufferSize) {
+        this.bufferSize = Math.max(bufferSize, 16);
+    }
+
+    /** 1 message đã gửi */
+    private record Entry(long seq, LocalDateTime sentAt, Object payload) {}
+
+    /**
+     * Bộ đệm vòng của 1 topic.
+     * lastSeq = 0 → chưa gửi message nào.
+     */
+    private static final class TopicLog {
+        final Entry[] ring;
+        long lastSeq = 0;
+
+        TopicLog(int size) {
+            this.ring = new Entry[size];
+        }
+
+        long oldestSeq() {
+            return Math.max(1, lastSeq - ring.length + 1);
+        }
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    // =====================================================================
+    // 1. GHI
+    // =====================================================================
+
+    /**
+     * Cấp seq mới cho message, lưu vào bộ đệm rồi gọi sender(seq) để gửi.
+     * Sender chạy trong lock của topic → message đi ra đúng thứ tự seq.
+     */
+    public void append(String topic, Object payload, LongConsumer sender) {
+        TopicLog log = topics.computeIfAbsent(topic, t -> new TopicLog(bufferSize));
+        synchronized (log) {
+            long seq = ++log.lastSeq;
+            log.ring[(int) (seq % log.ring.length)] = new Entry(seq, LocalDateTime.now(), payload);
+            sender.accept(seq);
+        }
+    }
+
+    // =====================================================================
+    // 2. REPLAY
+    // =====================================================================
+
+    /**
+     * Các message của topic có seq > afterSeq.
+     *
+     * @param clientEpoch epoch client đã nhận (null → coi như cùng phiên)
+     */
+    public RealtimeReplayResponse replay(String topic, long afterSeq, String clientEpoch) {
+        TopicLog log = topics.get(topic);
+
+        if (log == null) {
+            // Chưa có message nào trên topic kể từ khi khởi động
+            boolean sameEpoch = clientEpoch == null || epoch.equals(clientEpoch);
+            return RealtimeReplayResponse.builder()
+                    .topic(topic)
+                    .epoch(epoch)
+                    .lastSeq(0L)
+                    .oldestSeq(0L)
+                    .snapshotRequired(!sameEpoch || afterSeq > 0)
+                    .events(List.of())
+                    .build();
+        }
+
+        synchronized (log) {
+            long oldest = log.oldestSeq();
+            boolean sameEpoch = clientEpoch == null || epoch.equals(clientEpoch);
+
+            // Lỡ cả message cũ nhất còn giữ / seq của client lớn hơn server
+            // (server đã khởi động lại) → phải tải lại toàn bộ
+            boolean snapshotRequired = !sameEpoch
+                    || afterSeq < oldest - 1
+                    || afterSeq > log.lastSeq;
+
+            List<RealtimeEventResponse> events = new ArrayList<>();
+            if (!snapshotRequired) {
+                for (long seq = afterSeq + 1; seq <= log.lastSeq; seq++) {
+                    Entry e = log.ring[(int) (seq % log.ring.length)];
+                    events.add(RealtimeEventResponse.builder()
+                            .seq(e.seq())
+                            .sentAt(e.sentAt())
+                            .payload(e.payload())
+                            .build());
+                }
+            }
+
+            return RealtimeReplayResponse.builder()
+                    .topic(topic)
+                    .epoch(epoch)
+                    .lastSeq(log.lastSeq)
+                    .oldestSeq(oldest)
+                    .snapshotRequired(snapshotRequired)
+                    .events(events)
+                    .build();
+        }
+    }
+}
@@ -1,8 +1,27 @@
 package com.restaurant.api.event;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.api.dto.realtime.RealtimeMetricsResponse;
+import com.restaurant.api.service.RealtimePayloadFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.MimeTypeUtils;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * RealtimeEventPublisher – Phase 5.1 / Step 3
@@ -17,19 +36,77 @@ import org.springframework.stereotype.Component;
  * Nguyên tắc sử dụng:
  *  - Service gọi RealtimeEventPublisher
  *  - Không publish rải rác ở nhiều nơi
+ *
+ * Gộp message (giảm số frame STOMP gửi cho mỗi subscriber):
+ *  1) Theo transaction: publish trong lúc transaction đang chạy (vd: KitchenService)
+ *     → giữ lại theo topic, chỉ đẩy đi khi transaction COMMIT
+ *     (rollback → bỏ hết, không còn message "ma").
+ *     Listener AFTER_COMMIT chạy trong afterCompletion, lúc synchronization
+ *     đã bị xóa → publish từ đó đi thẳng vào micro-batch (bước 2)
+ *  2) Micro-batch: các message cùng topic tới trong cửa sổ
+ *     realtime.batch.window-ms (mặc định 50ms, 0 = tắt) được gộp lại,
+ *     kể cả từ nhiều transaction khác nhau
+ *  → Mỗi topic, mỗi lần flush chỉ gửi 1 frame:
+ *     + 1 payload  → gửi nguyên payload (giữ định dạng cũ)
+ *     + n payload  → { "event": "BATCH", "schemaVersion", "events": [...] }
+ *
+ * Mọi frame đều đi qua send():
+ *  - Serialize JSON 1 lần (đếm byte cho getMetrics)
+ *  - Gắn header STOMP "seq" (tăng dần theo topic) + "epoch" (phiên server)
+ *  - Lưu vào RealtimeEventLog → client mất kết nối có thể replay
+ *    (GET /api/realtime/replay) thay vì tải lại toàn bộ
  */
 @Component
-@RequiredArgsConstructor
 public class RealtimeEventPublisher {
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final RealtimeEventLog realtimeEventLog;
+    private final ObjectMapper objectMapper;
+
+    /** Cửa sổ micro-batch (ms), 0 = gửi ngay sau commit */
+    private final long batchWindowMs;
+
+    /** Key gắn buffer của transaction hiện tại (TransactionSynchronizationManager) */
+    private final Object txBufferKey = new Object();
+
+    /** Message chờ micro-batch: topic → payload (theo thứ tự publish) */
+    private final Map<String, List<Object>> pending = new LinkedHashMap<>();
+
+    private final ScheduledExecutorService batchExecutor;
+
+    // Metrics
+    private final LongAdder payloadsTotal = new LongAdder();
+    private final LongAdder framesTotal = new LongAdder();
+    private final LongAdder bytesTotal = new LongAdder();
+    private final LongAdder batchedFramesTotal = new LongAdder();
+    private final LongAdder discardedTotal = new LongAdder();
+
+    public RealtimeEventPublisher(SimpMessagingTemplate messagingTemplate,
+                                  RealtimeEventLog realtimeEventLog,
+                                  ObjectMapper objectMapper,
+                                  @Value("${realtime.batch.window-ms:50}") long batchWindowMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.realtimeEventLog = realtimeEventLog;
+        this.objectMapper = objectMapper;
+        this.batchWindowMs = Math.max(batchWindowMs, 0);
+        this.batchExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "realtime-batch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        batchExecutor.shutdown();
+    }
 
     /**
      * Bắn realtime cho Order
      * @param payload dữ liệu order gửi xuống client
      */
     public void publishOrder(Object payload) {
-        messagingTemplate.convertAndSend("/topic/orders", payload);
+        publish("/topic/orders", payload);
     }
 
     /**
@@ -37,7 +114,7 @@ public class RealtimeEventPublisher {
      * @param payload dữ liệu order item
      */
     public void publishOrderItem(Object payload) {
-        messagingTemplate.convertAndSend("/topic/order-items", payload);
+        publish("/topic/order-items", payload);
     }
 
     /**
@@ -45,7 +122,7 @@ public class RealtimeEventPublisher {
      * @param payload dữ liệu gửi bếp
      */
     public void publishKitchen(Object payload) {
-        messagingTemplate.convertAndSend("/topic/kitchen", payload);
+        publish("/topic/kitchen", payload);
     }
 
     /**
@@ -53,7 +130,7 @@ public class RealtimeEventPublisher {
      * @param payload dữ liệu thông báo
      */
     public void publishNotification(Object payload) {
-        messagingTemplate.convertAndSend("/topic/notifications", payload);
+        publish("/topic/notifications", payload);
     }
 
     /**
@@ -63,6 +140,173 @@ public class RealtimeEventPublisher {
      * (order tạo / thanh toán xong / thay đổi món quan trọng)
      */
     public void publishTable(Object payload) {
-        messagingTemplate.convertAndSend("/topic/tables", payload);
+        publish("/topic/tables", payload);
+    }
+
+    /**
+     * Bắn realtime cho Dashboard
+     * ------------------------------------------------------------
+     * Chỉ gọi từ DashboardRealtimePusher (đã gộp + chỉ chứa số liệu thay đổi),
+     * không publish trực tiếp theo từng thanh toán.
+     */
+    public void publishDashboard(Object payload) {
+        publish("/topic/dashboard", payload);
+    }
+
+    /**
+     * Số liệu gộp message: so sánh payloadsTotal với framesTotal
+     * để thấy số frame STOMP tiết kiệm được.
+     */
+    public RealtimeMetricsResponse getMetrics() {
+        long payloads = payloadsTotal.sum();
+        long frames = framesTotal.sum();
+        return RealtimeMetricsResponse.builder()
+                .batchWindowMs(batchWindowMs)
+                .payloadsTotal(payloads)
+                .framesTotal(frames)
+                .framesSaved(Math.max(payloads - frames - discardedTotal.sum(), 0))
+                .batchedFramesTotal(batchedFramesTotal.sum())
+                .bytesTotal(bytesTotal.sum())
+                .avgBytesPerFrame(frames > 0 ? bytesTotal.sum() / frames : 0)
+                .discardedTotal(discardedTotal.sum())
+                .build();
+    }
+
+    // =====================================================================
+    // GỘP THEO TRANSACTION
+    // =====================================================================
+
+    /**
+     * Nhận 1 payload:
+     *  - Có transaction synchronization → giữ trong buffer của transaction
+     *    (flush khi afterCompletion = COMMITTED, rollback → bỏ)
+     *  - Không có synchronization → đưa thẳng vào micro-batch.
+     *    Gồm cả listener AFTER_COMMIT (OrderRealtimeListener...): Spring gọi
+     *    chúng trong afterCompletion, sau khi đã xóa synchronization
+     */
+    private void publish(String topic, Object payload) {
+        payloadsTotal.increment();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(Map.of(topic, List.of(payload)));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, List<Object>> buffer =
+                (Map<String, List<Object>>) TransactionSynchronizationManager.getResource(txBufferKey);
+
+        if (buffer == null) {
+            Map<String, List<Object>> txBuffer = new LinkedHashMap<>();
+            TransactionSynchronizationManager.bindResource(txBufferKey, txBuffer);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(txBufferKey);
+                    if (status == STATUS_COMMITTED) {
+                        enqueue(txBuffer);
+                    } else {
+                        txBuffer.values().forEach(list -> discardedTotal.add(list.size()));
+                    }
+                }
+            });
+            buffer = txBuffer;
+        }
+
+        buffer.computeIfAbsent(topic, t -> new ArrayList<>()).add(payload);
+    }
+
+    // =====================================================================
+    // MICRO-BATCH
+    // =====================================================================
+
+    /**
+     * Đưa các payload (theo topic) vào hàng chờ micro-batch.
+     * Cửa sổ = 0 → gửi ngay (vẫn gộp các payload của cùng 1 transaction).
+     */
+    private void enqueue(Map<String, List<Object>> byTopic) {
+        if (byTopic.isEmpty()) {
+            return;
+        }
+
+        if (batchWindowMs == 0) {
+            byTopic.forEach(this::sendBatch);
+            return;
+        }
+
+        boolean scheduleFlush;
+        synchronized (pending) {
+            scheduleFlush = pending.isEmpty();
+            byTopic.forEach((topic, payloads) ->
+                    pending.computeIfAbsent(topic, t -> new ArrayList<>()).addAll(payloads));
+        }
+
+        // Payload đầu tiên của cửa sổ → hẹn giờ flush
+        if (scheduleFlush) {
+            batchExecutor.schedule(this::flushPending, batchWindowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushPending() {
+        Map<String, List<Object>> batch;
+        synchronized (pending) {
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+        }
+        batch.forEach((topic, payloads) -> {
+            try {
+                sendBatch(topic, payloads);
+            } catch (Exception e) {
+                System.err.println("[Realtime] Lỗi gửi " + topic + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /** Gửi các payload của 1 topic thành 1 frame */
+    private void sendBatch(String topic, List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+        if (payloads.size() == 1) {
+            send(topic, payloads.get(0));
+            return;
+        }
+
+        Map<String, Object> batch = new LinkedHashMap<>();
+        batch.put("event", "BATCH");
+        batch.put("schemaVersion", RealtimePayloadFactory.SCHEMA_VERSION);
+        batch.put("occurredAt", LocalDateTime.now());
+        batch.put("events", List.copyOf(payloads));
+
+        batchedFramesTotal.increment();
+        send(topic, batch);
+    }
+
+    /**
+     * Gửi 1 frame lên topic kèm seq / epoch và ghi vào nhật ký replay.
+     * JSON được serialize 1 lần tại đây (đếm byte), broker gửi nguyên byte[].
+     */
+    private void send(String topic, Object payload) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            System.err.println("[Realtime] Không serialize được payload " + topic + ": " + e.getMessage());
+            return;
+        }
+
+        realtimeEventLog.append(topic, payload, seq -> {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            accessor.setNativeHeader(RealtimeEventLog.SEQ_HEADER, String.valueOf(seq));
+            accessor.setNativeHeader(RealtimeEventLog.EPOCH_HEADER, realtimeEventLog.getEpoch());
+            accessor.setLeaveMutable(true);
+
+            Message<byte[]> message = MessageBuilder.createMessage(body, accessor.getMessageHeaders());
+            messagingTemplate.send(topic, message);
+        });
+
+        framesTotal.increment();
+        bytesTotal.add(body.length);
     }
 }
@@ -1,6 +1,8 @@
 package com.restaurant.api.event;
 
+import com.restaurant.api.service.RealtimePayloadFactory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.transaction.event.TransactionPhase;
@@ -10,20 +12,28 @@ import org.springframework.transaction.event.TransactionPhase;
  * ------------------------------------------------------------
  * Lắng nghe TableChangedEvent và bắn realtime
  * CHỈ SAU KHI TRANSACTION COMMIT THÀNH CÔNG.
+ *
+ * Payload mang luôn trạng thái bàn mới (PosTableStatusResponse)
+ * → màn POS cập nhật ô bàn mà không cần gọi lại /api/tables/pos-status.
  */
 @Component
 @RequiredArgsConstructor
 public class TableChangedEventListener {
 
     private final RealtimeEventPublisher realtimeEventPublisher;
+    private final RealtimePayloadFactory realtimePayloadFactory;
 
     /**
-     * Bắn realtime POS Table sau khi DB đã commit.
+     * Bắn realtime POS Table sau khi DB đã commit
+     * (sau OpenOrderRegistryListener → thống kê bàn đã mới nhất).
      */
+    @Order(OrderRealtimeListener.REALTIME_ORDER)
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
     public void handle(TableChangedEvent event) {
 
         // Gửi payload xuống FE qua websocket
-        realtimeEventPublisher.publishTable(event);
+        realtimeEventPublisher.publishTable(
+                realtimePayloadFactory.tableChanged(event.tableId(), event.reason())
+        );
     }
 }
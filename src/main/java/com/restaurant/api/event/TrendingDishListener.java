@@ -0,0 +1,27 @@
+package com.restaurant.api.event;
+
+import com.restaurant.api.service.TrendingDishTracker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * TrendingDishListener
+ * ------------------------------------------------------------
+ * Đưa các món vừa được gọi vào TrendingDishTracker
+ * CHỈ SAU KHI transaction COMMIT thành công.
+ */
+@Component
+@RequiredArgsConstructor
+public class TrendingDishListener {
+
+    private final TrendingDishTracker trendingDishTracker;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onDishesOrdered(DishesOrderedEvent event) {
+        for (DishesOrderedEvent.OrderedDish d : event.dishes()) {
+            trendingDishTracker.record(d.dishId(), d.dishName(), d.quantity(), event.orderedAt());
+        }
+    }
+}
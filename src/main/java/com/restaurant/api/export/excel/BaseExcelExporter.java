@@ -1,9 +1,12 @@
 package com.restaurant.api.export.excel;
 
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Consumer;
 
 /**
  * BaseExcelExporter
@@ -20,15 +23,42 @@ import java.io.ByteArrayOutputStream;
  *
  *  File này sẽ được RevenueExcelExporter, IngredientUsageExcelExporter,
  *  TopDishExcelExporter, StockEntryExcelExporter kế thừa.
+ *
+ *  Chế độ STREAMING (SXSSF):
+ *  - Chỉ giữ ROW_WINDOW dòng gần nhất trong RAM, các dòng cũ được ghi ra
+ *    file tạm (nén) → heap không phụ thuộc số dòng của báo cáo
+ *  - export(out, fill): class con chỉ ghi nội dung (fill), class cha tạo
+ *    workbook → fill → ghi thẳng ra OutputStream (response HTTP) → xóa file tạm
+ *    trong 1 try/finally (lỗi giữa chừng, kể cả khi đang đọc cursor, cũng không
+ *    để lại file tạm)
  * =====================================================================
  */
 public abstract class BaseExcelExporter {
 
+    /** Số dòng tối đa giữ trong RAM cho mỗi sheet (SXSSF) */
+    protected static final int ROW_WINDOW = 100;
+
     /**
-     * Tạo workbook mới (.xlsx)
+     * Tạo workbook mới (.xlsx) dạng streaming:
+     * giữ tối đa ROW_WINDOW dòng trong RAM, file tạm được nén.
      */
-    protected Workbook createWorkbook() {
-        return new XSSFWorkbook();
+    private SXSSFWorkbook createWorkbook() {
+        SXSSFWorkbook wb = new SXSSFWorkbook(ROW_WINDOW);
+        wb.setCompressTempFiles(true);
+        return wb;
+    }
+
+    /**
+     * Tạo sheet mới.
+     * SXSSF chỉ auto-size được cột đã đăng ký theo dõi TRƯỚC khi ghi dòng
+     * (độ rộng được tính dần khi các dòng bị đẩy ra file tạm).
+     */
+    protected Sheet createSheet(Workbook wb, String name) {
+        Sheet sheet = wb.createSheet(name);
+        if (sheet instanceof SXSSFSheet sxssfSheet) {
+            sxssfSheet.trackAllColumnsForAutoSizing();
+        }
+        return sheet;
     }
 
     /**
@@ -129,14 +159,27 @@ public abstract class BaseExcelExporter {
     }
 
     /**
-     * Ghi workbook ra byte[] để controller trả về
+     * Tạo workbook → ghi nội dung (fill) → ghi thẳng ra OutputStream (VD: response HTTP).
+     * --------------------------------------------------------------
+     * - Không đóng OutputStream (thuộc về nơi gọi)
+     * - Luôn đóng workbook + xóa file tạm của SXSSF, kể cả khi lỗi
+     *   trong lúc fill (VD: lỗi đọc cursor) hoặc lúc ghi (client hủy tải giữa chừng)
      */
-    protected byte[] writeToByteArray(Workbook wb) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            wb.write(baos);
-            return baos.toByteArray();
-        } catch (Exception e) {
+    protected void export(OutputStream out, Consumer<Workbook> fill) {
+        SXSSFWorkbook wb = createWorkbook();
+        try {
+            fill.accept(wb);
+            wb.write(out);
+            out.flush();
+        } catch (IOException e) {
             throw new RuntimeException("Lỗi xuất Excel", e);
+        } finally {
+            wb.dispose();
+            try {
+                wb.close();
+            } catch (Exception ignored) {
+                // Đã xóa file tạm ở trên, lỗi đóng workbook không ảnh hưởng file đã ghi
+            }
         }
     }
 }
@@ -4,10 +4,12 @@ import com.restaurant.api.dto.report.IngredientUsageReportItem;
 import org.apache.poi.ss.usermodel.*;
 import org.springframework.stereotype.Component;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * IngredientUsageExcelExporter
@@ -24,11 +26,15 @@ public class IngredientUsageExcelExporter extends BaseExcelExporter {
     private static final DateTimeFormatter DATE_FMT =
             DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
-    public byte[] export(List<IngredientUsageReportItem> items,
-                         LocalDate from, LocalDate to) {
+    public void export(Stream<IngredientUsageReportItem> items,
+                       LocalDate from, LocalDate to, OutputStream out) {
+        export(out, wb -> fillSheet(wb, items, from, to));
+    }
+
+    /** Ghi sheet "TieuHao" vào workbook */
+    private void fillSheet(Workbook wb, Stream<IngredientUsageReportItem> items, LocalDate from, LocalDate to) {
 
-        Workbook wb = createWorkbook();
-        Sheet sheet = wb.createSheet("TieuHao");
+        Sheet sheet = createSheet(wb, "TieuHao");
 
         // Style dùng chung
         CellStyle titleStyle = createTitleStyle(wb);
@@ -78,28 +84,28 @@ public class IngredientUsageExcelExporter extends BaseExcelExporter {
         // ==========================================================
         BigDecimal totalUsed = BigDecimal.ZERO;
 
-        if (items != null) {
-            for (IngredientUsageReportItem item : items) {
-                Row row = sheet.createRow(rowIndex++);
+        Iterator<IngredientUsageReportItem> it = items.iterator();
+        while (it.hasNext()) {
+            IngredientUsageReportItem item = it.next();
+            Row row = sheet.createRow(rowIndex++);
 
-                // Nguyên liệu
-                Cell c0 = row.createCell(0);
-                c0.setCellValue(item.getIngredientName());
-                c0.setCellStyle(bodyStyle);
+            // Nguyên liệu
+            Cell c0 = row.createCell(0);
+            c0.setCellValue(item.getIngredientName());
+            c0.setCellStyle(bodyStyle);
 
-                // Đơn vị
-                Cell c1 = row.createCell(1);
-                c1.setCellValue(item.getUnit());
-                c1.setCellStyle(bodyStyle);
+            // Đơn vị
+            Cell c1 = row.createCell(1);
+            c1.setCellValue(item.getUnit());
+            c1.setCellStyle(bodyStyle);
 
-                // Tổng tiêu hao
-                BigDecimal used = item.getTotalUsed() != null
-                        ? item.getTotalUsed()
-                        : BigDecimal.ZERO;
-                totalUsed = totalUsed.add(used);
+            // Tổng tiêu hao
+            BigDecimal used = item.getTotalUsed() != null
+                    ? item.getTotalUsed()
+                    : BigDecimal.ZERO;
+            totalUsed = totalUsed.add(used);
 
-                createNumberCell(row, 2, used, numberStyle);
-            }
+            createNumberCell(row, 2, used, numberStyle);
         }
 
         // ==========================================================
@@ -119,8 +125,6 @@ public class IngredientUsageExcelExporter extends BaseExcelExporter {
         // ==========================================================
         autoSizeColumns(sheet, headers.length);
         sheet.createFreezePane(0, headerRowIndex + 1);
-
-        return writeToByteArray(wb);
     }
 
     private String buildRangeText(LocalDate from, LocalDate to) {
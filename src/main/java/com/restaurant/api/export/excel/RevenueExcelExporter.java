@@ -5,9 +5,12 @@ import com.restaurant.api.dto.report.RevenueReportResponse;
 import org.apache.poi.ss.usermodel.*;
 import org.springframework.stereotype.Component;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * RevenueExcelExporter
@@ -26,7 +29,7 @@ import java.time.format.DateTimeFormatter;
  *    5) Ghi từng dòng doanh thu theo ngày
  *    6) Ghi dòng "TỔNG CỘNG" ở cuối bảng
  *    7) Auto-size cột + freeze header
- *    8) Trả về byte[] cho Controller
+ *    8) Ghi thẳng ra OutputStream (response HTTP) – không buffer byte[]
  * =====================================================================
  */
 @Component
@@ -38,16 +41,23 @@ public class RevenueExcelExporter extends BaseExcelExporter {
     /**
      * Hàm xuất Excel cho báo cáo doanh thu.
      * --------------------------------------------------------------
-     * @param report  : DTO tổng hợp báo cáo doanh thu
+     * @param report  : DTO tổng hợp (chỉ dùng các số tổng – ghi ở đầu file)
+     * @param items   : Doanh thu từng ngày (đọc dần từ cursor, ngày tăng dần)
      * @param from    : Ngày bắt đầu filter (có thể null)
      * @param to      : Ngày kết thúc filter (có thể null)
-     * @return        : Mảng byte[] nội dung file .xlsx
+     * @param out     : Nơi ghi file .xlsx (không bị đóng)
      */
-    public byte[] export(RevenueReportResponse report, LocalDate from, LocalDate to) {
+    public void export(RevenueReportResponse report, Stream<RevenueByDayItem> items,
+                       LocalDate from, LocalDate to, OutputStream out) {
+        export(out, wb -> fillSheet(wb, report, items, from, to));
+    }
+
+    /** Ghi sheet "DoanhThu" vào workbook */
+    private void fillSheet(Workbook wb, RevenueReportResponse report, Stream<RevenueByDayItem> items,
+                           LocalDate from, LocalDate to) {
 
-        // 1. Tạo workbook + sheet
-        Workbook wb = createWorkbook();
-        Sheet sheet = wb.createSheet("DoanhThu");
+        // 1. Tạo sheet
+        Sheet sheet = createSheet(wb, "DoanhThu");
 
         // 2. Tạo sẵn các style dùng chung
         CellStyle titleStyle = createTitleStyle(wb);       // Style tiêu đề lớn
@@ -122,29 +132,29 @@ public class RevenueExcelExporter extends BaseExcelExporter {
         // ==========================================================
         // 5. GHI DỮ LIỆU DOANH THU THEO TỪNG NGÀY
         // ==========================================================
-        if (report.getItems() != null) {
-            for (RevenueByDayItem item : report.getItems()) {
-
-                Row row = sheet.createRow(rowIndex++);
-
-                // Cột 0: Ngày
-                Cell dateCell = row.createCell(0);
-                dateCell.setCellStyle(bodyStyle);
-                if (item.getDate() != null) {
-                    dateCell.setCellValue(item.getDate().format(DATE_FMT));
-                } else {
-                    dateCell.setCellValue("");
-                }
-
-                // Cột 1: Doanh thu
-                createNumberCell(row, 1, item.getRevenue(), numberStyle);
-
-                // Cột 2: Số đơn
-                BigDecimal orderCount = BigDecimal.valueOf(
-                        item.getOrderCount() != null ? item.getOrderCount() : 0
-                );
-                createNumberCell(row, 2, orderCount, numberStyle);
+        Iterator<RevenueByDayItem> it = items.iterator();
+        while (it.hasNext()) {
+            RevenueByDayItem item = it.next();
+
+            Row row = sheet.createRow(rowIndex++);
+
+            // Cột 0: Ngày
+            Cell dateCell = row.createCell(0);
+            dateCell.setCellStyle(bodyStyle);
+            if (item.getDate() != null) {
+                dateCell.setCellValue(item.getDate().format(DATE_FMT));
+            } else {
+                dateCell.setCellValue("");
             }
+
+            // Cột 1: Doanh thu
+            createNumberCell(row, 1, item.getRevenue(), numberStyle);
+
+            // Cột 2: Số đơn
+            BigDecimal orderCount = BigDecimal.valueOf(
+                    item.getOrderCount() != null ? item.getOrderCount() : 0
+            );
+            createNumberCell(row, 2, orderCount, numberStyle);
         }
 
         // ==========================================================
@@ -174,11 +184,6 @@ public class RevenueExcelExporter extends BaseExcelExporter {
         // Freeze pane: cố định phần header (dòng header + các dòng phía trên)
         // Tham số: colSplit = 0, rowSplit = headerRowIndex + 1
         sheet.createFreezePane(0, headerRowIndex + 1);
-
-        // ==========================================================
-        // 8. GHI RA BYTE[]
-        // ==========================================================
-        return writeToByteArray(wb);
     }
 
     /**
@@ -4,10 +4,12 @@ import com.restaurant.api.dto.report.StockEntryReportItem;
 import org.apache.poi.ss.usermodel.*;
 import org.springframework.stereotype.Component;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 @Component
 public class StockEntryExcelExporter extends BaseExcelExporter {
@@ -15,11 +17,15 @@ public class StockEntryExcelExporter extends BaseExcelExporter {
     private static final DateTimeFormatter DATE_FMT =
             DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
-    public byte[] export(List<StockEntryReportItem> items,
-                         LocalDate from, LocalDate to) {
+    public void export(Stream<StockEntryReportItem> items,
+                       LocalDate from, LocalDate to, OutputStream out) {
+        export(out, wb -> fillSheet(wb, items, from, to));
+    }
+
+    /** Ghi sheet "NhapKho" vào workbook */
+    private void fillSheet(Workbook wb, Stream<StockEntryReportItem> items, LocalDate from, LocalDate to) {
 
-        Workbook wb = createWorkbook();
-        Sheet sheet = wb.createSheet("NhapKho");
+        Sheet sheet = createSheet(wb, "NhapKho");
 
         CellStyle titleStyle = createTitleStyle(wb);
         CellStyle headerStyle = createHeaderStyle(wb);
@@ -68,29 +74,29 @@ public class StockEntryExcelExporter extends BaseExcelExporter {
         // ==========================================================
         BigDecimal totalImported = BigDecimal.ZERO;
 
-        if (items != null) {
-            for (StockEntryReportItem item : items) {
-                Row row = sheet.createRow(rowIndex++);
+        Iterator<StockEntryReportItem> it = items.iterator();
+        while (it.hasNext()) {
+            StockEntryReportItem item = it.next();
+            Row row = sheet.createRow(rowIndex++);
 
-                // Nguyên liệu
-                Cell c0 = row.createCell(0);
-                c0.setCellValue(item.getIngredientName());
-                c0.setCellStyle(bodyStyle);
+            // Nguyên liệu
+            Cell c0 = row.createCell(0);
+            c0.setCellValue(item.getIngredientName());
+            c0.setCellStyle(bodyStyle);
 
-                // Đơn vị
-                Cell c1 = row.createCell(1);
-                c1.setCellValue(item.getUnit());
-                c1.setCellStyle(bodyStyle);
+            // Đơn vị
+            Cell c1 = row.createCell(1);
+            c1.setCellValue(item.getUnit());
+            c1.setCellStyle(bodyStyle);
 
-                // Tổng nhập
-                BigDecimal imported = item.getTotalImportedAmount() != null
-                        ? item.getTotalImportedAmount()
-                        : BigDecimal.ZERO;
+            // Tổng nhập
+            BigDecimal imported = item.getTotalImportedAmount() != null
+                    ? item.getTotalImportedAmount()
+                    : BigDecimal.ZERO;
 
-                createNumberCell(row, 2, imported, numberStyle);
+            createNumberCell(row, 2, imported, numberStyle);
 
-                totalImported = totalImported.add(imported);
-            }
+            totalImported = totalImported.add(imported);
         }
 
         // ==========================================================
@@ -110,8 +116,6 @@ public class StockEntryExcelExporter extends BaseExcelExporter {
         // ==========================================================
         autoSizeColumns(sheet, headers.length);
         sheet.createFreezePane(0, headerRowIndex + 1);
-
-        return writeToByteArray(wb);
     }
 
     private String buildRangeText(LocalDate from, LocalDate to) {
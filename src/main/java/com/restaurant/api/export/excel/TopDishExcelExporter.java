@@ -4,10 +4,12 @@ import com.restaurant.api.dto.report.TopDishReportItem;
 import org.apache.poi.ss.usermodel.*;
 import org.springframework.stereotype.Component;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * TopDishExcelExporter
@@ -35,15 +37,19 @@ public class TopDishExcelExporter extends BaseExcelExporter {
     /**
      * Hàm export danh sách top món.
      * ----------------------------------------------------------------
-     * @param items : danh sách TopDishReportItem
+     * @param items : danh sách TopDishReportItem (đọc dần từ cursor)
      * @param from  : ngày bắt đầu filter
      * @param to    : ngày kết thúc filter
-     * @return      : byte[] nội dung Excel
+     * @param out   : nơi ghi file .xlsx (không bị đóng)
      */
-    public byte[] export(List<TopDishReportItem> items, LocalDate from, LocalDate to) {
+    public void export(Stream<TopDishReportItem> items, LocalDate from, LocalDate to, OutputStream out) {
+        export(out, wb -> fillSheet(wb, items, from, to));
+    }
+
+    /** Ghi sheet "TopMon" vào workbook */
+    private void fillSheet(Workbook wb, Stream<TopDishReportItem> items, LocalDate from, LocalDate to) {
 
-        Workbook wb = createWorkbook();
-        Sheet sheet = wb.createSheet("TopMon");
+        Sheet sheet = createSheet(wb, "TopMon");
 
         // Tạo style dùng chung
         CellStyle titleStyle = createTitleStyle(wb);
@@ -96,27 +102,27 @@ public class TopDishExcelExporter extends BaseExcelExporter {
         BigDecimal totalRevenue = BigDecimal.ZERO;
         long totalQuantity = 0;
 
-        if (items != null) {
-            for (TopDishReportItem item : items) {
+        Iterator<TopDishReportItem> it = items.iterator();
+        while (it.hasNext()) {
+            TopDishReportItem item = it.next();
 
-                Row row = sheet.createRow(rowIndex++);
+            Row row = sheet.createRow(rowIndex++);
 
-                // Cột 0 – Tên món
-                Cell nameCell = row.createCell(0);
-                nameCell.setCellStyle(bodyStyle);
-                nameCell.setCellValue(item.getDishName() != null ? item.getDishName() : "");
+            // Cột 0 – Tên món
+            Cell nameCell = row.createCell(0);
+            nameCell.setCellStyle(bodyStyle);
+            nameCell.setCellValue(item.getDishName() != null ? item.getDishName() : "");
 
-                // Cột 1 – Số lượng
-                BigDecimal qty = BigDecimal.valueOf(item.getTotalQuantity() != null ? item.getTotalQuantity() : 0);
-                createNumberCell(row, 1, qty, numberStyle);
+            // Cột 1 – Số lượng
+            BigDecimal qty = BigDecimal.valueOf(item.getTotalQuantity() != null ? item.getTotalQuantity() : 0);
+            createNumberCell(row, 1, qty, numberStyle);
 
-                // Cột 2 – Doanh thu
-                BigDecimal rev = item.getTotalRevenue() != null ? item.getTotalRevenue() : BigDecimal.ZERO;
-                createNumberCell(row, 2, rev, numberStyle);
+            // Cột 2 – Doanh thu
+            BigDecimal rev = item.getTotalRevenue() != null ? item.getTotalRevenue() : BigDecimal.ZERO;
+            createNumberCell(row, 2, rev, numberStyle);
 
-                totalRevenue = totalRevenue.add(rev);
-                totalQuantity += qty.longValue();
-            }
+            totalRevenue = totalRevenue.add(rev);
+            totalQuantity += qty.longValue();
         }
 
         // ==========================================================
@@ -141,11 +147,6 @@ public class TopDishExcelExporter extends BaseExcelExporter {
         autoSizeColumns(sheet, headers.length);
 
         sheet.createFreezePane(0, headerRowIndex + 1);
-
-        // ==========================================================
-        // 7. Xuất file
-        // ==========================================================
-        return writeToByteArray(wb);
     }
 
     /**
@@ -5,7 +5,7 @@ import com.lowagie.text.pdf.*;
 import org.springframework.stereotype.Component;
 
 import java.awt.*;
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 
 // ========================== PDF (OpenPDF) ==========================
 import com.lowagie.text.Document;
@@ -35,11 +35,21 @@ import com.lowagie.text.pdf.BaseFont;
  *
  * Các PdfExporter khác (Revenue, TopDish, IngredientUsage, StockEntry)
  * sẽ kế thừa BasePdfExporter để bảo đảm style thống nhất.
+ *
+ * Chế độ STREAMING:
+ *  - PdfWriter ghi thẳng vào OutputStream của nơi gọi (response HTTP),
+ *    trang nào xong được đẩy ra ngay, không gom cả file trong byte[]
+ *  - Bảng lớn dùng createStreamingTable + flushRows: bảng "chưa hoàn tất"
+ *    (setComplete(false)), cứ FLUSH_ROWS dòng lại add vào Document để
+ *    OpenPDF vẽ ra trang và bỏ các dòng đã vẽ khỏi bộ nhớ
  * =====================================================================
  */
 @Component
 public class BasePdfExporter {
 
+    /** Số dòng dữ liệu giữ trong bảng trước khi đẩy ra trang PDF */
+    protected static final int FLUSH_ROWS = 100;
+
     // Đường dẫn font Unicode (Arial hoặc Roboto)
     protected static final String FONT_PATH = "fonts/arial.ttf";
 
@@ -51,11 +61,14 @@ public class BasePdfExporter {
     }
 
     /**
-     * Tạo writer + lưu vào byte[].
+     * Tạo writer ghi thẳng ra OutputStream.
+     * Không đóng OutputStream khi đóng Document (stream thuộc về nơi gọi).
      */
-    protected PdfWriter createWriter(Document doc, ByteArrayOutputStream baos) {
+    protected PdfWriter createWriter(Document doc, OutputStream out) {
         try {
-            return PdfWriter.getInstance(doc, baos);
+            PdfWriter writer = PdfWriter.getInstance(doc, out);
+            writer.setCloseStream(false);
+            return writer;
         } catch (Exception e) {
             throw new RuntimeException("Không tạo được PdfWriter", e);
         }
@@ -112,6 +125,37 @@ public class BasePdfExporter {
         return table;
     }
 
+    /**
+     * Tạo bảng ghi dần (large table):
+     *  - setComplete(false): Document vẽ được các dòng đã có rồi bỏ chúng đi
+     *  - headerRows = 1: dòng header đầu tiên lặp lại ở mỗi trang
+     * Sau khi thêm dòng header phải gọi flushRows(...) mỗi dòng dữ liệu
+     * và finishTable(...) ở cuối.
+     */
+    protected PdfPTable createStreamingTable(float... widths) {
+        PdfPTable table = createTable(widths);
+        table.setHeaderRows(1);
+        table.setComplete(false);
+        return table;
+    }
+
+    /**
+     * Gọi sau mỗi dòng dữ liệu: đủ FLUSH_ROWS dòng → đẩy phần đã có ra trang.
+     */
+    protected void flushRows(Document doc, PdfPTable table, long rowCount) {
+        if (rowCount % FLUSH_ROWS == 0) {
+            doc.add(table);
+        }
+    }
+
+    /**
+     * Đánh dấu bảng hoàn tất và vẽ nốt các dòng còn lại.
+     */
+    protected void finishTable(Document doc, PdfPTable table) {
+        table.setComplete(true);
+        doc.add(table);
+    }
+
     /**
      * Ô header: nền xám, border, chữ đậm, căn giữa.
      */
@@ -170,10 +214,14 @@ public class BasePdfExporter {
     }
 
     /**
-     * Kết thúc PDF -> trả về byte[].
+     * Kết thúc PDF: ghi xref / trailer rồi flush ra OutputStream.
      */
-    protected byte[] toByteArray(Document doc, ByteArrayOutputStream baos) {
+    protected void finish(Document doc, OutputStream out) {
         doc.close();
-        return baos.toByteArray();
+        try {
+            out.flush();
+        } catch (Exception e) {
+            throw new RuntimeException("Lỗi xuất PDF", e);
+        }
     }
 }
@@ -6,11 +6,12 @@ import com.restaurant.api.dto.report.IngredientUsageReportItem;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * IngredientUsagePdfExporter
@@ -40,12 +41,11 @@ public class IngredientUsagePdfExporter extends BasePdfExporter {
     /**
      * Hàm xuất PDF nguyên liệu TIÊU HAO
      */
-    public byte[] export(List<IngredientUsageReportItem> items,
-                         LocalDate from, LocalDate to) {
+    public void export(BigDecimal totalUsed, Stream<IngredientUsageReportItem> items,
+                       LocalDate from, LocalDate to, OutputStream out) {
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
         Document doc = createDocument();
-        createWriter(doc, baos);
+        createWriter(doc, out);
 
         doc.open();
 
@@ -60,14 +60,9 @@ public class IngredientUsagePdfExporter extends BasePdfExporter {
         // ==========================================================
         // 2. TÍNH TỔNG
         // ==========================================================
-        BigDecimal totalUsed = BigDecimal.ZERO;
-
-        if (items != null) {
-            for (IngredientUsageReportItem i : items) {
-                totalUsed = totalUsed.add(
-                        i.getTotalUsed() != null ? i.getTotalUsed() : BigDecimal.ZERO
-                );
-            }
+        // Tổng tiêu hao đã tính sẵn bằng SQL (ghi trước bảng chi tiết)
+        if (totalUsed == null) {
+            totalUsed = BigDecimal.ZERO;
         }
 
         Paragraph summary = new Paragraph("", font(11, false));
@@ -78,31 +73,34 @@ public class IngredientUsagePdfExporter extends BasePdfExporter {
         // ==========================================================
         // 3. TẠO BẢNG PDF
         // ==========================================================
-        PdfPTable table = createTable(5, 2, 3); // Tỷ lệ: rộng – vừa – rộng
+        PdfPTable table = createStreamingTable(5, 2, 3); // Tỷ lệ: rộng – vừa – rộng
 
         // Header
         table.addCell(headerCell("Nguyên liệu"));
         table.addCell(headerCell("Đơn vị"));
         table.addCell(headerCell("Tiêu hao"));
 
-        // Dữ liệu
-        if (items != null) {
-            for (IngredientUsageReportItem item : items) {
+        // Dữ liệu – cứ FLUSH_ROWS dòng đẩy ra trang 1 lần
+        long rowCount = 0;
+        Iterator<IngredientUsageReportItem> it = items.iterator();
+        while (it.hasNext()) {
+            IngredientUsageReportItem item = it.next();
 
-                // Cột 1 — Nguyên liệu
-                table.addCell(bodyCell(item.getIngredientName()));
+            // Cột 1 — Nguyên liệu
+            table.addCell(bodyCell(item.getIngredientName()));
 
-                // Cột 2 — Đơn vị
-                table.addCell(bodyCell(item.getUnit()));
+            // Cột 2 — Đơn vị
+            table.addCell(bodyCell(item.getUnit()));
 
-                // Cột 3 — Số lượng tiêu hao (căn phải)
-                table.addCell(numberCell(
-                        money(item.getTotalUsed())
-                ));
-            }
+            // Cột 3 — Số lượng tiêu hao (căn phải)
+            table.addCell(numberCell(
+                    money(item.getTotalUsed())
+            ));
+
+            flushRows(doc, table, ++rowCount);
         }
 
-        doc.add(table);
+        finishTable(doc, table);
 
         // ==========================================================
         // 4. FOOTER – NGÀY IN
@@ -119,7 +117,7 @@ public class IngredientUsagePdfExporter extends BasePdfExporter {
         // ==========================================================
         // KẾT THÚC
         // ==========================================================
-        return toByteArray(doc, baos);
+        finish(doc, out);
     }
 
     /**
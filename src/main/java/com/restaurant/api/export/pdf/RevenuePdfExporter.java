@@ -7,9 +7,11 @@ import com.restaurant.api.dto.report.RevenueReportResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * RevenuePdfExporter
@@ -31,13 +33,16 @@ public class RevenuePdfExporter extends BasePdfExporter {
 
     /**
      * Hàm xuất PDF cho báo cáo doanh thu.
+     * ----------------------------------------------------------------
+     * @param report : khối tổng hợp (tổng doanh thu, số đơn, TB/ngày)
+     * @param items  : doanh thu từng ngày (đọc dần từ cursor)
+     * @param out    : nơi ghi file PDF (không bị đóng)
      */
-    public byte[] export(RevenueReportResponse report,
-                         LocalDate from, LocalDate to) {
+    public void export(RevenueReportResponse report, Stream<RevenueByDayItem> items,
+                       LocalDate from, LocalDate to, OutputStream out) {
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
         Document doc = createDocument();
-        createWriter(doc, baos);
+        createWriter(doc, out);
 
         doc.open();
 
@@ -64,34 +69,37 @@ public class RevenuePdfExporter extends BasePdfExporter {
         // ==========================================================
         // 3. BẢNG CHI TIẾT
         // ==========================================================
-        PdfPTable table = createTable(3, 3, 2); // Width ratio
+        PdfPTable table = createStreamingTable(3, 3, 2); // Width ratio
 
         // Header
         table.addCell(headerCell("Ngày"));
         table.addCell(headerCell("Doanh thu"));
         table.addCell(headerCell("Số đơn"));
 
-        // Dòng dữ liệu
-        if (report.getItems() != null) {
-            for (RevenueByDayItem item : report.getItems()) {
+        // Dòng dữ liệu – cứ FLUSH_ROWS dòng đẩy ra trang 1 lần
+        long rowCount = 0;
+        Iterator<RevenueByDayItem> it = items.iterator();
+        while (it.hasNext()) {
+            RevenueByDayItem item = it.next();
 
-                table.addCell(bodyCell(
-                        item.getDate() != null ? item.getDate().format(DATE_FMT) : ""
-                ));
+            table.addCell(bodyCell(
+                    item.getDate() != null ? item.getDate().format(DATE_FMT) : ""
+            ));
 
-                table.addCell(numberCell(
-                        money(item.getRevenue()) + " đ"
-                ));
+            table.addCell(numberCell(
+                    money(item.getRevenue()) + " đ"
+            ));
 
-                table.addCell(numberCell(
-                        item.getOrderCount() != null
-                                ? item.getOrderCount().toString()
-                                : "0"
-                ));
-            }
+            table.addCell(numberCell(
+                    item.getOrderCount() != null
+                            ? item.getOrderCount().toString()
+                            : "0"
+            ));
+
+            flushRows(doc, table, ++rowCount);
         }
 
-        doc.add(table);
+        finishTable(doc, table);
 
         // ==========================================================
         // 4. FOOTER – NGÀY IN
@@ -108,7 +116,7 @@ public class RevenuePdfExporter extends BasePdfExporter {
         // ==========================================================
         // KẾT THÚC PDF
         // ==========================================================
-        return toByteArray(doc, baos);
+        finish(doc, out);
     }
 
     /**
@@ -6,11 +6,12 @@ import com.restaurant.api.dto.report.StockEntryReportItem;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * StockEntryPdfExporter
@@ -40,12 +41,11 @@ public class StockEntryPdfExporter extends BasePdfExporter {
     /**
      * Hàm xuất PDF nhập kho nguyên liệu.
      */
-    public byte[] export(List<StockEntryReportItem> items,
-                         LocalDate from, LocalDate to) {
+    public void export(BigDecimal totalImported, Stream<StockEntryReportItem> items,
+                       LocalDate from, LocalDate to, OutputStream out) {
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
         Document doc = createDocument();
-        createWriter(doc, baos);
+        createWriter(doc, out);
 
         doc.open();
 
@@ -58,14 +58,9 @@ public class StockEntryPdfExporter extends BasePdfExporter {
         // ==========================================================
         // 2. TÍNH TỔNG NHẬP KHO
         // ==========================================================
-        BigDecimal totalImported = BigDecimal.ZERO;
-
-        if (items != null) {
-            for (StockEntryReportItem i : items) {
-                totalImported = totalImported.add(
-                        i.getTotalImportedAmount() != null ? i.getTotalImportedAmount() : BigDecimal.ZERO
-                );
-            }
+        // Tổng nhập kho đã tính sẵn bằng SQL (ghi trước bảng chi tiết)
+        if (totalImported == null) {
+            totalImported = BigDecimal.ZERO;
         }
 
         Paragraph summary = new Paragraph("", font(11, false));
@@ -76,31 +71,34 @@ public class StockEntryPdfExporter extends BasePdfExporter {
         // ==========================================================
         // 3. TẠO BẢNG DỮ LIỆU
         // ==========================================================
-        PdfPTable table = createTable(5, 2, 3);
+        PdfPTable table = createStreamingTable(5, 2, 3);
 
         // Header
         table.addCell(headerCell("Nguyên liệu"));
         table.addCell(headerCell("Đơn vị"));
         table.addCell(headerCell("Nhập kho"));
 
-        // Body
-        if (items != null) {
-            for (StockEntryReportItem item : items) {
+        // Body – cứ FLUSH_ROWS dòng đẩy ra trang 1 lần
+        long rowCount = 0;
+        Iterator<StockEntryReportItem> it = items.iterator();
+        while (it.hasNext()) {
+            StockEntryReportItem item = it.next();
 
-                // Cột 1
-                table.addCell(bodyCell(item.getIngredientName()));
+            // Cột 1
+            table.addCell(bodyCell(item.getIngredientName()));
 
-                // Cột 2
-                table.addCell(bodyCell(item.getUnit()));
+            // Cột 2
+            table.addCell(bodyCell(item.getUnit()));
 
-                // Cột 3 — Số lượng nhập (căn phải)
-                table.addCell(numberCell(
-                        money(item.getTotalImportedAmount())
-                ));
-            }
+            // Cột 3 — Số lượng nhập (căn phải)
+            table.addCell(numberCell(
+                    money(item.getTotalImportedAmount())
+            ));
+
+            flushRows(doc, table, ++rowCount);
         }
 
-        doc.add(table);
+        finishTable(doc, table);
 
         // ==========================================================
         // 4. FOOTER – NGÀY IN
@@ -116,7 +114,7 @@ public class StockEntryPdfExporter extends BasePdfExporter {
         // ==========================================================
         // 5. KẾT THÚC – TRẢ FILE PDF
         // ==========================================================
-        return toByteArray(doc, baos);
+        finish(doc, out);
     }
 
 
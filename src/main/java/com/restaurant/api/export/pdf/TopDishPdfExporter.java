@@ -6,11 +6,11 @@ import com.restaurant.api.dto.report.TopDishReportItem;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayOutputStream;
-import java.math.BigDecimal;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * TopDishPdfExporter
@@ -41,13 +41,16 @@ public class TopDishPdfExporter extends BasePdfExporter {
 
     /**
      * Hàm xuất PDF Top món.
+     * ----------------------------------------------------------------
+     * @param totals : dòng tổng (tổng số lượng + doanh thu của danh sách)
+     * @param items  : danh sách top món (đọc dần từ cursor)
+     * @param out    : nơi ghi file PDF (không bị đóng)
      */
-    public byte[] export(List<TopDishReportItem> items,
-                         LocalDate from, LocalDate to) {
+    public void export(TopDishReportItem totals, Stream<TopDishReportItem> items,
+                       LocalDate from, LocalDate to, OutputStream out) {
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
         Document doc = createDocument();
-        createWriter(doc, baos);
+        createWriter(doc, out);
 
         doc.open();
 
@@ -60,57 +63,50 @@ public class TopDishPdfExporter extends BasePdfExporter {
         doc.add(description(buildRangeText(from, to)));
 
         // ==========================================================
-        // 2. TÍNH TỔNG (Tổng doanh thu + tổng số lượng)
+        // 2. TỔNG (Tổng doanh thu + tổng số lượng – tính sẵn bằng SQL)
         // ==========================================================
-        long totalQty = 0;
-        BigDecimal totalRevenue = BigDecimal.ZERO;
-
-        if (items != null) {
-            for (TopDishReportItem i : items) {
-                totalQty += i.getTotalQuantity() != null ? i.getTotalQuantity() : 0;
-                totalRevenue = totalRevenue.add(
-                        i.getTotalRevenue() != null ? i.getTotalRevenue() : BigDecimal.ZERO
-                );
-            }
-        }
+        long totalQty = totals.getTotalQuantity() != null ? totals.getTotalQuantity() : 0;
 
         Paragraph summary = new Paragraph("", font(11, false));
         summary.setSpacingAfter(10);
         summary.add("Tổng số lượng bán: " + totalQty + "\n");
-        summary.add("Tổng doanh thu: " + money(totalRevenue) + " đ");
+        summary.add("Tổng doanh thu: " + money(totals.getTotalRevenue()) + " đ");
         doc.add(summary);
 
         // ==========================================================
         // 3. TẠO BẢNG
         // ==========================================================
-        PdfPTable table = createTable(5, 2, 3);
+        PdfPTable table = createStreamingTable(5, 2, 3);
 
         // Header
         table.addCell(headerCell("Món ăn"));
         table.addCell(headerCell("Số lượng bán"));
         table.addCell(headerCell("Doanh thu"));
 
-        // Body rows
-        if (items != null) {
-            for (TopDishReportItem item : items) {
+        // Body rows – cứ FLUSH_ROWS dòng đẩy ra trang 1 lần
+        long rowCount = 0;
+        Iterator<TopDishReportItem> it = items.iterator();
+        while (it.hasNext()) {
+            TopDishReportItem item = it.next();
+
+            // Cột 1 – Tên món
+            table.addCell(bodyCell(item.getDishName()));
 
-                // Cột 1 – Tên món
-                table.addCell(bodyCell(item.getDishName()));
+            // Cột 2 – Số lượng (right align)
+            table.addCell(numberCell(item.getTotalQuantity() != null
+                    ? String.valueOf(item.getTotalQuantity())
+                    : "0"
+            ));
 
-                // Cột 2 – Số lượng (right align)
-                table.addCell(numberCell(item.getTotalQuantity() != null
-                        ? String.valueOf(item.getTotalQuantity())
-                        : "0"
-                ));
+            // Cột 3 – Doanh thu
+            table.addCell(numberCell(
+                    money(item.getTotalRevenue()) + " đ"
+            ));
 
-                // Cột 3 – Doanh thu
-                table.addCell(numberCell(
-                        money(item.getTotalRevenue()) + " đ"
-                ));
-            }
+            flushRows(doc, table, ++rowCount);
         }
 
-        doc.add(table);
+        finishTable(doc, table);
 
         // ==========================================================
         // 4. FOOTER – NGÀY IN
@@ -126,7 +122,7 @@ public class TopDishPdfExporter extends BasePdfExporter {
         // ==========================================================
         // KẾT THÚC PDF
         // ==========================================================
-        return toByteArray(doc, baos);
+        finish(doc, out);
     }
 
     /**
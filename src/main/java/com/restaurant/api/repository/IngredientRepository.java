@@ -13,7 +13,10 @@ import org.springframework.data.jpa.repository.JpaRepository;
  *  - save()
  *  - delete()
  * ---------------------------------------
- * Module 04 chưa cần custom query riêng.
+ * Thay đổi tồn kho (trừ / cộng kho) KHÔNG dùng save() entity,
+ * mà dùng API UPDATE tương đối trong IngredientRepositoryCustom:
+ *  - applyStockDeltas()
+ *  - applyStockDeltaIfNotNegative()
  */
-public interface IngredientRepository extends JpaRepository<Ingredient, Long> {
+public interface IngredientRepository extends JpaRepository<Ingredient, Long>, IngredientRepositoryCustom {
 }
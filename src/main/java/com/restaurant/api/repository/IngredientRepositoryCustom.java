@@ -0,0 +1,44 @@
+package com.restaurant.api.repository;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * IngredientRepositoryCustom
+ * ------------------------------------------------------------
+ * API thay đổi tồn kho nguyên liệu bằng câu UPDATE tương đối
+ * (stock_quantity = stock_quantity + delta) thay cho read-modify-write
+ * trên entity → không mất cập nhật khi nhiều order trừ kho cùng lúc.
+ *
+ * Lưu ý khi dùng:
+ *  - Không set Ingredient.stockQuantity trên entity trong cùng transaction,
+ *    vì entity đang quản lý có thể giữ giá trị tồn cũ.
+ *  - Implementation: IngredientRepositoryImpl (Spring Data tự ghép fragment).
+ * ------------------------------------------------------------
+ */
+public interface IngredientRepositoryCustom {
+
+    /**
+     * Cộng delta vào tồn kho của nhiều nguyên liệu.
+     * ----------------------------------------------------
+     * - Delta âm = trừ kho, delta dương = cộng kho
+     * - Luôn cập nhật theo thứ tự ingredient id tăng dần
+     *   → 2 transaction cùng trừ nhiều nguyên liệu không bị deadlock
+     * - Nếu có nguyên liệu không tồn tại → ném lỗi (rollback transaction)
+     *
+     * @param deltas Map ingredientId → delta
+     * @return Map ingredientId → tồn kho mới (sau khi cập nhật)
+     */
+    Map<Long, BigDecimal> applyStockDeltas(Map<Long, BigDecimal> deltas);
+
+    /**
+     * Cộng delta vào tồn kho 1 nguyên liệu, CHỈ KHI tồn mới không âm.
+     * Kiểm tra và cập nhật nằm trong cùng 1 câu UPDATE (atomic).
+     *
+     * @param ingredientId Id nguyên liệu
+     * @param delta        Số lượng thay đổi
+     * @return Tồn kho mới; Optional.empty() nếu tồn mới sẽ âm (không cập nhật)
+     */
+    Optional<BigDecimal> applyStockDeltaIfNotNegative(Long ingredientId, BigDecimal delta);
+}
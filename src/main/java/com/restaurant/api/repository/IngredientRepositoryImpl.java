@@ -0,0 +1,90 @@
+package com.restaurant.api.repository;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * IngredientRepositoryImpl
+ * ------------------------------------------------------------
+ * Implementation của IngredientRepositoryCustom bằng JdbcTemplate.
+ *
+ * - Cập nhật tồn: UPDATE tương đối, chạy theo JDBC batch
+ * - Đọc lại tồn mới: 1 câu SELECT (các dòng đang bị khóa bởi
+ *   transaction hiện tại nên giá trị đọc được chính là kết quả vừa cập nhật)
+ * - Tham gia transaction Spring hiện tại (cùng connection với JPA)
+ * ------------------------------------------------------------
+ */
+@RequiredArgsConstructor
+public class IngredientRepositoryImpl implements IngredientRepositoryCustom {
+
+    private static final String UPDATE_STOCK_SQL = """
+            UPDATE ingredient
+            SET stock_quantity = stock_quantity + ?,
+                updated_at = NOW()
+            WHERE id = ?
+            """;
+
+    private static final String UPDATE_STOCK_NOT_NEGATIVE_SQL = """
+            UPDATE ingredient
+            SET stock_quantity = stock_quantity + ?,
+                updated_at = NOW()
+            WHERE id = ?
+              AND stock_quantity + ? >= 0
+            RETURNING stock_quantity
+            """;
+
+    private static final String SELECT_STOCK_SQL =
+            "SELECT id, stock_quantity FROM ingredient WHERE id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public Map<Long, BigDecimal> applyStockDeltas(Map<Long, BigDecimal> deltas) {
+        if (deltas == null || deltas.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // Thứ tự id tăng dần → thứ tự khóa dòng cố định giữa các transaction
+        List<Long> ids = new ArrayList<>(new TreeSet<>(deltas.keySet()));
+
+        List<Object[]> args = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            args.add(new Object[]{deltas.get(id), id});
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_STOCK_SQL, args);
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                throw new EntityNotFoundException("Không tìm thấy nguyên liệu id = " + ids.get(i));
+            }
+        }
+
+        Map<Long, BigDecimal> balances = new TreeMap<>();
+        namedParameterJdbcTemplate.query(
+                SELECT_STOCK_SQL,
+                new MapSqlParameterSource("ids", ids),
+                rs -> {
+                    balances.put(rs.getLong("id"), rs.getBigDecimal("stock_quantity"));
+                }
+        );
+        return balances;
+    }
+
+    @Override
+    public Optional<BigDecimal> applyStockDeltaIfNotNegative(Long ingredientId, BigDecimal delta) {
+        List<BigDecimal> result = jdbcTemplate.query(
+                UPDATE_STOCK_NOT_NEGATIVE_SQL,
+                (rs, rowNum) -> rs.getBigDecimal("stock_quantity"),
+                delta, ingredientId, delta
+        );
+        return result.stream().findFirst();
+    }
+}
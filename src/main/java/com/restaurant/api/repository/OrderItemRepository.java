@@ -2,6 +2,7 @@ package com.restaurant.api.repository;
 
 import com.restaurant.api.entity.OrderItem;
 import com.restaurant.api.enums.OrderItemStatus;
+import com.restaurant.api.enums.OrderStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -9,6 +10,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -30,6 +33,20 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
      */
     List<OrderItem> findByOrder_Id(Long orderId);
 
+    /**
+     * Lấy danh sách OrderItem của 1 order, JOIN FETCH dish.
+     * Dùng cho các luồng cần đọc tên / giá món của từng item
+     * (VD: OrderService.updateOrderItems) → không lazy-load dish từng dòng.
+     */
+    @Query("""
+        SELECT oi
+        FROM OrderItem oi
+        JOIN FETCH oi.dish d
+        WHERE oi.order.id = :orderId
+        ORDER BY oi.id ASC
+    """)
+    List<OrderItem> findByOrderIdWithDish(@Param("orderId") Long orderId);
+
     // =====================================================================
     // 2) LẤY LIST ITEM THEO DANH SÁCH TRẠNG THÁI
     // =====================================================================
@@ -63,6 +80,7 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
         SELECT oi
         FROM OrderItem oi
         JOIN FETCH oi.order o
+        LEFT JOIN FETCH o.table t
         JOIN FETCH oi.dish d
         WHERE oi.status IN :statuses
           AND o.status NOT IN ('PAID', 'CANCELED')
@@ -72,6 +90,45 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
             @Param("statuses") List<OrderItemStatus> statuses
     );
 
+    /**
+     * Lấy nhiều item theo ID, JOIN FETCH order + bàn + dish
+     * (KitchenService.updateItemsStatus: kiểm tra + dựng response không lazy-load).
+     */
+    @Query("""
+        SELECT oi
+        FROM OrderItem oi
+        JOIN FETCH oi.order o
+        LEFT JOIN FETCH o.table t
+        JOIN FETCH oi.dish d
+        WHERE oi.id IN :ids
+    """)
+    List<OrderItem> findByIdInWithOrderAndDish(@Param("ids") Collection<Long> ids);
+
+
+    /**
+     * Query đi kèm OrderRepository.findForListing (màn danh sách order):
+     *  - Dùng CÙNG điều kiện lọc với query order → không cần truyền list orderId
+     *    (tránh IN (...) quá dài khi không filter)
+     *  - JOIN FETCH dish → toOrderResponse không lazy-load dish từng món
+     *  - Bỏ luôn các món CANCELED ngay trong DB
+     *  - oi.createdAt >= :from (món luôn tạo sau order) → PostgreSQL chỉ quét
+     *    các partition order_item từ tháng :from trở đi
+     */
+    @Query("""
+        SELECT oi
+        FROM OrderItem oi
+        JOIN FETCH oi.dish d
+        JOIN oi.order o
+        WHERE o.status IN :statuses
+          AND o.createdAt BETWEEN :from AND :to
+          AND oi.createdAt >= :from
+          AND oi.status <> 'CANCELED'
+    """)
+    List<OrderItem> findActiveItemsForListing(
+            @Param("statuses") Collection<OrderStatus> statuses,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
 
     // =====================================================================
     // 4) UPDATE TRẠNG THÁI MÓN KHÔNG CẦN LOAD ENTITY
@@ -92,6 +149,30 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
             @Param("newStatus") OrderItemStatus newStatus
     );
 
+    /**
+     * Chuyển trạng thái NHIỀU item trong 1 câu UPDATE.
+     * ------------------------------------------------------------
+     * - Chỉ đổi các item còn đúng trạng thái :fromStatus
+     *   → item vừa bị request khác đổi trạng thái sẽ không bị ghi đè
+     * - note = null → giữ nguyên ghi chú cũ
+     *
+     * @return số dòng đã update (nhỏ hơn số ID → có item đã đổi trạng thái)
+     */
+    @Modifying
+    @Query("""
+        UPDATE OrderItem oi
+        SET oi.status = :toStatus,
+            oi.note = COALESCE(:note, oi.note)
+        WHERE oi.id IN :ids
+          AND oi.status = :fromStatus
+    """)
+    int updateStatusByIds(
+            @Param("ids") Collection<Long> ids,
+            @Param("fromStatus") OrderItemStatus fromStatus,
+            @Param("toStatus") OrderItemStatus toStatus,
+            @Param("note") String note
+    );
+
 
     // =====================================================================
     // 5) ĐẾM SỐ LƯỢNG ITEM TRONG ORDER
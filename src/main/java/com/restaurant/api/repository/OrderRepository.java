@@ -3,8 +3,12 @@ package com.restaurant.api.repository;
 import com.restaurant.api.entity.Order;
 import com.restaurant.api.enums.OrderStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -35,6 +39,11 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      */
     List<Order> findByCreatedAtBetween(LocalDateTime from, LocalDateTime to);
 
+    /**
+     * Đếm số order tạo trong khoảng [from, to) – dùng cho dashboard (dùng idx_orders_created_at)
+     */
+    long countByCreatedAtGreaterThanEqualAndCreatedAtLessThan(LocalDateTime from, LocalDateTime to);
+
     /**
      * Lọc theo trạng thái + khoảng thời gian
      */
@@ -92,4 +101,26 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      *         false - nếu KHÔNG có order nào thỏa điều kiện
      */
     boolean existsByStatusIn(List<OrderStatus> statuses);
+
+    /**
+     * Query dành riêng cho màn danh sách order (OrderService.getOrders).
+     * ---------------------------------------------------------
+     * - LEFT JOIN FETCH table → không phát sinh thêm query lấy bàn cho từng order
+     * - Sort createdAt DESC ngay trong DB (không sort lại ở service)
+     * - Luôn truyền đủ statuses + from/to (service tự điền giá trị mặc định)
+     *   để chỉ cần 1 câu query cho mọi tổ hợp filter
+     */
+    @Query("""
+        SELECT o
+        FROM Order o
+        LEFT JOIN FETCH o.table t
+        WHERE o.status IN :statuses
+          AND o.createdAt BETWEEN :from AND :to
+        ORDER BY o.createdAt DESC
+    """)
+    List<Order> findForListing(
+            @Param("statuses") Collection<OrderStatus> statuses,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
 }
@@ -0,0 +1,40 @@
+package com.restaurant.api.repository;
+
+import com.restaurant.api.entity.OrderSummary;
+import com.restaurant.api.enums.OrderStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * OrderSummaryRepository
+ * ------------------------------------------------------------
+ * Đọc bảng read model order_summary (chỉ đọc).
+ * Ghi / dựng lại projection: xem OrderSummaryService.
+ * ------------------------------------------------------------
+ */
+@Repository
+public interface OrderSummaryRepository extends JpaRepository<OrderSummary, Long> {
+
+    /**
+     * Danh sách order cho màn POS / Admin (cùng điều kiện với
+     * OrderRepository.findForListing nhưng chỉ đọc 1 bảng).
+     */
+    @Query("""
+        SELECT s
+        FROM OrderSummary s
+        WHERE s.status IN :statuses
+          AND s.createdAt BETWEEN :from AND :to
+        ORDER BY s.createdAt DESC
+    """)
+    List<OrderSummary> findForListing(
+            @Param("statuses") Collection<OrderStatus> statuses,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
+}
@@ -5,6 +5,7 @@ import com.restaurant.api.entity.Dish;
 import com.restaurant.api.entity.Ingredient;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -56,4 +57,15 @@ public interface RecipeItemRepository extends JpaRepository<RecipeItem, Long> {
      * Lấy toàn bộ định lượng theo dishId
      */
     List<RecipeItem> findByDishId(Long dishId);
+
+    /**
+     * Lấy định lượng của NHIỀU món trong 1 query.
+     * Dùng cho StockMovementService khi tiêu hao / hoàn kho theo order
+     * → không query recipe lặp lại cho từng dòng order.
+     * (Chỉ cần ingredient id nên không fetch ingredient.)
+     *
+     * @param dishIds Danh sách id món ăn
+     * @return Danh sách RecipeItem
+     */
+    List<RecipeItem> findByDishIdIn(Collection<Long> dishIds);
 }
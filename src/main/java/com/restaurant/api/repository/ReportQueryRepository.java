@@ -0,0 +1,425 @@
+package com.restaurant.api.repository;
+
+import com.restaurant.api.dto.report.IngredientUsageReportItem;
+import com.restaurant.api.dto.report.RevenueByDayItem;
+import com.restaurant.api.dto.report.RevenueReportResponse;
+import com.restaurant.api.dto.report.StockEntryReportItem;
+import com.restaurant.api.dto.report.TopDishReportItem;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * ReportQueryRepository – Module 12
+ * ------------------------------------------------------------
+ * Các truy vấn cho báo cáo / dashboard, đọc từ BẢNG TỔNG HỢP THEO NGÀY
+ * (daily_revenue, daily_dish_sales, daily_ingredient_movement – V53,
+ * duy trì bởi DailyRollupService):
+ *  - Lọc theo khoảng ngày [from, to] (bao gồm 2 đầu) trên khóa chính "day"
+ *  - Báo cáo 12 tháng chỉ đọc ~365 dòng / ngày thay vì toàn bộ dữ liệu gốc
+ *  - Trả thẳng về DTO báo cáo → không load entity, không findAll
+ *
+ * Mỗi truy vấn có 2 dạng:
+ *  - findXxx   : trả về List (API JSON, dashboard)
+ *  - streamXxx : trả về Stream đọc theo CURSOR (fetch size STREAM_FETCH_SIZE)
+ *                dùng cho export – bộ nhớ không phụ thuộc số dòng.
+ *                Phải gọi trong transaction (PostgreSQL chỉ dùng cursor khi
+ *                autocommit = false) và phải đóng Stream sau khi dùng.
+ *
+ * from / to = null → không giới hạn phía đó.
+ * ------------------------------------------------------------
+ */
+@Repository
+public class ReportQueryRepository {
+
+    /** Số dòng đọc mỗi lần từ cursor khi export */
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final RowMapper<RevenueByDayItem> REVENUE_MAPPER = (rs, rowNum) ->
+            RevenueByDayItem.builder()
+                    .date(rs.getDate("day").toLocalDate())
+                    .revenue(rs.getBigDecimal("revenue"))
+                    .orderCount(rs.getLong("invoice_count"))
+                    .build();
+
+    private static final RowMapper<TopDishReportItem> TOP_DISH_MAPPER = (rs, rowNum) ->
+            TopDishReportItem.builder()
+                    .dishId(rs.getLong("dish_id"))
+                    .dishName(rs.getString("dish_name"))
+                    .totalQuantity(rs.getLong("total_quantity"))
+                    .totalRevenue(rs.getBigDecimal("total_revenue"))
+                    .build();
+
+    private static final RowMapper<IngredientUsageReportItem> USAGE_MAPPER = (rs, rowNum) ->
+            IngredientUsageReportItem.builder()
+                    .ingredientId(rs.getLong("ingredient_id"))
+                    .ingredientName(rs.getString("ingredient_name"))
+                    .unit(rs.getString("unit"))
+                    .totalUsed(rs.getBigDecimal("total"))
+                    .build();
+
+    private static final RowMapper<StockEntryReportItem> STOCK_ENTRY_MAPPER = (rs, rowNum) ->
+            StockEntryReportItem.builder()
+                    .ingredientId(rs.getLong("ingredient_id"))
+                    .ingredientName(rs.getString("ingredient_name"))
+                    .unit(rs.getString("unit"))
+                    .totalImportedAmount(rs.getBigDecimal("total"))
+                    .build();
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /** Template riêng cho export: cùng DataSource, đặt fetch size để đọc theo cursor */
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    public ReportQueryRepository(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+
+        JdbcTemplate streaming = new JdbcTemplate(namedParameterJdbcTemplate.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    /** Câu SQL + tham số đã dựng sẵn */
+    private record ReportQuery(String sql, MapSqlParameterSource params) {}
+
+    // =====================================================================
+    // 1. DOANH THU THEO NGÀY (daily_revenue)
+    // =====================================================================
+
+    /**
+     * Doanh thu + số hóa đơn theo từng ngày thanh toán, sắp xếp ngày tăng dần.
+     * Chỉ trả về các ngày có hóa đơn.
+     */
+    public List<RevenueByDayItem> findRevenueByDay(LocalDate from, LocalDate to) {
+        ReportQuery q = revenueByDayQuery(from, to);
+        return namedParameterJdbcTemplate.query(q.sql(), q.params(), REVENUE_MAPPER);
+    }
+
+    /** Như findRevenueByDay nhưng đọc theo cursor (export) */
+    public Stream<RevenueByDayItem> streamRevenueByDay(LocalDate from, LocalDate to) {
+        ReportQuery q = revenueByDayQuery(from, to);
+        return streamingJdbcTemplate.queryForStream(q.sql(), q.params(), REVENUE_MAPPER);
+    }
+
+    /**
+     * Khối tổng hợp doanh thu (không kèm danh sách ngày):
+     * tổng doanh thu, tổng số hóa đơn, doanh thu TB / ngày có hóa đơn.
+     * Dùng cho export – header file cần tổng trước khi ghi từng dòng.
+     */
+    public RevenueReportResponse findRevenueTotals(LocalDate from, LocalDate to) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = """
+                SELECT COALESCE(SUM(dr.revenue), 0)       AS total_revenue,
+                       COALESCE(SUM(dr.invoice_count), 0) AS total_orders,
+                       COUNT(*)                           AS days
+                FROM daily_revenue dr
+                WHERE dr.invoice_count > 0
+                """
+                + dayCondition("dr.day", from, to, params);
+
+        return namedParameterJdbcTemplate.queryForObject(sql, params, (rs, rowNum) -> {
+            BigDecimal total = rs.getBigDecimal("total_revenue");
+            long days = rs.getLong("days");
+            BigDecimal avg = days > 0
+                    ? total.divide(BigDecimal.valueOf(days), 0, BigDecimal.ROUND_HALF_UP)
+                    : BigDecimal.ZERO;
+            return RevenueReportResponse.builder()
+                    .totalRevenue(total)
+                    .totalOrders(rs.getLong("total_orders"))
+                    .averageRevenuePerDay(avg)
+                    .items(List.of())
+                    .build();
+        });
+    }
+
+    private ReportQuery revenueByDayQuery(LocalDate from, LocalDate to) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = """
+                SELECT dr.day, dr.revenue, dr.invoice_count
+                FROM daily_revenue dr
+                WHERE dr.invoice_count > 0
+                """
+                + dayCondition("dr.day", from, to, params)
+                + """
+                ORDER BY dr.day
+                """;
+        return new ReportQuery(sql, params);
+    }
+
+    // =====================================================================
+    // 2. TOP MÓN (daily_dish_sales)
+    // =====================================================================
+
+    /**
+     * Engine TOP MÓN dùng chung cho dashboard + báo cáo + export.
+     * --------------------------------------------------------------
+     *  - Tổng số lượng + doanh thu (giá snapshot trên hóa đơn – invoice_item)
+     *    theo món trong khoảng ngày thanh toán, cộng từ daily_dish_sales
+     *  - excludeCanceled = true → trừ phần món đã hủy ngay trong cùng câu SQL
+     *  - Sắp xếp số lượng giảm dần, bằng nhau thì doanh thu giảm dần
+     *  - Có LIMIT → PostgreSQL chọn top-K bằng heap (top-N heapsort),
+     *    không sắp xếp toàn bộ danh sách món
+     *
+     * @param limit <= 0 → lấy tất cả
+     */
+    public List<TopDishReportItem> findTopDishes(LocalDate from, LocalDate to, int limit,
+                                                 boolean excludeCanceled) {
+        ReportQuery q = topDishesQuery(from, to, limit, excludeCanceled);
+        return namedParameterJdbcTemplate.query(q.sql(), q.params(), TOP_DISH_MAPPER);
+    }
+
+    /** Như findTopDishes nhưng đọc theo cursor (export) */
+    public Stream<TopDishReportItem> streamTopDishes(LocalDate from, LocalDate to, int limit,
+                                                     boolean excludeCanceled) {
+        ReportQuery q = topDishesQuery(from, to, limit, excludeCanceled);
+        return streamingJdbcTemplate.queryForStream(q.sql(), q.params(), TOP_DISH_MAPPER);
+    }
+
+    /**
+     * Dòng TỔNG của danh sách top món (cùng điều kiện / limit với findTopDishes):
+     * chỉ có totalQuantity + totalRevenue, dishId / dishName = null.
+     * Dùng cho export PDF – khối tổng quan nằm TRƯỚC bảng chi tiết.
+     */
+    public TopDishReportItem findTopDishTotals(LocalDate from, LocalDate to, int limit,
+                                               boolean excludeCanceled) {
+        ReportQuery q = topDishesQuery(from, to, limit, excludeCanceled);
+        String sql = """
+                SELECT COALESCE(SUM(t.total_quantity), 0) AS total_quantity,
+                       COALESCE(SUM(t.total_revenue), 0)  AS total_revenue
+                FROM (
+                """
+                + q.sql()
+                + """
+                ) t
+                """;
+        return namedParameterJdbcTemplate.queryForObject(sql, q.params(), (rs, rowNum) ->
+                TopDishReportItem.builder()
+                        .totalQuantity(rs.getLong("total_quantity"))
+                        .totalRevenue(rs.getBigDecimal("total_revenue"))
+                        .build());
+    }
+
+    private ReportQuery topDishesQuery(LocalDate from, LocalDate to, int limit, boolean excludeCanceled) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        params.addValue("excludeCanceled", excludeCanceled);
+        String sql = """
+                SELECT d.id               AS dish_id,
+                       d.name             AS dish_name,
+                       agg.total_quantity AS total_quantity,
+                       agg.total_revenue  AS total_revenue
+                FROM (
+                    SELECT ds.dish_id,
+                           SUM(ds.quantity - CASE WHEN :excludeCanceled THEN ds.canceled_quantity ELSE 0 END)
+                               AS total_quantity,
+                           SUM(ds.revenue - CASE WHEN :excludeCanceled THEN ds.canceled_revenue ELSE 0 END)
+                               AS total_revenue
+                    FROM daily_dish_sales ds
+                    WHERE 1 = 1
+                """
+                + dayCondition("ds.day", from, to, params)
+                + """
+                    GROUP BY ds.dish_id
+                ) agg
+                JOIN dish d ON d.id = agg.dish_id
+                WHERE agg.total_quantity > 0
+                ORDER BY total_quantity DESC, total_revenue DESC, d.id
+                """;
+
+        if (limit > 0) {
+            sql += "LIMIT :limit\n";
+            params.addValue("limit", limit);
+        }
+        return new ReportQuery(sql, params);
+    }
+
+    // =====================================================================
+    // 3. NGUYÊN LIỆU TIÊU HAO / NHẬP KHO (daily_ingredient_movement)
+    // =====================================================================
+
+    /**
+     * Tổng lượng TIÊU HAO (xuất kho, số dương) theo nguyên liệu, sắp xếp giảm dần.
+     */
+    public List<IngredientUsageReportItem> findIngredientUsage(LocalDate from, LocalDate to) {
+        ReportQuery q = sumByIngredientQuery("quantity_out", from, to);
+        return namedParameterJdbcTemplate.query(q.sql(), q.params(), USAGE_MAPPER);
+    }
+
+    /** Như findIngredientUsage nhưng đọc theo cursor (export) */
+    public Stream<IngredientUsageReportItem> streamIngredientUsage(LocalDate from, LocalDate to) {
+        ReportQuery q = sumByIngredientQuery("quantity_out", from, to);
+        return streamingJdbcTemplate.queryForStream(q.sql(), q.params(), USAGE_MAPPER);
+    }
+
+    /**
+     * Tổng lượng NHẬP KHO (quantity > 0) theo nguyên liệu, sắp xếp giảm dần.
+     */
+    public List<StockEntryReportItem> findStockEntryTotals(LocalDate from, LocalDate to) {
+        ReportQuery q = sumByIngredientQuery("quantity_in", from, to);
+        return namedParameterJdbcTemplate.query(q.sql(), q.params(), STOCK_ENTRY_MAPPER);
+    }
+
+    /** Như findStockEntryTotals nhưng đọc theo cursor (export) */
+    public Stream<StockEntryReportItem> streamStockEntryTotals(LocalDate from, LocalDate to) {
+        ReportQuery q = sumByIngredientQuery("quantity_in", from, to);
+        return streamingJdbcTemplate.queryForStream(q.sql(), q.params(), STOCK_ENTRY_MAPPER);
+    }
+
+    /** Tổng lượng tiêu hao của mọi nguyên liệu (khối tổng quan khi export) */
+    public BigDecimal findIngredientUsageTotal(LocalDate from, LocalDate to) {
+        return sumAllIngredients("quantity_out", from, to);
+    }
+
+    /** Tổng lượng nhập kho của mọi nguyên liệu (khối tổng quan khi export) */
+    public BigDecimal findStockEntryTotal(LocalDate from, LocalDate to) {
+        return sumAllIngredients("quantity_in", from, to);
+    }
+
+    private BigDecimal sumAllIngredients(String column, LocalDate from, LocalDate to) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = """
+                SELECT COALESCE(SUM(m.%s), 0)
+                FROM daily_ingredient_movement m
+                WHERE 1 = 1
+                """.formatted(column)
+                + dayCondition("m.day", from, to, params);
+        return namedParameterJdbcTemplate.queryForObject(sql, params, BigDecimal.class);
+    }
+
+    /**
+     * Tổng 1 cột (quantity_in / quantity_out) theo nguyên liệu trong khoảng ngày.
+     * Bỏ nguyên liệu có tổng = 0.
+     */
+    private ReportQuery sumByIngredientQuery(String column, LocalDate from, LocalDate to) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = """
+                SELECT i.id AS ingredient_id, i.name AS ingredient_name, i.unit AS unit, agg.total AS total
+                FROM (
+                    SELECT m.ingredient_id, SUM(m.%s) AS total
+                    FROM daily_ingredient_movement m
+                    WHERE 1 = 1
+                """.formatted(column)
+                + dayCondition("m.day", from, to, params)
+                + """
+                    GROUP BY m.ingredient_id
+                ) agg
+                JOIN ingredient i ON i.id = agg.ingredient_id
+                WHERE agg.total > 0
+                ORDER BY agg.total DESC, i.id
+                """;
+        return new ReportQuery(sql, params);
+    }
+
+    // =====================================================================
+    // 4. DỮ LIỆU THEO TỪNG NGÀY (cho ReportCacheService)
+    // =====================================================================
+
+    /** 1 dòng daily_dish_sales */
+    public record DishDaySales(LocalDate day, long dishId, long quantity, BigDecimal revenue,
+                               long canceledQuantity, BigDecimal canceledRevenue) {}
+
+    /** 1 dòng daily_ingredient_movement */
+    public record IngredientDayMovement(LocalDate day, long ingredientId,
+                                        BigDecimal quantityIn, BigDecimal quantityOut) {}
+
+    /** Tên + đơn vị nguyên liệu */
+    public record IngredientInfo(String name, String unit) {}
+
+    /** Các dòng daily_dish_sales trong khoảng ngày [from, to] (chưa gộp) */
+    public List<DishDaySales> findDishSalesByDay(LocalDate from, LocalDate to) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = """
+                SELECT ds.day, ds.dish_id, ds.quantity, ds.revenue, ds.canceled_quantity, ds.canceled_revenue
+                FROM daily_dish_sales ds
+                WHERE 1 = 1
+                """
+                + dayCondition("ds.day", from, to, params);
+        return namedParameterJdbcTemplate.query(sql, params, (rs, rowNum) -> new DishDaySales(
+                rs.getDate("day").toLocalDate(),
+                rs.getLong("dish_id"),
+                rs.getLong("quantity"),
+                rs.getBigDecimal("revenue"),
+                rs.getLong("canceled_quantity"),
+                rs.getBigDecimal("canceled_revenue")
+        ));
+    }
+
+    /** Các dòng daily_ingredient_movement trong khoảng ngày [from, to] (chưa gộp) */
+    public List<IngredientDayMovement> findIngredientMovementByDay(LocalDate from, LocalDate to) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = """
+                SELECT m.day, m.ingredient_id, m.quantity_in, m.quantity_out
+                FROM daily_ingredient_movement m
+                WHERE 1 = 1
+                """
+                + dayCondition("m.day", from, to, params);
+        return namedParameterJdbcTemplate.query(sql, params, (rs, rowNum) -> new IngredientDayMovement(
+                rs.getDate("day").toLocalDate(),
+                rs.getLong("ingredient_id"),
+                rs.getBigDecimal("quantity_in"),
+                rs.getBigDecimal("quantity_out")
+        ));
+    }
+
+    /** dishId → tên món (chỉ các id còn tồn tại) */
+    public Map<Long, String> findDishNames(Collection<Long> dishIds) {
+        Map<Long, String> names = new HashMap<>();
+        if (dishIds.isEmpty()) {
+            return names;
+        }
+        namedParameterJdbcTemplate.query(
+                "SELECT id, name FROM dish WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", dishIds),
+                rs -> {
+                    names.put(rs.getLong("id"), rs.getString("name"));
+                });
+        return names;
+    }
+
+    /** ingredientId → tên + đơn vị (chỉ các id còn tồn tại) */
+    public Map<Long, IngredientInfo> findIngredientInfo(Collection<Long> ingredientIds) {
+        Map<Long, IngredientInfo> infos = new HashMap<>();
+        if (ingredientIds.isEmpty()) {
+            return infos;
+        }
+        namedParameterJdbcTemplate.query(
+                "SELECT id, name, unit FROM ingredient WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ingredientIds),
+                rs -> {
+                    infos.put(rs.getLong("id"), new IngredientInfo(rs.getString("name"), rs.getString("unit")));
+                });
+        return infos;
+    }
+
+    // =====================================================================
+    // 5. HÀM NỘI BỘ
+    // =====================================================================
+
+    /**
+     * Sinh điều kiện "column >= :fromDay AND column <= :toDay" (bỏ phía nào null)
+     * và thêm tham số tương ứng.
+     */
+    private String dayCondition(String column, LocalDate from, LocalDate to,
+                                MapSqlParameterSource params) {
+        StringBuilder sb = new StringBuilder();
+        if (from != null) {
+            sb.append("  AND ").append(column).append(" >= :fromDay\n");
+            params.addValue("fromDay", Date.valueOf(from));
+        }
+        if (to != null) {
+            sb.append("  AND ").append(column).append(" <= :toDay\n");
+            params.addValue("toDay", Date.valueOf(to));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,30 @@
+package com.restaurant.api.scheduler;
+
+import com.restaurant.api.service.DashboardRealtimePusher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * DashboardPushScheduler
+ * =====================================================================
+ * Mỗi dashboard.push.interval-ms (mặc định 2 giây): push phần số liệu
+ * dashboard thay đổi lên /topic/dashboard (tối đa 1 message / chu kỳ).
+ * =====================================================================
+ */
+@Component
+@RequiredArgsConstructor
+public class DashboardPushScheduler {
+
+    private final DashboardRealtimePusher dashboardRealtimePusher;
+
+    @Scheduled(fixedDelayString = "${dashboard.push.interval-ms:2000}",
+            initialDelayString = "${dashboard.push.interval-ms:2000}")
+    public void push() {
+        try {
+            dashboardRealtimePusher.pushIfChanged();
+        } catch (Exception e) {
+            System.err.println("[DashboardPush] Lỗi push dashboard: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.restaurant.api.scheduler;
+
+import com.restaurant.api.service.IdempotencyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * IdempotencyCleanupScheduler
+ * =====================================================================
+ * Dọn các Idempotency-Key đã hết hạn (RAM + bảng idempotency_record).
+ * Chạy mỗi 10 phút.
+ * =====================================================================
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotencyCleanupScheduler {
+
+    private final IdempotencyService idempotencyService;
+
+    @Scheduled(cron = "0 */10 * * * *")
+    public void purgeExpiredKeys() {
+        idempotencyService.purgeExpired();
+    }
+}
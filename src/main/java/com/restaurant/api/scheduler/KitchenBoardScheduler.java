@@ -0,0 +1,29 @@
+package com.restaurant.api.scheduler;
+
+import com.restaurant.api.service.KitchenBoard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * KitchenBoardScheduler
+ * =====================================================================
+ * Kiểm tra định kỳ KitchenBoard (RAM) so với DB:
+ *  - Order nào lệch → ghi log + sửa lại board theo DB
+ * Chạy mỗi 5 phút.
+ * =====================================================================
+ */
+@Component
+@RequiredArgsConstructor
+public class KitchenBoardScheduler {
+
+    private final KitchenBoard kitchenBoard;
+
+    @Scheduled(cron = "30 */5 * * * *")
+    public void verifyBoard() {
+        int drift = kitchenBoard.verifyAgainstDatabase();
+        if (drift > 0) {
+            System.err.println("[KitchenBoard] Đã sửa " + drift + " order lệch so với DB");
+        }
+    }
+}
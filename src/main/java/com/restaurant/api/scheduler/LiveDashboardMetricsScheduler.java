@@ -0,0 +1,33 @@
+package com.restaurant.api.scheduler;
+
+import com.restaurant.api.service.LiveDashboardMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * LiveDashboardMetricsScheduler
+ * =====================================================================
+ * - Qua ngày mới (00:00:30): nạp lại cửa sổ 7 ngày từ DB
+ * - Mỗi 5 phút: so sánh bộ đếm RAM với DB, sửa độ lệch (nếu lệch ổn định)
+ * =====================================================================
+ */
+@Component
+@RequiredArgsConstructor
+public class LiveDashboardMetricsScheduler {
+
+    private final LiveDashboardMetrics liveDashboardMetrics;
+
+    @Scheduled(cron = "30 0 0 * * *")
+    public void rollover() {
+        liveDashboardMetrics.seed();
+    }
+
+    @Scheduled(cron = "15 */5 * * * *")
+    public void reconcile() {
+        int corrected = liveDashboardMetrics.reconcile();
+        if (corrected > 0) {
+            System.err.println("[LiveDashboard] Đã sửa " + corrected + " bộ đếm lệch so với DB");
+        }
+    }
+}
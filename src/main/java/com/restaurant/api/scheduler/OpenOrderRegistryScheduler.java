@@ -0,0 +1,26 @@
+package com.restaurant.api.scheduler;
+
+import com.restaurant.api.service.OpenOrderRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * OpenOrderRegistryScheduler
+ * =====================================================================
+ * Kiểm tra định kỳ OpenOrderRegistry (RAM) so với DB:
+ *  - Bàn nào lệch → ghi log (từng bàn, trong registry) + sửa lại theo DB
+ * Chạy mỗi 5 phút.
+ * =====================================================================
+ */
+@Component
+@RequiredArgsConstructor
+public class OpenOrderRegistryScheduler {
+
+    private final OpenOrderRegistry openOrderRegistry;
+
+    @Scheduled(cron = "0 */5 * * * *")
+    public void verifyRegistry() {
+        openOrderRegistry.verifyAgainstDatabase();
+    }
+}
@@ -0,0 +1,38 @@
+package com.restaurant.api.scheduler;
+
+import com.restaurant.api.service.DailyBlockOrderCodeGenerator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * OrderCodeSequenceScheduler
+ * =====================================================================
+ * Bảo trì sequence mã order theo ngày (Flyway V56):
+ *  - Khi khởi động: đảm bảo đã có sequence hôm nay + các ngày tới
+ *  - 00:10 mỗi ngày: tạo sequence ngày tương lai, xóa sequence ngày cũ
+ * =====================================================================
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderCodeSequenceScheduler {
+
+    private final DailyBlockOrderCodeGenerator orderCodeGenerator;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureOnStartup() {
+        orderCodeGenerator.ensureSequences();
+    }
+
+    @Scheduled(cron = "0 10 0 * * *")
+    public void maintainSequences() {
+        try {
+            orderCodeGenerator.ensureSequences();
+            orderCodeGenerator.dropExpiredSequences();
+        } catch (Exception e) {
+            System.err.println("❌ Lỗi bảo trì sequence mã order: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.restaurant.api.scheduler;
+
+import com.restaurant.api.service.PartitionMaintenanceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * PartitionMaintenanceScheduler
+ * =====================================================================
+ * Bảo trì partition theo tháng (order_item, stock_entry):
+ *  - Khi khởi động: đảm bảo đã có partition tháng hiện tại + các tháng tới
+ *  - 02:30 mỗi ngày: tạo partition tương lai, gom dòng trong DEFAULT,
+ *    detach partition quá hạn lưu trữ
+ * =====================================================================
+ */
+@Component
+@RequiredArgsConstructor
+public class PartitionMaintenanceScheduler {
+
+    private final PartitionMaintenanceService partitionMaintenanceService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureOnStartup() {
+        partitionMaintenanceService.ensureFuturePartitions();
+    }
+
+    @Scheduled(cron = "0 30 2 * * *")
+    public void maintainPartitions() {
+        try {
+            partitionMaintenanceService.ensureFuturePartitions();
+            partitionMaintenanceService.absorbDefaultPartitions();
+            partitionMaintenanceService.detachExpiredPartitions();
+        } catch (Exception e) {
+            System.err.println("❌ Lỗi bảo trì partition: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.restaurant.api.scheduler;
+
+import com.restaurant.api.service.ReportJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * ReportJobCleanupScheduler
+ * =====================================================================
+ * Dọn job xuất báo cáo đã hết hạn (trạng thái trong RAM + file kết quả).
+ * Chạy mỗi 5 phút.
+ * =====================================================================
+ */
+@Component
+@RequiredArgsConstructor
+public class ReportJobCleanupScheduler {
+
+    private final ReportJobService reportJobService;
+
+    @Scheduled(cron = "0 */5 * * * *")
+    public void purgeExpiredJobs() {
+        reportJobService.purgeExpired();
+    }
+}
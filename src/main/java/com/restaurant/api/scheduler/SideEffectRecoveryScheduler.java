@@ -0,0 +1,43 @@
+package com.restaurant.api.scheduler;
+
+import com.restaurant.api.service.SideEffectDispatcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * SideEffectRecoveryScheduler
+ * =====================================================================
+ * Nạp lại tác vụ phụ còn nằm trong bảng side_effect_outbox:
+ *  - Khi ứng dụng khởi động (JVM dừng trước khi xử lý xong)
+ *  - Mỗi phút (hàng đợi RAM từng đầy / lần xử lý trước bị lỗi)
+ * Chỉ nạp dòng PENDING; dòng DEAD được xóa mỗi đêm sau dead-retention-days.
+ * =====================================================================
+ */
+@Component
+@RequiredArgsConstructor
+public class SideEffectRecoveryScheduler {
+
+    private final SideEffectDispatcher sideEffectDispatcher;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        sideEffectDispatcher.recoverPending(0);
+    }
+
+    @Scheduled(cron = "0 * * * * *")
+    public void recoverPending() {
+        sideEffectDispatcher.recoverPending(60);
+    }
+
+    @Scheduled(cron = "0 30 3 * * *")
+    public void purgeDead() {
+        try {
+            sideEffectDispatcher.purgeDead();
+        } catch (Exception e) {
+            System.err.println("❌ Lỗi xóa tác vụ phụ DEAD: " + e.getMessage());
+        }
+    }
+}
@@ -3,11 +3,11 @@ package com.restaurant.api.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.restaurant.api.dto.sideeffect.AuditLogSideEffect;
 import com.restaurant.api.entity.AuditLog;
-import com.restaurant.api.entity.User;
 import com.restaurant.api.enums.AuditAction;
+import com.restaurant.api.enums.SideEffectType;
 import com.restaurant.api.repository.AuditLogRepository;
-import com.restaurant.api.repository.UserRepository;
 import com.restaurant.api.util.AuthUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -34,7 +34,7 @@ import java.util.Map;
 public class AuditLogService {
 
     private final AuditLogRepository auditLogRepository;
-    private final UserRepository userRepository;
+    private final SideEffectDispatcher sideEffectDispatcher;
     private final HttpServletRequest request;
 
     private final ObjectMapper objectMapper = new ObjectMapper()
@@ -58,6 +58,11 @@ public class AuditLogService {
 
     /**
      * Hàm log dùng trên toàn hệ thống
+     * ----------------------------------------------------
+     * - Chụp dữ liệu NGAY trên thread hiện tại (user từ JWT, IP, User-Agent,
+     *   JSON trước/sau) rồi giao cho SideEffectDispatcher
+     * - Bản ghi audit_log được ghi hàng loạt SAU KHI nghiệp vụ commit
+     *   (nghiệp vụ rollback → không ghi, giống khi còn chạy chung transaction)
      */
     public void log(
             AuditAction action,
@@ -67,23 +72,19 @@ public class AuditLogService {
             Object afterData
     ) {
         try {
-            // Lấy user hiện tại từ JWT
-            String username = AuthUtil.getCurrentUsername();
-            User user = userRepository.findByUsername(username).orElse(null);
-
-            AuditLog log = AuditLog.builder()
-                    .user(user)
+            AuditLogSideEffect log = AuditLogSideEffect.builder()
+                    .username(AuthUtil.getCurrentUsername())  // Lấy user hiện tại từ JWT
                     .action(action)
                     .entity(entity)
                     .entityId(entityId)
                     .beforeData(convertToJson(beforeData))   // ← STRING
                     .afterData(convertToJson(afterData))     // ← STRING
-                    .ipAddress(getClientIp())   // ✅ ADD
-                    .userAgent(getUserAgent())  // ✅ ADD
+                    .ipAddress(getClientIp())
+                    .userAgent(getUserAgent())
                     .createdAt(LocalDateTime.now())
                     .build();
 
-            auditLogRepository.save(log);
+            sideEffectDispatcher.submit(SideEffectType.AUDIT_LOG, log);
 
         } catch (Exception e) {
             System.err.println("❌ Lỗi ghi audit log: " + e.getMessage());
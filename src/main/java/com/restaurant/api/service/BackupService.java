@@ -294,6 +294,7 @@ public class BackupService {
                 .dishPrice(e.getDishPrice())
                 .quantity(e.getQuantity())
                 .subtotal(e.getSubtotal())
+                .canceled(e.getCanceled())
                 .createdAt(e.getCreatedAt())
                 .build();
     }
@@ -0,0 +1,178 @@
+package com.restaurant.api.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * DailyBlockOrderCodeGenerator – Sinh mã order theo ngày, cấp phát theo block
+ * ------------------------------------------------------------
+ * Định dạng: ORD + yyyyMMdd + "-" + số thứ tự trong ngày (tối thiểu 5 chữ số)
+ *   Ví dụ: ORD20261016-00042
+ *
+ * Cách hoạt động:
+ *  - Mỗi ngày có 1 SEQUENCE riêng order_code_seq_yyyymmdd (Flyway V56),
+ *    INCREMENT BY = kích thước block (mặc định 20 số)
+ *  - Mỗi instance xin 1 block bằng nextval() → các mã trong block được cấp
+ *    trong RAM (AtomicLong, không khóa)
+ *  - Hết block hoặc sang ngày mới → xin block tiếp theo
+ *  - nextval() chạy trên CHÍNH connection của transaction gọi (createOrder),
+ *    không mở transaction / connection thứ 2 → không cạn pool khi nhiều
+ *    request tạo order cùng lúc. nextval() không bị rollback: order rollback
+ *    thì block vẫn giữ → instance khác không cấp trùng
+ *  - Xin block KHÔNG giữ khóa: thread xin xong block thì lấy ngay số đầu tiên
+ *    cho mình, rồi CAS thay block hiện tại; nhiều thread cùng xin → block thua
+ *    CAS chỉ bị bỏ phần số còn lại (tạo "lỗ" số thứ tự, không trùng mã)
+ *  - Sequence được tạo trước (ensureSequences, autocommit) cho hôm nay + vài
+ *    ngày tới; sequence của ngày đã qua được xóa (dropExpiredSequences).
+ *    Cả 2 do OrderCodeSequenceScheduler gọi
+ *
+ * Đánh đổi:
+ *  - Số thứ tự có thể bị "nhảy" (số chưa dùng của block khi restart app /
+ *    nhiều thread cùng xin block lúc hết block)
+ *  - Giữa nhiều instance, số thứ tự không đảm bảo đúng thứ tự thời gian tạo
+ *  - block-size chỉ áp dụng cho sequence tạo sau khi đổi cấu hình
+ *    (block luôn tính theo INCREMENT BY thật của sequence)
+ * ------------------------------------------------------------
+ */
+@Component
+public class DailyBlockOrderCodeGenerator implements OrderCodeGenerator {
+
+    private static final String PREFIX = "ORD";
+    private static final DateTimeFormatter DAY_FMT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final String SEQUENCE_PREFIX = "order_code_seq_";
+    private static final Pattern SEQUENCE_NAME = Pattern.compile("^" + SEQUENCE_PREFIX + "(\\d{8})$");
+
+    /** Số ngày tới được tạo sẵn sequence (ngoài hôm nay) */
+    private static final int DAYS_AHEAD = 7;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int blockSize;
+
+    /**
+     * Block số đang cấp: [next, end] của ngày day.
+     * next tăng bằng AtomicLong → cấp mã không cần khóa.
+     */
+    private record Block(LocalDate day, AtomicLong next, long end) {}
+
+    private final AtomicReference<Block> current = new AtomicReference<>();
+
+    public DailyBlockOrderCodeGenerator(JdbcTemplate jdbcTemplate,
+                                        @Value("${order.code.block-size:20}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    @Override
+    public String nextCode() {
+        LocalDate today = LocalDate.now();
+
+        // 1) Còn số trong block của hôm nay → cấp ngay
+        Block block = current.get();
+        if (block != null && block.day().equals(today)) {
+            long seq = block.next().getAndIncrement();
+            if (seq <= block.end()) {
+                return format(today, seq);
+            }
+        }
+
+        // 2) Sang ngày mới / hết block → xin block mới (không giữ khóa)
+        Block fresh = allocateBlock(today);
+        long seq = fresh.next().getAndIncrement();
+
+        // Thay block hiện tại nếu chưa thread nào thay bằng block còn số của hôm nay
+        Block seen = current.get();
+        while (seen == null || !seen.day().equals(today) || seen.next().get() > seen.end()) {
+            if (current.compareAndSet(seen, fresh)) {
+                break;
+            }
+            seen = current.get();
+        }
+
+        return format(today, seq);
+    }
+
+    private static String format(LocalDate day, long seq) {
+        return PREFIX + day.format(DAY_FMT) + "-" + String.format("%05d", seq);
+    }
+
+    /**
+     * Xin block số mới cho ngày chỉ định bằng nextval() trên connection hiện tại
+     * (connection của transaction gọi nếu có, không mở transaction riêng).
+     */
+    private Block allocateBlock(LocalDate day) {
+        Block block = jdbcTemplate.queryForObject(
+                "SELECT block_start, block_end FROM next_order_code_block(?)",
+                (rs, rowNum) -> new Block(day, new AtomicLong(rs.getLong("block_start")), rs.getLong("block_end")),
+                Date.valueOf(day)
+        );
+
+        if (block == null) {
+            throw new IllegalStateException("Không cấp phát được block mã order cho ngày " + day);
+        }
+        return block;
+    }
+
+    // =====================================================================
+    // BẢO TRÌ SEQUENCE THEO NGÀY
+    // =====================================================================
+
+    /**
+     * Tạo sequence cho hôm nay + DAYS_AHEAD ngày tới (nếu chưa có).
+     * Gọi ngoài transaction (autocommit): sequence phải tồn tại trước khi cấp block.
+     *
+     * @return Số sequence vừa tạo
+     */
+    public int ensureSequences() {
+        LocalDate today = LocalDate.now();
+        int created = 0;
+        for (int i = 0; i <= DAYS_AHEAD; i++) {
+            Boolean isNew = jdbcTemplate.queryForObject(
+                    "SELECT ensure_order_code_sequence(?, ?)",
+                    Boolean.class,
+                    Date.valueOf(today.plusDays(i)),
+                    blockSize
+            );
+            if (Boolean.TRUE.equals(isNew)) {
+                created++;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Xóa sequence của các ngày trước hôm qua (không còn cấp mã cho ngày đó).
+     * Giữ lại hôm qua cho order tạo sát nửa đêm.
+     *
+     * @return Số sequence đã xóa
+     */
+    public int dropExpiredSequences() {
+        LocalDate cutoff = LocalDate.now().minusDays(1);
+
+        List<String> sequences = jdbcTemplate.queryForList(
+                "SELECT relname FROM pg_class WHERE relkind = 'S' AND relname LIKE 'order_code_seq\\_%'",
+                String.class
+        );
+
+        int dropped = 0;
+        for (String sequence : sequences) {
+            Matcher m = SEQUENCE_NAME.matcher(sequence);
+            if (!m.matches() || !LocalDate.parse(m.group(1), DAY_FMT).isBefore(cutoff)) {
+                continue;
+            }
+            jdbcTemplate.execute("DROP SEQUENCE IF EXISTS " + sequence);
+            dropped++;
+        }
+        return dropped;
+    }
+}
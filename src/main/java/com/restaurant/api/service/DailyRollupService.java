@@ -0,0 +1,278 @@
+package com.restaurant.api.service;
+
+import com.restaurant.api.entity.Invoice;
+import com.restaurant.api.entity.InvoiceItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * DailyRollupService – Bảng tổng hợp theo ngày cho báo cáo
+ * =====================================================================
+ * Duy trì 3 bảng rollup (V53):
+ *  - daily_revenue             : doanh thu + số hóa đơn / ngày thanh toán
+ *  - daily_dish_sales          : số lượng + doanh thu theo món / ngày thanh toán
+ *                                (kèm phần của món đã hủy – canceled_quantity / canceled_revenue)
+ *  - daily_ingredient_movement : tổng nhập / xuất theo nguyên liệu / ngày
+ *
+ * Cập nhật TĂNG DẦN, trong CÙNG transaction với nghiệp vụ gốc:
+ *  - InvoiceService.createInvoiceFromOrder → recordInvoice
+ *  - StockMovementService / StockEntryService (ghi stock_entry) → recordStockMovements
+ * → nghiệp vụ rollback thì rollup cũng rollback, không lệch.
+ *
+ * Ghi bằng INSERT ... ON CONFLICT DO UPDATE (cộng dồn), khóa dòng theo
+ * thứ tự khóa chính tăng dần để tránh deadlock giữa các transaction.
+ *
+ * Dựng lại từ bảng gốc:
+ *  - rebuild(from, to): tính lại 1 khoảng ngày (POST /api/reports/rollups/rebuild)
+ *  - rebuildAll()     : tính lại toàn bộ (sau khi restore dữ liệu)
+ *
+ * Mọi lần ghi vào ngày đã qua (ghi lùi ngày / dựng lại) đều báo cho
+ * ReportCacheService bỏ cache của ngày đó (sau commit).
+ * =====================================================================
+ */
+@Service
+@RequiredArgsConstructor
+public class DailyRollupService {
+
+    private static final String UPSERT_REVENUE_SQL = """
+            INSERT INTO daily_revenue (day, revenue, invoice_count, updated_at)
+            VALUES (?, ?, 1, NOW())
+            ON CONFLICT (day) DO UPDATE
+            SET revenue       = daily_revenue.revenue + EXCLUDED.revenue,
+                invoice_count = daily_revenue.invoice_count + EXCLUDED.invoice_count,
+                updated_at    = NOW()
+            """;
+
+    private static final String UPSERT_DISH_SALES_SQL = """
+            INSERT INTO daily_dish_sales (day, dish_id, quantity, revenue,
+                                          canceled_quantity, canceled_revenue, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, NOW())
+            ON CONFLICT (day, dish_id) DO UPDATE
+            SET quantity          = daily_dish_sales.quantity + EXCLUDED.quantity,
+                revenue           = daily_dish_sales.revenue + EXCLUDED.revenue,
+                canceled_quantity = daily_dish_sales.canceled_quantity + EXCLUDED.canceled_quantity,
+                canceled_revenue  = daily_dish_sales.canceled_revenue + EXCLUDED.canceled_revenue,
+                updated_at        = NOW()
+            """;
+
+    private static final String UPSERT_INGREDIENT_MOVEMENT_SQL = """
+            INSERT INTO daily_ingredient_movement (day, ingredient_id, quantity_in, quantity_out, updated_at)
+            VALUES (?, ?, ?, ?, NOW())
+            ON CONFLICT (day, ingredient_id) DO UPDATE
+            SET quantity_in  = daily_ingredient_movement.quantity_in + EXCLUDED.quantity_in,
+                quantity_out = daily_ingredient_movement.quantity_out + EXCLUDED.quantity_out,
+                updated_at   = NOW()
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ReportCacheService reportCacheService;
+
+    // =====================================================================
+    // 1. CỘNG DỒN THEO NGHIỆP VỤ
+    // =====================================================================
+
+    /**
+     * Cộng hóa đơn vừa thanh toán vào daily_revenue + daily_dish_sales.
+     * Gọi ngay sau khi lưu Invoice + InvoiceItem (cùng transaction).
+     */
+    @Transactional
+    public void recordInvoice(Invoice invoice, List<InvoiceItem> items) {
+        if (invoice == null || invoice.getPaidAt() == null) {
+            return;
+        }
+        Date day = Date.valueOf(invoice.getPaidAt().toLocalDate());
+        reportCacheService.invalidateSalesDay(invoice.getPaidAt().toLocalDate());
+
+        BigDecimal total = invoice.getTotalAmount() != null ? invoice.getTotalAmount() : BigDecimal.ZERO;
+        jdbcTemplate.update(UPSERT_REVENUE_SQL, day, total);
+
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+
+        // Gom theo món (TreeMap → khóa dòng theo dish_id tăng dần)
+        // qty[0] = tổng số lượng, qty[1] = phần đã hủy; revenue[0] / revenue[1] tương tự
+        Map<Long, long[]> qtyByDish = new TreeMap<>();
+        Map<Long, BigDecimal[]> revenueByDish = new HashMap<>();
+        for (InvoiceItem ii : items) {
+            if (ii.getDishId() == null || ii.getQuantity() == null) {
+                continue;
+            }
+            BigDecimal subtotal = ii.getSubtotal() != null ? ii.getSubtotal() : BigDecimal.ZERO;
+            boolean canceled = Boolean.TRUE.equals(ii.getCanceled());
+
+            long[] qty = qtyByDish.computeIfAbsent(ii.getDishId(), k -> new long[2]);
+            BigDecimal[] revenue = revenueByDish.computeIfAbsent(ii.getDishId(),
+                    k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+
+            qty[0] += ii.getQuantity();
+            revenue[0] = revenue[0].add(subtotal);
+            if (canceled) {
+                qty[1] += ii.getQuantity();
+                revenue[1] = revenue[1].add(subtotal);
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>(qtyByDish.size());
+        for (Map.Entry<Long, long[]> e : qtyByDish.entrySet()) {
+            BigDecimal[] revenue = revenueByDish.get(e.getKey());
+            rows.add(new Object[]{day, e.getKey(), e.getValue()[0], revenue[0], e.getValue()[1], revenue[1]});
+        }
+        jdbcTemplate.batchUpdate(UPSERT_DISH_SALES_SQL, rows);
+    }
+
+    /**
+     * Cộng các dòng stock_entry vừa ghi vào daily_ingredient_movement.
+     *
+     * @param at                Thời điểm ghi stock_entry (created_at)
+     * @param deltaByIngredient ingredientId → quantity (dương = nhập, âm = xuất)
+     */
+    @Transactional
+    public void recordStockMovements(LocalDateTime at, Map<Long, BigDecimal> deltaByIngredient) {
+        if (deltaByIngredient == null || deltaByIngredient.isEmpty()) {
+            return;
+        }
+        Date day = Date.valueOf((at != null ? at : LocalDateTime.now()).toLocalDate());
+
+        List<Object[]> rows = new ArrayList<>(deltaByIngredient.size());
+        for (Map.Entry<Long, BigDecimal> e : new TreeMap<>(deltaByIngredient).entrySet()) {
+            BigDecimal qty = e.getValue();
+            if (qty == null || qty.signum() == 0) {
+                continue;
+            }
+            BigDecimal in = qty.signum() > 0 ? qty : BigDecimal.ZERO;
+            BigDecimal out = qty.signum() < 0 ? qty.negate() : BigDecimal.ZERO;
+            rows.add(new Object[]{day, e.getKey(), in, out});
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_INGREDIENT_MOVEMENT_SQL, rows);
+            reportCacheService.invalidateStockDay(day.toLocalDate());
+        }
+    }
+
+    /** Cộng 1 dòng stock_entry (nhập / điều chỉnh kho thủ công) */
+    @Transactional
+    public void recordStockMovement(LocalDateTime at, Long ingredientId, BigDecimal quantity) {
+        if (ingredientId == null) {
+            return;
+        }
+        recordStockMovements(at, Map.of(ingredientId, quantity != null ? quantity : BigDecimal.ZERO));
+    }
+
+    // =====================================================================
+    // 2. DỰNG LẠI TỪ BẢNG GỐC
+    // =====================================================================
+
+    /**
+     * Tính lại rollup cho khoảng ngày [from, to] (bao gồm 2 đầu) từ
+     * invoice / invoice_item / stock_entry.
+     *
+     * @return Tổng số dòng rollup sau khi dựng lại
+     */
+    @Transactional
+    public int rebuild(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new RuntimeException("Vui lòng chọn đầy đủ khoảng ngày cần dựng lại");
+        }
+        if (from.isAfter(to)) {
+            throw new RuntimeException("Ngày bắt đầu phải trước hoặc bằng ngày kết thúc");
+        }
+        return rebuildInternal(from, to);
+    }
+
+    /**
+     * Tính lại TOÀN BỘ rollup (VD: sau khi restore dữ liệu).
+     *
+     * @return Tổng số dòng rollup sau khi dựng lại
+     */
+    @Transactional
+    public int rebuildAll() {
+        return rebuildInternal(null, null);
+    }
+
+    /**
+     * Xóa rollup trong khoảng rồi INSERT ... SELECT GROUP BY từ bảng gốc.
+     * from / to = null → không giới hạn phía đó.
+     */
+    private int rebuildInternal(LocalDate from, LocalDate to) {
+        reportCacheService.invalidateRange(from, to);
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder dayCond = new StringBuilder();
+        if (from != null) {
+            params.addValue("fromDay", Date.valueOf(from));
+            params.addValue("fromTs", Timestamp.valueOf(from.atStartOfDay()));
+            dayCond.append(" AND day >= :fromDay");
+        }
+        if (to != null) {
+            params.addValue("toDay", Date.valueOf(to));
+            params.addValue("toTs", Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+            dayCond.append(" AND day <= :toDay");
+        }
+
+        for (String table : List.of("daily_revenue", "daily_dish_sales", "daily_ingredient_movement")) {
+            namedParameterJdbcTemplate.update("DELETE FROM " + table + " WHERE 1 = 1" + dayCond, params);
+        }
+
+        int rows = 0;
+
+        rows += namedParameterJdbcTemplate.update("""
+                INSERT INTO daily_revenue (day, revenue, invoice_count)
+                SELECT CAST(inv.paid_at AS DATE), SUM(inv.total_amount), COUNT(*)
+                FROM invoice inv
+                WHERE inv.paid_at IS NOT NULL
+                """ + rangeCondition("inv.paid_at", from, to) + """
+                GROUP BY 1
+                """, params);
+
+        rows += namedParameterJdbcTemplate.update("""
+                INSERT INTO daily_dish_sales (day, dish_id, quantity, revenue, canceled_quantity, canceled_revenue)
+                SELECT CAST(inv.paid_at AS DATE), ii.dish_id, SUM(ii.quantity), SUM(ii.subtotal),
+                       COALESCE(SUM(ii.quantity) FILTER (WHERE ii.canceled), 0),
+                       COALESCE(SUM(ii.subtotal) FILTER (WHERE ii.canceled), 0)
+                FROM invoice_item ii
+                JOIN invoice inv ON inv.id = ii.invoice_id
+                WHERE inv.paid_at IS NOT NULL
+                """ + rangeCondition("inv.paid_at", from, to) + """
+                GROUP BY 1, 2
+                """, params);
+
+        rows += namedParameterJdbcTemplate.update("""
+                INSERT INTO daily_ingredient_movement (day, ingredient_id, quantity_in, quantity_out)
+                SELECT CAST(se.created_at AS DATE),
+                       se.ingredient_id,
+                       COALESCE(SUM(se.quantity) FILTER (WHERE se.quantity > 0), 0),
+                       COALESCE(SUM(-se.quantity) FILTER (WHERE se.quantity < 0), 0)
+                FROM stock_entry se
+                WHERE 1 = 1
+                """ + rangeCondition("se.created_at", from, to) + """
+                GROUP BY 1, 2
+                """, params);
+
+        return rows;
+    }
+
+    /** Điều kiện khoảng thời gian theo tham số :fromTs / :toTs (bỏ phía nào null) */
+    private String rangeCondition(String column, LocalDate from, LocalDate to) {
+        StringBuilder sb = new StringBuilder();
+        if (from != null) {
+            sb.append("  AND ").append(column).append(" >= :fromTs\n");
+        }
+        if (to != null) {
+            sb.append("  AND ").append(column).append(" < :toTs\n");
+        }
+        return sb.toString();
+    }
+}
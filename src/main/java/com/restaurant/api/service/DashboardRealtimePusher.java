@@ -0,0 +1,107 @@
+package com.restaurant.api.service;
+
+import com.restaurant.api.dto.dashboard.DashboardSummaryResponse;
+import com.restaurant.api.dto.dashboard.RevenueByDateResponse;
+import com.restaurant.api.event.RealtimeEventPublisher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * DashboardRealtimePusher – Push số liệu dashboard qua /topic/dashboard
+ * =====================================================================
+ * Thay cho việc mỗi màn dashboard tự polling DashboardController theo timer:
+ *  - FE gọi GET /api/dashboard/summary (+ revenue-last-7-days) 1 lần khi mở màn
+ *  - Sau đó chỉ nghe /topic/dashboard và áp phần thay đổi vào state hiện có
+ *
+ * Gộp cập nhật (DashboardPushScheduler gọi pushIfChanged theo chu kỳ
+ * dashboard.push.interval-ms):
+ *  - Bao nhiêu thanh toán / order trong 1 chu kỳ cũng chỉ push TỐI ĐA 1 lần
+ *  - LiveDashboardMetrics.version() không đổi → không làm gì (không tính lại)
+ *  - Chỉ gửi các số liệu KHÁC với lần push trước; doanh thu theo ngày chỉ
+ *    gửi những ngày thay đổi (qua ngày mới → có thêm ngày mới trong danh sách)
+ *
+ * Payload mẫu:
+ *   { "event": "DASHBOARD_UPDATED", "version": 42,
+ *     "revenueToday": 1250000.00, "ordersToday": 18,
+ *     "revenueByDate": [ { "date": "2026-10-17", "totalRevenue": 1250000.00 } ] }
+ *
+ * Số liệu đọc từ RAM (LiveDashboardMetrics) → chi phí push không phụ thuộc
+ * số màn dashboard đang mở.
+ * =====================================================================
+ */
+@Service
+@RequiredArgsConstructor
+public class DashboardRealtimePusher {
+
+    private final LiveDashboardMetrics liveDashboardMetrics;
+    private final DashboardService dashboardService;
+    private final RealtimeEventPublisher realtimeEventPublisher;
+
+    /** Phiên bản số liệu đã xử lý ở lần trước */
+    private long lastVersion = -1;
+
+    /** Số liệu tổng quan đã gửi lần trước: tên trường → giá trị */
+    private final Map<String, Object> lastFigures = new HashMap<>();
+
+    /** Doanh thu theo ngày đã gửi lần trước: ngày → doanh thu */
+    private final Map<String, Object> lastRevenueByDate = new HashMap<>();
+
+    /**
+     * Push phần thay đổi (nếu có) lên /topic/dashboard.
+     * @return true nếu đã push 1 message
+     */
+    public synchronized boolean pushIfChanged() {
+
+        long version = liveDashboardMetrics.version();
+        if (version == lastVersion) {
+            return false;
+        }
+        lastVersion = version;
+
+        DashboardSummaryResponse summary = dashboardService.getSummary();
+
+        Map<String, Object> figures = new LinkedHashMap<>();
+        figures.put("revenueToday", summary.getRevenueToday());
+        figures.put("ordersToday", summary.getOrdersToday());
+        figures.put("totalOrders", summary.getTotalOrders());
+        figures.put("averageRevenue7Days", summary.getAverageRevenue7Days());
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("event", "DASHBOARD_UPDATED");
+        payload.put("version", version);
+
+        for (Map.Entry<String, Object> e : figures.entrySet()) {
+            if (!Objects.equals(lastFigures.get(e.getKey()), e.getValue())) {
+                payload.put(e.getKey(), e.getValue());
+            }
+        }
+        lastFigures.putAll(figures);
+
+        // Doanh thu 7 ngày: chỉ các ngày thay đổi / ngày mới
+        List<RevenueByDateResponse> changedDays = new ArrayList<>();
+        Map<String, Object> currentDays = new HashMap<>();
+        for (RevenueByDateResponse day : dashboardService.getRevenueLast7Days()) {
+            String key = day.getDate().toString();
+            currentDays.put(key, day.getTotalRevenue());
+            if (!Objects.equals(lastRevenueByDate.get(key), day.getTotalRevenue())) {
+                changedDays.add(day);
+            }
+        }
+        lastRevenueByDate.clear();
+        lastRevenueByDate.putAll(currentDays);
+
+        if (!changedDays.isEmpty()) {
+            payload.put("revenueByDate", changedDays);
+        }
+
+        // Chỉ có "event" + "version" → số liệu hiển thị không đổi, không push
+        if (payload.size() <= 2) {
+            return false;
+        }
+
+        realtimeEventPublisher.publishDashboard(payload);
+        return true;
+    }
+}
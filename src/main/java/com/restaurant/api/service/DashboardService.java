@@ -3,14 +3,10 @@ package com.restaurant.api.service;
 import com.restaurant.api.dto.dashboard.DashboardSummaryResponse;
 import com.restaurant.api.dto.dashboard.RevenueByDateResponse;
 import com.restaurant.api.dto.dashboard.TopDishResponse;
-import com.restaurant.api.entity.Dish;
-import com.restaurant.api.entity.Invoice;
-import com.restaurant.api.entity.Order;
-import com.restaurant.api.entity.OrderItem;
-import com.restaurant.api.repository.DishRepository;
-import com.restaurant.api.repository.InvoiceRepository;
-import com.restaurant.api.repository.OrderItemRepository;
-import com.restaurant.api.repository.OrderRepository;
+import com.restaurant.api.dto.dashboard.TrendingDishResponse;
+import com.restaurant.api.dto.report.TopDishReportItem;
+import com.restaurant.api.enums.TrendingWindow;
+import com.restaurant.api.repository.ReportQueryRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,9 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * DashboardService (REFECTOR PHASE 2)
@@ -41,26 +35,33 @@ import java.util.stream.Collectors;
  *         oi.getSnapshotPrice() != null ? oi.getSnapshotPrice() : dish.getPrice()
  *
  *  File này đã được cập nhật toàn bộ theo chuẩn Phase 2.
+ *
+ *  Doanh thu / top món đọc từ bảng tổng hợp theo ngày (daily_revenue,
+ *  daily_dish_sales – DailyRollupService) thay vì findAll hóa đơn / order item.
+ *
+ *  Summary / doanh thu hôm nay / 7 ngày: đọc từ LiveDashboardMetrics
+ *  (bộ đếm trong RAM, cập nhật sau commit) → không query DB.
  * ==========================================================================
  */
 @Service
 @RequiredArgsConstructor
 public class DashboardService {
 
-    private final InvoiceRepository invoiceRepository;
-    private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
-    private final DishRepository dishRepository;
+    private final ReportQueryRepository reportQueryRepository;
+    private final LiveDashboardMetrics liveDashboardMetrics;
+    private final TrendingDishTracker trendingDishTracker;
 
     // ==========================================================================
     // 1) SUMMARY DASHBOARD
     // ==========================================================================
-    @Transactional(readOnly = true)
+    /**
+     * Toàn bộ số liệu đọc từ LiveDashboardMetrics (RAM) → không I/O DB.
+     */
     public DashboardSummaryResponse getSummary() {
 
         BigDecimal revenueToday = getRevenueTodayInternal();
         Long ordersToday = getOrdersTodayInternal();
-        Long totalOrders = orderRepository.count();
+        Long totalOrders = liveDashboardMetrics.totalOrders();
 
         List<RevenueByDateResponse> last7Days = getRevenueLast7DaysInternal();
 
@@ -85,53 +86,28 @@ public class DashboardService {
     // ==========================================================================
     // 2) DOANH THU HÔM NAY
     // ==========================================================================
-    @Transactional(readOnly = true)
     public BigDecimal getRevenueToday() {
         return getRevenueTodayInternal();
     }
 
     private BigDecimal getRevenueTodayInternal() {
-        LocalDate today = LocalDate.now();
-        LocalDateTime start = today.atStartOfDay();
-        LocalDateTime end = today.plusDays(1).atStartOfDay();
-
-        List<Invoice> invoices = invoiceRepository.findAll();
-
-        return invoices.stream()
-                .filter(inv -> inv.getPaidAt() != null
-                        && !inv.getPaidAt().isBefore(start)
-                        && inv.getPaidAt().isBefore(end))
-                .map(inv -> inv.getTotalAmount() != null ? inv.getTotalAmount() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return liveDashboardMetrics.today().revenue();
     }
 
     // ==========================================================================
     // 3) SỐ ORDER HÔM NAY
     // ==========================================================================
-    @Transactional(readOnly = true)
     public Long getOrdersToday() {
         return getOrdersTodayInternal();
     }
 
     private Long getOrdersTodayInternal() {
-
-        LocalDate today = LocalDate.now();
-        LocalDateTime start = today.atStartOfDay();
-        LocalDateTime end = today.plusDays(1).atStartOfDay();
-
-        List<Order> orders = orderRepository.findAll();
-
-        return orders.stream()
-                .filter(o -> o.getCreatedAt() != null
-                        && !o.getCreatedAt().isBefore(start)
-                        && o.getCreatedAt().isBefore(end))
-                .count();
+        return liveDashboardMetrics.today().orderCount();
     }
 
     // ==========================================================================
     // 4) DOANH THU 7 NGÀY GẦN NHẤT
     // ==========================================================================
-    @Transactional(readOnly = true)
     public List<RevenueByDateResponse> getRevenueLast7Days() {
         return getRevenueLast7DaysInternal();
     }
@@ -139,35 +115,16 @@ public class DashboardService {
     private List<RevenueByDateResponse> getRevenueLast7DaysInternal() {
 
         LocalDate today = LocalDate.now();
-        LocalDate startDate = today.minusDays(6);
-
-        List<Invoice> invoices = invoiceRepository.findAll();
-
-        Map<LocalDate, BigDecimal> revenueByDate = new HashMap<>();
-
-        for (Invoice inv : invoices) {
-
-            if (inv.getPaidAt() == null) continue;
-
-            LocalDate d = inv.getPaidAt().toLocalDate();
-
-            if (d.isBefore(startDate) || d.isAfter(today)) continue;
-
-            BigDecimal amount = inv.getTotalAmount() != null ? inv.getTotalAmount() : BigDecimal.ZERO;
-
-            revenueByDate.merge(d, amount, BigDecimal::add);
-        }
+        LocalDate startDate = today.minusDays(LiveDashboardMetrics.WINDOW_DAYS - 1);
 
         List<RevenueByDateResponse> result = new ArrayList<>();
 
-        for (int i = 0; i < 7; i++) {
+        for (int i = 0; i < LiveDashboardMetrics.WINDOW_DAYS; i++) {
             LocalDate d = startDate.plusDays(i);
 
-            BigDecimal total = revenueByDate.getOrDefault(d, BigDecimal.ZERO);
-
             result.add(RevenueByDateResponse.builder()
                     .date(d)
-                    .totalRevenue(total)
+                    .totalRevenue(liveDashboardMetrics.day(d).revenue())
                     .build());
         }
 
@@ -175,76 +132,44 @@ public class DashboardService {
     }
 
     // ==========================================================================
-    // 5) TOP MÓN BÁN CHẠY – FIX CHUẨN PHASE 2
+    // 5) TOP MÓN BÁN CHẠY (toàn thời gian)
     // ==========================================================================
+    /**
+     * Top món bán chạy – dùng chung engine với báo cáo (ReportQueryRepository.findTopDishes):
+     *  - Số lượng + doanh thu theo hóa đơn đã thanh toán (giá snapshot)
+     *  - Sắp xếp + giới hạn top N ngay trong SQL
+     *  - excludeCanceled = true → không tính các món đã hủy
+     */
     @Transactional(readOnly = true)
-    public List<TopDishResponse> getTopDishes(int limit) {
-
-        List<OrderItem> allItems = orderItemRepository.findAll();
-
-        if (allItems.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        // -------------------------------
-        // ⚠️ Phase 2 thay đổi QUAN TRỌNG
-        // -------------------------------
-        // OrderItem::getDishId() → KHÔNG CÒN
-        // phải dùng oi.getDish().getId()
-        Map<Long, Long> quantityByDishId =
-                allItems.stream()
-                        .filter(oi -> oi.getDish() != null) // tránh null
-                        .collect(Collectors.groupingBy(
-                                oi -> oi.getDish().getId(),
-                                Collectors.summingLong(OrderItem::getQuantity)
-                        ));
-
-        // Load danh sách Dish
-        Set<Long> dishIds = quantityByDishId.keySet();
-
-        Map<Long, Dish> dishMap = dishRepository.findAllById(dishIds)
-                .stream()
-                .collect(Collectors.toMap(Dish::getId, d -> d));
-
-        List<TopDishResponse> responses = new ArrayList<>();
-
-        // Duyệt từng dish → build DTO
-        for (Map.Entry<Long, Long> e : quantityByDishId.entrySet()) {
-
-            Long dishId = e.getKey();
-            Long totalQty = e.getValue();
+    public List<TopDishResponse> getTopDishes(int limit, boolean excludeCanceled) {
 
-            Dish dish = dishMap.get(dishId);
-            if (dish == null) continue;
-
-            // -------------------------------
-            // ⚠️ Phase 2: tính doanh thu theo snapshotPrice
-            // -------------------------------
-            BigDecimal price = dish.getPrice();
-
-            BigDecimal totalRevenue = price.multiply(BigDecimal.valueOf(totalQty));
+        List<TopDishReportItem> items = reportQueryRepository.findTopDishes(null, null, limit, excludeCanceled);
 
+        List<TopDishResponse> responses = new ArrayList<>(items.size());
+        for (TopDishReportItem item : items) {
             responses.add(TopDishResponse.builder()
-                    .dishId(dish.getId())
-                    .dishName(dish.getName())
-                    .totalQuantity(totalQty)
-                    .totalRevenue(totalRevenue)
+                    .dishId(item.getDishId())
+                    .dishName(item.getDishName())
+                    .totalQuantity(item.getTotalQuantity())
+                    .totalRevenue(item.getTotalRevenue())
                     .build());
         }
-
-        // Sort giảm dần theo số lượng bán
-        responses.sort((a, b) -> Long.compare(b.getTotalQuantity(), a.getTotalQuantity()));
-
-        // Giới hạn top N
-        if (limit > 0 && responses.size() > limit) {
-            return responses.subList(0, limit);
-        }
-
         return responses;
     }
 
     @Transactional(readOnly = true)
     public List<TopDishResponse> getTop5Dishes() {
-        return getTopDishes(5);
+        return getTopDishes(5, false);
+    }
+
+    // ==========================================================================
+    // 6) MÓN ĐANG BÁN CHẠY (15 phút / 1 giờ / hôm nay)
+    // ==========================================================================
+    /**
+     * Top món được gọi nhiều nhất trong khung thời gian gần đây.
+     * Đọc từ TrendingDishTracker (RAM) → không query DB.
+     */
+    public List<TrendingDishResponse> getTrendingDishes(String window, int limit) {
+        return trendingDishTracker.top(TrendingWindow.fromCode(window), limit);
     }
 }
@@ -0,0 +1,346 @@
+package com.restaurant.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * IdempotencyService – Chống xử lý trùng request POST khi client retry
+ * =====================================================================
+ * Dùng cho các API tạo order / tạo thanh toán có header "Idempotency-Key".
+ *
+ * 2 tầng lưu trữ:
+ *  1) RAM (ConcurrentHashMap key → kết quả, có TTL)
+ *     - Request lặp lại trên cùng instance → trả kết quả ngay, không chạm DB
+ *     - Request trùng đến CÙNG LÚC → request sau chờ request đầu xong
+ *  2) DB (bảng idempotency_record) – fallback khi chạy nhiều instance
+ *     - Claim key bằng INSERT ... ON CONFLICT (PROCESSING + owner_token)
+ *     - Instance khác đang xử lý → poll chờ tới khi COMPLETED
+ *     - Dòng PROCESSING quá hạn lease (idempotency.lease-seconds, dài hơn
+ *       nhiều so với thời gian chờ) → coi như instance đã chết, được claim lại
+ *     - Ghi COMPLETED / xóa key chỉ khi owner_token còn là của mình:
+ *       + Nghiệp vụ + ghi COMPLETED chạy chung 1 transaction
+ *       + Lease đã bị lần chạy khác chiếm → 0 dòng → rollback nghiệp vụ
+ *         (không có 2 lần chạy cùng commit)
+ *
+ * Quy tắc:
+ *  - Key được gắn với scope (order.create, payment.create...) + username
+ *  - Cùng key nhưng body khác → báo lỗi (không trả nhầm kết quả)
+ *  - Nghiệp vụ lỗi → xóa key (chỉ key mình đã claim), client retry sẽ chạy lại từ đầu
+ *  - Dọn key hết hạn: IdempotencyCleanupScheduler
+ * =====================================================================
+ */
+@Service
+public class IdempotencyService {
+
+    private static final String STATUS_COMPLETED = "COMPLETED";
+
+    /** Thời gian chờ giữa 2 lần poll DB khi instance khác đang xử lý */
+    private static final long DB_POLL_INTERVAL_MS = 100;
+
+    /**
+     * Claim key:
+     *  - Chưa có → INSERT PROCESSING (owner_token + lease của lần chạy này)
+     *  - Có nhưng PROCESSING quá hạn lease (instance xử lý đã chết) → chiếm lại
+     *    (chỉ khi cùng request_hash – key dùng cho request khác thì không đụng)
+     *  - Còn lại → không làm gì (0 dòng)
+     */
+    private static final String CLAIM_SQL = """
+            INSERT INTO idempotency_record
+                (idem_key, request_hash, status, owner_token, lease_until, created_at, expires_at)
+            VALUES (?, ?, 'PROCESSING', ?, ?, NOW(), ?)
+            ON CONFLICT (idem_key) DO UPDATE
+                SET owner_token = EXCLUDED.owner_token,
+                    lease_until = EXCLUDED.lease_until,
+                    created_at = NOW(),
+                    expires_at = EXCLUDED.expires_at
+                WHERE idempotency_record.status = 'PROCESSING'
+                  AND idempotency_record.request_hash = EXCLUDED.request_hash
+                  AND idempotency_record.lease_until < ?
+            """;
+
+    /** Ghi response – chỉ khi lần chạy này vẫn giữ key */
+    private static final String COMPLETE_SQL = """
+            UPDATE idempotency_record
+            SET status = 'COMPLETED', response_body = ?
+            WHERE idem_key = ? AND owner_token = ? AND status = 'PROCESSING'
+            """;
+
+    /** Bỏ key khi nghiệp vụ lỗi – chỉ key do lần chạy này claim */
+    private static final String RELEASE_SQL = """
+            DELETE FROM idempotency_record
+            WHERE idem_key = ? AND request_hash = ? AND owner_token = ? AND status = 'PROCESSING'
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate tx;
+    private final long ttlMinutes;
+    private final long waitTimeoutSeconds;
+    private final long leaseSeconds;
+
+    /** Tầng RAM: storeKey → entry (kết quả hoặc đang xử lý) */
+    private final ConcurrentHashMap<String, Entry> localStore = new ConcurrentHashMap<>();
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${idempotency.ttl-minutes:60}") long ttlMinutes,
+                              @Value("${idempotency.wait-timeout-seconds:30}") long waitTimeoutSeconds,
+                              @Value("${idempotency.lease-seconds:600}") long leaseSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.ttlMinutes = ttlMinutes;
+        this.waitTimeoutSeconds = waitTimeoutSeconds;
+        // Lease phải dài hơn hẳn thời gian chờ, nếu không request chậm sẽ bị chạy lại
+        this.leaseSeconds = Math.max(leaseSeconds, waitTimeoutSeconds * 4);
+    }
+
+    /** Kết quả claim ở DB: ownerToken (được chạy) hoặc response instance khác đã lưu */
+    private record Claim(String ownerToken, Object stored) {}
+
+    /**
+     * Chạy action đúng 1 lần cho mỗi Idempotency-Key.
+     * ----------------------------------------------------------------
+     * @param scope        Loại nghiệp vụ (VD: "order.create")
+     * @param key          Giá trị header Idempotency-Key (null/blank → chạy bình thường)
+     * @param username     User gọi API (key của user này không ảnh hưởng user khác)
+     * @param request      Body request (để phát hiện dùng lại key cho request khác)
+     * @param responseType Kiểu response (để đọc lại JSON từ DB)
+     * @param action       Nghiệp vụ thực tế
+     */
+    public <T> T execute(String scope,
+                         String key,
+                         String username,
+                         Object request,
+                         Class<T> responseType,
+                         Supplier<T> action) {
+
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+
+        String storeKey = scope + ":" + username + ":" + key.trim();
+        String requestHash = hash(request);
+
+        while (true) {
+            Entry mine = new Entry(requestHash);
+            Entry existing = localStore.putIfAbsent(storeKey, mine);
+
+            if (existing == null) {
+                // Instance này là "chủ" của key
+                return runAsOwner(storeKey, mine, responseType, action);
+            }
+
+            if (existing.isExpired()) {
+                localStore.remove(storeKey, existing);
+                continue;
+            }
+
+            // Key đã có trên instance này → trả kết quả cũ / chờ request đầu
+            checkSameRequest(existing.requestHash, requestHash);
+            return responseType.cast(await(existing.future));
+        }
+    }
+
+    /**
+     * Dọn các key hết hạn (RAM + DB).
+     * Gọi định kỳ từ IdempotencyCleanupScheduler.
+     */
+    public void purgeExpired() {
+        localStore.entrySet().removeIf(e -> e.getValue().isExpired());
+        jdbcTemplate.update("DELETE FROM idempotency_record WHERE expires_at < NOW()");
+    }
+
+    // =====================================================================
+    // HÀM NỘI BỘ
+    // =====================================================================
+
+    /**
+     * Xử lý khi instance hiện tại giữ key trong RAM:
+     *  1) Claim key ở DB (hoặc đọc kết quả instance khác đã lưu)
+     *     → lỗi ở bước này KHÔNG xóa gì ở DB (key có thể đang thuộc instance khác)
+     *  2) Chạy nghiệp vụ + ghi COMPLETED trong CÙNG 1 transaction
+     *     → mất quyền giữ key (lease bị chiếm) → rollback nghiệp vụ
+     */
+    private <T> T runAsOwner(String storeKey, Entry entry, Class<T> responseType, Supplier<T> action) {
+        Claim claim;
+        try {
+            claim = claimOrAwaitRemote(storeKey, entry.requestHash, responseType);
+        } catch (RuntimeException ex) {
+            localStore.remove(storeKey, entry);
+            entry.future.completeExceptionally(ex);
+            throw ex;
+        }
+
+        if (claim.stored() != null) {
+            T stored = responseType.cast(claim.stored());
+            entry.future.complete(stored);
+            return stored;
+        }
+
+        String ownerToken = claim.ownerToken();
+        T result;
+        try {
+            result = tx.execute(status -> {
+                T r = action.get();
+                complete(storeKey, ownerToken, r);
+                return r;
+            });
+        } catch (RuntimeException ex) {
+            // Nghiệp vụ lỗi → bỏ key (chỉ key mình claim) để client retry được
+            localStore.remove(storeKey, entry);
+            jdbcTemplate.update(RELEASE_SQL, storeKey, entry.requestHash, ownerToken);
+            entry.future.completeExceptionally(ex);
+            throw ex;
+        }
+
+        entry.future.complete(result);
+        return result;
+    }
+
+    /**
+     * Ghi response cho key (trong transaction của nghiệp vụ).
+     * 0 dòng → lease đã hết và lần chạy khác đã chiếm key → báo lỗi để rollback.
+     */
+    private void complete(String storeKey, String ownerToken, Object result) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(result);
+        } catch (Exception e) {
+            throw new IllegalStateException("Không lưu được response cho Idempotency-Key", e);
+        }
+
+        int updated = jdbcTemplate.update(COMPLETE_SQL, body, storeKey, ownerToken);
+        if (updated == 0) {
+            throw new RuntimeException("Yêu cầu trùng Idempotency-Key đã được xử lý ở nơi khác, vui lòng thử lại sau");
+        }
+    }
+
+    /**
+     * Claim key ở DB.
+     * @return Claim có ownerToken nếu claim thành công (được chạy nghiệp vụ),
+     *         ngược lại Claim chứa response instance khác đã lưu.
+     */
+    private <T> Claim claimOrAwaitRemote(String storeKey, String requestHash, Class<T> responseType) {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(waitTimeoutSeconds);
+        String ownerToken = UUID.randomUUID().toString();
+
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            int claimed = jdbcTemplate.update(
+                    CLAIM_SQL,
+                    storeKey,
+                    requestHash,
+                    ownerToken,
+                    Timestamp.valueOf(now.plusSeconds(leaseSeconds)),
+                    Timestamp.valueOf(now.plusMinutes(ttlMinutes)),
+                    Timestamp.valueOf(now)
+            );
+            if (claimed > 0) {
+                return new Claim(ownerToken, null);
+            }
+
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "SELECT request_hash, status, response_body FROM idempotency_record WHERE idem_key = ?",
+                    storeKey
+            );
+
+            if (!rows.isEmpty()) {
+                Map<String, Object> row = rows.get(0);
+                checkSameRequest((String) row.get("request_hash"), requestHash);
+
+                if (STATUS_COMPLETED.equals(row.get("status"))) {
+                    try {
+                        return new Claim(null, objectMapper.readValue((String) row.get("response_body"), responseType));
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Không đọc được response đã lưu cho Idempotency-Key", e);
+                    }
+                }
+            }
+
+            // Instance khác đang xử lý (hoặc vừa xóa key do lỗi) → chờ rồi thử lại
+            if (System.currentTimeMillis() > deadline) {
+                throw new RuntimeException("Yêu cầu trùng Idempotency-Key đang được xử lý, vui lòng thử lại sau");
+            }
+            try {
+                Thread.sleep(DB_POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Bị gián đoạn khi chờ xử lý Idempotency-Key");
+            }
+        }
+    }
+
+    /**
+     * Chờ request đầu tiên (cùng key, cùng instance) xử lý xong.
+     */
+    private Object await(CompletableFuture<Object> future) {
+        try {
+            return future.get(waitTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Yêu cầu trùng Idempotency-Key đang được xử lý, vui lòng thử lại sau");
+        } catch (ExecutionException e) {
+            // Request đầu lỗi → trả cùng lỗi nghiệp vụ
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Bị gián đoạn khi chờ xử lý Idempotency-Key");
+        }
+    }
+
+    private void checkSameRequest(String storedHash, String requestHash) {
+        if (storedHash != null && !storedHash.equals(requestHash)) {
+            throw new RuntimeException("Idempotency-Key đã được dùng cho một yêu cầu khác");
+        }
+    }
+
+    /**
+     * SHA-256 của body request (dạng JSON).
+     */
+    private String hash(Object request) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(request);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return HexFormat.of().formatHex(digest);
+        } catch (Exception e) {
+            throw new IllegalStateException("Không tính được hash request", e);
+        }
+    }
+
+    /**
+     * 1 key trong RAM: kết quả (future) + hash request + hạn dùng.
+     */
+    private class Entry {
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private final String requestHash;
+        private final long expiresAtMillis;
+
+        private Entry(String requestHash) {
+            this.requestHash = requestHash;
+            this.expiresAtMillis = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(ttlMinutes);
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expiresAtMillis;
+        }
+    }
+}
@@ -5,11 +5,14 @@ import com.restaurant.api.dto.invoice.InvoiceItemResponse;
 import com.restaurant.api.dto.invoice.InvoiceResponse;
 import com.restaurant.api.entity.*;
 import com.restaurant.api.enums.AuditAction;
+import com.restaurant.api.enums.OrderItemStatus;
 import com.restaurant.api.enums.OrderStatus;
 import com.restaurant.api.enums.PaymentMethod;
+import com.restaurant.api.event.PaymentCompletedEvent;
 import com.restaurant.api.repository.*;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -46,6 +49,8 @@ public class InvoiceService {
     private final AuditLogService auditLogService;
     private final SystemSettingService systemSettingService;
     private final SystemSettingRepository systemSettingRepository;
+    private final DailyRollupService dailyRollupService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * 1) TẠO HÓA ĐƠN TỪ ORDER
@@ -147,6 +152,7 @@ public class InvoiceService {
                     .dishPrice(price)
                     .quantity(oi.getQuantity())
                     .subtotal(price.multiply(BigDecimal.valueOf(oi.getQuantity())))
+                    .canceled(oi.getStatus() == OrderItemStatus.CANCELED)
                     .build();
 
             invoiceItems.add(ii);
@@ -154,6 +160,17 @@ public class InvoiceService {
 
         invoiceItemRepository.saveAll(invoiceItems);
 
+        // Cộng vào bảng tổng hợp theo ngày (daily_revenue / daily_dish_sales)
+        dailyRollupService.recordInvoice(invoice, invoiceItems);
+
+        // Số liệu dashboard trong RAM – cộng SAU KHI COMMIT (LiveDashboardMetricsListener)
+        eventPublisher.publishEvent(new PaymentCompletedEvent(
+                invoice.getId(),
+                order.getId(),
+                invoice.getTotalAmount(),
+                invoice.getPaidAt()
+        ));
+
         // 6. Audit log
         auditLogService.log(
                 AuditAction.INVOICE_CREATE,
@@ -0,0 +1,411 @@
+package com.restaurant.api.service;
+
+import com.restaurant.api.dto.kitchen.KitchenItemResponse;
+import com.restaurant.api.dto.kitchen.KitchenOrderResponse;
+import com.restaurant.api.enums.OrderItemStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * KitchenBoard – Bảng món đang chế biến trong RAM (màn hình bếp)
+ * =====================================================================
+ * Màn hình bếp refresh liên tục, trước đây mỗi lần gọi
+ *  - GET /api/kitchen/items
+ *  - GET /api/kitchen/orders
+ * đều findAll() toàn bộ lịch sử order_item rồi lọc trong Java.
+ *
+ * Số món đang chế biến tại 1 thời điểm chỉ vài chục – vài trăm
+ * → giữ sẵn trong RAM CHỈ các món ACTIVE (NEW / SENT_TO_KITCHEN / COOKING)
+ * của order chưa thanh toán / chưa hủy:
+ *  - byOrder  : orderId → KitchenOrderResponse (order + các món active)
+ *  - byStatus : status  → (thời điểm tạo order, orderItemId) → món
+ *  - ordered  : (thời điểm tạo order, orderId) → order
+ *  → đọc theo thứ tự "order cũ nằm trên" mà không cần sort
+ *
+ * Cập nhật:
+ *  - refreshOrders được gọi SAU KHI COMMIT (KitchenBoardListener):
+ *    tạo order, sửa món, bếp đổi trạng thái món, đổi trạng thái / xóa order,
+ *    chuyển / gộp bàn
+ *  - Mỗi lần refresh đọc lại các món active MỚI NHẤT của order từ DB
+ *    (1 query JOIN) dưới 1 lock → commit sau luôn thắng
+ *  - Đọc DB bằng JDBC, KHÔNG mở transaction mới: listener AFTER_COMMIT vẫn
+ *    đang giữ connection của request → dùng lại connection đó thay vì xin
+ *    thêm connection từ pool; không đi qua persistence context của request
+ *    → không đọc phải entity cũ trong cache
+ *
+ * Dựng lại:
+ *  - Khi ứng dụng khởi động xong (ApplicationReadyEvent)
+ *  - Sau khi restore dữ liệu (rebuildAfterCommit)
+ *  - verifyAgainstDatabase(): so sánh với DB, ghi log độ lệch và sửa lại
+ *    (KitchenBoardScheduler)
+ *
+ * Request tới trước khi dựng xong lần đầu → tự dựng board.
+ * =====================================================================
+ */
+@Service
+@RequiredArgsConstructor
+public class KitchenBoard {
+
+    /** Các trạng thái món hiển thị trên bếp (được giữ trong board) */
+    public static final List<OrderItemStatus> ACTIVE_STATUSES = List.of(
+            OrderItemStatus.NEW,
+            OrderItemStatus.SENT_TO_KITCHEN,
+            OrderItemStatus.COOKING
+    );
+
+    /**
+     * Món active của order chưa thanh toán / chưa hủy (giống OrderItemRepository.findKitchenItems),
+     * kèm thông tin order + bàn + món. Sắp xếp theo order rồi theo món.
+     */
+    private static final String KITCHEN_ITEM_SQL = """
+            SELECT oi.id          AS order_item_id,
+                   o.id           AS order_id,
+                   o.order_code   AS order_code,
+                   o.created_at   AS order_created_at,
+                   t.id           AS table_id,
+                   t.name         AS table_name,
+                   d.id           AS dish_id,
+                   d.name         AS dish_name,
+                   oi.quantity    AS quantity,
+                   oi.status      AS status,
+                   oi.note        AS note,
+                   oi.created_at  AS created_at
+            FROM order_item oi
+            JOIN orders o ON o.id = oi.order_id
+            LEFT JOIN restaurant_table t ON t.id = o.table_id
+            JOIN dish d ON d.id = oi.dish_id
+            WHERE oi.status IN (:statuses)
+              AND o.status NOT IN ('PAID', 'CANCELED')
+            """;
+
+    private static final String ORDER_BY = "ORDER BY o.id, oi.id\n";
+
+    /** 1 dòng món + thời điểm tạo order (để gom theo order) */
+    private record ItemRow(LocalDateTime orderCreatedAt, KitchenItemResponse item) {}
+
+    private static final RowMapper<ItemRow> ITEM_ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp orderCreatedAt = rs.getTimestamp("order_created_at");
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        long tableId = rs.getLong("table_id");
+        boolean hasTable = !rs.wasNull();
+
+        return new ItemRow(
+                orderCreatedAt != null ? orderCreatedAt.toLocalDateTime() : null,
+                KitchenItemResponse.builder()
+                        .orderItemId(rs.getLong("order_item_id"))
+                        .orderId(rs.getLong("order_id"))
+                        .orderCode(rs.getString("order_code"))
+                        .tableId(hasTable ? tableId : null)
+                        .tableName(rs.getString("table_name"))
+                        .dishId(rs.getLong("dish_id"))
+                        .dishName(rs.getString("dish_name"))
+                        .quantity(rs.getInt("quantity"))
+                        .status(OrderItemStatus.valueOf(rs.getString("status")))
+                        .note(rs.getString("note"))
+                        .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                        .build()
+        );
+    };
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private final ConcurrentHashMap<Long, KitchenOrderResponse> byOrder = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListMap<OrderKey, KitchenOrderResponse> ordered = new ConcurrentSkipListMap<>();
+
+    private final Map<OrderItemStatus, ConcurrentSkipListMap<ItemKey, KitchenItemResponse>> byStatus =
+            new EnumMap<>(OrderItemStatus.class);
+
+    /** Lock cho mọi thao tác GHI (đọc DB + cập nhật index) */
+    private final Object writeLock = new Object();
+
+    private volatile boolean ready = false;
+
+    {
+        for (OrderItemStatus status : ACTIVE_STATUSES) {
+            byStatus.put(status, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    /** Khóa sắp xếp order: order cũ trước, cùng thời điểm → id nhỏ trước */
+    private record OrderKey(LocalDateTime createdAt, long orderId) implements Comparable<OrderKey> {
+        @Override
+        public int compareTo(OrderKey o) {
+            int c = compareTime(createdAt, o.createdAt);
+            return c != 0 ? c : Long.compare(orderId, o.orderId);
+        }
+    }
+
+    /** Khóa sắp xếp món: theo thời điểm tạo ORDER, rồi theo orderItemId */
+    private record ItemKey(LocalDateTime orderCreatedAt, long orderItemId) implements Comparable<ItemKey> {
+        @Override
+        public int compareTo(ItemKey o) {
+            int c = compareTime(orderCreatedAt, o.orderCreatedAt);
+            return c != 0 ? c : Long.compare(orderItemId, o.orderItemId);
+        }
+    }
+
+    // =====================================================================
+    // 1. ĐỌC (lock-free, không I/O)
+    // =====================================================================
+
+    /**
+     * Món đang chế biến (order cũ trước).
+     * status = null → mọi trạng thái active; status không active → danh sách rỗng.
+     */
+    public List<KitchenItemResponse> getItems(OrderItemStatus status) {
+        ensureReady();
+
+        if (status != null) {
+            ConcurrentSkipListMap<ItemKey, KitchenItemResponse> index = byStatus.get(status);
+            return index != null ? new ArrayList<>(index.values()) : List.of();
+        }
+
+        List<KitchenItemResponse> result = new ArrayList<>();
+        for (KitchenOrderResponse order : ordered.values()) {
+            result.addAll(order.getItems());
+        }
+        return result;
+    }
+
+    /** Order đang có món chế biến (order cũ trước) */
+    public List<KitchenOrderResponse> getOrders() {
+        ensureReady();
+        return new ArrayList<>(ordered.values());
+    }
+
+    /** Số món đang chế biến */
+    public int size() {
+        return byStatus.values().stream().mapToInt(Map::size).sum();
+    }
+
+    // =====================================================================
+    // 2. CẬP NHẬT THEO EVENT (gọi sau commit)
+    // =====================================================================
+
+    /**
+     * Đọc lại các món active của các order từ DB và thay thế trong board.
+     * Order không còn món active / đã thanh toán / đã hủy / đã xóa → gỡ khỏi board.
+     */
+    public void refreshOrders(Collection<Long> orderIds) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            Map<Long, KitchenOrderResponse> fresh = group(namedParameterJdbcTemplate.query(
+                    KITCHEN_ITEM_SQL + "  AND o.id IN (:orderIds)\n" + ORDER_BY,
+                    activeStatusParams().addValue("orderIds", orderIds),
+                    ITEM_ROW_MAPPER));
+            for (Long orderId : orderIds) {
+                removeInternal(orderId);
+                KitchenOrderResponse order = fresh.get(orderId);
+                if (order != null) {
+                    putInternal(order);
+                }
+            }
+        }
+    }
+
+    /** Đọc lại 1 order */
+    public void refreshOrder(Long orderId) {
+        if (orderId != null) {
+            refreshOrders(List.of(orderId));
+        }
+    }
+
+    /**
+     * Chuyển / gộp bàn → đọc lại các order đang hiển thị ở bàn đó
+     * + các order đang mở của bàn (tên bàn trên phiếu bếp thay đổi).
+     */
+    public void refreshTable(Long tableId) {
+        if (tableId == null) {
+            return;
+        }
+        Set<Long> orderIds = new HashSet<>();
+        for (KitchenOrderResponse order : byOrder.values()) {
+            if (!order.getItems().isEmpty() && tableId.equals(order.getItems().get(0).getTableId())) {
+                orderIds.add(order.getOrderId());
+            }
+        }
+        orderIds.addAll(namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM orders WHERE table_id = :tableId AND status IN ('NEW', 'SERVING')",
+                new MapSqlParameterSource("tableId", tableId),
+                Long.class));
+
+        refreshOrders(orderIds);
+    }
+
+    /** Gỡ order khỏi board (order đã bị xóa) */
+    public void removeOrder(Long orderId) {
+        synchronized (writeLock) {
+            removeInternal(orderId);
+        }
+    }
+
+    // =====================================================================
+    // 3. DỰNG LẠI / KIỂM TRA ĐỘ LỆCH
+    // =====================================================================
+
+    /** Dựng board khi ứng dụng khởi động xong */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Dựng lại toàn bộ board từ DB (1 query).
+     *
+     * @return Số món đang chế biến
+     */
+    public int rebuild() {
+        synchronized (writeLock) {
+            Map<Long, KitchenOrderResponse> fresh = loadAllFromDatabase();
+            clearInternal();
+            fresh.values().forEach(this::putInternal);
+            ready = true;
+            return size();
+        }
+    }
+
+    /**
+     * Dựng lại board SAU KHI transaction hiện tại commit (VD: restore dữ liệu).
+     * Không có transaction → dựng lại ngay.
+     */
+    public void rebuildAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuild();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                rebuild();
+            }
+        });
+    }
+
+    /**
+     * So sánh board với DB:
+     *  - Ghi log từng order bị lệch (thiếu / thừa / khác món)
+     *  - Thay board bằng dữ liệu DB
+     *
+     * @return Số order bị lệch (0 = khớp hoàn toàn)
+     */
+    public int verifyAgainstDatabase() {
+        synchronized (writeLock) {
+            Map<Long, KitchenOrderResponse> fresh = loadAllFromDatabase();
+
+            Set<Long> orderIds = new TreeSet<>(fresh.keySet());
+            orderIds.addAll(byOrder.keySet());
+
+            int drift = 0;
+            for (Long orderId : orderIds) {
+                KitchenOrderResponse expected = fresh.get(orderId);
+                KitchenOrderResponse actual = byOrder.get(orderId);
+                if (!Objects.equals(expected, actual)) {
+                    drift++;
+                    System.err.println("[KitchenBoard] Lệch dữ liệu order " + orderId
+                            + ": board=" + actual + ", db=" + expected);
+                }
+            }
+
+            if (drift > 0 || !ready) {
+                clearInternal();
+                fresh.values().forEach(this::putInternal);
+                ready = true;
+            }
+            return drift;
+        }
+    }
+
+    // =====================================================================
+    // 4. HÀM NỘI BỘ
+    // =====================================================================
+
+    private void ensureReady() {
+        if (!ready) {
+            rebuild();
+        }
+    }
+
+    private Map<Long, KitchenOrderResponse> loadAllFromDatabase() {
+        return group(namedParameterJdbcTemplate.query(
+                KITCHEN_ITEM_SQL + ORDER_BY, activeStatusParams(), ITEM_ROW_MAPPER));
+    }
+
+    private static MapSqlParameterSource activeStatusParams() {
+        return new MapSqlParameterSource("statuses", ACTIVE_STATUSES.stream().map(Enum::name).toList());
+    }
+
+    /**
+     * Gom các dòng món (đã sắp xếp theo order, rồi theo orderItemId) theo order.
+     */
+    private Map<Long, KitchenOrderResponse> group(List<ItemRow> rows) {
+        Map<Long, List<ItemRow>> rowsByOrder = new LinkedHashMap<>();
+        for (ItemRow row : rows) {
+            rowsByOrder.computeIfAbsent(row.item().getOrderId(), k -> new ArrayList<>()).add(row);
+        }
+
+        Map<Long, KitchenOrderResponse> result = new HashMap<>();
+        for (Map.Entry<Long, List<ItemRow>> entry : rowsByOrder.entrySet()) {
+            ItemRow first = entry.getValue().get(0);
+
+            result.put(entry.getKey(), KitchenOrderResponse.builder()
+                    .orderId(entry.getKey())
+                    .orderCode(first.item().getOrderCode())
+                    .tableName(first.item().getTableName())
+                    .createdAt(first.orderCreatedAt())
+                    .items(entry.getValue().stream().map(ItemRow::item).toList())
+                    .build());
+        }
+        return result;
+    }
+
+    private void putInternal(KitchenOrderResponse order) {
+        byOrder.put(order.getOrderId(), order);
+        ordered.put(new OrderKey(order.getCreatedAt(), order.getOrderId()), order);
+        for (KitchenItemResponse item : order.getItems()) {
+            byStatus.get(item.getStatus())
+                    .put(new ItemKey(order.getCreatedAt(), item.getOrderItemId()), item);
+        }
+    }
+
+    private void removeInternal(Long orderId) {
+        KitchenOrderResponse old = byOrder.remove(orderId);
+        if (old == null) {
+            return;
+        }
+        ordered.remove(new OrderKey(old.getCreatedAt(), old.getOrderId()));
+        for (KitchenItemResponse item : old.getItems()) {
+            byStatus.get(item.getStatus())
+                    .remove(new ItemKey(old.getCreatedAt(), item.getOrderItemId()));
+        }
+    }
+
+    private void clearInternal() {
+        byOrder.clear();
+        ordered.clear();
+        byStatus.values().forEach(Map::clear);
+    }
+
+    /** So sánh thời điểm, null xếp cuối */
+    private static int compareTime(LocalDateTime a, LocalDateTime b) {
+        if (a == null || b == null) {
+            return a == b ? 0 : (a == null ? 1 : -1);
+        }
+        return a.compareTo(b);
+    }
+}
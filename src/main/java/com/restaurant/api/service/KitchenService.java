@@ -1,5 +1,6 @@
 package com.restaurant.api.service;
 
+import com.restaurant.api.dto.kitchen.BulkUpdateKitchenItemStatusRequest;
 import com.restaurant.api.dto.kitchen.KitchenItemResponse;
 import com.restaurant.api.dto.kitchen.KitchenOrderResponse;
 import com.restaurant.api.dto.kitchen.UpdateKitchenItemStatusRequest;
@@ -9,11 +10,14 @@ import com.restaurant.api.entity.OrderItem;
 import com.restaurant.api.entity.RestaurantTable;
 import com.restaurant.api.enums.OrderItemStatus;
 import com.restaurant.api.enums.OrderStatus;
+import com.restaurant.api.event.OrderItemsChangedEvent;
+import com.restaurant.api.event.OrderStatusChangedEvent;
 import com.restaurant.api.event.RealtimeEventPublisher;
 import com.restaurant.api.repository.OrderItemRepository;
 import com.restaurant.api.repository.OrderRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,6 +32,7 @@ import java.util.stream.Collectors;
  * Chức năng chính:
  *  - Lấy danh sách món cần chế biến (theo trạng thái)
  *  - Cập nhật trạng thái 1 món (NEW → SENT_TO_KITCHEN → COOKING → DONE)
+ *  - Cập nhật trạng thái nhiều món cùng lúc (1 câu UPDATE cho mỗi trạng thái cũ)
  *
  * Thiết kế:
  *  - Không xử lý thanh toán tại đây
@@ -42,12 +47,20 @@ public class KitchenService {
     private final OrderItemRepository orderItemRepository;
     private final OrderRepository orderRepository;
     private final SystemSettingService systemSettingService;
+    /**
+     * Bảng món đang chế biến trong RAM – nguồn đọc cho màn hình bếp
+     */
+    private final KitchenBoard kitchenBoard;
     /**
      * Publisher bắn realtime qua WebSocket (Phase 5.2.4)
      * - Dùng topic: /topic/kitchen
      * - Payload: KitchenItemResponse (DTO đã có sẵn)
      */
     private final RealtimeEventPublisher realtimeEventPublisher;
+    private final RealtimePayloadFactory realtimePayloadFactory;
+
+    // ✅ Phát event domain (read model order_summary...)
+    private final ApplicationEventPublisher eventPublisher;
 
     // ------------------------------------------------------------
     // HÀM ĐỌC CẤU HÌNH POS CHO BẾP
@@ -101,8 +114,9 @@ public class KitchenService {
      *      + Lọc đúng theo status được gửi lên
      *
      * Ngoài ra:
-     *  - Chỉ lấy các món thuộc Order có trạng thái != CANCELED
-     *    (order đã hủy thì không cần hiển thị trên bếp nữa)
+     *  - Chỉ lấy các món thuộc Order chưa thanh toán / chưa hủy
+     *    (order đã đóng thì không cần hiển thị trên bếp nữa)
+     *  - Món đang xử lý đọc từ KitchenBoard (không chạm DB)
      *
      * @param statusParam trạng thái filter (có thể null)
      * @return danh sách KitchenItemResponse
@@ -110,33 +124,14 @@ public class KitchenService {
     @Transactional(readOnly = true)
     public List<KitchenItemResponse> getKitchenItems(OrderItemStatus statusParam) {
 
-        // Lấy toàn bộ OrderItem rồi lọc ở BE
-        List<OrderItem> allItems = orderItemRepository.findAll();
-        if (allItems.isEmpty()) {
-            return Collections.emptyList();
+        // Trạng thái đang xử lý (hoặc không truyền) → đọc thẳng từ KitchenBoard (RAM)
+        if (statusParam == null || KitchenBoard.ACTIVE_STATUSES.contains(statusParam)) {
+            return kitchenBoard.getItems(statusParam);
         }
 
-        // Nếu không truyền status → mặc định lấy các trạng thái đang xử lý
-        List<OrderItemStatus> defaultStatuses = List.of(
-                OrderItemStatus.NEW,
-                OrderItemStatus.SENT_TO_KITCHEN,
-                OrderItemStatus.COOKING
-        );
-
-        return allItems.stream()
-                // Bỏ qua món không gắn order (phòng dữ liệu bẩn)
-                .filter(oi -> oi.getOrder() != null)
-                // Bỏ qua các order đã hủy
-                .filter(oi -> oi.getOrder().getStatus() != OrderStatus.CANCELED)
-                // Lọc theo status
-                .filter(oi -> {
-                    OrderItemStatus st = oi.getStatus();
-                    if (statusParam != null) {
-                        return st == statusParam;
-                    }
-                    return defaultStatuses.contains(st);
-                })
-                // Map sang DTO cho FE
+        // DONE / CANCELED không nằm trong board → query đúng trạng thái đó
+        // (JOIN FETCH order + dish, bỏ order đã thanh toán / đã hủy)
+        return orderItemRepository.findKitchenItems(List.of(statusParam)).stream()
                 .sorted(Comparator.comparing(
                         (OrderItem oi) -> oi.getOrder().getCreatedAt()
                 ))
@@ -238,6 +233,7 @@ public class KitchenService {
 
         orderItemRepository.save(item);
 
+        eventPublisher.publishEvent(new OrderItemsChangedEvent(item.getOrder().getId()));
 
         // 6) Nếu chuyển sang COOKING và bật auto_order_serving → update ORDER
         if (newStatus == OrderItemStatus.COOKING && autoOrderServing) {
@@ -245,6 +241,10 @@ public class KitchenService {
             if (order.getStatus() == OrderStatus.NEW) {
                 order.setStatus(OrderStatus.SERVING);
                 orderRepository.save(order);
+
+                eventPublisher.publishEvent(
+                        new OrderStatusChangedEvent(order.getId(), OrderStatus.NEW, OrderStatus.SERVING)
+                );
             }
         }
 
@@ -258,15 +258,125 @@ public class KitchenService {
          *  - Khi 1 món đổi trạng thái (SENT_TO_KITCHEN/COOKING/DONE/CANCELED)
          *    thì các màn hình bếp đang mở sẽ nhận được update ngay lập tức.
          *
-         * Payload dùng DTO KitchenItemResponse để:
+         * Payload (ITEM_STATUS_CHANGED) chứa DTO KitchenItemResponse để:
          *  - FE dùng luôn không phải map lại
          *  - Đồng nhất với API /api/kitchen/items
  */
-        realtimeEventPublisher.publishKitchen(resp);
+        realtimeEventPublisher.publishKitchen(realtimePayloadFactory.kitchenItemStatusChanged(resp));
 
         return resp;
     }
 
+    /**
+     * Cập nhật trạng thái NHIỀU món cùng lúc (cả phiếu của 1 bàn / nhiều bàn).
+     * ------------------------------------------------------------
+     * Thay cho việc FE gọi updateItemStatus N lần (N transaction, N lần đọc
+     * cấu hình, N lần load + save entity, N message realtime):
+     *  - Đọc cấu hình POS 1 lần
+     *  - Load toàn bộ món trong 1 query (JOIN FETCH order + bàn + dish)
+     *  - Kiểm tra từng món theo isValidStatusTransition:
+     *      1 món không hợp lệ → báo lỗi, KHÔNG món nào bị đổi
+     *  - Ghi bằng UPDATE ... WHERE id IN (...) AND status = :from
+     *    (mỗi trạng thái cũ 1 câu) → món bị request khác đổi trạng thái
+     *    trong lúc này thì rollback toàn bộ, không ghi đè
+     *  - auto_order_serving_on_item_cooking: xử lý 1 lần cho mỗi ORDER
+     *  - Event domain: 1 OrderItemsChangedEvent cho mỗi order
+     *  - Realtime: 1 message ITEMS_STATUS_CHANGED cho cả lô
+     *
+     * @param req danh sách ID món + trạng thái mới + ghi chú
+     * @return danh sách KitchenItemResponse sau khi update (theo thứ tự ID gửi lên)
+     */
+    @Transactional
+    public List<KitchenItemResponse> updateItemsStatus(BulkUpdateKitchenItemStatusRequest req) {
+        OrderItemStatus newStatus = req.getNewStatus();
+
+        if (newStatus == null) {
+            throw new RuntimeException("Trạng thái mới không được để trống");
+        }
+        if (req.getOrderItemIds() == null || req.getOrderItemIds().isEmpty()) {
+            throw new RuntimeException("Danh sách món không được để trống");
+        }
+
+        // Bỏ ID trùng, giữ thứ tự gửi lên
+        Set<Long> ids = new LinkedHashSet<>(req.getOrderItemIds());
+        ids.remove(null);
+
+        // 1) Các rule cấu hình giống updateItemStatus (đọc 1 lần cho cả lô)
+        if (newStatus == OrderItemStatus.SENT_TO_KITCHEN && isAutoSendKitchen()) {
+            throw new RuntimeException("Hệ thống tự động gửi món xuống bếp, không cần gửi thủ công.");
+        }
+        if (newStatus == OrderItemStatus.CANCELED && !isAllowCancelItem()) {
+            throw new RuntimeException("Cấu hình POS không cho phép hủy món.");
+        }
+        boolean autoOrderServing = newStatus == OrderItemStatus.COOKING && isAutoOrderServingOnItemCooking();
+
+        // 2) Load toàn bộ món 1 lần
+        Map<Long, OrderItem> itemsById = orderItemRepository.findByIdInWithOrderAndDish(ids).stream()
+                .collect(Collectors.toMap(OrderItem::getId, oi -> oi));
+
+        List<Long> missing = ids.stream().filter(id -> !itemsById.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            throw new EntityNotFoundException("Không tìm thấy món trong OrderItem: " + missing);
+        }
+
+        // 3) Kiểm tra rule chuyển trạng thái + gom ID theo trạng thái cũ
+        Map<OrderItemStatus, List<Long>> idsByOldStatus = new EnumMap<>(OrderItemStatus.class);
+        for (Long id : ids) {
+            OrderItemStatus oldStatus = itemsById.get(id).getStatus();
+            if (!isValidStatusTransition(oldStatus, newStatus)) {
+                throw new RuntimeException(
+                        "Không thể chuyển trạng thái món #" + id + " từ " + oldStatus + " sang " + newStatus);
+            }
+            idsByOldStatus.computeIfAbsent(oldStatus, s -> new ArrayList<>()).add(id);
+        }
+
+        // 4) Ghi bằng UPDATE hàng loạt (không save từng entity)
+        String note = req.getNote() != null && !req.getNote().isBlank() ? req.getNote() : null;
+        for (Map.Entry<OrderItemStatus, List<Long>> e : idsByOldStatus.entrySet()) {
+            int updated = orderItemRepository.updateStatusByIds(e.getValue(), e.getKey(), newStatus, note);
+            if (updated != e.getValue().size()) {
+                throw new RuntimeException("Một số món vừa được cập nhật ở nơi khác, vui lòng tải lại màn hình bếp.");
+            }
+        }
+
+        // 5) Theo từng ORDER: event domain + auto chuyển NEW → SERVING (1 lần / order)
+        Map<Long, Order> orders = new LinkedHashMap<>();
+        for (Long id : ids) {
+            Order order = itemsById.get(id).getOrder();
+            orders.putIfAbsent(order.getId(), order);
+        }
+
+        for (Order order : orders.values()) {
+            eventPublisher.publishEvent(new OrderItemsChangedEvent(order.getId()));
+
+            if (autoOrderServing && order.getStatus() == OrderStatus.NEW) {
+                order.setStatus(OrderStatus.SERVING);
+                orderRepository.save(order);
+
+                eventPublisher.publishEvent(
+                        new OrderStatusChangedEvent(order.getId(), OrderStatus.NEW, OrderStatus.SERVING)
+                );
+            }
+        }
+
+        // 6) Dựng response từ entity đã load (entity món KHÔNG bị sửa trong
+        //    persistence context → Hibernate không phát thêm UPDATE từng dòng)
+        List<KitchenItemResponse> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            KitchenItemResponse resp = toKitchenItemResponse(itemsById.get(id));
+            resp.setStatus(newStatus);
+            if (note != null) {
+                resp.setNote(note);
+            }
+            result.add(resp);
+        }
+
+        // 7) 1 message realtime cho cả lô (gửi sau khi commit)
+        realtimeEventPublisher.publishKitchen(realtimePayloadFactory.kitchenItemsStatusChanged(newStatus, result));
+
+        return result;
+    }
+
     /**
      * Kiểm tra rule chuyển trạng thái của OrderItem.
      * ------------------------------------------------------------
@@ -309,75 +419,13 @@ public class KitchenService {
      * Quy ước filter:
      *  - Chỉ lấy OrderItem có status ∈ {NEW, SENT_TO_KITCHEN, COOKING}
      *  - Bỏ qua:
-     *      + Order đã CANCELED
+     *      + Order đã PAID / CANCELED
      *      + Món DONE hoặc CANCELED
+     *
+     * Đọc từ KitchenBoard (RAM) → chi phí không phụ thuộc lịch sử order_item.
      */
-    @Transactional(readOnly = true)
     public List<KitchenOrderResponse> getKitchenOrders() {
-
-        // 1) Lấy toàn bộ OrderItem rồi lọc theo rule
-        List<OrderItem> allItems = orderItemRepository.findAll();
-        if (allItems.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        // Các trạng thái món cần hiển thị trên bếp
-        List<OrderItemStatus> displayStatuses = List.of(
-                OrderItemStatus.NEW,
-                OrderItemStatus.SENT_TO_KITCHEN,
-                OrderItemStatus.COOKING
-        );
-
-        List<OrderItem> filtered = allItems.stream()
-                // Bỏ món không gắn order (phòng dữ liệu bẩn)
-                .filter(oi -> oi.getOrder() != null)
-                // Bỏ order đã hủy
-                .filter(oi -> oi.getOrder().getStatus() != OrderStatus.CANCELED)
-                // Chỉ lấy món đang ở trạng thái NEW/SENT_TO_KITCHEN/COOKING
-                //.filter(oi -> displayStatuses.contains(oi.getStatus()))
-                // Sắp xếp theo thời điểm tạo ORDER (order cũ nằm trên)
-                .sorted(Comparator.comparing(
-                        (OrderItem oi) -> oi.getOrder().getCreatedAt()
-                ))
-                .toList();
-
-        if (filtered.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        // 2) Group theo ORDER
-        Map<Order, List<OrderItem>> itemsByOrder = filtered.stream()
-                .collect(Collectors.groupingBy(OrderItem::getOrder));
-
-        List<KitchenOrderResponse> result = new ArrayList<>();
-
-        for (Map.Entry<Order, List<OrderItem>> entry : itemsByOrder.entrySet()) {
-            Order order = entry.getKey();
-            List<OrderItem> orderItems = entry.getValue();
-
-            // Lấy tên bàn (có thể null)
-            RestaurantTable table = order.getTable();
-            String tableName = table != null ? table.getName() : null;
-
-            // Map từng OrderItem → KitchenItemResponse (tái dùng hàm cũ)
-            List<KitchenItemResponse> itemDTOs = orderItems.stream()
-                    .map(this::toKitchenItemResponse)
-                    .toList();
-
-            KitchenOrderResponse dto = KitchenOrderResponse.builder()
-                    .orderId(order.getId())
-                    .orderCode(order.getOrderCode())
-                    .tableName(tableName)
-                    .createdAt(order.getCreatedAt())
-                    .items(itemDTOs)
-                    .build();
-
-            result.add(dto);
-        }
-
-        // 3) Sắp xếp danh sách ORDER theo thời gian (cũ → mới)
-        result.sort(Comparator.comparing(KitchenOrderResponse::getCreatedAt));
-
-        return result;
+        // Đã group theo order + sắp xếp (cũ → mới) sẵn trong KitchenBoard
+        return kitchenBoard.getOrders();
     }
 }
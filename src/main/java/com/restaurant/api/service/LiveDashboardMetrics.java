@@ -0,0 +1,405 @@
+package com.restaurant.api.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LiveDashboardMetrics – Số liệu dashboard "sống" trong RAM
+ * =====================================================================
+ * Dashboard được mở trên nhiều máy và tự refresh liên tục, trước đây mỗi
+ * lần gọi /api/dashboard/summary đều query daily_revenue + COUNT orders.
+ *
+ * Giữ sẵn trong RAM (không lock, dùng LongAdder):
+ *  - Doanh thu + số hóa đơn theo ngày thanh toán  (7 ngày gần nhất)
+ *  - Số order tạo mới theo ngày                     (7 ngày gần nhất)
+ *  - Tổng số order trong hệ thống
+ *
+ * Cấu trúc:
+ *  - Vòng WINDOW_SLOTS ô, ô của 1 ngày = floorMod(epochDay, WINDOW_SLOTS)
+ *  - Mỗi ô là 1 DayBucket gắn với đúng 1 ngày; ngày mới tới → thay ô cũ
+ *    bằng CAS (không cần lock, ngày quá cũ bị bỏ qua)
+ *  - Tiền lưu dạng "xu" (x100) trong LongAdder → cộng dồn không sai số
+ *
+ * Cập nhật:
+ *  - recordPayment / recordOrderCreated / recordOrderDeleted được gọi
+ *    SAU KHI COMMIT (LiveDashboardMetricsListener)
+ *
+ * Nạp lại từ DB (seed):
+ *  - Khi ứng dụng khởi động xong (ApplicationReadyEvent)
+ *  - Khi qua ngày mới (LiveDashboardMetricsScheduler)
+ *  - Sau khi restore dữ liệu (seedAfterCommit)
+ *
+ * Đối soát (reconcile – LiveDashboardMetricsScheduler, mỗi 5 phút):
+ *  - So sánh từng bộ đếm với DB
+ *  - Chỉ sửa khi CÙNG 1 độ lệch xuất hiện ở 2 lần đối soát liên tiếp
+ *    → không "sửa nhầm" các event đang trên đường tới (đã commit nhưng
+ *      listener chưa chạy xong)
+ *  - Sửa bằng cách cộng phần chênh lệch (không ghi đè) → các event tới
+ *    cùng lúc không bị mất
+ *
+ * version(): tăng sau MỖI thay đổi → DashboardRealtimePusher chỉ tính lại
+ * và push /topic/dashboard khi số liệu thực sự đổi.
+ * =====================================================================
+ */
+@Service
+@RequiredArgsConstructor
+public class LiveDashboardMetrics {
+
+    /** Số ngày hiển thị trên dashboard (hôm nay + 6 ngày trước) */
+    public static final int WINDOW_DAYS = 7;
+
+    /** Số ô của vòng (dư 1 ô để ngày mới không đè lên ngày cũ nhất đang đọc) */
+    private static final int WINDOW_SLOTS = WINDOW_DAYS + 1;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final AtomicReferenceArray<DayBucket> buckets = new AtomicReferenceArray<>(WINDOW_SLOTS);
+
+    private final LongAdder totalOrders = new LongAdder();
+
+    /** Tăng sau mỗi lần số liệu thay đổi (event / seed / đối soát) */
+    private final AtomicLong version = new AtomicLong();
+
+    /** Độ lệch thấy ở lần đối soát trước: key → delta (chờ xác nhận) */
+    private final Map<String, Long> pendingDrift = new ConcurrentHashMap<>();
+
+    /** Chỉ 1 luồng seed / reconcile tại 1 thời điểm */
+    private final Object seedLock = new Object();
+
+    private volatile boolean ready = false;
+
+    /**
+     * Bộ đếm của 1 ngày.
+     * revenueCents: doanh thu x100 (đơn vị nhỏ nhất, tránh BigDecimal khi cộng dồn)
+     */
+    private static final class DayBucket {
+        final LocalDate day;
+        final LongAdder revenueCents = new LongAdder();
+        final LongAdder invoices = new LongAdder();
+        final LongAdder orders = new LongAdder();
+
+        DayBucket(LocalDate day) {
+            this.day = day;
+        }
+    }
+
+    /**
+     * Số liệu 1 ngày (bất biến) – trả về cho DashboardService.
+     */
+    public record DayMetrics(
+            LocalDate day,
+            BigDecimal revenue,
+            long invoiceCount,
+            long orderCount
+    ) {}
+
+    // =====================================================================
+    // 1. ĐỌC (lock-free, không I/O)
+    // =====================================================================
+
+    /** Số liệu hôm nay */
+    public DayMetrics today() {
+        return day(LocalDate.now());
+    }
+
+    /** Số liệu 1 ngày trong cửa sổ 7 ngày (ngoài cửa sổ / chưa có → 0) */
+    public DayMetrics day(LocalDate day) {
+        ensureReady();
+        DayBucket b = buckets.get(slotOf(day));
+        if (b == null || !b.day.equals(day)) {
+            return new DayMetrics(day, BigDecimal.ZERO.setScale(2), 0, 0);
+        }
+        return new DayMetrics(
+                day,
+                BigDecimal.valueOf(b.revenueCents.sum(), 2),
+                b.invoices.sum(),
+                b.orders.sum()
+        );
+    }
+
+    /** Phiên bản số liệu hiện tại (đổi sau mỗi thay đổi) */
+    public long version() {
+        return version.get();
+    }
+
+    /** Tổng số order trong hệ thống */
+    public long totalOrders() {
+        ensureReady();
+        return totalOrders.sum();
+    }
+
+    // =====================================================================
+    // 2. CẬP NHẬT THEO EVENT (gọi sau commit)
+    // =====================================================================
+
+    /** 1 hóa đơn đã thanh toán: cộng doanh thu + số hóa đơn vào ngày paidAt */
+    public void recordPayment(LocalDateTime paidAt, BigDecimal amount) {
+        if (paidAt == null) {
+            return;
+        }
+        DayBucket b = bucketFor(paidAt.toLocalDate());
+        if (b == null) {
+            return;
+        }
+        b.revenueCents.add(toCents(amount));
+        b.invoices.increment();
+        version.incrementAndGet();
+    }
+
+    /** 1 order vừa được tạo */
+    public void recordOrderCreated(LocalDateTime createdAt) {
+        totalOrders.increment();
+        if (createdAt != null) {
+            DayBucket b = bucketFor(createdAt.toLocalDate());
+            if (b != null) {
+                b.orders.increment();
+            }
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * 1 order (chưa thanh toán) bị xóa.
+     * Số order theo ngày để đối soát định kỳ tự sửa (event không mang createdAt).
+     */
+    public void recordOrderDeleted() {
+        totalOrders.decrement();
+        version.incrementAndGet();
+    }
+
+    // =====================================================================
+    // 3. NẠP LẠI TỪ DB
+    // =====================================================================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        seed();
+    }
+
+    /**
+     * Dựng lại toàn bộ cửa sổ 7 ngày + tổng số order từ DB.
+     * Dùng khi khởi động, khi qua ngày mới và sau khi restore.
+     */
+    public void seed() {
+        synchronized (seedLock) {
+            LocalDate today = LocalDate.now();
+            LocalDate start = today.minusDays(WINDOW_DAYS - 1);
+
+            Map<LocalDate, DayBucket> fresh = new HashMap<>();
+            for (int i = 0; i < WINDOW_DAYS; i++) {
+                LocalDate d = start.plusDays(i);
+                fresh.put(d, new DayBucket(d));
+            }
+
+            jdbcTemplate.query(
+                    "SELECT day, revenue, invoice_count FROM daily_revenue WHERE day BETWEEN ? AND ?",
+                    rs -> {
+                        DayBucket b = fresh.get(rs.getDate("day").toLocalDate());
+                        if (b != null) {
+                            b.revenueCents.add(toCents(rs.getBigDecimal("revenue")));
+                            b.invoices.add(rs.getLong("invoice_count"));
+                        }
+                    },
+                    Date.valueOf(start), Date.valueOf(today)
+            );
+
+            for (Map.Entry<LocalDate, Long> e : loadOrderCounts(start).entrySet()) {
+                DayBucket b = fresh.get(e.getKey());
+                if (b != null) {
+                    b.orders.add(e.getValue());
+                }
+            }
+
+            long total = countAllOrders();
+
+            for (DayBucket b : fresh.values()) {
+                buckets.set(slotOf(b.day), b);
+            }
+            totalOrders.reset();
+            totalOrders.add(total);
+
+            pendingDrift.clear();
+            ready = true;
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Nạp lại SAU KHI transaction hiện tại commit (vd: sau restore).
+     * Không có transaction → nạp ngay.
+     */
+    public void seedAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    seed();
+                }
+            });
+        } else {
+            seed();
+        }
+    }
+
+    // =====================================================================
+    // 4. ĐỐI SOÁT VỚI DB
+    // =====================================================================
+
+    /**
+     * So sánh bộ đếm trong RAM với DB.
+     * - Lệch lần đầu → ghi nhận, chờ lần sau
+     * - Lệch y hệt ở lần sau → cộng phần chênh lệch vào bộ đếm
+     *
+     * @return số bộ đếm đã được sửa
+     */
+    public int reconcile() {
+        if (!ready) {
+            seed();
+            return 0;
+        }
+
+        synchronized (seedLock) {
+            LocalDate today = LocalDate.now();
+            LocalDate start = today.minusDays(WINDOW_DAYS - 1);
+
+            Map<LocalDate, long[]> dbRevenue = new HashMap<>();
+            jdbcTemplate.query(
+                    "SELECT day, revenue, invoice_count FROM daily_revenue WHERE day BETWEEN ? AND ?",
+                    rs -> {
+                        dbRevenue.put(rs.getDate("day").toLocalDate(), new long[]{
+                                toCents(rs.getBigDecimal("revenue")),
+                                rs.getLong("invoice_count")
+                        });
+                    },
+                    Date.valueOf(start), Date.valueOf(today)
+            );
+            Map<LocalDate, Long> dbOrders = loadOrderCounts(start);
+            long dbTotal = countAllOrders();
+
+            Map<String, Long> seen = new HashMap<>();
+            int corrected = 0;
+
+            for (int i = 0; i < WINDOW_DAYS; i++) {
+                LocalDate d = start.plusDays(i);
+                DayBucket b = bucketFor(d);
+                if (b == null) {
+                    continue;
+                }
+                long[] rev = dbRevenue.getOrDefault(d, new long[]{0, 0});
+                corrected += check("revenue:" + d, rev[0] - b.revenueCents.sum(), b.revenueCents, seen);
+                corrected += check("invoices:" + d, rev[1] - b.invoices.sum(), b.invoices, seen);
+                corrected += check("orders:" + d, dbOrders.getOrDefault(d, 0L) - b.orders.sum(), b.orders, seen);
+            }
+            corrected += check("total", dbTotal - totalOrders.sum(), totalOrders, seen);
+
+            pendingDrift.clear();
+            pendingDrift.putAll(seen);
+            if (corrected > 0) {
+                version.incrementAndGet();
+            }
+            return corrected;
+        }
+    }
+
+    /**
+     * Kiểm tra 1 bộ đếm.
+     * delta ≠ 0 và trùng với delta lần trước → sửa (trả về 1);
+     * ngược lại ghi nhận vào seen để lần sau xác nhận.
+     */
+    private int check(String key, long delta, LongAdder adder, Map<String, Long> seen) {
+        if (delta == 0) {
+            return 0;
+        }
+        Long previous = pendingDrift.get(key);
+        if (previous != null && previous == delta) {
+            adder.add(delta);
+            return 1;
+        }
+        seen.put(key, delta);
+        return 0;
+    }
+
+    // =====================================================================
+    // 5. HÀM HỖ TRỢ
+    // =====================================================================
+
+    private void ensureReady() {
+        if (!ready) {
+            seed();
+        }
+    }
+
+    /**
+     * Ô của 1 ngày trong cửa sổ:
+     *  - Ngày ngoài cửa sổ (quá cũ / tương lai) → null
+     *  - Ô đang giữ ngày cũ hơn → thay bằng ô mới (CAS, luồng thua dùng ô của luồng thắng)
+     */
+    private DayBucket bucketFor(LocalDate day) {
+        LocalDate today = LocalDate.now();
+        if (day.isAfter(today) || day.isBefore(today.minusDays(WINDOW_DAYS - 1))) {
+            return null;
+        }
+
+        int slot = slotOf(day);
+        while (true) {
+            DayBucket current = buckets.get(slot);
+            if (current != null && current.day.equals(day)) {
+                return current;
+            }
+            if (current != null && current.day.isAfter(day)) {
+                return null;
+            }
+            DayBucket fresh = new DayBucket(day);
+            if (buckets.compareAndSet(slot, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static int slotOf(LocalDate day) {
+        return (int) Math.floorMod(day.toEpochDay(), (long) WINDOW_SLOTS);
+    }
+
+    private static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValue();
+    }
+
+    /** Số order tạo mới theo ngày từ start tới nay (idx_orders_created_at) */
+    private Map<LocalDate, Long> loadOrderCounts(LocalDate start) {
+        Map<LocalDate, Long> result = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT CAST(created_at AS DATE) AS day, COUNT(*) AS cnt " +
+                        "FROM orders WHERE created_at >= ? GROUP BY 1",
+                rs -> {
+                    result.put(rs.getDate("day").toLocalDate(), rs.getLong("cnt"));
+                },
+                start.atStartOfDay()
+        );
+        return result;
+    }
+
+    private long countAllOrders() {
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Long.class);
+        return total != null ? total : 0L;
+    }
+}
@@ -11,6 +11,7 @@ import com.restaurant.api.entity.Order;
 import com.restaurant.api.entity.Payment;
 import com.restaurant.api.entity.User;
 import com.restaurant.api.enums.*;
+import com.restaurant.api.event.OrderStatusChangedEvent;
 import com.restaurant.api.event.TableChangedEvent;
 import com.restaurant.api.repository.OrderRepository;
 import com.restaurant.api.repository.PaymentRepository;
@@ -328,9 +329,14 @@ public class MomoPaymentService {
         payment.setInvoice(invoice);
         paymentRepository.save(payment);
 
+        OrderStatus oldOrderStatus = order.getStatus();
         order.setStatus(OrderStatus.PAID);
         orderRepository.save(order);
 
+        applicationEventPublisher.publishEvent(
+                new OrderStatusChangedEvent(order.getId(), oldOrderStatus, OrderStatus.PAID)
+        );
+
         if (order.getTable() != null) {
             Long tableId = order.getTable().getId();
             restaurantTableService.markTableAvailable(tableId);
@@ -1,12 +1,14 @@
 package com.restaurant.api.service;
 
 import com.restaurant.api.dto.notification.CreateNotificationRequest;
+import com.restaurant.api.dto.sideeffect.NotificationSideEffect;
 import com.restaurant.api.entity.Ingredient;
 import com.restaurant.api.entity.Order;
 import com.restaurant.api.entity.OrderItem;
 import com.restaurant.api.entity.Payment;
 import com.restaurant.api.enums.NotificationType;
 import com.restaurant.api.enums.OrderStatus;
+import com.restaurant.api.enums.SideEffectType;
 import com.restaurant.api.repository.NotificationRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -14,6 +16,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 
@@ -30,6 +34,9 @@ import java.util.Objects;
  *
  * Lưu ý:
  *  - Không tạo bảng mới cho rule (dùng SystemSettingService).
+ *  - Các rule on*() KHÔNG tạo notification ngay: chỉ dựng title/message rồi
+ *    đẩy vào SideEffectDispatcher; worker gọi pushAll() sau khi nghiệp vụ
+ *    commit (kiểm tra bật/tắt + chống spam + tạo hàng loạt ở đó).
  *  - Toàn bộ comment tiếng Việt (Rule 13).
  * =====================================================================
  */
@@ -40,6 +47,8 @@ public class NotificationRuleService {
     private final NotificationService notificationService;
     private final NotificationRepository notificationRepository;
     private final SystemSettingService systemSettingService;
+    // ✅ Tác vụ phụ chạy sau commit (không làm chậm order / payment)
+    private final SideEffectDispatcher sideEffectDispatcher;
 
     // ================================================================
     // Helper đọc setting
@@ -95,20 +104,67 @@ public class NotificationRuleService {
         notificationService.createNotification(req);
     }
 
+    /**
+     * Đưa 1 thông báo vào hàng đợi tác vụ phụ (chạy sau commit).
+     *
+     * @param ruleKey key setting bật/tắt rule – worker kiểm tra lúc xử lý
+     */
+    private void enqueue(String ruleKey, NotificationType type, String title, String message, String link) {
+        sideEffectDispatcher.submit(
+                SideEffectType.NOTIFICATION,
+                NotificationSideEffect.builder()
+                        .ruleKey(ruleKey)
+                        .type(type)
+                        .title(title)
+                        .message(message)
+                        .link(link)
+                        .build()
+        );
+    }
+
+    /**
+     * Tạo hàng loạt thông báo từ 1 lô tác vụ phụ (gọi bởi SideEffectProcessor).
+     * - Bỏ qua rule đang tắt
+     * - Chống spam theo title: cả với DB (isDuplicatedTitleInHours) lẫn trong cùng lô
+     */
+    @Transactional
+    public void pushAll(List<NotificationSideEffect> items) {
+        if (items == null || items.isEmpty()) return;
+
+        List<CreateNotificationRequest> reqs = new ArrayList<>();
+        HashSet<String> titlesInBatch = new HashSet<>();
+
+        for (NotificationSideEffect item : items) {
+            String title = item.getTitle();
+            if (title == null || title.trim().isEmpty()) continue;
+            if (item.getRuleKey() != null && !isEnabled(item.getRuleKey(), true)) continue;
+            if (!titlesInBatch.add(title) || isDuplicatedTitleInHours(title)) continue;
+
+            CreateNotificationRequest req = new CreateNotificationRequest();
+            req.setTitle(title);
+            req.setType(item.getType());
+            req.setMessage(item.getMessage() != null ? item.getMessage() : "");
+            req.setLink(item.getLink());
+            req.setUserIds(null);
+            reqs.add(req);
+        }
+
+        notificationService.createNotifications(reqs);
+    }
+
     // ================================================================
     // RULE 1: ORDER CREATED
     // ================================================================
     @Transactional
     public void onOrderCreated(Order order, List<OrderItem> items) {
 
-        if (!isEnabled("notification.rule.order_created.enabled", true)) return;
         if (order == null) return;
 
         String title = "Order mới: " + safe(order.getOrderCode(), "#" + order.getId());
         String message = "Đơn hàng vừa được tạo. Tổng tiền: " + safeMoney(order.getTotalPrice());
         String link = "/orders/" + order.getId();
 
-        push(NotificationType.ORDER, title, message, link);
+        enqueue("notification.rule.order_created.enabled", NotificationType.ORDER, title, message, link);
     }
 
     // ================================================================
@@ -117,7 +173,6 @@ public class NotificationRuleService {
     @Transactional
     public void onOrderStatusChanged(Order order, OrderStatus oldStatus, OrderStatus newStatus) {
 
-        if (!isEnabled("notification.rule.order_status_changed.enabled", true)) return;
         if (order == null || newStatus == null) return;
 
         // Ví dụ: chỉ bắn khi CANCELED hoặc PAID (tuỳ bạn)
@@ -129,7 +184,7 @@ public class NotificationRuleService {
         String message = "Trạng thái: " + safe(oldStatus) + " → " + safe(newStatus);
         String link = "/orders/" + order.getId();
 
-        push(NotificationType.ORDER, title, message, link);
+        enqueue("notification.rule.order_status_changed.enabled", NotificationType.ORDER, title, message, link);
     }
 
     // ================================================================
@@ -138,7 +193,6 @@ public class NotificationRuleService {
     @Transactional
     public void onPaymentSuccess(Payment payment) {
 
-        if (!isEnabled("notification.rule.payment_success.enabled", true)) return;
         if (payment == null || payment.getOrder() == null) return;
 
         Long orderId = payment.getOrder().getId();
@@ -147,7 +201,7 @@ public class NotificationRuleService {
         String message = "Order #" + orderId + " đã thanh toán. Số tiền: " + safeMoney(payment.getAmount());
         String link = "/invoices/" + (payment.getInvoice() != null ? payment.getInvoice().getId() : "");
 
-        push(NotificationType.PAYMENT, title, message, link);
+        enqueue("notification.rule.payment_success.enabled", NotificationType.PAYMENT, title, message, link);
     }
 
     // ================================================================
@@ -156,7 +210,6 @@ public class NotificationRuleService {
     @Transactional
     public void onLowStock(List<Ingredient> lowIngredients, BigDecimal threshold) {
 
-        if (!isEnabled("notification.rule.stock_low.enabled", true)) return;
         if (lowIngredients == null || lowIngredients.isEmpty()) return;
 
         // Chỉ tạo 1 thông báo tổng hợp để giảm spam
@@ -182,7 +235,7 @@ public class NotificationRuleService {
 
         String link = "/ingredients";
 
-        push(NotificationType.STOCK, title, sb.toString(), link);
+        enqueue("notification.rule.stock_low.enabled", NotificationType.STOCK, title, sb.toString(), link);
     }
 
     // ================================================================
@@ -191,7 +244,6 @@ public class NotificationRuleService {
     @Transactional
     public void onRevenueDailyCheck(BigDecimal yesterdayRevenue, BigDecimal minAmount) {
 
-        if (!isEnabled("notification.rule.revenue_daily.enabled", true)) return;
 
         BigDecimal revenue = (yesterdayRevenue != null ? yesterdayRevenue : BigDecimal.ZERO);
         BigDecimal min = (minAmount != null ? minAmount : BigDecimal.ZERO);
@@ -204,7 +256,7 @@ public class NotificationRuleService {
                 " (ngưỡng tối thiểu: " + safeMoney(min) + ").";
         String link = "/reports/revenue";
 
-        push(NotificationType.SYSTEM, title, message, link);
+        enqueue("notification.rule.revenue_daily.enabled", NotificationType.SYSTEM, title, message, link);
     }
 
     // ================================================================
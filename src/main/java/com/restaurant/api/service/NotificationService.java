@@ -14,8 +14,10 @@ import com.restaurant.api.util.AuthUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -44,6 +46,7 @@ public class NotificationService {
     private final UserService userService; // bảng app_user
     private final SystemSettingService systemSettingService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final JdbcTemplate jdbcTemplate;
 
     // ============================================================
     // 1. TẠO THÔNG BÁO CHUNG + GÁN CHO NHIỀU USER
@@ -127,6 +130,69 @@ public class NotificationService {
         );
     }
 
+    /**
+     * Tạo HÀNG LOẠT thông báo gửi cho toàn bộ user (dùng bởi worker tác vụ phụ).
+     * ------------------------------------------------------------
+     * - Cùng rule bật/tắt với createNotification
+     * - notification_user_status: 1 câu INSERT ... SELECT FROM app_user
+     *   cho mỗi thông báo (thay vì saveAll từng dòng cho từng user)
+     * - Push realtime từng thông báo như createNotification
+     */
+    @Transactional
+    public void createNotifications(List<CreateNotificationRequest> reqs) {
+        if (reqs == null || reqs.isEmpty() || !isNotificationEnabled()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Notification> notifications = reqs.stream()
+                .filter(req -> isRuleEnabledForType(req.getType()))
+                .map(req -> Notification.builder()
+                        .title(req.getTitle())
+                        .message(req.getMessage())
+                        .type(req.getType())
+                        .link(req.getLink())
+                        .createdAt(now)
+                        .build())
+                .toList();
+
+        if (notifications.isEmpty()) {
+            return;
+        }
+
+        notificationRepository.saveAll(notifications);
+
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO notification_user_status (notification_id, user_id, status, created_at)
+                        SELECT ?, u.id, ?, ?
+                        FROM app_user u
+                        """,
+                notifications,
+                notifications.size(),
+                (ps, n) -> {
+                    ps.setLong(1, n.getId());
+                    ps.setString(2, NotificationStatus.UNREAD.name());
+                    ps.setTimestamp(3, Timestamp.valueOf(now));
+                }
+        );
+
+        for (Notification notification : notifications) {
+            messagingTemplate.convertAndSend(
+                    "/topic/notification",
+                    NotificationResponse.builder()
+                            .id(notification.getId())
+                            .title(notification.getTitle())
+                            .message(notification.getMessage())
+                            .type(notification.getType())
+                            .link(notification.getLink())
+                            .createdAt(notification.getCreatedAt())
+                            .status(NotificationStatus.UNREAD)
+                            .build()
+            );
+        }
+    }
+
     // ============================================================
     // 2. LẤY DANH SÁCH THÔNG BÁO THEO USER LOGIN
     // ============================================================
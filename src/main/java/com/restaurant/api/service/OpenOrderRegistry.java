@@ -0,0 +1,301 @@
+package com.restaurant.api.service;
+
+import com.restaurant.api.enums.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OpenOrderRegistry – Bảng tra "bàn → order đang mở" trong RAM
+ * =====================================================================
+ * Màn POS gọi liên tục:
+ *  - GET /api/orders/by-table/{tableId}   (chạm vào 1 bàn)
+ *  - GET /api/tables/pos-status           (sơ đồ bàn)
+ * Cả 2 trước đây đều query findFirstByTableIdAndStatusIn cho TỪNG bàn.
+ *
+ * Số order đang mở (NEW / SERVING) tại 1 thời điểm chỉ vài chục – vài trăm
+ * → giữ snapshot của chúng trong ConcurrentHashMap:
+ *  - byTable  : tableId → OpenOrderSnapshot
+ *  - tableOf  : orderId → tableId (để gỡ entry cũ khi order đổi bàn / đóng)
+ *
+ * Cập nhật:
+ *  - refreshOrder / refreshTable / removeOrder được gọi SAU KHI COMMIT
+ *    (OpenOrderRegistryListener) → registry chỉ chứa dữ liệu đã commit
+ *  - Mỗi lần refresh đọc lại trạng thái MỚI NHẤT từ DB (không tự cộng trừ)
+ *    và chạy tuần tự dưới 1 lock → commit sau luôn thắng
+ *  - Đọc DB bằng JdbcTemplate (1 câu SQL: order + đếm món), KHÔNG mở
+ *    transaction mới: listener AFTER_COMMIT vẫn đang giữ connection của
+ *    request → dùng lại connection đó, không xin thêm connection từ pool;
+ *    không đi qua persistence context → không đọc phải entity cũ trong cache
+ *
+ * Dựng lại:
+ *  - Khi ứng dụng khởi động xong (ApplicationReadyEvent)
+ *  - Sau khi restore dữ liệu (rebuildAfterCommit)
+ *  - verifyAgainstDatabase(): so sánh với DB, ghi log độ lệch và sửa lại
+ *    (OpenOrderRegistryScheduler)
+ *
+ * Request tới trước khi dựng xong lần đầu → findByTable tự dựng registry.
+ * =====================================================================
+ */
+@Service
+@RequiredArgsConstructor
+public class OpenOrderRegistry {
+
+    /**
+     * Order mở (NEW / SERVING) có bàn + số món theo trạng thái (bỏ qua CANCELED).
+     * Sort createdAt ASC → bàn nào (lỗi dữ liệu) có 2 order mở thì giữ order cũ nhất.
+     */
+    private static final String OPEN_ORDER_SQL = """
+            SELECT o.id, o.order_code, o.table_id, o.status, o.created_at,
+                   COUNT(oi.id) FILTER (WHERE oi.status <> 'CANCELED')                       AS total_items,
+                   COUNT(oi.id) FILTER (WHERE oi.status = 'NEW')                             AS new_items,
+                   COUNT(oi.id) FILTER (WHERE oi.status IN ('SENT_TO_KITCHEN', 'COOKING'))   AS cooking_items,
+                   COUNT(oi.id) FILTER (WHERE oi.status = 'DONE')                            AS done_items
+            FROM orders o
+            LEFT JOIN order_item oi ON oi.order_id = o.id
+            WHERE o.status IN ('NEW', 'SERVING')
+              AND o.table_id IS NOT NULL
+            """;
+
+    private static final String GROUP_AND_SORT = """
+            GROUP BY o.id
+            ORDER BY o.created_at, o.id
+            """;
+
+    private static final RowMapper<OpenOrderSnapshot> SNAPSHOT_MAPPER = (rs, rowNum) -> new OpenOrderSnapshot(
+            rs.getLong("id"),
+            rs.getString("order_code"),
+            rs.getLong("table_id"),
+            OrderStatus.valueOf(rs.getString("status")),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getLong("total_items"),
+            rs.getLong("new_items"),
+            rs.getLong("cooking_items"),
+            rs.getLong("done_items")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<Long, OpenOrderSnapshot> byTable = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> tableOf = new ConcurrentHashMap<>();
+
+    /** Lock cho mọi thao tác GHI (đọc DB + cập nhật map) */
+    private final Object writeLock = new Object();
+
+    private volatile boolean ready = false;
+
+    /**
+     * Snapshot order đang mở của 1 bàn (bất biến).
+     * Các con số thống kê bỏ qua món CANCELED – giống PosTableStatusResponse.
+     */
+    public record OpenOrderSnapshot(
+            Long orderId,
+            String orderCode,
+            Long tableId,
+            OrderStatus status,
+            LocalDateTime createdAt,
+            long totalItems,    // Số dòng món chưa hủy
+            long newItems,      // NEW
+            long cookingItems,  // SENT_TO_KITCHEN + COOKING
+            long doneItems      // DONE
+    ) {}
+
+    // =====================================================================
+    // 1. ĐỌC (lock-free)
+    // =====================================================================
+
+    /**
+     * Order đang mở của 1 bàn (nếu có).
+     * Registry chưa dựng xong (request tới trước ApplicationReadyEvent) → dựng ngay.
+     */
+    public Optional<OpenOrderSnapshot> findByTable(Long tableId) {
+        if (tableId == null) {
+            return Optional.empty();
+        }
+        if (!ready) {
+            rebuild();
+        }
+        return Optional.ofNullable(byTable.get(tableId));
+    }
+
+    /** Số bàn đang có order mở */
+    public int size() {
+        return byTable.size();
+    }
+
+    // =====================================================================
+    // 2. CẬP NHẬT THEO EVENT (gọi sau commit)
+    // =====================================================================
+
+    /**
+     * Đọc lại 1 order từ DB:
+     *  - Còn mở + có bàn → ghi snapshot (gỡ entry ở bàn cũ nếu order đổi bàn)
+     *  - Đã đóng / không bàn / đã xóa → gỡ khỏi registry
+     */
+    public void refreshOrder(Long orderId) {
+        synchronized (writeLock) {
+            Optional<OpenOrderSnapshot> snapshot = queryFirst("  AND o.id = ?\n", orderId);
+            if (snapshot.isEmpty()) {
+                removeOrderInternal(orderId);
+                return;
+            }
+            putInternal(snapshot.get());
+        }
+    }
+
+    /**
+     * Đọc lại order đang mở của 1 bàn (dùng khi chuyển / gộp bàn):
+     *  - Có order mở → ghi snapshot
+     *  - Không còn → gỡ entry của bàn
+     */
+    public void refreshTable(Long tableId) {
+        synchronized (writeLock) {
+            Optional<OpenOrderSnapshot> snapshot = queryFirst("  AND o.table_id = ?\n", tableId);
+            if (snapshot.isEmpty()) {
+                OpenOrderSnapshot old = byTable.remove(tableId);
+                if (old != null) {
+                    tableOf.remove(old.orderId(), tableId);
+                }
+                return;
+            }
+            putInternal(snapshot.get());
+        }
+    }
+
+    /** Gỡ order khỏi registry (order đã bị xóa) */
+    public void removeOrder(Long orderId) {
+        synchronized (writeLock) {
+            removeOrderInternal(orderId);
+        }
+    }
+
+    // =====================================================================
+    // 3. DỰNG LẠI / KIỂM TRA ĐỘ LỆCH
+    // =====================================================================
+
+    /** Dựng registry khi ứng dụng khởi động xong */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Dựng lại toàn bộ registry từ DB (1 query: order mở + đếm món).
+     *
+     * @return Số bàn đang có order mở
+     */
+    public int rebuild() {
+        synchronized (writeLock) {
+            Map<Long, OpenOrderSnapshot> fresh = loadAllFromDatabase();
+            byTable.clear();
+            tableOf.clear();
+            fresh.values().forEach(this::putInternal);
+            ready = true;
+            return byTable.size();
+        }
+    }
+
+    /**
+     * Dựng lại registry SAU KHI transaction hiện tại commit
+     * (VD: restore dữ liệu – dữ liệu mới chỉ nhìn thấy được sau commit).
+     * Không có transaction → dựng lại ngay.
+     */
+    public void rebuildAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuild();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                rebuild();
+            }
+        });
+    }
+
+    /**
+     * So sánh registry với DB:
+     *  - Ghi log từng bàn bị lệch (thiếu / thừa / khác snapshot)
+     *  - Thay registry bằng dữ liệu DB
+     *
+     * @return Số bàn bị lệch (0 = khớp hoàn toàn)
+     */
+    public int verifyAgainstDatabase() {
+        synchronized (writeLock) {
+            Map<Long, OpenOrderSnapshot> fresh = loadAllFromDatabase();
+
+            Set<Long> tableIds = new TreeSet<>(fresh.keySet());
+            tableIds.addAll(byTable.keySet());
+
+            int drift = 0;
+            for (Long tableId : tableIds) {
+                OpenOrderSnapshot expected = fresh.get(tableId);
+                OpenOrderSnapshot actual = byTable.get(tableId);
+                if (!Objects.equals(expected, actual)) {
+                    drift++;
+                    System.err.println("[OpenOrderRegistry] Lệch dữ liệu bàn " + tableId
+                            + ": registry=" + actual + ", db=" + expected);
+                }
+            }
+
+            if (drift > 0 || !ready) {
+                byTable.clear();
+                tableOf.clear();
+                fresh.values().forEach(this::putInternal);
+                ready = true;
+            }
+            return drift;
+        }
+    }
+
+    // =====================================================================
+    // 4. HÀM NỘI BỘ
+    // =====================================================================
+
+    /** Đọc toàn bộ order mở có bàn → map tableId → snapshot */
+    private Map<Long, OpenOrderSnapshot> loadAllFromDatabase() {
+        Map<Long, OpenOrderSnapshot> result = new HashMap<>();
+        for (OpenOrderSnapshot snapshot : jdbcTemplate.query(OPEN_ORDER_SQL + GROUP_AND_SORT, SNAPSHOT_MAPPER)) {
+            result.putIfAbsent(snapshot.tableId(), snapshot);
+        }
+        return result;
+    }
+
+    /** Order mở đầu tiên (cũ nhất) thỏa thêm điều kiện condition */
+    private Optional<OpenOrderSnapshot> queryFirst(String condition, Long param) {
+        List<OpenOrderSnapshot> rows = jdbcTemplate.query(
+                OPEN_ORDER_SQL + condition + GROUP_AND_SORT + "LIMIT 1", SNAPSHOT_MAPPER, param);
+        return rows.stream().findFirst();
+    }
+
+    private void putInternal(OpenOrderSnapshot snapshot) {
+        Long oldTableId = tableOf.put(snapshot.orderId(), snapshot.tableId());
+        if (oldTableId != null && !oldTableId.equals(snapshot.tableId())) {
+            // Order vừa đổi bàn → gỡ entry ở bàn cũ (nếu bàn cũ vẫn trỏ tới order này)
+            OpenOrderSnapshot atOldTable = byTable.get(oldTableId);
+            if (atOldTable != null && atOldTable.orderId().equals(snapshot.orderId())) {
+                byTable.remove(oldTableId);
+            }
+        }
+        byTable.put(snapshot.tableId(), snapshot);
+    }
+
+    private void removeOrderInternal(Long orderId) {
+        Long tableId = tableOf.remove(orderId);
+        if (tableId != null) {
+            OpenOrderSnapshot current = byTable.get(tableId);
+            if (current != null && current.orderId().equals(orderId)) {
+                byTable.remove(tableId);
+            }
+        }
+    }
+}
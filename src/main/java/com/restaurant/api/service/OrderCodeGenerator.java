@@ -0,0 +1,24 @@
+package com.restaurant.api.service;
+
+/**
+ * OrderCodeGenerator – Sinh mã orderCode cho đơn hàng
+ * ------------------------------------------------------------
+ * Yêu cầu với mọi implementation:
+ *  - Không trùng mã giữa các request song song và giữa nhiều app instance
+ *  - Không tốn 1 round trip DB cho mỗi order
+ *  - Thread-safe
+ *
+ * Implementation mặc định: DailyBlockOrderCodeGenerator (mã theo ngày).
+ * Muốn đổi cách sinh mã → khai báo bean khác implement interface này
+ * và đánh dấu @Primary.
+ * ------------------------------------------------------------
+ */
+public interface OrderCodeGenerator {
+
+    /**
+     * Sinh mã order tiếp theo.
+     *
+     * @return Mã order duy nhất (ví dụ: ORD20261016-00042)
+     */
+    String nextCode();
+}
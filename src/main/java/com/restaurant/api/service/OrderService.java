@@ -1,12 +1,15 @@
 package com.restaurant.api.service;
 
-import com.restaurant.api.dto.kitchen.KitchenItemRealtimeDto;
 import com.restaurant.api.dto.order.*;
 import com.restaurant.api.entity.*;
 import com.restaurant.api.enums.AuditAction;
 import com.restaurant.api.enums.OrderItemStatus;
 import com.restaurant.api.enums.OrderStatus;
+import com.restaurant.api.event.DishesOrderedEvent;
 import com.restaurant.api.event.OrderCreatedEvent;
+import com.restaurant.api.event.OrderDeletedEvent;
+import com.restaurant.api.event.OrderItemsChangedEvent;
+import com.restaurant.api.event.OrderStatusChangedEvent;
 import com.restaurant.api.repository.*;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -45,12 +48,20 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OrderService {
 
+    /**
+     * Mốc thời gian mặc định khi getOrders không filter theo ngày
+     * (để dùng chung 1 query findForListing cho mọi trường hợp).
+     */
+    private static final LocalDateTime LISTING_MIN_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LISTING_MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final DishRepository dishRepository;
-    private final RecipeItemRepository recipeItemRepository;
-    private final IngredientRepository ingredientRepository;
-    private final StockEntryRepository stockEntryRepository;
+    // ✅ Engine tiêu hao / hoàn kho theo order (gom theo nguyên liệu, ghi batch)
+    private final StockMovementService stockMovementService;
+    // ✅ Sinh mã order không trùng (thay cho "ORD" + currentTimeMillis)
+    private final OrderCodeGenerator orderCodeGenerator;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
     // ✅ Phase 4.3 – Rule Engine thông báo (không gọi NotificationService trực tiếp nữa)
@@ -60,6 +71,8 @@ public class OrderService {
     private final RestaurantTableService restaurantTableService;
     // ✅ Service đọc cấu hình hệ thống (Module 20)
     private final SystemSettingService systemSettingService;
+    // ✅ Bàn → order đang mở (tra trong RAM cho POS)
+    private final OpenOrderRegistry openOrderRegistry;
 
     private final ApplicationEventPublisher eventPublisher;
     private final ApplicationEventPublisher applicationEventPublisher;
@@ -292,11 +305,12 @@ public class OrderService {
         // ------------------------------------------------------------
         // 6.1) PHÁT EVENT DOMAIN – SAU KHI TẠO ORDER
         // ------------------------------------------------------------
-        if (autoSendKitchen) {
-            eventPublisher.publishEvent(
-                    new OrderCreatedEvent(saved, orderItems, autoSendKitchen)
-            );
-        }
+        // - Luôn phát: read model order_summary cần cập nhật mọi order mới
+        // - Realtime bếp vẫn chỉ bắn khi autoSendKitchen (xử lý trong listener)
+        eventPublisher.publishEvent(
+                new OrderCreatedEvent(saved, orderItems, autoSendKitchen)
+        );
+        publishDishesOrdered(saved.getId(), orderItems, List.of());
 
         // ------------------------------------------------------------
         // 7) TRỪ KHO THEO RECIPE (giữ nguyên logic cũ)
@@ -328,12 +342,12 @@ public class OrderService {
     }
 
     /**
-     * Hàm sinh mã orderCode đơn giản.
-     * Có thể nâng cấp sau (theo ngày / theo chi nhánh...).
+     * Hàm sinh mã orderCode.
+     * Giao cho OrderCodeGenerator (mặc định: mã theo ngày, ví dụ ORD20261016-00042)
+     * → không trùng khi nhiều máy POS tạo order cùng lúc / chạy nhiều instance.
      */
     private String generateOrderCode() {
-        // Ví dụ: ORD + timestamp hiện tại
-        return "ORD" + System.currentTimeMillis();
+        return orderCodeGenerator.nextCode();
     }
 
     // =================================================================
@@ -347,88 +361,56 @@ public class OrderService {
      */
     @Transactional(readOnly = true)
     public List<OrderResponse> getOrders(OrderStatus status, LocalDateTime from, LocalDateTime to, Boolean paid) {
-        List<Order> orders;
 
         // ======================================================
-        // EPIC 3 – Ưu tiên filter theo paid (nếu có)
+        // EPIC 3 – Xác định tập trạng thái cần lấy
+        // ------------------------------------------------------
+        //  - paid = true  → chỉ PAID
+        //  - paid = false → NEW + SERVING (loại PAID, CANCELED)
+        //  - paid = null  → theo status (null = tất cả)
         // ======================================================
+        List<OrderStatus> statuses;
         if (paid != null) {
-            if (paid) {
-                // -----------------------------
-                // ĐÃ THANH TOÁN → chỉ lấy PAID
-                // -----------------------------
-                if (from != null && to != null) {
-                    orders = orderRepository.findByStatusAndCreatedAtBetween(OrderStatus.PAID, from, to);
-                } else {
-                    orders = orderRepository.findByStatus(OrderStatus.PAID);
-                }
-            } else {
-                // -------------------------------------------------------
-                // CHƯA THANH TOÁN → chỉ lấy NEW + SERVING
-                // (Loại PAID và CANCELED khỏi list mặc định của Admin)
-                // -------------------------------------------------------
-                List<OrderStatus> unpaidStatuses = List.of(OrderStatus.NEW, OrderStatus.SERVING);
-
-                if (from != null && to != null) {
-                    orders = orderRepository.findByStatusInAndCreatedAtBetween(unpaidStatuses, from, to);
-                } else {
-                    orders = orderRepository.findByStatusIn(unpaidStatuses);
-                }
-            }
+            statuses = paid
+                    ? List.of(OrderStatus.PAID)
+                    : List.of(OrderStatus.NEW, OrderStatus.SERVING);
+        } else if (status != null) {
+            statuses = List.of(status);
         } else {
-            // ======================================================
-            // paid = null → giữ logic cũ (lọc theo status/from/to)
-            // ======================================================
-            if (status != null && from != null && to != null) {
-                orders = orderRepository.findByStatusAndCreatedAtBetween(status, from, to);
-            } else if (status != null) {
-                orders = orderRepository.findByStatus(status);
-            } else if (from != null && to != null) {
-                orders = orderRepository.findByCreatedAtBetween(from, to);
-            } else {
-                orders = orderRepository.findAll();
-            }
+            statuses = Arrays.asList(OrderStatus.values());
+        }
+
+        // Chỉ filter theo ngày khi có đủ from + to (giữ như logic cũ)
+        LocalDateTime rangeFrom = LISTING_MIN_TIME;
+        LocalDateTime rangeTo = LISTING_MAX_TIME;
+        if (from != null && to != null) {
+            rangeFrom = from;
+            rangeTo = to;
         }
 
         // ======================================================
-        // EPIC 3 – Sort mặc định: mới nhất lên đầu (createdAt DESC)
-        // ------------------------------------------------------
-        // Vì repository methods hiện tại không truyền Sort, ta sort
-        // tại service để đảm bảo UI luôn ưu tiên order mới.
+        // Fetch plan cố định: đúng 2 query cho mọi filter
+        //  1) Order + table (đã sort createdAt DESC trong DB)
+        //  2) OrderItem (chưa hủy) + dish, cùng điều kiện lọc
         // ======================================================
-        orders.sort((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()));
-
+        List<Order> orders = orderRepository.findForListing(statuses, rangeFrom, rangeTo);
 
         if (orders.isEmpty()) {
             return Collections.emptyList();
         }
 
-        // Lấy toàn bộ orderId để load orderItem
-        List<Long> orderIds = orders.stream().map(Order::getId).toList();
-
-        // Lấy toàn bộ OrderItem thuộc các order này
-        List<OrderItem> allItems = orderItemRepository.findAll()
-                .stream()
-                .filter(oi -> orderIds.contains(oi.getOrder().getId()))
-                .toList();
+        List<OrderItem> allItems =
+                orderItemRepository.findActiveItemsForListing(statuses, rangeFrom, rangeTo);
 
-        // Group orderItem theo order.id
+        // Group orderItem theo order.id (lấy id từ proxy không phát sinh query)
         Map<Long, List<OrderItem>> itemsByOrder = allItems.stream()
                 .collect(Collectors.groupingBy(oi -> oi.getOrder().getId()));
 
         // Convert từng order → OrderResponse
-        List<OrderResponse> result = new ArrayList<>();
+        List<OrderResponse> result = new ArrayList<>(orders.size());
         for (Order o : orders) {
             List<OrderItem> items = itemsByOrder.getOrDefault(o.getId(), List.of());
-            //Lọc các món CANCELED trước khi trả về
-            List<OrderItem> filtered =
-                    items.stream()
-                            .filter(i -> i.getStatus() != OrderItemStatus.CANCELED)
-                            .toList();
-
-            result.add(toOrderResponse(o, filtered));
-
-            //result.add(toOrderResponse(o, items));
+            result.add(toOrderResponse(o, items));
         }
 
         return result;
@@ -495,6 +477,10 @@ public class OrderService {
         order.setStatus(newStatus);
         orderRepository.save(order);
 
+        eventPublisher.publishEvent(
+                new OrderStatusChangedEvent(order.getId(), oldStatus, newStatus)
+        );
+
         // ============================================================
         // Phase 4.3 – Rule Engine: thông báo đổi trạng thái order
         // ============================================================
@@ -574,6 +560,10 @@ public class OrderService {
         orderItemRepository.deleteByOrder_Id(orderId);
         orderRepository.delete(order);
 
+        eventPublisher.publishEvent(
+                new OrderDeletedEvent(orderId, table != null ? table.getId() : null)
+        );
+
         // Audit log
         auditLogService.log(
                 AuditAction.ORDER_CANCEL,
@@ -591,79 +581,23 @@ public class OrderService {
     // =================================================================
 
     /**
-     * Tiêu kho theo order:
-     *  - Duyệt từng OrderItem
-     *  - Lấy danh sách RecipeItem (định lượng nguyên liệu cho món)
-     *  - Tính tổng số lượng nguyên liệu cần dùng = recipe.quantity × orderQuantity
-     *  - Ghi vào bảng StockEntry với quantity âm (tiêu hao)
+     * Tiêu hao nguyên liệu cho order:
+     *  - Gom số lượng theo món, load định lượng của tất cả món trong 1 query
+     *  - Cộng dồn theo nguyên liệu → mỗi nguyên liệu chỉ cập nhật tồn 1 lần
+     *  - Ghi StockEntry quantity âm bằng 1 JDBC batch
+     * (Chi tiết xem StockMovementService)
      */
     private void consumeStockForOrder(Order order, List<OrderItem> orderItems) {
-        for (OrderItem item : orderItems) {
-            Long dishId = item.getDish().getId();
-            Integer orderQty = item.getQuantity();
-
-            List<RecipeItem> recipes = recipeItemRepository.findByDishId(dishId);
-
-            for (RecipeItem r : recipes) {
-                Ingredient ing = r.getIngredient();
-
-                BigDecimal perDish = r.getQuantity();
-                BigDecimal totalConsume = perDish.multiply(BigDecimal.valueOf(orderQty));
-
-                // 🔥 Trừ tồn kho thật
-                ing.setStockQuantity(
-                        ing.getStockQuantity().subtract(totalConsume)
-                );
-                ingredientRepository.save(ing);
-
-                // 🔥 Ghi log kho âm
-                StockEntry entry = StockEntry.builder()
-                        .ingredient(ing)
-                        .quantity(totalConsume.negate())
-                        .note("Tiêu hao nguyên liệu cho order " + order.getOrderCode())
-                        .build();
-
-                stockEntryRepository.save(entry);
-            }
-        }
+        stockMovementService.consumeForOrder(order, orderItems);
     }
 
     /**
      * Hoàn kho khi hủy / xóa order:
-     *  - Duyệt từng OrderItem
-     *  - Lấy RecipeItem tương ứng
-     *  - Tính số lượng cần hoàn lại
+     *  - Cùng cách gom như consumeStockForOrder
      *  - Ghi StockEntry với quantity dương (tăng kho)
      */
     private void restoreStockForOrder(Order order, List<OrderItem> orderItems) {
-        for (OrderItem item : orderItems) {
-            Long dishId = item.getDish().getId();
-            Integer orderQty = item.getQuantity();
-
-            List<RecipeItem> recipes = recipeItemRepository.findByDishId(dishId);
-
-            for (RecipeItem r : recipes) {
-                Ingredient ing = r.getIngredient();
-
-                BigDecimal perDish = r.getQuantity();
-                BigDecimal totalReturn = perDish.multiply(BigDecimal.valueOf(orderQty));
-
-                // 🔥 Hoàn kho thật
-                ing.setStockQuantity(
-                        ing.getStockQuantity().add(totalReturn)
-                );
-                ingredientRepository.save(ing);
-
-                // 🔥 Ghi log kho dương
-                StockEntry entry = StockEntry.builder()
-                        .ingredient(ing)
-                        .quantity(totalReturn)
-                        .note("Hoàn kho do hủy/xóa order " + order.getOrderCode())
-                        .build();
-
-                stockEntryRepository.save(entry);
-            }
-        }
+        stockMovementService.restoreForOrder(order, orderItems);
     }
 
     // =================================================================
@@ -753,23 +687,17 @@ public class OrderService {
 
     public OrderResponse getOrderByTableId(Long tableId) {
 
-        // Trạng thái order được xem là "đang mở"
-        List<OrderStatus> openStatuses = List.of(OrderStatus.NEW, OrderStatus.SERVING);
-
-        // Tìm order đang mở (NEW hoặc SERVING)
-        Optional<Order> optional = orderRepository
-                .findFirstByTableIdAndStatusIn(tableId, openStatuses);
+        // Tra order đang mở (NEW hoặc SERVING) trong RAM – không query DB
+        Optional<OpenOrderRegistry.OpenOrderSnapshot> optional = openOrderRegistry.findByTable(tableId);
 
         // Nếu không có order → trả null để FE tự xử lý
         if (optional.isEmpty()) {
             return null;
         }
 
-        Order order = optional.get();
-
         // Tái sử dụng hàm getOrder(id) để map sang OrderResponse
         // Vì trong đó đã có logic truy vấn bảng order_item và map sang OrderItemResponse
-        return getOrderDetail(order.getId());
+        return getOrderDetail(optional.get().orderId());
     }
 
     /**
@@ -820,23 +748,49 @@ public class OrderService {
         boolean allowCancelItem = isAllowCancelItem();
         boolean autoSendKitchen = isAutoSendKitchen();
 
+        OrderItemStatus initialStatus = autoSendKitchen
+                ? OrderItemStatus.SENT_TO_KITCHEN
+                : OrderItemStatus.NEW;
+
         // ----------------------------------------------------------------
-        // 2. Lấy toàn bộ OrderItem hiện tại của order
-        //    và group theo dishId → List<OrderItem>
+        // 2. Load 1 lần:
+        //    - Toàn bộ OrderItem hiện tại (JOIN FETCH dish)
+        //    - Các món trong request chưa có trong order (findAllById)
         // ----------------------------------------------------------------
-        List<OrderItem> existingItems = orderItemRepository.findByOrder_Id(orderId);
+        List<OrderItem> existingItems = orderItemRepository.findByOrderIdWithDish(orderId);
 
         // Map<dishId, List<OrderItem>> – cho phép nhiều item cùng 1 món
         Map<Long, List<OrderItem>> existingMap = existingItems.stream()
                 .collect(Collectors.groupingBy(oi -> oi.getDish().getId()));
 
-        List<OrderItem> toSave = new ArrayList<>();
-
         // Dùng để biết dishId nào vẫn còn trong request (sau này xử lý xoá)
         Set<Long> reqDishIds = reqItems.stream()
                 .map(OrderItemRequest::getDishId)
                 .collect(Collectors.toSet());
 
+        Map<Long, Dish> dishMap = new HashMap<>();
+        existingItems.forEach(oi -> dishMap.put(oi.getDish().getId(), oi.getDish()));
+
+        List<Long> missingDishIds = reqDishIds.stream()
+                .filter(id -> !dishMap.containsKey(id))
+                .toList();
+        if (!missingDishIds.isEmpty()) {
+            dishRepository.findAllById(missingDishIds)
+                    .forEach(d -> dishMap.put(d.getId(), d));
+        }
+
+        // Tổng tiền trước khi sửa (tính trên dữ liệu đã load)
+        // → các bước diff bên dưới chỉ cộng / trừ phần chênh lệch
+        BigDecimal total = existingItems.stream()
+                .filter(oi -> oi.getStatus() != OrderItemStatus.CANCELED)
+                .map(this::lineAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        // Kết quả diff (LinkedHashSet: 1 item có thể bị đụng nhiều lần)
+        List<OrderItem> toInsert = new ArrayList<>();
+        Set<OrderItem> toUpdate = new LinkedHashSet<>();
+        List<DishesOrderedEvent.OrderedDish> increased = new ArrayList<>();
+
         // ============================================================
         // 3. Xử lý từng món trong request (mỗi dishId xuất hiện 1 lần)
         // ============================================================
@@ -845,14 +799,13 @@ public class OrderService {
             Long dishId = req.getDishId();
             int newQty = req.getQuantity();
 
-            Dish dish = dishRepository.findById(dishId)
-                    .orElseThrow(() -> new RuntimeException("Món không tồn tại"));
-
-            // Danh sách OrderItem hiện có của món này (có thể rỗng)
-            List<OrderItem> dishItems = existingMap.getOrDefault(dishId, new ArrayList<>());
+            Dish dish = dishMap.get(dishId);
+            if (dish == null) {
+                throw new RuntimeException("Món không tồn tại");
+            }
 
-            // Các item đang "active" (không bị hủy)
-            List<OrderItem> activeItems = dishItems.stream()
+            // Các item đang "active" (không bị hủy) của món này (có thể rỗng)
+            List<OrderItem> activeItems = existingMap.getOrDefault(dishId, List.of()).stream()
                     .filter(oi -> oi.getStatus() != OrderItemStatus.CANCELED)
                     .collect(Collectors.toList());
 
@@ -866,11 +819,6 @@ public class OrderService {
                     continue;
                 }
 
-                // Trạng thái khởi tạo theo POS setting
-                OrderItemStatus initialStatus = autoSendKitchen
-                        ? OrderItemStatus.SENT_TO_KITCHEN
-                        : OrderItemStatus.NEW;
-
                 OrderItem newItem = OrderItem.builder()
                         .order(order)
                         .dish(dish)
@@ -880,7 +828,8 @@ public class OrderService {
                         .note(req.getNote())
                         .build();
 
-                toSave.add(newItem);
+                toInsert.add(newItem);
+                total = total.add(lineAmount(newItem));
                 continue;
             }
 
@@ -920,22 +869,17 @@ public class OrderService {
                 }
 
                 // newQty > currentTotalQty → khách gọi thêm
-                int additional = newQty - currentTotalQty;
-
-                OrderItemStatus initialStatus = autoSendKitchen
-                        ? OrderItemStatus.SENT_TO_KITCHEN
-                        : OrderItemStatus.NEW;
-
                 OrderItem extraItem = OrderItem.builder()
                         .order(order)
                         .dish(dish)
                         .snapshotPrice(dish.getPrice())  // snapshot giá hiện tại
-                        .quantity(additional)
+                        .quantity(newQty - currentTotalQty)
                         .status(initialStatus)
                         .note(req.getNote())             // ghi chú cho phần gọi thêm (nếu có)
                         .build();
 
-                toSave.add(extraItem);
+                toInsert.add(extraItem);
+                total = total.add(lineAmount(extraItem));
                 continue;
             }
 
@@ -954,8 +898,9 @@ public class OrderService {
                 }
 
                 for (OrderItem oi : activeItems) {
+                    total = total.subtract(lineAmount(oi));
                     oi.setStatus(OrderItemStatus.CANCELED);
-                    toSave.add(oi);
+                    toUpdate.add(oi);
                 }
                 continue;
             }
@@ -967,17 +912,25 @@ public class OrderService {
 
             // Item chính (lấy item đầu tiên trong danh sách active)
             OrderItem mainItem = activeItems.get(0);
+            if (newQty > currentTotalQty) {
+                // Tăng số lượng trực tiếp trên dòng cũ → vẫn tính là gọi thêm
+                increased.add(new DishesOrderedEvent.OrderedDish(
+                        dishId, dish.getName(), newQty - currentTotalQty));
+            }
+            total = total.subtract(lineAmount(mainItem));
             mainItem.setQuantity(newQty);
             mainItem.setNote(req.getNote()); // cập nhật note mới (nếu cần)
-            toSave.add(mainItem);
+            total = total.add(lineAmount(mainItem));
+            toUpdate.add(mainItem);
 
             // Các item thừa còn lại → nếu cho phép hủy thì set CANCELED
             for (int i = 1; i < activeItems.size(); i++) {
                 OrderItem extra = activeItems.get(i);
                 if (allowCancelItem) {
+                    total = total.subtract(lineAmount(extra));
                     extra.setStatus(OrderItemStatus.CANCELED);
+                    toUpdate.add(extra);
                 }
-                toSave.add(extra);
             }
         }
 
@@ -989,7 +942,8 @@ public class OrderService {
             Long dishId = ex.getDish().getId();
 
             // Nếu dishId vẫn còn trong request → đã xử lý ở bước 3
-            if (reqDishIds.contains(dishId)) {
+            // Item đã hủy từ trước → không cần xử lý lại
+            if (reqDishIds.contains(dishId) || ex.getStatus() == OrderItemStatus.CANCELED) {
                 continue;
             }
 
@@ -1009,33 +963,65 @@ public class OrderService {
             }
 
             // Thực tế: thay vì DELETE luôn, ta set CANCELED cho thống nhất
+            total = total.subtract(lineAmount(ex));
             ex.setStatus(OrderItemStatus.CANCELED);
-            toSave.add(ex);
+            toUpdate.add(ex);
         }
 
         // ============================================================
-        // 5. Lưu thay đổi + tính lại tổng tiền
+        // 5. Ghi 1 lần (insert mới + update/cancel) + cập nhật tổng tiền
         // ============================================================
-        // Lưu toàn bộ item mới / item đã cập nhật
+        List<OrderItem> toSave = new ArrayList<>(toInsert.size() + toUpdate.size());
+        toSave.addAll(toUpdate);
+        toSave.addAll(toInsert);
         if (!toSave.isEmpty()) {
             orderItemRepository.saveAll(toSave);
         }
 
-        // Lấy lại toàn bộ OrderItem sau khi update để tính tổng tiền
-        List<OrderItem> updatedItems = orderItemRepository.findByOrder_Id(orderId);
-
-        BigDecimal total = updatedItems.stream()
-                .filter(oi -> oi.getStatus() != OrderItemStatus.CANCELED)
-                .map(oi -> oi.getSnapshotPrice().multiply(BigDecimal.valueOf(oi.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
         order.setTotalPrice(total);
         orderRepository.save(order);
 
-        // Trả về OrderResponse mới nhất
+        eventPublisher.publishEvent(new OrderItemsChangedEvent(order.getId()));
+        publishDishesOrdered(order.getId(), toInsert, increased);
+
+        // Trả về OrderResponse từ dữ liệu đang có trong bộ nhớ (không query lại)
+        List<OrderItem> updatedItems = new ArrayList<>(existingItems.size() + toInsert.size());
+        updatedItems.addAll(existingItems);
+        updatedItems.addAll(toInsert);
+
         return toOrderResponse(order, updatedItems);
     }
 
+    /**
+     * Phát DishesOrderedEvent cho các món vừa gọi (dòng mới + phần tăng số lượng).
+     * Không có món nào → không phát.
+     */
+    private void publishDishesOrdered(Long orderId,
+                                      List<OrderItem> newItems,
+                                      List<DishesOrderedEvent.OrderedDish> increased) {
+        List<DishesOrderedEvent.OrderedDish> dishes = new ArrayList<>(newItems.size() + increased.size());
+        for (OrderItem oi : newItems) {
+            dishes.add(new DishesOrderedEvent.OrderedDish(
+                    oi.getDish().getId(), oi.getDish().getName(), oi.getQuantity()));
+        }
+        dishes.addAll(increased);
+
+        if (!dishes.isEmpty()) {
+            eventPublisher.publishEvent(new DishesOrderedEvent(orderId, dishes, LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Thành tiền 1 dòng món = snapshotPrice × quantity
+     * (snapshotPrice null → fallback về giá món hiện tại, giống toOrderResponse).
+     */
+    private BigDecimal lineAmount(OrderItem item) {
+        BigDecimal price = item.getSnapshotPrice() != null
+                ? item.getSnapshotPrice()
+                : item.getDish().getPrice();
+        return price.multiply(BigDecimal.valueOf(item.getQuantity()));
+    }
+
     /**
      * Tạo order nhanh cho chế độ Simple POS.
      * ----------------------------------------------------------------
@@ -1190,6 +1176,12 @@ public class OrderService {
 
         orderItemRepository.saveAll(orderItems);
 
+        // Phát event domain (Simple POS không gửi bếp → autoSendKitchen = false)
+        eventPublisher.publishEvent(
+                new OrderCreatedEvent(saved, orderItems, false)
+        );
+        publishDishesOrdered(saved.getId(), orderItems, List.of());
+
         // ------------------------------------------------------------
         // 7) TRỪ KHO THEO RECIPE (TÁI SỬ DỤNG HÀM CŨ)
         // ------------------------------------------------------------
@@ -1216,32 +1208,4 @@ public class OrderService {
         // ------------------------------------------------------------
         return toOrderResponse(saved, orderItems);
     }
-
-    /**
-     * Map OrderItem entity sang DTO realtime cho bếp.
-     * ------------------------------------------------------------
-     * Tách riêng để:
-     *  - Không serialize entity trực tiếp
-     *  - Tránh lỗi Hibernate Lazy Proxy
-     */
-    private KitchenItemRealtimeDto toKitchenRealtimeDto(OrderItem item) {
-
-        Order order = item.getOrder();
-        RestaurantTable table = order != null ? order.getTable() : null;
-        Dish dish = item.getDish();
-
-        return KitchenItemRealtimeDto.builder()
-                .orderItemId(item.getId())
-                .orderId(order != null ? order.getId() : null)
-                .orderCode(order != null ? order.getOrderCode() : null)
-                .tableId(table != null ? table.getId() : null)
-                .tableName(table != null ? table.getName() : null)
-                .dishId(dish != null ? dish.getId() : null)
-                .dishName(dish != null ? dish.getName() : null)
-                .quantity(item.getQuantity())
-                .status(item.getStatus())
-                .note(item.getNote())
-                .createdAt(item.getCreatedAt())
-                .build();
-    }
 }
@@ -0,0 +1,181 @@
+package com.restaurant.api.service;
+
+import com.restaurant.api.dto.order.OrderSummaryResponse;
+import com.restaurant.api.entity.OrderSummary;
+import com.restaurant.api.enums.OrderStatus;
+import com.restaurant.api.repository.OrderSummaryRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * OrderSummaryService – Read model danh sách order (bảng order_summary)
+ * =====================================================================
+ * Ghi:
+ *  - refreshOrder(): tổng hợp lại 1 order từ bảng gốc rồi UPSERT vào
+ *    order_summary (1 câu SQL). Được gọi từ OrderSummaryProjectionListener
+ *    ngay trước khi transaction nghiệp vụ commit.
+ *  - refreshOpenOrdersOfTable(): khi bàn thay đổi (chuyển / gộp bàn)
+ *  - rebuild(): dựng lại toàn bộ projection (sau restore, hoặc khi lệch dữ liệu)
+ *
+ * Đọc:
+ *  - getSummaries(): danh sách order cho POS / Admin, chỉ đọc 1 bảng hẹp
+ *
+ * Lưu ý:
+ *  - Trước khi chạy SQL tổng hợp luôn flush EntityManager để các thay đổi
+ *    entity chưa ghi xuống DB được tính vào kết quả.
+ * =====================================================================
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderSummaryService {
+
+    /** SELECT tổng hợp dùng chung cho refresh / rebuild (điều kiện WHERE nối thêm) */
+    private static final String SUMMARY_SELECT = """
+            SELECT o.id,
+                   o.order_code,
+                   o.table_id,
+                   t.name,
+                   COUNT(oi.id) FILTER (WHERE oi.status <> 'CANCELED'),
+                   COALESCE(SUM(COALESCE(oi.snapshot_price, d.price) * oi.quantity)
+                            FILTER (WHERE oi.status <> 'CANCELED'), 0),
+                   o.status,
+                   o.created_at,
+                   NOW()
+            FROM orders o
+            LEFT JOIN restaurant_table t ON t.id = o.table_id
+            LEFT JOIN order_item oi ON oi.order_id = o.id
+            LEFT JOIN dish d ON d.id = oi.dish_id
+            """;
+
+    private static final String SUMMARY_INSERT = """
+            INSERT INTO order_summary (order_id, order_code, table_id, table_name, item_count,
+                                       active_total, status, created_at, updated_at)
+            """;
+
+    private static final String SUMMARY_UPSERT_SUFFIX = """
+            GROUP BY o.id, t.name
+            ON CONFLICT (order_id) DO UPDATE SET
+                order_code   = EXCLUDED.order_code,
+                table_id     = EXCLUDED.table_id,
+                table_name   = EXCLUDED.table_name,
+                item_count   = EXCLUDED.item_count,
+                active_total = EXCLUDED.active_total,
+                status       = EXCLUDED.status,
+                updated_at   = EXCLUDED.updated_at
+            """;
+
+    private static final LocalDateTime LISTING_MIN_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LISTING_MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    // =====================================================================
+    // 1. GHI PROJECTION
+    // =====================================================================
+
+    /**
+     * Cập nhật dòng summary của 1 order (order đã bị xóa → FK CASCADE tự xóa dòng).
+     */
+    @Transactional
+    public void refreshOrder(Long orderId) {
+        entityManager.flush();
+        jdbcTemplate.update(
+                SUMMARY_INSERT + SUMMARY_SELECT + "WHERE o.id = ?\n" + SUMMARY_UPSERT_SUFFIX,
+                orderId
+        );
+    }
+
+    /**
+     * Cập nhật các order đang mở liên quan tới 1 bàn:
+     *  - order đang mở nằm ở bàn này (VD: vừa được chuyển / gộp sang)
+     *  - order đang mở trước đó được ghi nhận ở bàn này (VD: vừa chuyển đi)
+     */
+    @Transactional
+    public void refreshOpenOrdersOfTable(Long tableId) {
+        entityManager.flush();
+        jdbcTemplate.update(
+                SUMMARY_INSERT + SUMMARY_SELECT + """
+                        WHERE o.status IN ('NEW', 'SERVING')
+                          AND (o.table_id = ?
+                               OR o.id IN (SELECT s.order_id FROM order_summary s
+                                           WHERE s.table_id = ? AND s.status IN ('NEW', 'SERVING')))
+                        """ + SUMMARY_UPSERT_SUFFIX,
+                tableId, tableId
+        );
+    }
+
+    /**
+     * Dựng lại TOÀN BỘ projection từ bảng gốc.
+     * Dùng khi: sau restore dữ liệu, hoặc admin phát hiện danh sách order bị lệch.
+     *
+     * @return Số dòng summary sau khi dựng lại
+     */
+    @Transactional
+    public int rebuild() {
+        entityManager.flush();
+        jdbcTemplate.update("DELETE FROM order_summary");
+        return jdbcTemplate.update(SUMMARY_INSERT + SUMMARY_SELECT + "GROUP BY o.id, t.name");
+    }
+
+    // =====================================================================
+    // 2. ĐỌC PROJECTION
+    // =====================================================================
+
+    /**
+     * Danh sách order dạng summary – cùng quy tắc filter với OrderService.getOrders:
+     *  - paid = true  → chỉ PAID
+     *  - paid = false → NEW + SERVING
+     *  - paid = null  → theo status (null = tất cả)
+     *  - from/to: chỉ filter khi có đủ cả 2
+     */
+    @Transactional(readOnly = true)
+    public List<OrderSummaryResponse> getSummaries(OrderStatus status,
+                                                   LocalDateTime from,
+                                                   LocalDateTime to,
+                                                   Boolean paid) {
+        List<OrderStatus> statuses;
+        if (paid != null) {
+            statuses = paid
+                    ? List.of(OrderStatus.PAID)
+                    : List.of(OrderStatus.NEW, OrderStatus.SERVING);
+        } else if (status != null) {
+            statuses = List.of(status);
+        } else {
+            statuses = Arrays.asList(OrderStatus.values());
+        }
+
+        boolean hasRange = from != null && to != null;
+
+        return orderSummaryRepository.findForListing(
+                        statuses,
+                        hasRange ? from : LISTING_MIN_TIME,
+                        hasRange ? to : LISTING_MAX_TIME
+                )
+                .stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    private OrderSummaryResponse toResponse(OrderSummary s) {
+        return OrderSummaryResponse.builder()
+                .orderId(s.getOrderId())
+                .orderCode(s.getOrderCode())
+                .tableId(s.getTableId())
+                .tableName(s.getTableName())
+                .itemCount(s.getItemCount())
+                .activeTotal(s.getActiveTotal())
+                .status(s.getStatus())
+                .createdAt(s.getCreatedAt())
+                .updatedAt(s.getUpdatedAt())
+                .build();
+    }
+}
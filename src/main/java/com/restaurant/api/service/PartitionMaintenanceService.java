@@ -0,0 +1,142 @@
+package com.restaurant.api.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PartitionMaintenanceService – Bảo trì partition theo tháng
+ * =====================================================================
+ * Áp dụng cho các bảng partition theo created_at (Flyway V51):
+ *  - order_item
+ *  - stock_entry
+ *
+ * Công việc:
+ *  1) ensureFuturePartitions(): luôn có sẵn partition cho tháng hiện tại
+ *     + N tháng tới (partition.months-ahead, mặc định 3)
+ *  2) absorbDefaultPartitions(): dòng đang nằm trong partition DEFAULT
+ *     (VD: sau restore backup cũ) → tạo partition tháng tương ứng,
+ *     hàm SQL ensure_monthly_partitions tự chuyển dòng sang
+ *  3) detachExpiredPartitions(): partition cũ hơn partition.retention-months
+ *     → DETACH khỏi bảng cha và đổi tên archive_<partition>
+ *     (dữ liệu vẫn còn, chỉ không nằm trong truy vấn nữa; 0 = giữ vĩnh viễn)
+ * =====================================================================
+ */
+@Service
+@RequiredArgsConstructor
+public class PartitionMaintenanceService {
+
+    /** Các bảng cha đã partition theo tháng */
+    private static final List<String> PARTITIONED_TABLES = List.of("order_item", "stock_entry");
+
+    private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${partition.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${partition.retention-months:0}")
+    private int retentionMonths;
+
+    /**
+     * Tạo partition cho tháng hiện tại + monthsAhead tháng tới (nếu chưa có).
+     *
+     * @return Tổng số partition vừa tạo
+     */
+    @Transactional
+    public int ensureFuturePartitions() {
+        LocalDate firstOfMonth = LocalDate.now().withDayOfMonth(1);
+        int created = 0;
+        for (String table : PARTITIONED_TABLES) {
+            created += ensure(table, firstOfMonth, monthsAhead + 1);
+        }
+        return created;
+    }
+
+    /**
+     * Tạo partition cho mọi tháng đang có dữ liệu trong partition DEFAULT.
+     *
+     * @return Tổng số partition vừa tạo
+     */
+    @Transactional
+    public int absorbDefaultPartitions() {
+        int created = 0;
+        for (String table : PARTITIONED_TABLES) {
+            List<Date> months = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT date_trunc('month', created_at)::DATE FROM " + table + "_default",
+                    Date.class
+            );
+            for (Date month : months) {
+                created += ensure(table, month.toLocalDate(), 1);
+            }
+        }
+        return created;
+    }
+
+    /**
+     * DETACH các partition tháng cũ hơn hạn lưu trữ.
+     *
+     * @return Tên các partition đã detach (sau khi đổi tên archive_...)
+     */
+    @Transactional
+    public List<String> detachExpiredPartitions() {
+        List<String> detached = new ArrayList<>();
+        if (retentionMonths <= 0) {
+            return detached;
+        }
+
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+
+        for (String table : PARTITIONED_TABLES) {
+            Pattern pattern = Pattern.compile("^" + table + "_(\\d{6})$");
+
+            List<String> partitions = jdbcTemplate.queryForList("""
+                            SELECT c.relname
+                            FROM pg_inherits i
+                            JOIN pg_class c ON c.oid = i.inhrelid
+                            JOIN pg_class p ON p.oid = i.inhparent
+                            WHERE p.relname = ?
+                            """,
+                    String.class,
+                    table
+            );
+
+            for (String partition : partitions) {
+                Matcher m = pattern.matcher(partition);
+                if (!m.matches()) {
+                    continue; // Bỏ qua partition DEFAULT
+                }
+                YearMonth month = YearMonth.parse(m.group(1), SUFFIX_FORMAT);
+                if (!month.isBefore(cutoff)) {
+                    continue;
+                }
+
+                jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+                jdbcTemplate.execute("ALTER TABLE " + partition + " RENAME TO archive_" + partition);
+                detached.add("archive_" + partition);
+            }
+        }
+        return detached;
+    }
+
+    private int ensure(String table, LocalDate from, int months) {
+        Integer created = jdbcTemplate.queryForObject(
+                "SELECT ensure_monthly_partitions(?, ?, ?)",
+                Integer.class,
+                table, Date.valueOf(from), months
+        );
+        return created != null ? created : 0;
+    }
+}
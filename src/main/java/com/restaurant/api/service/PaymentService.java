@@ -9,6 +9,7 @@ import com.restaurant.api.enums.AuditAction;
 import com.restaurant.api.enums.OrderStatus;
 import com.restaurant.api.enums.PaymentStatus;
 import com.restaurant.api.enums.PaymentMethod;
+import com.restaurant.api.event.OrderStatusChangedEvent;
 import com.restaurant.api.event.RealtimeEventPublisher;
 import com.restaurant.api.repository.*;
 import lombok.RequiredArgsConstructor;
@@ -313,9 +314,14 @@ public class PaymentService {
         // =====================================================================
         // 🟢 B10: cập nhật trạng thái Order → PAID
         // =====================================================================
+        OrderStatus oldOrderStatus = order.getStatus();
         order.setStatus(OrderStatus.PAID);
         orderRepository.save(order);
 
+        applicationEventPublisher.publishEvent(
+                new OrderStatusChangedEvent(order.getId(), oldOrderStatus, OrderStatus.PAID)
+        );
+
         // =====================================================================
         // MODULE 16 – GIẢI PHÓNG BÀN KHI THANH TOÁN ORDER
         // =====================================================================
@@ -0,0 +1,237 @@
+package com.restaurant.api.service;
+
+import com.restaurant.api.dto.kitchen.KitchenItemRealtimeDto;
+import com.restaurant.api.dto.kitchen.KitchenItemResponse;
+import com.restaurant.api.dto.table.PosTableStatusResponse;
+import com.restaurant.api.entity.Dish;
+import com.restaurant.api.entity.Order;
+import com.restaurant.api.entity.OrderItem;
+import com.restaurant.api.entity.RestaurantTable;
+import com.restaurant.api.enums.OrderItemStatus;
+import com.restaurant.api.enums.OrderStatus;
+import com.restaurant.api.enums.PosTableChangeReason;
+import com.restaurant.api.repository.OrderItemRepository;
+import com.restaurant.api.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * RealtimePayloadFactory – Dựng payload realtime "tự đủ" (self-contained)
+ * =====================================================================
+ * Trước đây message realtime chỉ mang id ("orderItemId", "tableId" + reason)
+ * → mọi màn hình nhận event xong lại gọi REST để lấy dữ liệu → số request
+ *   giờ cao điểm tăng gấp đôi.
+ *
+ * Nay mỗi message mang đủ dữ liệu để client áp thẳng vào state đang có:
+ *  - /topic/orders  : thông tin order + tổng tiền + danh sách món
+ *  - /topic/kitchen : DTO món cho bếp (KitchenItemRealtimeDto / KitchenItemResponse)
+ *  - /topic/tables  : trạng thái bàn mới (PosTableStatusResponse)
+ *
+ * Quy ước payload (Map, giống các payload realtime cũ):
+ *  - event         : tên sự kiện (ORDER_CREATED, ORDER_UPDATED, ...)
+ *  - schemaVersion : phiên bản cấu trúc payload (SCHEMA_VERSION)
+ *                    → client kiểm tra trước khi áp delta; khác phiên bản → tải lại
+ *  - occurredAt    : thời điểm dựng payload
+ *  - Còn lại       : dữ liệu của sự kiện
+ *
+ * Được gọi SAU KHI COMMIT (OrderRealtimeListener, TableChangedEventListener)
+ * → mỗi payload dựng 1 lần từ dữ liệu đã commit rồi gửi cho mọi subscriber.
+ * Các hàm đọc DB dùng SUPPORTS (không mở transaction mới): listener AFTER_COMMIT
+ * dùng lại connection / EntityManager mà request đang giữ, không xin thêm
+ * connection từ pool (REQUIRES_NEW ở đây từng làm cạn pool giờ cao điểm).
+ * =====================================================================
+ */
+@Service
+@RequiredArgsConstructor
+public class RealtimePayloadFactory {
+
+    /**
+     * Phiên bản cấu trúc payload realtime.
+     * 1 = payload cũ chỉ có id; 2 = payload tự đủ dữ liệu.
+     */
+    public static final int SCHEMA_VERSION = 2;
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final RestaurantTableService restaurantTableService;
+
+    // =====================================================================
+    // 1. ORDER
+    // =====================================================================
+
+    /**
+     * ORDER_CREATED – dựng từ dữ liệu có sẵn trong event (không query DB).
+     */
+    public Map<String, Object> orderCreated(Order order, List<OrderItem> items) {
+        Map<String, Object> payload = envelope("ORDER_CREATED");
+        putOrder(payload, order, items);
+        return payload;
+    }
+
+    /**
+     * ORDER_UPDATED – đọc lại order + món mới nhất (sửa món / gọi thêm / hủy món).
+     * Order không còn tồn tại → null.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Map<String, Object> orderUpdated(Long orderId) {
+        Optional<Order> order = orderRepository.findById(orderId);
+        if (order.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> payload = envelope("ORDER_UPDATED");
+        putOrder(payload, order.get(), orderItemRepository.findByOrderIdWithDish(orderId));
+        return payload;
+    }
+
+    /**
+     * ORDER_STATUS_CHANGED – trạng thái cũ / mới + thông tin order hiện tại.
+     * Order không còn tồn tại → null.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Map<String, Object> orderStatusChanged(Long orderId, OrderStatus oldStatus, OrderStatus newStatus) {
+        Optional<Order> order = orderRepository.findById(orderId);
+        if (order.isEmpty()) {
+            return null;
+        }
+        RestaurantTable table = order.get().getTable();
+
+        Map<String, Object> payload = envelope("ORDER_STATUS_CHANGED");
+        payload.put("orderId", orderId);
+        payload.put("orderCode", order.get().getOrderCode());
+        payload.put("oldStatus", oldStatus);
+        payload.put("newStatus", newStatus);
+        payload.put("tableId", table != null ? table.getId() : null);
+        payload.put("totalPrice", order.get().getTotalPrice());
+        return payload;
+    }
+
+    /**
+     * ORDER_DELETED – order đã bị xóa, client gỡ khỏi danh sách.
+     */
+    public Map<String, Object> orderDeleted(Long orderId, Long tableId) {
+        Map<String, Object> payload = envelope("ORDER_DELETED");
+        payload.put("orderId", orderId);
+        payload.put("tableId", tableId);
+        return payload;
+    }
+
+    // =====================================================================
+    // 2. KITCHEN
+    // =====================================================================
+
+    /**
+     * ORDER_CREATED cho bếp – các món vừa gửi bếp của order mới.
+     */
+    public Map<String, Object> kitchenItemsAdded(Order order, List<OrderItem> items) {
+        Map<String, Object> payload = envelope("ORDER_CREATED");
+        payload.put("orderId", order.getId());
+        payload.put("orderCode", order.getOrderCode());
+        payload.put("items", items.stream().map(RealtimePayloadFactory::toKitchenRealtimeDto).toList());
+        return payload;
+    }
+
+    /**
+     * ITEM_STATUS_CHANGED – 1 món đổi trạng thái trong bếp.
+     */
+    public Map<String, Object> kitchenItemStatusChanged(KitchenItemResponse item) {
+        Map<String, Object> payload = envelope("ITEM_STATUS_CHANGED");
+        payload.put("orderId", item.getOrderId());
+        payload.put("item", item);
+        return payload;
+    }
+
+    /**
+     * ITEMS_STATUS_CHANGED – nhiều món cùng đổi trạng thái (cập nhật hàng loạt).
+     */
+    public Map<String, Object> kitchenItemsStatusChanged(OrderItemStatus newStatus, List<KitchenItemResponse> items) {
+        Map<String, Object> payload = envelope("ITEMS_STATUS_CHANGED");
+        payload.put("newStatus", newStatus);
+        payload.put("orderIds", items.stream().map(KitchenItemResponse::getOrderId).distinct().toList());
+        payload.put("items", items);
+        return payload;
+    }
+
+    // =====================================================================
+    // 3. TABLE
+    // =====================================================================
+
+    /**
+     * TABLE_CHANGED – trạng thái bàn mới (bàn + order đang mở + thống kê món).
+     * Đọc từ OpenOrderRegistry → OpenOrderRegistryListener phải chạy trước
+     * (đã đặt @Order trên listener).
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Map<String, Object> tableChanged(Long tableId, PosTableChangeReason reason) {
+        Map<String, Object> payload = envelope("TABLE_CHANGED");
+        payload.put("tableId", tableId);
+        payload.put("reason", reason);
+
+        PosTableStatusResponse table = restaurantTableService.getPosTableStatus(tableId).orElse(null);
+        payload.put("table", table); // null → bàn đã bị xóa
+        return payload;
+    }
+
+    // =====================================================================
+    // 4. HÀM HỖ TRỢ
+    // =====================================================================
+
+    private Map<String, Object> envelope(String event) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("event", event);
+        payload.put("schemaVersion", SCHEMA_VERSION);
+        payload.put("occurredAt", LocalDateTime.now());
+        return payload;
+    }
+
+    /** Thông tin order + tổng tiền + món (bỏ món CANCELED khỏi thống kê) */
+    private void putOrder(Map<String, Object> payload, Order order, List<OrderItem> items) {
+        RestaurantTable table = order.getTable();
+
+        long activeItems = items.stream()
+                .filter(oi -> oi.getStatus() != OrderItemStatus.CANCELED)
+                .count();
+
+        payload.put("orderId", order.getId());
+        payload.put("orderCode", order.getOrderCode());
+        payload.put("status", order.getStatus());
+        payload.put("tableId", table != null ? table.getId() : null);
+        payload.put("tableName", table != null ? table.getName() : null);
+        payload.put("totalPrice", order.getTotalPrice());
+        payload.put("createdAt", order.getCreatedAt());
+        payload.put("totalItems", activeItems);
+        payload.put("items", items.stream().map(RealtimePayloadFactory::toKitchenRealtimeDto).toList());
+    }
+
+    /**
+     * Map OrderItem entity sang DTO realtime.
+     * ------------------------------------------------------------
+     * Tách riêng để:
+     *  - Không serialize entity trực tiếp
+     *  - Tránh lỗi Hibernate Lazy Proxy
+     */
+    private static KitchenItemRealtimeDto toKitchenRealtimeDto(OrderItem item) {
+
+        Order order = item.getOrder();
+        RestaurantTable table = order != null ? order.getTable() : null;
+        Dish dish = item.getDish();
+
+        return KitchenItemRealtimeDto.builder()
+                .orderItemId(item.getId())
+                .orderId(order != null ? order.getId() : null)
+                .orderCode(order != null ? order.getOrderCode() : null)
+                .tableId(table != null ? table.getId() : null)
+                .tableName(table != null ? table.getName() : null)
+                .dishId(dish != null ? dish.getId() : null)
+                .dishName(dish != null ? dish.getName() : null)
+                .quantity(item.getQuantity())
+                .status(item.getStatus())
+                .note(item.getNote())
+                .createdAt(item.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,447 @@
+package com.restaurant.api.service;
+
+import com.restaurant.api.dto.report.IngredientUsageReportItem;
+import com.restaurant.api.dto.report.ReportCacheMetricsResponse;
+import com.restaurant.api.dto.report.RevenueByDayItem;
+import com.restaurant.api.dto.report.StockEntryReportItem;
+import com.restaurant.api.dto.report.TopDishReportItem;
+import com.restaurant.api.repository.ReportQueryRepository;
+import com.restaurant.api.repository.ReportQueryRepository.DishDaySales;
+import com.restaurant.api.repository.ReportQueryRepository.IngredientDayMovement;
+import com.restaurant.api.repository.ReportQueryRepository.IngredientInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * ReportCacheService – Cache báo cáo theo NGÀY (Module 12)
+ * =====================================================================
+ * Quản lý thường mở lại cùng 1 khoảng ngày nhiều lần; số liệu của các
+ * ngày đã qua gần như không đổi. Cache giữ kết quả TỪNG NGÀY đã khép:
+ *
+ *  - revenue    : doanh thu + số hóa đơn của ngày (daily_revenue)
+ *  - dish-sales : số lượng / doanh thu theo món của ngày (daily_dish_sales)
+ *  - ingredient : nhập / xuất theo nguyên liệu của ngày (daily_ingredient_movement)
+ *
+ * Báo cáo khoảng [from, to]:
+ *  - Ngày < hôm nay  : lấy từ cache; ngày thiếu được nạp bằng 1 query
+ *                      (khoảng nhỏ nhất chứa các ngày thiếu) rồi giữ lại
+ *  - Ngày >= hôm nay : luôn đọc trực tiếp DB (không cache)
+ *  → báo cáo 90 ngày = gộp 89 ngày trong RAM + 1 ngày đọc DB
+ *  - from / to = null (toàn bộ dữ liệu) → bỏ qua cache, đọc thẳng DB
+ *
+ * Vô hiệu hóa (ngày cũ hiếm khi đổi):
+ *  - DailyRollupService gọi khi ghi rollup vào 1 ngày (hóa đơn / phiếu kho
+ *    ghi lùi ngày) hoặc dựng lại rollup (rebuild, restore dữ liệu)
+ *  - Chạy SAU COMMIT để không nạp lại số liệu cũ trước khi commit
+ *  - Mỗi lần vô hiệu hóa tăng "generation": lần nạp đang chạy song song
+ *    (đọc trước khi commit) sẽ không được ghi vào cache; generation được
+ *    kiểm tra lại sau khi ghi → invalidate chen vào giữa thì gỡ dòng vừa ghi
+ *
+ * Giới hạn bộ nhớ: mỗi cache giữ tối đa report.cache.max-days ngày,
+ * vượt quá thì bỏ ngày cũ nhất (tính vào evictions).
+ *
+ * Lưu ý: cache nằm trong RAM của từng instance – giống OpenOrderRegistry,
+ * thay đổi ghi lùi ngày từ instance khác không làm mất cache ở đây.
+ * =====================================================================
+ */
+@Service
+public class ReportCacheService {
+
+    private final ReportQueryRepository reportQueryRepository;
+    private final int maxDays;
+
+    /** Doanh thu 1 ngày (invoiceCount = 0 → ngày không có hóa đơn) */
+    private record RevenueDay(BigDecimal revenue, long invoiceCount) {}
+
+    private static final RevenueDay NO_REVENUE = new RevenueDay(BigDecimal.ZERO, 0);
+
+    private final DayCache<RevenueDay> revenueCache = new DayCache<>("revenue");
+    private final DayCache<List<DishDaySales>> dishSalesCache = new DayCache<>("dish-sales");
+    private final DayCache<List<IngredientDayMovement>> ingredientCache = new DayCache<>("ingredient");
+
+    public ReportCacheService(ReportQueryRepository reportQueryRepository,
+                              @Value("${report.cache.max-days:1100}") int maxDays) {
+        this.reportQueryRepository = reportQueryRepository;
+        this.maxDays = maxDays;
+    }
+
+    /**
+     * Cache theo ngày cho 1 loại dữ liệu + số liệu theo dõi.
+     */
+    private static final class DayCache<T> {
+        final String name;
+        final ConcurrentSkipListMap<LocalDate, T> days = new ConcurrentSkipListMap<>();
+        final AtomicLong generation = new AtomicLong();
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+        final AtomicLong invalidations = new AtomicLong();
+
+        DayCache(String name) {
+            this.name = name;
+        }
+
+        void invalidate(LocalDate from, LocalDate to) {
+            NavigableMap<LocalDate, T> range;
+            if (from == null && to == null) {
+                range = days;
+            } else if (from == null) {
+                range = days.headMap(to, true);
+            } else if (to == null) {
+                range = days.tailMap(from, true);
+            } else {
+                range = days.subMap(from, true, to, true);
+            }
+            generation.incrementAndGet();
+            int removed = range.size();
+            range.clear();
+            invalidations.addAndGet(removed);
+        }
+    }
+
+    // =====================================================================
+    // 1. BÁO CÁO (gộp từ các ngày)
+    // =====================================================================
+
+    /**
+     * Doanh thu theo ngày trong [from, to], chỉ các ngày có hóa đơn, ngày tăng dần.
+     */
+    public List<RevenueByDayItem> getRevenueByDay(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            return reportQueryRepository.findRevenueByDay(from, to);
+        }
+
+        SortedMap<LocalDate, RevenueDay> days = loadDays(revenueCache, from, to, this::loadRevenueDays);
+
+        List<RevenueByDayItem> items = new ArrayList<>();
+        days.forEach((day, r) -> {
+            if (r.invoiceCount() > 0) {
+                items.add(RevenueByDayItem.builder()
+                        .date(day)
+                        .revenue(r.revenue())
+                        .orderCount(r.invoiceCount())
+                        .build());
+            }
+        });
+        return items;
+    }
+
+    /**
+     * Top món trong [from, to] – cùng quy tắc với ReportQueryRepository.findTopDishes:
+     * số lượng giảm dần, bằng nhau thì doanh thu giảm dần, rồi dishId tăng dần.
+     *
+     * @param limit <= 0 → lấy tất cả
+     */
+    public List<TopDishReportItem> getTopDishes(LocalDate from, LocalDate to, int limit,
+                                                boolean excludeCanceled) {
+        if (from == null || to == null) {
+            return reportQueryRepository.findTopDishes(from, to, limit, excludeCanceled);
+        }
+
+        SortedMap<LocalDate, List<DishDaySales>> days = loadDays(dishSalesCache, from, to,
+                (a, b) -> groupByDay(reportQueryRepository.findDishSalesByDay(a, b), DishDaySales::day));
+
+        // Gộp theo món: qty[0] = số lượng; revenue theo Map riêng
+        Map<Long, long[]> qtyByDish = new HashMap<>();
+        Map<Long, BigDecimal> revenueByDish = new HashMap<>();
+        for (List<DishDaySales> rows : days.values()) {
+            for (DishDaySales r : rows) {
+                long qty = r.quantity() - (excludeCanceled ? r.canceledQuantity() : 0);
+                BigDecimal revenue = excludeCanceled ? r.revenue().subtract(r.canceledRevenue()) : r.revenue();
+                qtyByDish.computeIfAbsent(r.dishId(), k -> new long[1])[0] += qty;
+                revenueByDish.merge(r.dishId(), revenue, BigDecimal::add);
+            }
+        }
+
+        List<Long> ranked = qtyByDish.entrySet().stream()
+                .filter(e -> e.getValue()[0] > 0)
+                .sorted(Comparator.<Map.Entry<Long, long[]>>comparingLong(e -> e.getValue()[0]).reversed()
+                        .thenComparing(e -> revenueByDish.get(e.getKey()), Comparator.reverseOrder())
+                        .thenComparing(Map.Entry::getKey))
+                .map(Map.Entry::getKey)
+                .toList();
+
+        // Tên món luôn đọc mới (đổi tên món không làm cache cũ); món không còn → bỏ, giống JOIN dish
+        Map<Long, String> names = reportQueryRepository.findDishNames(
+                limit > 0 && ranked.size() > limit ? ranked.subList(0, limit) : ranked);
+
+        List<TopDishReportItem> items = new ArrayList<>();
+        for (Long dishId : ranked) {
+            String name = names.get(dishId);
+            if (name == null) {
+                continue;
+            }
+            items.add(TopDishReportItem.builder()
+                    .dishId(dishId)
+                    .dishName(name)
+                    .totalQuantity(qtyByDish.get(dishId)[0])
+                    .totalRevenue(revenueByDish.get(dishId))
+                    .build());
+            if (limit > 0 && items.size() >= limit) {
+                break;
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Nguyên liệu tiêu hao trong [from, to] (tổng quantity_out), giảm dần.
+     */
+    public List<IngredientUsageReportItem> getIngredientUsage(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            return reportQueryRepository.findIngredientUsage(from, to);
+        }
+        return sumIngredients(from, to, IngredientDayMovement::quantityOut, (id, info, total) ->
+                IngredientUsageReportItem.builder()
+                        .ingredientId(id)
+                        .ingredientName(info.name())
+                        .unit(info.unit())
+                        .totalUsed(total)
+                        .build());
+    }
+
+    /**
+     * Nhập kho trong [from, to] (tổng quantity_in), giảm dần.
+     */
+    public List<StockEntryReportItem> getStockEntryTotals(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            return reportQueryRepository.findStockEntryTotals(from, to);
+        }
+        return sumIngredients(from, to, IngredientDayMovement::quantityIn, (id, info, total) ->
+                StockEntryReportItem.builder()
+                        .ingredientId(id)
+                        .ingredientName(info.name())
+                        .unit(info.unit())
+                        .totalImportedAmount(total)
+                        .build());
+    }
+
+    private interface IngredientRowFactory<R> {
+        R create(Long ingredientId, IngredientInfo info, BigDecimal total);
+    }
+
+    /**
+     * Gộp 1 cột (nhập / xuất) theo nguyên liệu, bỏ tổng = 0,
+     * sắp xếp tổng giảm dần rồi ingredientId tăng dần.
+     */
+    private <R> List<R> sumIngredients(LocalDate from, LocalDate to,
+                                       Function<IngredientDayMovement, BigDecimal> column,
+                                       IngredientRowFactory<R> factory) {
+        SortedMap<LocalDate, List<IngredientDayMovement>> days = loadDays(ingredientCache, from, to,
+                (a, b) -> groupByDay(reportQueryRepository.findIngredientMovementByDay(a, b),
+                        IngredientDayMovement::day));
+
+        Map<Long, BigDecimal> totals = new HashMap<>();
+        for (List<IngredientDayMovement> rows : days.values()) {
+            for (IngredientDayMovement m : rows) {
+                totals.merge(m.ingredientId(), column.apply(m), BigDecimal::add);
+            }
+        }
+        totals.values().removeIf(v -> v.signum() <= 0);
+
+        Map<Long, IngredientInfo> infos = reportQueryRepository.findIngredientInfo(totals.keySet());
+
+        return totals.entrySet().stream()
+                .filter(e -> infos.containsKey(e.getKey()))
+                .sorted(Map.Entry.<Long, BigDecimal>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(e -> factory.create(e.getKey(), infos.get(e.getKey()), e.getValue()))
+                .toList();
+    }
+
+    // =====================================================================
+    // 2. NẠP THEO NGÀY
+    // =====================================================================
+
+    /**
+     * Lấy dữ liệu từng ngày trong [from, to]:
+     *  - Ngày đã khép có trong cache → hit
+     *  - Ngày đã khép chưa có → nạp 1 lần cho khoảng [ngày thiếu đầu, ngày thiếu cuối]
+     *    rồi ghi cache (nếu không có vô hiệu hóa nào xen giữa)
+     *  - Ngày >= hôm nay → đọc DB, không ghi cache
+     *
+     * @param loader (from, to) → dữ liệu theo ngày; ngày không có dữ liệu có thể vắng mặt
+     */
+    private <T> SortedMap<LocalDate, T> loadDays(DayCache<T> cache, LocalDate from, LocalDate to,
+                                                  BiFunction<LocalDate, LocalDate, Map<LocalDate, T>> loader) {
+        SortedMap<LocalDate, T> result = new TreeMap<>();
+        if (from.isAfter(to)) {
+            return result;
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate lastClosed = to.isBefore(today) ? to : today.minusDays(1);
+
+        // 1) Ngày đã khép
+        List<LocalDate> missing = new ArrayList<>();
+        for (LocalDate d = from; !d.isAfter(lastClosed); d = d.plusDays(1)) {
+            T cached = cache.days.get(d);
+            if (cached != null) {
+                result.put(d, cached);
+            } else {
+                missing.add(d);
+            }
+        }
+        cache.hits.addAndGet(result.size());
+
+        if (!missing.isEmpty()) {
+            cache.misses.addAndGet(missing.size());
+
+            long generation = cache.generation.get();
+            Map<LocalDate, T> loaded = loader.apply(missing.get(0), missing.get(missing.size() - 1));
+            T empty = emptyValue(cache);
+
+            for (LocalDate d : missing) {
+                result.put(d, loaded.getOrDefault(d, empty));
+            }
+            if (cache.generation.get() == generation) {
+                for (LocalDate d : missing) {
+                    cache.days.putIfAbsent(d, result.get(d));
+                }
+                // invalidate() chen giữa lần kiểm tra trên và putIfAbsent
+                // → dữ liệu vừa ghi có thể đã cũ, gỡ lại (chỉ gỡ đúng giá trị của lần này)
+                if (cache.generation.get() != generation) {
+                    for (LocalDate d : missing) {
+                        cache.days.remove(d, result.get(d));
+                    }
+                } else {
+                    evictOverflow(cache);
+                }
+            }
+        }
+
+        // 2) Hôm nay (và tương lai) – luôn đọc trực tiếp
+        if (!to.isBefore(today)) {
+            LocalDate liveFrom = from.isAfter(today) ? from : today;
+            result.putAll(loader.apply(liveFrom, to));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T emptyValue(DayCache<T> cache) {
+        return cache == revenueCache ? (T) NO_REVENUE : (T) List.of();
+    }
+
+    private Map<LocalDate, RevenueDay> loadRevenueDays(LocalDate from, LocalDate to) {
+        Map<LocalDate, RevenueDay> days = new HashMap<>();
+        for (RevenueByDayItem item : reportQueryRepository.findRevenueByDay(from, to)) {
+            days.put(item.getDate(), new RevenueDay(item.getRevenue(), item.getOrderCount()));
+        }
+        return days;
+    }
+
+    private static <R> Map<LocalDate, List<R>> groupByDay(List<R> rows, Function<R, LocalDate> day) {
+        Map<LocalDate, List<R>> byDay = new HashMap<>();
+        for (R row : rows) {
+            byDay.computeIfAbsent(day.apply(row), k -> new ArrayList<>()).add(row);
+        }
+        byDay.replaceAll((k, v) -> List.copyOf(v));
+        return byDay;
+    }
+
+    /** Vượt max-days → bỏ ngày cũ nhất */
+    private void evictOverflow(DayCache<?> cache) {
+        while (cache.days.size() > maxDays) {
+            if (cache.days.pollFirstEntry() == null) {
+                break;
+            }
+            cache.evictions.incrementAndGet();
+        }
+    }
+
+    // =====================================================================
+    // 3. VÔ HIỆU HÓA (gọi từ DailyRollupService)
+    // =====================================================================
+
+    /**
+     * Hóa đơn ghi vào 1 ngày → bỏ cache doanh thu + món của ngày đó.
+     * Luôn đăng ký sau commit và xét isClosed LÚC COMMIT: hóa đơn ghi lúc
+     * 23:59:59 nhưng commit sau 0h thì ngày đó đã khép (có thể đã bị nạp
+     * vào cache thiếu hóa đơn này) → vẫn phải bỏ.
+     */
+    public void invalidateSalesDay(LocalDate day) {
+        afterCommit(() -> {
+            if (isClosed(day)) {
+                revenueCache.invalidate(day, day);
+                dishSalesCache.invalidate(day, day);
+            }
+        });
+    }
+
+    /** Phiếu kho ghi vào 1 ngày → bỏ cache nhập / xuất của ngày đó (xét isClosed lúc commit) */
+    public void invalidateStockDay(LocalDate day) {
+        afterCommit(() -> {
+            if (isClosed(day)) {
+                ingredientCache.invalidate(day, day);
+            }
+        });
+    }
+
+    /**
+     * Dựng lại rollup cho [from, to] → bỏ cache mọi loại trong khoảng.
+     * from / to = null → không giới hạn phía đó (null cả 2 = xóa hết).
+     */
+    public void invalidateRange(LocalDate from, LocalDate to) {
+        afterCommit(() -> {
+            revenueCache.invalidate(from, to);
+            dishSalesCache.invalidate(from, to);
+            ingredientCache.invalidate(from, to);
+        });
+    }
+
+    /** Chỉ ngày đã qua mới có thể nằm trong cache */
+    private boolean isClosed(LocalDate day) {
+        return day != null && day.isBefore(LocalDate.now());
+    }
+
+    /**
+     * Trong transaction → chạy sau commit (rollback thì bỏ);
+     * ngoài transaction → chạy ngay.
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // =====================================================================
+    // 4. METRICS
+    // =====================================================================
+
+    public List<ReportCacheMetricsResponse> getMetrics() {
+        return List.of(toMetrics(revenueCache), toMetrics(dishSalesCache), toMetrics(ingredientCache));
+    }
+
+    private ReportCacheMetricsResponse toMetrics(DayCache<?> cache) {
+        long hits = cache.hits.get();
+        long misses = cache.misses.get();
+        return ReportCacheMetricsResponse.builder()
+                .cache(cache.name)
+                .cachedDays(cache.days.size())
+                .maxDays(maxDays)
+                .hits(hits)
+                .misses(misses)
+                .hitRatio(hits + misses > 0 ? (double) hits / (hits + misses) : 0)
+                .evictions(cache.evictions.get())
+                .invalidations(cache.invalidations.get())
+                .build();
+    }
+}
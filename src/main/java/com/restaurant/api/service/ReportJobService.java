@@ -0,0 +1,434 @@
+package com.restaurant.api.service;
+
+import com.restaurant.api.dto.report.ReportJobRequest;
+import com.restaurant.api.dto.report.ReportJobResponse;
+import com.restaurant.api.enums.ReportFileFormat;
+import com.restaurant.api.enums.ReportJobStatus;
+import com.restaurant.api.enums.ReportJobType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * ReportJobService – Xuất báo cáo chạy nền (Module 12)
+ * =====================================================================
+ * Export lớn (cuối tháng) chạy đồng bộ trên thread Tomcat giữ thread +
+ * connection DB hàng chục giây, dễ bị proxy cắt timeout. Job nền:
+ *
+ *  1) POST /api/reports/jobs          → nhận job, trả jobId ngay
+ *  2) GET  /api/reports/jobs/{id}     → poll trạng thái
+ *  3) GET  /api/reports/jobs/{id}/download → tải file khi DONE
+ *
+ * Kiểm soát tải:
+ *  - Worker pool cố định (report.job.workers) + hàng đợi có giới hạn
+ *    (report.job.queue-capacity) → đầy thì từ chối ngay, không dồn việc
+ *  - Mỗi user tối đa report.job.max-per-user job đang chờ / đang chạy
+ *
+ * Chống render trùng:
+ *  - Tham số job (loại, định dạng, khoảng ngày, limit...) được băm SHA-256
+ *  - Cùng hash đang QUEUED / RUNNING → dùng chung job (thêm user vào owners)
+ *  - Cùng hash đã DONE với khoảng ngày đã khép (toDate < hôm nay) → trả luôn
+ *    file cũ; khoảng ngày chứa hôm nay luôn render lại (số liệu còn đổi)
+ *
+ * Lưu file:
+ *  - Ghi vào report.job.dir (thư mục riêng), file tạm ".part" → đổi tên khi xong
+ *  - Job + file hết hạn sau report.job.ttl-minutes kể từ khi xong
+ *    (ReportJobCleanupScheduler gọi purgeExpired)
+ *  - Trạng thái job chỉ nằm trong RAM: khởi động lại → xóa file cũ còn sót
+ *
+ * Cấu hình:
+ *  - report.job.dir            (mặc định ${java.io.tmpdir}/restaurant-report-jobs)
+ *  - report.job.workers        (mặc định 2)
+ *  - report.job.queue-capacity (mặc định 20)
+ *  - report.job.max-per-user   (mặc định 2)
+ *  - report.job.ttl-minutes    (mặc định 60)
+ * =====================================================================
+ */
+@Service
+public class ReportJobService {
+
+    /** Tiền tố tên file job – chỉ file có tiền tố này mới bị dọn */
+    private static final String FILE_PREFIX = "report-job-";
+    private static final String PART_SUFFIX = ".part";
+
+    private static final DateTimeFormatter FILE_TIME_FMT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private final ReportService reportService;
+    private final Path jobDir;
+    private final int workers;
+    private final int queueCapacity;
+    private final int maxPerUser;
+    private final long ttlMinutes;
+
+    /** jobId → job */
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /** Hash tham số → job gần nhất có tham số đó (chống render trùng) */
+    private final Map<String, Job> jobsByHash = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    public ReportJobService(ReportService reportService,
+                            @Value("${report.job.dir:${java.io.tmpdir}/restaurant-report-jobs}") String jobDir,
+                            @Value("${report.job.workers:2}") int workers,
+                            @Value("${report.job.queue-capacity:20}") int queueCapacity,
+                            @Value("${report.job.max-per-user:2}") int maxPerUser,
+                            @Value("${report.job.ttl-minutes:60}") long ttlMinutes) {
+        this.reportService = reportService;
+        this.jobDir = Paths.get(jobDir);
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.maxPerUser = maxPerUser;
+        this.ttlMinutes = ttlMinutes;
+    }
+
+    /**
+     * 1 job xuất báo cáo (trạng thái đổi bởi worker, đọc bởi thread request).
+     */
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final String hash;
+        final ReportJobRequest request;
+        final Set<String> owners = ConcurrentHashMap.newKeySet();
+        final LocalDateTime createdAt = LocalDateTime.now();
+
+        volatile ReportJobStatus status = ReportJobStatus.QUEUED;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile Path file;
+        volatile long fileSize;
+        volatile String error;
+
+        Job(String hash, ReportJobRequest request, String owner) {
+            this.hash = hash;
+            this.request = request;
+            this.owners.add(owner);
+        }
+
+        boolean isActive() {
+            return status == ReportJobStatus.QUEUED || status == ReportJobStatus.RUNNING;
+        }
+    }
+
+    /** File kết quả để controller trả về */
+    public record ReportJobFile(Path path, String fileName, String contentType, long size) {}
+
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(jobDir);
+        deleteLeftoverFiles();
+
+        AtomicInteger seq = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                workers, workers,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "report-job-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Dừng worker khi tắt ứng dụng: job đang chạy bị ngắt,
+     * file dở dang (.part) được dọn ở lần khởi động sau.
+     */
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    // =====================================================================
+    // 1. NHẬN JOB
+    // =====================================================================
+
+    /**
+     * Nhận 1 job xuất báo cáo.
+     * - Trùng tham số với job đang chạy / file còn dùng được → trả job đó
+     * - User đã có đủ maxPerUser job đang chạy → báo lỗi
+     * - Hàng đợi worker đầy → báo lỗi (client thử lại sau)
+     */
+    public ReportJobResponse submit(ReportJobRequest request, String username) {
+        validate(request);
+        String hash = paramHash(request);
+
+        // Khóa ngắn: kiểm tra trùng + đếm job của user + đăng ký job phải nguyên tử
+        synchronized (this) {
+            Job existing = jobsByHash.get(hash);
+            if (existing != null && isReusable(existing)) {
+                existing.owners.add(username);
+                return toResponse(existing);
+            }
+
+            long active = jobs.values().stream()
+                    .filter(j -> j.isActive() && j.owners.contains(username))
+                    .count();
+            if (active >= maxPerUser) {
+                throw new RuntimeException("Bạn đang có " + active
+                        + " báo cáo đang xử lý, vui lòng chờ hoàn tất rồi thử lại");
+            }
+
+            Job job = new Job(hash, request, username);
+            try {
+                executor.execute(() -> run(job));
+            } catch (RejectedExecutionException e) {
+                throw new RuntimeException("Hệ thống đang bận xuất báo cáo, vui lòng thử lại sau");
+            }
+            jobs.put(job.id, job);
+            jobsByHash.put(hash, job);
+            return toResponse(job);
+        }
+    }
+
+    /**
+     * Job có thể dùng chung cho request mới cùng tham số không:
+     *  - Đang chờ / đang chạy → có
+     *  - Đã xong + khoảng ngày đã khép (số liệu không đổi nữa) + file còn → có
+     */
+    private boolean isReusable(Job job) {
+        if (job.isActive()) {
+            return true;
+        }
+        LocalDate toDate = job.request.getToDate();
+        return job.status == ReportJobStatus.DONE
+                && toDate != null
+                && toDate.isBefore(LocalDate.now())
+                && job.file != null
+                && Files.exists(job.file);
+    }
+
+    private void validate(ReportJobRequest request) {
+        if (request.getType() == null || request.getFormat() == null) {
+            throw new RuntimeException("Thiếu loại báo cáo hoặc định dạng file");
+        }
+        if (request.getFromDate() != null && request.getToDate() != null
+                && request.getFromDate().isAfter(request.getToDate())) {
+            throw new RuntimeException("Từ ngày không được lớn hơn đến ngày");
+        }
+    }
+
+    /**
+     * Băm tham số ảnh hưởng tới nội dung file.
+     * limit / excludeCanceled chỉ tính cho TOP_DISHES.
+     */
+    private String paramHash(ReportJobRequest r) {
+        StringBuilder sb = new StringBuilder()
+                .append(r.getType()).append('|')
+                .append(r.getFormat()).append('|')
+                .append(r.getFromDate()).append('|')
+                .append(r.getToDate());
+        if (r.getType() == ReportJobType.TOP_DISHES) {
+            sb.append('|').append(topLimit(r))
+                    .append('|').append(Boolean.TRUE.equals(r.getExcludeCanceled()));
+        }
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new RuntimeException("Không tạo được mã job báo cáo", e);
+        }
+    }
+
+    private int topLimit(ReportJobRequest r) {
+        return r.getLimit() != null ? r.getLimit() : 10;
+    }
+
+    // =====================================================================
+    // 2. WORKER
+    // =====================================================================
+
+    /**
+     * Ghi file báo cáo:
+     *  - Gọi đúng hàm write* của ReportService (qua proxy → có transaction
+     *    read-only cho cursor)
+     *  - Ghi ra file ".part", xong mới đổi tên → không bao giờ tải file dở
+     *  - finishedAt / file được gán TRƯỚC trạng thái cuối (DONE / FAILED):
+     *    status là volatile ghi sau cùng → ai thấy DONE cũng thấy đủ các field
+     */
+    private void run(Job job) {
+        job.status = ReportJobStatus.RUNNING;
+        job.startedAt = LocalDateTime.now();
+
+        String ext = job.request.getFormat().getExtension();
+        Path part = jobDir.resolve(FILE_PREFIX + job.id + "." + ext + PART_SUFFIX);
+        Path target = jobDir.resolve(FILE_PREFIX + job.id + "." + ext);
+
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part))) {
+                render(job.request, out);
+            }
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+
+            job.file = target;
+            job.fileSize = Files.size(target);
+            job.finishedAt = LocalDateTime.now();
+            job.status = ReportJobStatus.DONE;
+        } catch (Exception e) {
+            System.err.println("❌ Lỗi xuất báo cáo job " + job.id + ": " + e.getMessage());
+            deleteQuietly(part);
+            job.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            job.finishedAt = LocalDateTime.now();
+            job.status = ReportJobStatus.FAILED;
+        }
+    }
+
+    private void render(ReportJobRequest r, OutputStream out) {
+        LocalDate from = r.getFromDate();
+        LocalDate to = r.getToDate();
+        boolean excel = r.getFormat() == ReportFileFormat.EXCEL;
+
+        switch (r.getType()) {
+            case REVENUE -> {
+                if (excel) reportService.writeRevenueExcel(from, to, out);
+                else reportService.writeRevenuePdf(from, to, out);
+            }
+            case TOP_DISHES -> {
+                boolean excludeCanceled = Boolean.TRUE.equals(r.getExcludeCanceled());
+                if (excel) reportService.writeTopDishesExcel(from, to, topLimit(r), excludeCanceled, out);
+                else reportService.writeTopDishesPdf(from, to, topLimit(r), excludeCanceled, out);
+            }
+            case INGREDIENT_USAGE -> {
+                if (excel) reportService.writeIngredientUsageExcel(from, to, out);
+                else reportService.writeIngredientUsagePdf(from, to, out);
+            }
+            case STOCK_ENTRY -> {
+                if (excel) reportService.writeStockEntryExcel(from, to, out);
+                else reportService.writeStockEntryPdf(from, to, out);
+            }
+        }
+    }
+
+    // =====================================================================
+    // 3. TRẠNG THÁI / TẢI FILE
+    // =====================================================================
+
+    /**
+     * Trạng thái job – chỉ user đã gửi job (hoặc dùng chung job) mới xem được.
+     */
+    public ReportJobResponse getStatus(String jobId, String username) {
+        return toResponse(findOwnedJob(jobId, username));
+    }
+
+    /**
+     * File kết quả của job đã DONE.
+     */
+    public ReportJobFile getFile(String jobId, String username) {
+        Job job = findOwnedJob(jobId, username);
+
+        if (job.status == ReportJobStatus.FAILED) {
+            throw new RuntimeException("Xuất báo cáo thất bại: " + job.error);
+        }
+        if (job.status != ReportJobStatus.DONE) {
+            throw new RuntimeException("Báo cáo chưa xuất xong, vui lòng thử lại sau");
+        }
+        if (job.file == null || !Files.exists(job.file)) {
+            throw new RuntimeException("File báo cáo đã hết hạn, vui lòng xuất lại");
+        }
+
+        ReportFileFormat format = job.request.getFormat();
+        String fileName = job.request.getType().getFilePrefix()
+                + "-" + job.finishedAt.format(FILE_TIME_FMT)
+                + "." + format.getExtension();
+        return new ReportJobFile(job.file, fileName, format.getContentType(), job.fileSize);
+    }
+
+    private Job findOwnedJob(String jobId, String username) {
+        Job job = jobs.get(jobId);
+        if (job == null || !job.owners.contains(username)) {
+            throw new RuntimeException("Không tìm thấy job báo cáo: " + jobId);
+        }
+        return job;
+    }
+
+    private ReportJobResponse toResponse(Job job) {
+        ReportJobStatus status = job.status;
+        LocalDateTime finishedAt = job.finishedAt;
+        return ReportJobResponse.builder()
+                .jobId(job.id)
+                .type(job.request.getType())
+                .format(job.request.getFormat())
+                .status(status)
+                .createdAt(job.createdAt)
+                .startedAt(job.startedAt)
+                .finishedAt(finishedAt)
+                .expiresAt(finishedAt != null ? finishedAt.plusMinutes(ttlMinutes) : null)
+                .fileSize(status == ReportJobStatus.DONE ? job.fileSize : null)
+                .downloadUrl(status == ReportJobStatus.DONE
+                        ? "/api/reports/jobs/" + job.id + "/download"
+                        : null)
+                .error(status == ReportJobStatus.FAILED ? job.error : null)
+                .build();
+    }
+
+    // =====================================================================
+    // 4. DỌN JOB HẾT HẠN
+    // =====================================================================
+
+    /**
+     * Xóa job + file đã xong quá ttlMinutes.
+     *
+     * @return Số job đã dọn
+     */
+    public int purgeExpired() {
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(ttlMinutes);
+        int purged = 0;
+
+        for (Job job : jobs.values()) {
+            LocalDateTime finishedAt = job.finishedAt;
+            if (job.isActive() || finishedAt == null || finishedAt.isAfter(threshold)) {
+                continue;
+            }
+            synchronized (this) {
+                jobs.remove(job.id);
+                jobsByHash.remove(job.hash, job);
+            }
+            if (job.file != null) {
+                deleteQuietly(job.file);
+            }
+            purged++;
+        }
+        return purged;
+    }
+
+    /**
+     * Khởi động: trạng thái job cũ đã mất → file cũ không ai tải được nữa.
+     */
+    private void deleteLeftoverFiles() throws IOException {
+        try (Stream<Path> files = Files.list(jobDir)) {
+            files.filter(p -> p.getFileName().toString().startsWith(FILE_PREFIX))
+                    .forEach(this::deleteQuietly);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("⚠️ Không xóa được file báo cáo " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -18,12 +18,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 // ========================== PDF (OpenPDF) ==========================
 import com.lowagie.text.Document;
@@ -60,12 +62,11 @@ import java.awt.Color;
 @RequiredArgsConstructor
 public class ReportService {
 
-    private final InvoiceRepository invoiceRepository;
-    private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
-    private final DishRepository dishRepository;
-    private final StockEntryRepository stockEntryRepository;
-    private final IngredientRepository ingredientRepository;
+    /** Truy vấn báo cáo trên các bảng tổng hợp theo ngày (daily_*) */
+    private final ReportQueryRepository reportQueryRepository;
+
+    /** Cache kết quả theo ngày đã khép – API JSON đọc qua đây */
+    private final ReportCacheService reportCacheService;
     // ================== THÊM MỚI – EXPORTER DOANH THU ==================
     /**
      * Bean Excel Exporter cho báo cáo doanh thu.
@@ -90,29 +91,16 @@ public class ReportService {
      * --------------------------------------------------------------
      * - Dữ liệu lấy từ bảng Invoice
      * - Chỉ tính invoice có paidAt != null
-     * - Group theo ngày paidAt.toLocalDate()
+     * - Đọc từ bảng tổng hợp daily_revenue (1 dòng / ngày thanh toán)
+     * - Ngày đã qua lấy từ ReportCacheService, chỉ hôm nay đọc DB
      */
     @Transactional(readOnly = true)
     public RevenueReportResponse getRevenueReport(LocalDate fromDate, LocalDate toDate) {
 
-        LocalDateTime fromDateTime = (fromDate != null) ? fromDate.atStartOfDay() : null;
-        LocalDateTime toDateTime = (toDate != null) ? toDate.plusDays(1).atStartOfDay() : null;
-
-        // Lấy toàn bộ hóa đơn
-        List<Invoice> allInvoices = invoiceRepository.findAll();
+        // Doanh thu theo từng ngày (đã sắp xếp ngày tăng dần)
+        List<RevenueByDayItem> items = reportCacheService.getRevenueByDay(fromDate, toDate);
 
-        // Lọc theo ngày thanh toán
-        List<Invoice> filtered = allInvoices.stream()
-                .filter(inv -> inv.getPaidAt() != null)
-                .filter(inv -> {
-                    LocalDateTime paidAt = inv.getPaidAt();
-                    if (fromDateTime != null && paidAt.isBefore(fromDateTime)) return false;
-                    if (toDateTime != null && !paidAt.isBefore(toDateTime)) return false;
-                    return true;
-                })
-                .toList();
-
-        if (filtered.isEmpty()) {
+        if (items.isEmpty()) {
             return RevenueReportResponse.builder()
                     .totalRevenue(BigDecimal.ZERO)
                     .totalOrders(0L)
@@ -121,40 +109,14 @@ public class ReportService {
                     .build();
         }
 
-        // Group theo ngày
-        Map<LocalDate, List<Invoice>> byDate = filtered.stream()
-                .collect(Collectors.groupingBy(inv -> inv.getPaidAt().toLocalDate()));
-
-        List<RevenueByDayItem> items = new ArrayList<>();
         BigDecimal totalRevenue = BigDecimal.ZERO;
         long totalOrders = 0L;
 
-        for (var entry : byDate.entrySet()) {
-            LocalDate date = entry.getKey();
-            List<Invoice> list = entry.getValue();
-
-            BigDecimal revenue = list.stream()
-                    .map(Invoice::getTotalAmount)
-                    .filter(Objects::nonNull)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            long orderCount = list.size();
-
-            totalRevenue = totalRevenue.add(revenue);
-            totalOrders += orderCount;
-
-            items.add(
-                    RevenueByDayItem.builder()
-                            .date(date)
-                            .revenue(revenue)
-                            .orderCount(orderCount)
-                            .build()
-            );
+        for (RevenueByDayItem item : items) {
+            totalRevenue = totalRevenue.add(item.getRevenue());
+            totalOrders += item.getOrderCount();
         }
 
-        // Sắp xếp theo ngày tăng dần
-        items.sort(Comparator.comparing(RevenueByDayItem::getDate));
-
         // Doanh thu TB / ngày
         int days = items.size();
         BigDecimal avg = (days > 0)
@@ -176,87 +138,16 @@ public class ReportService {
     /**
      * Lấy danh sách TOP món bán chạy trong khoảng ngày.
      * --------------------------------------------------------------
-     * - Lọc Order trong khoảng fromDate–toDate theo createdAt
-     * - Lấy OrderItem thuộc các order đó
-     * - Gom nhóm theo dishId → tổng quantity
-     * - Nhân với Dish.price để ra doanh thu
+     * - Đọc từ bảng tổng hợp daily_dish_sales (theo ngày thanh toán)
+     * - Số lượng + doanh thu lấy từ hóa đơn (giá snapshot lúc thanh toán)
+     * - Sắp xếp số lượng giảm dần, bằng nhau thì doanh thu giảm dần
+     * - excludeCanceled = true → không tính các món đã hủy
+     * - Gộp từ cache theo ngày (ReportCacheService)
      */
     @Transactional(readOnly = true)
-    public List<TopDishReportItem> getTopDishes(LocalDate fromDate, LocalDate toDate, int limit) {
-
-        LocalDateTime from = (fromDate != null) ? fromDate.atStartOfDay() : null;
-        LocalDateTime to = (toDate != null) ? toDate.plusDays(1).atStartOfDay() : null;
-
-        List<Order> allOrders = orderRepository.findAll();
-
-        List<Order> filteredOrders = allOrders.stream()
-                .filter(o -> o.getCreatedAt() != null)
-                .filter(o -> {
-                    LocalDateTime t = o.getCreatedAt();
-                    if (from != null && t.isBefore(from)) return false;
-                    if (to != null && !t.isBefore(to)) return false;
-                    return true;
-                })
-                .toList();
-
-        if (filteredOrders.isEmpty()) return Collections.emptyList();
-
-        // Lấy list orderId
-        Set<Long> orderIds = filteredOrders.stream()
-                .map(Order::getId)
-                .collect(Collectors.toSet());
-
-        // Lấy toàn bộ OrderItem thuộc các order đó
-        List<OrderItem> relatedItems = orderItemRepository.findAll().stream()
-                .filter(i -> i.getOrder() != null && orderIds.contains(i.getOrder().getId()))
-                .toList();
-
-        if (relatedItems.isEmpty()) return Collections.emptyList();
-
-        // Gom nhóm theo dishId → tổng số lượng
-        Map<Long, Long> qtyByDish = relatedItems.stream()
-                .collect(Collectors.groupingBy(
-                        i -> i.getDish().getId(),
-                        Collectors.summingLong(OrderItem::getQuantity)
-                ));
-
-        // Lấy thông tin món ăn
-        Set<Long> dishIds = qtyByDish.keySet();
-        Map<Long, Dish> dishMap = dishRepository.findAllById(dishIds).stream()
-                .collect(Collectors.toMap(Dish::getId, d -> d));
-
-        List<TopDishReportItem> items = new ArrayList<>();
-
-        for (var entry : qtyByDish.entrySet()) {
-            Long dishId = entry.getKey();
-            Long qty = entry.getValue();
-
-            Dish dish = dishMap.get(dishId);
-            if (dish == null) continue;
-
-            BigDecimal price = dish.getPrice() != null ? dish.getPrice() : BigDecimal.ZERO;
-            BigDecimal revenue = price.multiply(BigDecimal.valueOf(qty));
-
-            items.add(
-                    TopDishReportItem.builder()
-                            .dishId(dish.getId())
-                            .dishName(dish.getName())
-                            .totalQuantity(qty)
-                            .totalRevenue(revenue)
-                            .build()
-            );
-        }
-
-        // Sắp xếp theo số lượng giảm dần, nếu bằng nhau thì theo doanh thu
-        items.sort(
-                Comparator.comparing(TopDishReportItem::getTotalQuantity).reversed()
-                        .thenComparing(TopDishReportItem::getTotalRevenue).reversed()
-        );
-
-        if (limit > 0 && items.size() > limit) {
-            return items.subList(0, limit);
-        }
-        return items;
+    public List<TopDishReportItem> getTopDishes(LocalDate fromDate, LocalDate toDate, int limit,
+                                                boolean excludeCanceled) {
+        return reportCacheService.getTopDishes(fromDate, toDate, limit, excludeCanceled);
     }
 
     // ==================================================================
@@ -266,60 +157,13 @@ public class ReportService {
     /**
      * Báo cáo nguyên liệu TIÊU HAO theo khoảng ngày.
      * --------------------------------------------------------------
-     * - Dữ liệu lấy từ StockEntry
-     * - Chỉ lấy quantity < 0 (xuất kho / tiêu hao)
+     * - Đọc từ bảng tổng hợp daily_ingredient_movement (cột quantity_out)
+     * - Chỉ tính StockEntry quantity < 0 (xuất kho / tiêu hao)
      * - totalUsed trả về là số dương (abs)
      */
     @Transactional(readOnly = true)
     public List<IngredientUsageReportItem> getIngredientUsageReport(LocalDate fromDate, LocalDate toDate) {
-
-        LocalDateTime from = (fromDate != null) ? fromDate.atStartOfDay() : null;
-        LocalDateTime to = (toDate != null) ? toDate.plusDays(1).atStartOfDay() : null;
-
-        List<StockEntry> entries = stockEntryRepository.findAll();
-
-        List<StockEntry> filtered = entries.stream()
-                .filter(e -> e.getQuantity() != null && e.getQuantity().compareTo(BigDecimal.ZERO) < 0)
-                .filter(e -> {
-                    LocalDateTime t = e.getCreatedAt();
-                    if (from != null && t.isBefore(from)) return false;
-                    if (to != null && !t.isBefore(to)) return false;
-                    return true;
-                })
-                .toList();
-
-        if (filtered.isEmpty()) return Collections.emptyList();
-
-        // Tổng số lượng dùng theo ingredientId
-        Map<Long, BigDecimal> totalByIngredient = new HashMap<>();
-
-        for (StockEntry e : filtered) {
-            Ingredient ing = e.getIngredient();
-            if (ing == null) continue;
-
-            BigDecimal used = e.getQuantity().abs(); // chuyển dương
-            totalByIngredient.merge(ing.getId(), used, BigDecimal::add);
-        }
-
-        List<IngredientUsageReportItem> items = new ArrayList<>();
-
-        for (var entry : totalByIngredient.entrySet()) {
-            Ingredient ing = ingredientRepository.findById(entry.getKey()).orElse(null);
-            if (ing == null) continue;
-
-            items.add(
-                    IngredientUsageReportItem.builder()
-                            .ingredientId(ing.getId())
-                            .ingredientName(ing.getName())
-                            .unit(ing.getUnit())
-                            .totalUsed(entry.getValue())
-                            .build()
-            );
-        }
-
-        items.sort(Comparator.comparing(IngredientUsageReportItem::getTotalUsed).reversed());
-
-        return items;
+        return reportCacheService.getIngredientUsage(fromDate, toDate);
     }
 
     // ==================================================================
@@ -329,57 +173,12 @@ public class ReportService {
     /**
      * Báo cáo NHẬP KHO nguyên liệu theo khoảng ngày.
      * --------------------------------------------------------------
-     * - Lấy StockEntry có quantity > 0
-     * - Group theo ingredientId → tổng quantity nhập
+     * - Đọc từ bảng tổng hợp daily_ingredient_movement (cột quantity_in)
+     * - Chỉ tính StockEntry quantity > 0, group theo ingredientId
      */
     @Transactional(readOnly = true)
     public List<StockEntryReportItem> getStockEntryReport(LocalDate fromDate, LocalDate toDate) {
-
-        LocalDateTime from = (fromDate != null) ? fromDate.atStartOfDay() : null;
-        LocalDateTime to = (toDate != null) ? toDate.plusDays(1).atStartOfDay() : null;
-
-        List<StockEntry> entries = stockEntryRepository.findAll();
-
-        List<StockEntry> filtered = entries.stream()
-                .filter(e -> e.getQuantity() != null && e.getQuantity().compareTo(BigDecimal.ZERO) > 0)
-                .filter(e -> {
-                    LocalDateTime t = e.getCreatedAt();
-                    if (from != null && t.isBefore(from)) return false;
-                    if (to != null && !t.isBefore(to)) return false;
-                    return true;
-                })
-                .toList();
-
-        if (filtered.isEmpty()) return Collections.emptyList();
-
-        Map<Long, BigDecimal> totalByIng = new HashMap<>();
-
-        for (StockEntry e : filtered) {
-            Ingredient ing = e.getIngredient();
-            if (ing == null) continue;
-
-            totalByIng.merge(ing.getId(), e.getQuantity(), BigDecimal::add);
-        }
-
-        List<StockEntryReportItem> items = new ArrayList<>();
-
-        for (var entry : totalByIng.entrySet()) {
-            Ingredient ing = ingredientRepository.findById(entry.getKey()).orElse(null);
-            if (ing == null) continue;
-
-            items.add(
-                    StockEntryReportItem.builder()
-                            .ingredientId(ing.getId())
-                            .ingredientName(ing.getName())
-                            .unit(ing.getUnit())
-                            .totalImportedAmount(entry.getValue())
-                            .build()
-            );
-        }
-
-        items.sort(Comparator.comparing(StockEntryReportItem::getTotalImportedAmount).reversed());
-
-        return items;
+        return reportCacheService.getStockEntryTotals(fromDate, toDate);
     }
 
     // ==================================================================
@@ -387,20 +186,25 @@ public class ReportService {
     // ==================================================================
 
     /**
-     * Xuất báo cáo doanh thu ra file Excel (.xlsx)
+     * Xuất báo cáo doanh thu ra file Excel (.xlsx) – ghi thẳng vào OutputStream
      * ------------------------------------------------------------------
-     * - Lấy dữ liệu báo cáo bằng getRevenueReport(from, to)
-     * - Giao cho RevenueExcelExporter xử lý phần layout + style Excel
+     * - Tổng hợp (tổng doanh thu, TB/ngày) lấy trước bằng 1 query nhỏ
+     * - Chi tiết từng ngày đọc dạng Stream (cursor theo fetchSize) → ghi
+     *   lần lượt vào SXSSF, không giữ toàn bộ danh sách / file trong RAM
+     * - Phải gọi trong transaction (cursor chỉ sống trong transaction)
+     *   → controller gọi từ StreamingResponseBody qua proxy của service
      * - Giữ đúng Rule 26: xử lý số liệu BigDecimal ở BE, FE nhận file
      */
     @Transactional(readOnly = true)
-    public byte[] exportRevenueToExcel(LocalDate from, LocalDate to) {
+    public void writeRevenueExcel(LocalDate from, LocalDate to, OutputStream out) {
 
-        // 1. Lấy dữ liệu báo cáo doanh thu theo khoảng ngày
-        RevenueReportResponse report = getRevenueReport(from, to);
+        // 1. Dòng tổng hợp (cần có trước khi ghi bảng chi tiết)
+        RevenueReportResponse report = reportQueryRepository.findRevenueTotals(from, to);
 
-        // 2. Giao cho ExcelExporter sinh file theo STYLE A
-        return revenueExcelExporter.export(report, from, to);
+        // 2. Stream chi tiết theo ngày → ExcelExporter (STYLE A)
+        try (Stream<RevenueByDayItem> items = reportQueryRepository.streamRevenueByDay(from, to)) {
+            revenueExcelExporter.export(report, items, from, to, out);
+        }
     }
 
     // ==================================================================
@@ -408,12 +212,15 @@ public class ReportService {
     // ==================================================================
 
     /**
-     * Xuất báo cáo doanh thu ra PDF.
+     * Xuất báo cáo doanh thu ra PDF (stream thẳng vào OutputStream).
+     * Giống Excel: tổng hợp query trước, chi tiết đọc theo cursor.
      */
     @Transactional(readOnly = true)
-    public byte[] exportRevenueToPdf(LocalDate from, LocalDate to) {
-        RevenueReportResponse report = getRevenueReport(from, to);
-        return revenuePdfExporter.export(report, from, to);
+    public void writeRevenuePdf(LocalDate from, LocalDate to, OutputStream out) {
+        RevenueReportResponse report = reportQueryRepository.findRevenueTotals(from, to);
+        try (Stream<RevenueByDayItem> items = reportQueryRepository.streamRevenueByDay(from, to)) {
+            revenuePdfExporter.export(report, items, from, to, out);
+        }
     }
 
     // ==================================================================
@@ -421,15 +228,16 @@ public class ReportService {
     // ==================================================================
 
     /**
-     * Xuất báo cáo TOP MÓN BÁN CHẠY ra Excel.
-     * Dùng lại dữ liệu từ getTopDishes(...)
+     * Xuất báo cáo TOP MÓN BÁN CHẠY ra Excel (stream thẳng vào OutputStream).
      */
     @Transactional(readOnly = true)
-    public byte[] exportTopDishesToExcel(LocalDate from, LocalDate to, int limit) {
-
-        List<TopDishReportItem> items = getTopDishes(from, to, limit);
+    public void writeTopDishesExcel(LocalDate from, LocalDate to, int limit, boolean excludeCanceled,
+                                    OutputStream out) {
 
-        return topDishExcelExporter.export(items, from, to);
+        try (Stream<TopDishReportItem> items =
+                     reportQueryRepository.streamTopDishes(from, to, limit, excludeCanceled)) {
+            topDishExcelExporter.export(items, from, to, out);
+        }
     }
 
 
@@ -438,14 +246,17 @@ public class ReportService {
     // ==================================================================
 
     /**
-     * Xuất báo cáo TOP MÓN BÁN CHẠY ra PDF.
+     * Xuất báo cáo TOP MÓN BÁN CHẠY ra PDF (stream thẳng vào OutputStream).
      */
     @Transactional(readOnly = true)
-    public byte[] exportTopDishesToPdf(LocalDate from, LocalDate to, int limit) {
+    public void writeTopDishesPdf(LocalDate from, LocalDate to, int limit, boolean excludeCanceled,
+                                  OutputStream out) {
 
-        List<TopDishReportItem> items = getTopDishes(from, to, limit);
-        // nếu TopDishPdfExporter của bạn đang có thêm tham số limit thì gọi export(items, from, to, limit);
-        return topDishPdfExporter.export(items, from, to);
+        TopDishReportItem totals = reportQueryRepository.findTopDishTotals(from, to, limit, excludeCanceled);
+        try (Stream<TopDishReportItem> items =
+                     reportQueryRepository.streamTopDishes(from, to, limit, excludeCanceled)) {
+            topDishPdfExporter.export(totals, items, from, to, out);
+        }
     }
 
     // ==================================================================
@@ -453,12 +264,13 @@ public class ReportService {
     // ==================================================================
 
     /**
-     * Xuất báo cáo NGUYÊN LIỆU TIÊU HAO ra Excel.
+     * Xuất báo cáo NGUYÊN LIỆU TIÊU HAO ra Excel (stream thẳng vào OutputStream).
      */
     @Transactional(readOnly = true)
-    public byte[] exportIngredientUsageToExcel(LocalDate from, LocalDate to) {
-        List<IngredientUsageReportItem> items = getIngredientUsageReport(from, to);
-        return ingredientUsageExcelExporter.export(items, from, to);
+    public void writeIngredientUsageExcel(LocalDate from, LocalDate to, OutputStream out) {
+        try (Stream<IngredientUsageReportItem> items = reportQueryRepository.streamIngredientUsage(from, to)) {
+            ingredientUsageExcelExporter.export(items, from, to, out);
+        }
     }
 
     // ==================================================================
@@ -466,13 +278,15 @@ public class ReportService {
     // ==================================================================
 
     /**
-     * Xuất báo cáo NGUYÊN LIỆU TIÊU HAO ra PDF.
+     * Xuất báo cáo NGUYÊN LIỆU TIÊU HAO ra PDF (stream thẳng vào OutputStream).
      */
     @Transactional(readOnly = true)
-    public byte[] exportIngredientUsageToPdf(LocalDate from, LocalDate to) {
+    public void writeIngredientUsagePdf(LocalDate from, LocalDate to, OutputStream out) {
 
-        List<IngredientUsageReportItem> items = getIngredientUsageReport(from, to);
-        return ingredientUsagePdfExporter.export(items, from, to);
+        BigDecimal totalUsed = reportQueryRepository.findIngredientUsageTotal(from, to);
+        try (Stream<IngredientUsageReportItem> items = reportQueryRepository.streamIngredientUsage(from, to)) {
+            ingredientUsagePdfExporter.export(totalUsed, items, from, to, out);
+        }
     }
 
     // ==================================================================
@@ -480,23 +294,26 @@ public class ReportService {
     // ==================================================================
 
     /**
-     * Xuất Excel báo cáo NHẬP KHO nguyên liệu.
+     * Xuất Excel báo cáo NHẬP KHO nguyên liệu (stream thẳng vào OutputStream).
      * Layout tách riêng, dễ nhìn (Option2).
      */
     @Transactional(readOnly = true)
-    public byte[] exportStockEntryToExcel(LocalDate from, LocalDate to) {
-        List<StockEntryReportItem> items = getStockEntryReport(from, to);
-        return stockEntryExcelExporter.export(items, from, to);
+    public void writeStockEntryExcel(LocalDate from, LocalDate to, OutputStream out) {
+        try (Stream<StockEntryReportItem> items = reportQueryRepository.streamStockEntryTotals(from, to)) {
+            stockEntryExcelExporter.export(items, from, to, out);
+        }
     }
 
     /**
-     * Xuất PDF báo cáo NHẬP KHO nguyên liệu.
+     * Xuất PDF báo cáo NHẬP KHO nguyên liệu (stream thẳng vào OutputStream).
      */
     @Transactional(readOnly = true)
-    public byte[] exportStockEntryToPdf(LocalDate from, LocalDate to) {
+    public void writeStockEntryPdf(LocalDate from, LocalDate to, OutputStream out) {
 
-        List<StockEntryReportItem> items = getStockEntryReport(from, to);
-        return stockEntryPdfExporter.export(items, from, to);
+        BigDecimal totalImported = reportQueryRepository.findStockEntryTotal(from, to);
+        try (Stream<StockEntryReportItem> items = reportQueryRepository.streamStockEntryTotals(from, to)) {
+            stockEntryPdfExporter.export(totalImported, items, from, to, out);
+        }
     }
 
     // ==================================================================
@@ -8,16 +8,17 @@ import com.restaurant.api.enums.TableStatus;
 import com.restaurant.api.repository.OrderRepository;
 import com.restaurant.api.repository.RestaurantTableRepository;
 import com.restaurant.api.dto.table.PosTableStatusResponse;
-import com.restaurant.api.entity.OrderItem;
-import com.restaurant.api.enums.OrderItemStatus;
-import com.restaurant.api.repository.OrderItemRepository;
+import com.restaurant.api.enums.PosTableChangeReason;
+import com.restaurant.api.event.TableChangedEvent;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Service xử lý nghiệp vụ cho Module 16 – Quản lý bàn.
@@ -28,7 +29,9 @@ public class RestaurantTableService {
 
     private final RestaurantTableRepository restaurantTableRepository;
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    // ✅ Bàn → order đang mở (tra trong RAM cho màn POS)
+    private final OpenOrderRegistry openOrderRegistry;
 
     /**
      * Tạo bàn mới.
@@ -67,6 +70,9 @@ public class RestaurantTableService {
                 throw new IllegalArgumentException("Tên bàn đã tồn tại, vui lòng chọn tên khác");
             }
             table.setName(request.getName());
+
+            // Đổi tên bàn → order đang mở (order_summary, KDS, POS) cập nhật tên mới
+            publishTableStructureChanged(table.getId());
         }
 
         if (request.getCapacity() != null && request.getCapacity() > 0) {
@@ -150,6 +156,8 @@ public class RestaurantTableService {
         // Đánh dấu source là MERGED và trỏ về target
         source.setStatus(TableStatus.MERGED);
         source.setMergedRootId(target.getId());
+
+        publishTableStructureChanged(source.getId(), target.getId());
     }
 
     /**
@@ -198,6 +206,21 @@ public class RestaurantTableService {
         // Cập nhật trạng thái bàn
         oldTable.setStatus(TableStatus.AVAILABLE);
         newTable.setStatus(TableStatus.OCCUPIED);
+
+        publishTableStructureChanged(oldTable.getId(), newTable.getId());
+    }
+
+    /**
+     * Phát TableChangedEvent(TABLE_STRUCTURE_CHANGED) cho các bàn bị ảnh hưởng
+     * khi order được chuyển / gộp bàn hoặc bàn đổi tên
+     * (realtime POS + read model order_summary).
+     */
+    private void publishTableStructureChanged(Long... tableIds) {
+        for (Long tableId : tableIds) {
+            applicationEventPublisher.publishEvent(
+                    new TableChangedEvent(tableId, PosTableChangeReason.TABLE_STRUCTURE_CHANGED)
+            );
+        }
     }
 
     /**
@@ -272,77 +295,69 @@ public class RestaurantTableService {
         // 1) Lấy toàn bộ bàn
         List<RestaurantTable> tables = restaurantTableRepository.findAll();
 
-        // 2) Các trạng thái order được xem là "đang mở"
-        List<OrderStatus> openStatuses = Arrays.asList(OrderStatus.NEW, OrderStatus.SERVING);
-
-        // 3) Map từng bàn → PosTableStatusResponse
+        // 2) Map từng bàn → PosTableStatusResponse
+        //    Order đang mở + thống kê món lấy từ OpenOrderRegistry (RAM),
+        //    không query order / order_item cho từng bàn
         return tables.stream()
-                .map(table -> {
-
-                    // Tìm order đang mở của bàn (nếu có)
-                    Order order = orderRepository
-                            .findFirstByTableIdAndStatusIn(table.getId(), openStatuses)
-                            .orElse(null);
-
-                    // Nếu KHÔNG có order mở → trả về thông tin bàn đơn thuần
-                    if (order == null) {
-                        return PosTableStatusResponse.builder()
-                                .tableId(table.getId())
-                                .tableName(table.getName())
-                                .status(table.getStatus().name())
-                                .capacity(table.getCapacity())
-                                .orderId(null)
-                                .orderCode(null)
-                                .orderCreatedAt(null)
-                                .totalItems(0L)
-                                .newItems(0L)
-                                .cookingItems(0L)
-                                .doneItems(0L)
-                                .waitingForPayment(false)
-                                .build();
-                    }
-
-                    // Nếu CÓ order → lấy list item để thống kê
-                    // Nếu CẦN loại bỏ món đã hủy khỏi thống kê:
-                    List<OrderItem> items = orderItemRepository.findByOrder_Id(order.getId())
-                            .stream()
-                            .filter(i -> i.getStatus() != OrderItemStatus.CANCELED)
-                            .toList();
-
-                    long total = items.size();
-
-                    long newCount = items.stream()
-                            .filter(i -> i.getStatus() == OrderItemStatus.NEW)
-                            .count();
-
-                    long cookingCount = items.stream()
-                            .filter(i -> i.getStatus() == OrderItemStatus.SENT_TO_KITCHEN
-                                    || i.getStatus() == OrderItemStatus.COOKING)
-                            .count();
-
-                    long doneCount = items.stream()
-                            .filter(i -> i.getStatus() == OrderItemStatus.DONE)
-                            .count();
-
-
-                    return PosTableStatusResponse.builder()
-                            .tableId(table.getId())
-                            .tableName(table.getName())
-                            .status(table.getStatus().name())
-                            .capacity(table.getCapacity())
-
-                            .orderId(order.getId())
-                            .orderCode(order.getOrderCode())
-                            .orderCreatedAt(order.getCreatedAt())
-
-                            .totalItems(total)
-                            .newItems(newCount)
-                            .cookingItems(cookingCount)
-                            .doneItems(doneCount)
-
-                            .waitingForPayment(order.getStatus() == OrderStatus.SERVING)
-                            .build();
-                })
+                .map(this::toPosTableStatus)
                 .toList();
     }
+
+    /**
+     * Trạng thái POS của 1 bàn (dùng cho payload realtime /topic/tables).
+     * Bàn không tồn tại → Optional.empty().
+     */
+    @Transactional(readOnly = true)
+    public Optional<PosTableStatusResponse> getPosTableStatus(Long tableId) {
+        return restaurantTableRepository.findById(tableId).map(this::toPosTableStatus);
+    }
+
+    /**
+     * Map 1 bàn → PosTableStatusResponse.
+     * Order đang mở + thống kê món lấy từ OpenOrderRegistry (RAM).
+     */
+    private PosTableStatusResponse toPosTableStatus(RestaurantTable table) {
+
+        // Tìm order đang mở của bàn (nếu có)
+        OpenOrderRegistry.OpenOrderSnapshot order = openOrderRegistry
+                .findByTable(table.getId())
+                .orElse(null);
+
+        // Nếu KHÔNG có order mở → trả về thông tin bàn đơn thuần
+        if (order == null) {
+            return PosTableStatusResponse.builder()
+                    .tableId(table.getId())
+                    .tableName(table.getName())
+                    .status(table.getStatus().name())
+                    .capacity(table.getCapacity())
+                    .orderId(null)
+                    .orderCode(null)
+                    .orderCreatedAt(null)
+                    .totalItems(0L)
+                    .newItems(0L)
+                    .cookingItems(0L)
+                    .doneItems(0L)
+                    .waitingForPayment(false)
+                    .build();
+        }
+
+        // Nếu CÓ order → thống kê món đã tính sẵn (bỏ qua món CANCELED)
+        return PosTableStatusResponse.builder()
+                .tableId(table.getId())
+                .tableName(table.getName())
+                .status(table.getStatus().name())
+                .capacity(table.getCapacity())
+
+                .orderId(order.orderId())
+                .orderCode(order.orderCode())
+                .orderCreatedAt(order.createdAt())
+
+                .totalItems(order.totalItems())
+                .newItems(order.newItems())
+                .cookingItems(order.cookingItems())
+                .doneItems(order.doneItems())
+
+                .waitingForPayment(order.status() == OrderStatus.SERVING)
+                .build();
+    }
 }
@@ -46,6 +46,13 @@ public class RestoreService {
     private final EntityManager entityManager;
 
     private final UserRepository userRepository;
+    private final OrderSummaryService orderSummaryService;
+    private final OpenOrderRegistry openOrderRegistry;
+    private final PartitionMaintenanceService partitionMaintenanceService;
+    private final DailyRollupService dailyRollupService;
+    private final LiveDashboardMetrics liveDashboardMetrics;
+    private final TrendingDishTracker trendingDishTracker;
+    private final KitchenBoard kitchenBoard;
 
     /**
      * restoreFromZip
@@ -112,6 +119,18 @@ public class RestoreService {
             // ====================================================
             restoreAll(entries);
 
+            // Dòng order_item thuộc tháng chưa có partition (backup cũ) → tạo partition tháng đó
+            partitionMaintenanceService.absorbDefaultPartitions();
+
+            // Dựng lại read model danh sách order, bảng tổng hợp báo cáo
+            // + registry order mở từ dữ liệu vừa restore
+            orderSummaryService.rebuild();
+            dailyRollupService.rebuildAll();
+            openOrderRegistry.rebuildAfterCommit();
+            liveDashboardMetrics.seedAfterCommit();
+            trendingDishTracker.rebuildAfterCommit();
+            kitchenBoard.rebuildAfterCommit();
+
             // ====================================================
             // 8️⃣ Ghi audit + notification
             // ====================================================
@@ -800,8 +819,8 @@ public class RestoreService {
 
         jdbcTemplate.batchUpdate(
                 "INSERT INTO invoice_item " +
-                        "(id, invoice_id, dish_id, dish_name, dish_price, quantity, subtotal, created_at) " +
-                        "VALUES (?,?,?,?,?,?,?,?)",
+                        "(id, invoice_id, dish_id, dish_name, dish_price, quantity, subtotal, canceled, created_at) " +
+                        "VALUES (?,?,?,?,?,?,?,?,?)",
                 list,
                 200,
                 (ps, it) -> {
@@ -812,7 +831,8 @@ public class RestoreService {
                     ps.setBigDecimal(5, it.getDishPrice());
                     ps.setInt(6, it.getQuantity());
                     ps.setBigDecimal(7, it.getSubtotal());
-                    ps.setObject(8, it.getCreatedAt());
+                    ps.setBoolean(8, Boolean.TRUE.equals(it.getCanceled()));
+                    ps.setObject(9, it.getCreatedAt());
                 }
         );
     }
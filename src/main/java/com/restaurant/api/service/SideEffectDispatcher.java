@@ -0,0 +1,424 @@
+package com.restaurant.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.api.dto.sideeffect.SideEffectMetricsResponse;
+import com.restaurant.api.enums.SideEffectType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SideEffectDispatcher – Hàng đợi tác vụ phụ sau commit
+ * =====================================================================
+ * Tác vụ phụ: ghi audit log, tạo thông báo (notification + 1 dòng
+ * notification_user_status cho mỗi user). Trước đây chạy đồng bộ trong
+ * transaction order / payment và thường tốn hơn chính nghiệp vụ.
+ *
+ * Luồng:
+ *  1) submit() trên thread nghiệp vụ:
+ *       - Chụp sẵn dữ liệu (JSON) → gom vào buffer của transaction hiện tại
+ *       - beforeCommit: ghi buffer vào side_effect_outbox (1 batch INSERT)
+ *         → commit cùng nghiệp vụ, rollback cùng nghiệp vụ
+ *       - afterCommit : đẩy vào hàng đợi RAM (bounded)
+ *  2) Worker (1 thread) lấy theo lô → SideEffectProcessor ghi hàng loạt
+ *     rồi xóa dòng outbox tương ứng
+ *
+ * Back-pressure / độ bền:
+ *  - Hàng đợi đầy → KHÔNG chặn thread nghiệp vụ: tác vụ đã nằm trong outbox,
+ *    chỉ bỏ khỏi RAM (deferred) và được nạp lại bởi recoverPending()
+ *  - JVM dừng đột ngột → dòng outbox còn nguyên, nạp lại khi khởi động
+ *  - Lô lỗi → xử lý lại từng tác vụ; tác vụ lỗi tăng attempts, thử lại sau
+ *  - Lỗi đủ max-attempts lần → status = DEAD: không nạp lại nữa,
+ *    giữ lại để tra lỗi, purgeDead() xóa sau dead-retention-days
+ *
+ * Cấu hình:
+ *  - side-effect.queue-capacity       (mặc định 10000)
+ *  - side-effect.batch-size           (mặc định 200)
+ *  - side-effect.max-attempts         (mặc định 5)
+ *  - side-effect.dead-retention-days  (mặc định 30)
+ * =====================================================================
+ */
+@Service
+@RequiredArgsConstructor
+public class SideEffectDispatcher {
+
+    private static final String INSERT_OUTBOX_SQL =
+            "INSERT INTO side_effect_outbox (id, type, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+    // Lấy lazy: processor → NotificationRuleService → dispatcher (tránh vòng phụ thuộc)
+    private final ObjectProvider<SideEffectProcessor> processorProvider;
+
+    @Value("${side-effect.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${side-effect.batch-size:200}")
+    private int batchSize;
+
+    @Value("${side-effect.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${side-effect.dead-retention-days:30}")
+    private int deadRetentionDays;
+
+    /** 1 tác vụ phụ (payload đã là JSON) */
+    public record SideEffectTask(UUID id, SideEffectType type, String payload, LocalDateTime createdAt) {}
+
+    private BlockingQueue<SideEffectTask> queue;
+
+    /** Id đang nằm trong RAM / đang xử lý → recoverPending không nạp trùng */
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    private TransactionTemplate outboxTx;
+    private Thread worker;
+    private volatile boolean running;
+
+    // Metrics
+    private final AtomicLong enqueuedTotal = new AtomicLong();
+    private final AtomicLong processedTotal = new AtomicLong();
+    private final AtomicLong failedTotal = new AtomicLong();
+    private final AtomicLong deadTotal = new AtomicLong();
+    private final AtomicLong deferredTotal = new AtomicLong();
+    private final AtomicLong batchesTotal = new AtomicLong();
+    private volatile long lastBatchLagMs;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        outboxTx = new TransactionTemplate(transactionManager);
+        outboxTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        running = true;
+        worker = new Thread(this::runWorker, "side-effect-worker");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Dừng worker khi tắt ứng dụng:
+     *  - Cho worker xử lý nốt lô đang chạy (tối đa 10 giây)
+     *  - Tác vụ còn trong RAM vẫn nằm trong outbox → xử lý ở lần khởi động sau
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    // =====================================================================
+    // 1. NHẬN TÁC VỤ (thread nghiệp vụ)
+    // =====================================================================
+
+    /**
+     * Đăng ký 1 tác vụ phụ.
+     * - Trong transaction ghi được: chạy sau khi commit (rollback → bỏ)
+     * - Ngoài transaction / transaction read-only: ghi outbox ngay rồi chạy
+     *
+     * @param type    loại tác vụ
+     * @param payload dữ liệu đã chụp sẵn (serialize JSON ngay tại đây)
+     */
+    public void submit(SideEffectType type, Object payload) {
+        SideEffectTask task;
+        try {
+            task = new SideEffectTask(
+                    UUID.randomUUID(),
+                    type,
+                    objectMapper.writeValueAsString(payload),
+                    LocalDateTime.now()
+            );
+        } catch (Exception e) {
+            System.err.println("❌ Không serialize được tác vụ " + type + ": " + e.getMessage());
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            currentTransactionBuffer().add(task);
+            return;
+        }
+
+        outboxTx.executeWithoutResult(status -> insertOutbox(List.of(task)));
+        enqueue(task);
+    }
+
+    /**
+     * Buffer tác vụ của transaction hiện tại
+     * (tạo mới + đăng ký TransactionSynchronization ở lần submit đầu tiên).
+     */
+    private TxBuffer currentTransactionBuffer() {
+        TxBuffer buffer = (TxBuffer) TransactionSynchronizationManager.getResource(this);
+        if (buffer == null) {
+            buffer = new TxBuffer();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Buffer theo transaction:
+     *  - beforeCommit: ghi outbox (1 batch INSERT, trong transaction nghiệp vụ)
+     *  - afterCommit : đẩy vào hàng đợi RAM
+     *  - Tác vụ submit SAU beforeCommit (từ listener BEFORE_COMMIT khác)
+     *    được ghi outbox ngay lúc add
+     */
+    private class TxBuffer implements TransactionSynchronization {
+
+        private final List<SideEffectTask> tasks = new ArrayList<>();
+        private boolean flushed;
+
+        void add(SideEffectTask task) {
+            tasks.add(task);
+            if (flushed) {
+                insertOutbox(List.of(task));
+            }
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            insertOutbox(tasks);
+            flushed = true;
+        }
+
+        @Override
+        public void afterCommit() {
+            tasks.forEach(SideEffectDispatcher.this::enqueue);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(SideEffectDispatcher.this);
+        }
+    }
+
+    private void insertOutbox(List<SideEffectTask> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_OUTBOX_SQL, tasks, tasks.size(), (ps, t) -> {
+            ps.setObject(1, t.id());
+            ps.setString(2, t.type().name());
+            ps.setString(3, t.payload());
+            ps.setTimestamp(4, Timestamp.valueOf(t.createdAt()));
+        });
+    }
+
+    /**
+     * Đẩy vào hàng đợi RAM, không bao giờ chặn caller.
+     * Đầy → để lại trong outbox (recoverPending sẽ nạp lại).
+     */
+    private void enqueue(SideEffectTask task) {
+        enqueuedTotal.incrementAndGet();
+        if (!inFlight.add(task.id())) {
+            return;
+        }
+        if (!queue.offer(task)) {
+            inFlight.remove(task.id());
+            deferredTotal.incrementAndGet();
+        }
+    }
+
+    // =====================================================================
+    // 2. WORKER
+    // =====================================================================
+
+    private void runWorker() {
+        List<SideEffectTask> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                SideEffectTask first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                processBatch(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    // Đang tắt ứng dụng: phần còn lại nằm trong outbox
+                    return;
+                }
+            } catch (Exception e) {
+                System.err.println("❌ Lỗi worker tác vụ phụ: " + e.getMessage());
+            } finally {
+                batch.forEach(t -> inFlight.remove(t.id()));
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Xử lý 1 lô:
+     *  - Thử ghi cả lô trong 1 transaction
+     *  - Lỗi → xử lý lại từng tác vụ để 1 tác vụ hỏng không chặn cả lô
+     */
+    private void processBatch(List<SideEffectTask> batch) {
+        SideEffectProcessor processor = processorProvider.getObject();
+        try {
+            processor.process(batch);
+            processedTotal.addAndGet(batch.size());
+        } catch (Exception batchError) {
+            for (SideEffectTask task : batch) {
+                try {
+                    processor.process(List.of(task));
+                    processedTotal.incrementAndGet();
+                } catch (Exception e) {
+                    failedTotal.incrementAndGet();
+                    markFailed(task, e);
+                }
+            }
+        }
+        batchesTotal.incrementAndGet();
+
+        LocalDateTime oldest = batch.stream()
+                .map(SideEffectTask::createdAt)
+                .min(Comparator.naturalOrder())
+                .orElse(LocalDateTime.now());
+        lastBatchLagMs = ChronoUnit.MILLIS.between(oldest, LocalDateTime.now());
+    }
+
+    /**
+     * Ghi nhận 1 lần xử lý lỗi.
+     * Lần lỗi thứ maxAttempts → chuyển DEAD (recoverPending không nạp lại nữa).
+     */
+    private void markFailed(SideEffectTask task, Exception e) {
+        System.err.println("❌ Lỗi xử lý tác vụ " + task.type() + " " + task.id() + ": " + e.getMessage());
+        try {
+            List<String> status = jdbcTemplate.queryForList("""
+                            UPDATE side_effect_outbox
+                            SET attempts   = attempts + 1,
+                                last_error = ?,
+                                status     = CASE WHEN attempts + 1 >= ? THEN 'DEAD' ELSE status END,
+                                dead_at    = CASE WHEN attempts + 1 >= ? THEN NOW() ELSE dead_at END
+                            WHERE id = ?
+                              AND status = 'PENDING'
+                            RETURNING status
+                            """,
+                    String.class,
+                    String.valueOf(e.getMessage()), maxAttempts, maxAttempts, task.id()
+            );
+            if (status.contains("DEAD")) {
+                deadTotal.incrementAndGet();
+                System.err.println("❌ Tác vụ " + task.type() + " " + task.id()
+                        + " lỗi " + maxAttempts + " lần → chuyển DEAD, không thử lại");
+            }
+        } catch (Exception ignored) {
+            // Không ghi được lỗi → dòng outbox vẫn còn, sẽ thử lại
+        }
+    }
+
+    // =====================================================================
+    // 3. NẠP LẠI TỪ OUTBOX
+    // =====================================================================
+
+    /**
+     * Nạp lại các dòng outbox chưa xử lý (JVM dừng giữa chừng, hàng đợi đầy,
+     * lần trước lỗi). Chỉ lấy dòng cũ hơn olderThanSeconds để không tranh
+     * với tác vụ vừa commit đang trên đường vào hàng đợi.
+     *
+     * @return Số tác vụ được nạp lại
+     */
+    public int recoverPending(int olderThanSeconds) {
+        int free = queue.remainingCapacity();
+        if (free == 0) {
+            return 0;
+        }
+
+        List<SideEffectTask> tasks = jdbcTemplate.query("""
+                        SELECT id, type, payload, created_at
+                        FROM side_effect_outbox
+                        WHERE status = 'PENDING'
+                          AND created_at < ?
+                        ORDER BY created_at
+                        LIMIT ?
+                        """,
+                (rs, i) -> new SideEffectTask(
+                        rs.getObject("id", UUID.class),
+                        SideEffectType.valueOf(rs.getString("type")),
+                        rs.getString("payload"),
+                        rs.getTimestamp("created_at").toLocalDateTime()
+                ),
+                Timestamp.valueOf(LocalDateTime.now().minusSeconds(olderThanSeconds)),
+                free
+        );
+
+        int recovered = 0;
+        for (SideEffectTask task : tasks) {
+            if (inFlight.add(task.id())) {
+                if (!queue.offer(task)) {
+                    inFlight.remove(task.id());
+                    break;
+                }
+                recovered++;
+            }
+        }
+        return recovered;
+    }
+
+    /**
+     * Xóa dòng DEAD đã quá side-effect.dead-retention-days.
+     * Dòng PENDING không bao giờ bị xóa ở đây (chưa xử lý xong = chưa được mất).
+     *
+     * @return Số dòng đã xóa
+     */
+    public int purgeDead() {
+        return jdbcTemplate.update(
+                "DELETE FROM side_effect_outbox WHERE status = 'DEAD' AND dead_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(deadRetentionDays))
+        );
+    }
+
+    // =====================================================================
+    // 4. METRICS
+    // =====================================================================
+
+    public SideEffectMetricsResponse getMetrics() {
+        SideEffectTask head = queue.peek();
+        Map<String, Object> outbox = jdbcTemplate.queryForMap("""
+                SELECT COUNT(*) FILTER (WHERE status = 'PENDING') AS pending,
+                       COUNT(*) FILTER (WHERE status = 'DEAD')    AS dead
+                FROM side_effect_outbox
+                """);
+
+        return SideEffectMetricsResponse.builder()
+                .queueDepth(queue.size())
+                .queueCapacity(queueCapacity)
+                .outboxPending(((Number) outbox.get("pending")).longValue())
+                .outboxDead(((Number) outbox.get("dead")).longValue())
+                .enqueuedTotal(enqueuedTotal.get())
+                .processedTotal(processedTotal.get())
+                .failedTotal(failedTotal.get())
+                .deadTotal(deadTotal.get())
+                .deferredTotal(deferredTotal.get())
+                .batchesTotal(batchesTotal.get())
+                .oldestQueuedLagMs(head != null
+                        ? ChronoUnit.MILLIS.between(head.createdAt(), LocalDateTime.now())
+                        : 0)
+                .lastBatchLagMs(lastBatchLagMs)
+                .build();
+    }
+}
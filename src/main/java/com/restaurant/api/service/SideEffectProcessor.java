@@ -0,0 +1,91 @@
+package com.restaurant.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.api.dto.sideeffect.AuditLogSideEffect;
+import com.restaurant.api.dto.sideeffect.NotificationSideEffect;
+import com.restaurant.api.enums.SideEffectType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SideEffectProcessor
+ * =====================================================================
+ * Ghi HÀNG LOẠT 1 lô tác vụ phụ lấy từ SideEffectDispatcher:
+ *  - AUDIT_LOG    : 1 batch INSERT vào audit_log (user lấy theo username ngay trong SQL)
+ *  - NOTIFICATION : NotificationRuleService.pushAll (bật/tắt rule + chống spam + tạo)
+ *  - Xóa các dòng side_effect_outbox tương ứng (trước khi ghi – chống xử lý trùng)
+ *
+ * Toàn bộ lô chạy trong 1 transaction: lỗi → rollback cả lô,
+ * dispatcher sẽ xử lý lại từng tác vụ.
+ * =====================================================================
+ */
+@Service
+@RequiredArgsConstructor
+public class SideEffectProcessor {
+
+    private static final String INSERT_AUDIT_SQL = """
+            INSERT INTO audit_log (user_id, action, entity, entity_id, before_data, after_data,
+                                   ip_address, user_agent, created_at)
+            VALUES ((SELECT u.id FROM app_user u WHERE u.username = ?), ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final NotificationRuleService notificationRuleService;
+
+    @Transactional
+    public void process(List<SideEffectDispatcher.SideEffectTask> tasks) throws Exception {
+        // Xóa dòng outbox TRƯỚC: tác vụ nào không còn dòng (đã được lô khác xử lý) → bỏ qua
+        // → không ghi trùng audit / notification khi cùng tác vụ bị nạp 2 lần
+        int[] deleted = jdbcTemplate.batchUpdate(
+                "DELETE FROM side_effect_outbox WHERE id = ?",
+                tasks.stream().map(t -> new Object[]{t.id()}).toList()
+        );
+
+        List<AuditLogSideEffect> audits = new ArrayList<>();
+        List<NotificationSideEffect> notifications = new ArrayList<>();
+
+        for (int i = 0; i < tasks.size(); i++) {
+            if (deleted[i] == 0) {
+                continue;
+            }
+            SideEffectDispatcher.SideEffectTask task = tasks.get(i);
+            if (task.type() == SideEffectType.AUDIT_LOG) {
+                audits.add(objectMapper.readValue(task.payload(), AuditLogSideEffect.class));
+            } else if (task.type() == SideEffectType.NOTIFICATION) {
+                notifications.add(objectMapper.readValue(task.payload(), NotificationSideEffect.class));
+            }
+        }
+
+        insertAuditLogs(audits);
+        notificationRuleService.pushAll(notifications);
+    }
+
+    private void insertAuditLogs(List<AuditLogSideEffect> audits) {
+        if (audits.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_AUDIT_SQL, audits, audits.size(), (ps, a) -> {
+            ps.setString(1, a.getUsername());
+            ps.setString(2, a.getAction().name());
+            ps.setString(3, a.getEntity());
+            if (a.getEntityId() != null) {
+                ps.setLong(4, a.getEntityId());
+            } else {
+                ps.setNull(4, Types.BIGINT);
+            }
+            ps.setString(5, a.getBeforeData());
+            ps.setString(6, a.getAfterData());
+            ps.setString(7, a.getIpAddress());
+            ps.setString(8, a.getUserAgent());
+            ps.setTimestamp(9, Timestamp.valueOf(a.getCreatedAt()));
+        });
+    }
+}
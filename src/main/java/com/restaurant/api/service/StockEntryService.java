@@ -18,6 +18,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -26,6 +27,8 @@ import java.util.stream.Collectors;
  * Xử lý nghiệp vụ nhập kho và điều chỉnh kho nguyên liệu:
  *  - Nhập kho bình thường (chỉ cho số dương)
  *  - Điều chỉnh kho (cho phép số âm/dương, nhưng không cho tồn < 0)
+ *  - Tồn kho thay đổi bằng UPDATE tương đối (IngredientRepository.applyStock*),
+ *    không read-modify-write trên entity
  *  - Lấy danh sách lịch sử nhập kho / điều chỉnh
  *  - Lọc lịch sử theo khoảng ngày
  * ----------------------------------------------------------
@@ -39,6 +42,7 @@ public class StockEntryService {
     private final IngredientRepository ingredientRepository;
     private final NotificationService notificationService;
     private final AuditLogService auditLogService;
+    private final DailyRollupService dailyRollupService;
 
     /**
      * Lấy toàn bộ lịch sử nhập kho / điều chỉnh,
@@ -85,10 +89,8 @@ public class StockEntryService {
         Ingredient ingredient = ingredientRepository.findById(req.getIngredientId())
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy nguyên liệu"));
 
-        // Cộng tồn kho
-        BigDecimal newStock = ingredient.getStockQuantity().add(req.getQuantity());
-        ingredient.setStockQuantity(newStock);
-        ingredientRepository.save(ingredient);
+        // Cộng tồn kho bằng UPDATE tương đối (không mất cập nhật khi có order trừ kho song song)
+        ingredientRepository.applyStockDeltas(Map.of(ingredient.getId(), req.getQuantity()));
 
         // Lưu phiếu nhập kho
         StockEntry entry = StockEntry.builder()
@@ -98,6 +100,7 @@ public class StockEntryService {
                 .build();
 
         StockEntry saved = stockEntryRepository.save(entry);
+        dailyRollupService.recordStockMovement(saved.getCreatedAt(), ingredient.getId(), req.getQuantity());
 
         // =====================================================================
         // GỬI THÔNG BÁO: Nhập kho nguyên liệu
@@ -124,7 +127,7 @@ public class StockEntryService {
     /**
      * Điều chỉnh kho:
      * - Cho phép quantity âm hoặc dương, nhưng != 0
-     * - Tính tồn kho mới = tồn hiện tại + quantity
+     * - Tồn kho mới = tồn hiện tại + quantity (tính ngay trong câu UPDATE)
      * - Nếu tồn mới < 0 → báo lỗi
      */
     @Transactional
@@ -137,16 +140,10 @@ public class StockEntryService {
         Ingredient ingredient = ingredientRepository.findById(req.getIngredientId())
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy nguyên liệu"));
 
-        BigDecimal currentStock = ingredient.getStockQuantity() != null ? ingredient.getStockQuantity() : BigDecimal.ZERO;
-        BigDecimal newStock = currentStock.add(req.getQuantity());
-
-        if (newStock.compareTo(BigDecimal.ZERO) < 0) {
-            throw new RuntimeException("Tồn kho không đủ để điều chỉnh, không được âm");
-        }
-
-        // Cập nhật tồn kho mới
-        ingredient.setStockQuantity(newStock);
-        ingredientRepository.save(ingredient);
+        // Kiểm tra "tồn mới không âm" và cập nhật trong CÙNG 1 câu UPDATE
+        // → không bị order trừ kho song song chen vào giữa lúc kiểm tra và lúc ghi
+        ingredientRepository.applyStockDeltaIfNotNegative(ingredient.getId(), req.getQuantity())
+                .orElseThrow(() -> new RuntimeException("Tồn kho không đủ để điều chỉnh, không được âm"));
 
         // Lưu phiếu điều chỉnh
         String note = req.getNote();
@@ -161,6 +158,7 @@ public class StockEntryService {
                 .build();
 
         StockEntry saved = stockEntryRepository.save(entry);
+        dailyRollupService.recordStockMovement(saved.getCreatedAt(), ingredient.getId(), req.getQuantity());
 
         // =====================================================================
         // GỬI THÔNG BÁO: Điều chỉnh kho nguyên liệu
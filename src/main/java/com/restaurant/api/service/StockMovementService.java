@@ -0,0 +1,139 @@
+package com.restaurant.api.service;
+
+import com.restaurant.api.entity.Order;
+import com.restaurant.api.entity.OrderItem;
+import com.restaurant.api.entity.RecipeItem;
+import com.restaurant.api.repository.IngredientRepository;
+import com.restaurant.api.repository.RecipeItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * StockMovementService – Engine tiêu hao / hoàn kho theo order
+ * ------------------------------------------------------------
+ * Thay cho vòng lặp cũ trong OrderService (mỗi dòng order → query recipe,
+ * mỗi nguyên liệu → 1 lần save Ingredient + 1 lần save StockEntry).
+ *
+ * Cách làm mới:
+ *  1) Gom số lượng theo món (1 món có thể xuất hiện ở nhiều dòng order)
+ *  2) Load định lượng của TẤT CẢ món trong 1 query
+ *  3) Cộng dồn delta theo từng nguyên liệu
+ *  4) Mỗi nguyên liệu chỉ cập nhật tồn kho 1 lần, bằng UPDATE tương đối
+ *     (IngredientRepository.applyStockDeltas – theo thứ tự id, không mất cập nhật
+ *     khi nhiều order cùng trừ 1 nguyên liệu)
+ *  5) Ghi toàn bộ StockEntry bằng 1 JDBC batch
+ *     (IDENTITY id nên Hibernate không batch insert được → dùng JdbcTemplate)
+ *  6) Cộng delta vào bảng tổng hợp daily_ingredient_movement (DailyRollupService)
+ *
+ * Lưu ý:
+ *  - Mỗi order ghi 1 StockEntry cho mỗi nguyên liệu (đã cộng dồn),
+ *    không còn tách theo từng dòng món như trước.
+ *  - Chạy trong transaction của nghiệp vụ gọi tới (createOrder, cancel, delete...)
+ * ------------------------------------------------------------
+ * Tất cả comment tuân theo Rule 13 (viết tiếng Việt đầy đủ).
+ */
+@Service
+@RequiredArgsConstructor
+public class StockMovementService {
+
+    private static final String INSERT_STOCK_ENTRY_SQL =
+            "INSERT INTO stock_entry (ingredient_id, quantity, note, created_at) VALUES (?, ?, ?, ?)";
+
+    private final RecipeItemRepository recipeItemRepository;
+    private final IngredientRepository ingredientRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final DailyRollupService dailyRollupService;
+
+    /**
+     * Tiêu hao nguyên liệu cho order (StockEntry quantity âm).
+     */
+    @Transactional
+    public void consumeForOrder(Order order, List<OrderItem> orderItems) {
+        applyForOrder(orderItems, BigDecimal.ONE.negate(),
+                "Tiêu hao nguyên liệu cho order " + order.getOrderCode());
+    }
+
+    /**
+     * Hoàn kho khi hủy / xóa order (StockEntry quantity dương).
+     */
+    @Transactional
+    public void restoreForOrder(Order order, List<OrderItem> orderItems) {
+        applyForOrder(orderItems, BigDecimal.ONE,
+                "Hoàn kho do hủy/xóa order " + order.getOrderCode());
+    }
+
+    // =================================================================
+    // HÀM NỘI BỘ
+    // =================================================================
+
+    /**
+     * Tính delta theo nguyên liệu rồi áp dụng 1 lần cho mỗi nguyên liệu.
+     *
+     * @param orderItems Danh sách món của order
+     * @param sign       -1 = tiêu hao, +1 = hoàn kho
+     * @param note       Ghi chú cho StockEntry
+     */
+    private void applyForOrder(List<OrderItem> orderItems, BigDecimal sign, String note) {
+        if (orderItems == null || orderItems.isEmpty()) {
+            return;
+        }
+
+        // 1) Gom số lượng theo món
+        Map<Long, Integer> qtyByDish = new HashMap<>();
+        for (OrderItem item : orderItems) {
+            if (item.getDish() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                continue;
+            }
+            qtyByDish.merge(item.getDish().getId(), item.getQuantity(), Integer::sum);
+        }
+
+        if (qtyByDish.isEmpty()) {
+            return;
+        }
+
+        // 2) Load định lượng của tất cả món trong 1 query
+        List<RecipeItem> recipes = recipeItemRepository.findByDishIdIn(qtyByDish.keySet());
+
+        // 3) Cộng dồn delta theo nguyên liệu (TreeMap → thứ tự id tăng dần, ổn định)
+        Map<Long, BigDecimal> deltaByIngredient = new TreeMap<>();
+
+        for (RecipeItem r : recipes) {
+            Integer dishQty = qtyByDish.get(r.getDish().getId());
+
+            BigDecimal delta = r.getQuantity()
+                    .multiply(BigDecimal.valueOf(dishQty))
+                    .multiply(sign);
+
+            deltaByIngredient.merge(r.getIngredient().getId(), delta, BigDecimal::add);
+        }
+
+        // Bỏ các nguyên liệu có delta = 0
+        deltaByIngredient.values().removeIf(d -> d.signum() == 0);
+
+        if (deltaByIngredient.isEmpty()) {
+            return;
+        }
+
+        // 4) Cập nhật tồn kho: mỗi nguyên liệu đúng 1 lần (UPDATE tương đối)
+        ingredientRepository.applyStockDeltas(deltaByIngredient);
+
+        // 5) Ghi StockEntry bằng 1 JDBC batch
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp createdAt = Timestamp.valueOf(now);
+        List<Object[]> rows = new ArrayList<>(deltaByIngredient.size());
+        for (Map.Entry<Long, BigDecimal> e : deltaByIngredient.entrySet()) {
+            rows.add(new Object[]{e.getKey(), e.getValue(), note, createdAt});
+        }
+        jdbcTemplate.batchUpdate(INSERT_STOCK_ENTRY_SQL, rows);
+
+        // 6) Cộng vào bảng tổng hợp nhập / xuất theo ngày
+        dailyRollupService.recordStockMovements(now, deltaByIngredient);
+    }
+}
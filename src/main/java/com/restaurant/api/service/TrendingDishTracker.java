@@ -0,0 +1,366 @@
+package com.restaurant.api.service;
+
+import com.restaurant.api.dto.dashboard.TrendingDishResponse;
+import com.restaurant.api.enums.TrendingWindow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * TrendingDishTracker – Món đang bán chạy theo thời gian thực
+ * =====================================================================
+ * DashboardService.getTopDishes xếp hạng trên TOÀN BỘ lịch sử bán hàng
+ * → không phản ánh món "đang hot" lúc này.
+ *
+ * Tracker giữ trong RAM các bản tóm tắt Space-Saving (heavy hitters):
+ *  - Mỗi bản tóm tắt giữ TỐI ĐA capacity món (dashboard.trending.capacity)
+ *  - Món mới tới khi đã đầy → thay món có số đếm nhỏ nhất,
+ *    món mới nhận số đếm = min + quantity, sai số = min
+ *  - Thực đơn nhỏ hơn capacity → kết quả chính xác tuyệt đối
+ *
+ * Sai số:
+ *  - 1 bản tóm tắt (TODAY): số đếm chỉ có thể DƯ, tối đa "overestimate"
+ *    (≤ tổng số lượng của ngày / capacity)
+ *  - Gộp nhiều phút (15 phút / 1 giờ): món bị đẩy khỏi 1 ô phút thì phút đó
+ *    tính 0 → có thể THIẾU tối đa số đếm nhỏ nhất của ô đó (cộng vào
+ *    "underestimate"); các ô còn giữ món vẫn có thể DƯ ("overestimate").
+ *    Số thật nằm trong [quantity - overestimate, quantity + underestimate],
+ *    sai số 2 phía cộng lại ≤ tổng số lượng trong khung / capacity
+ *
+ * Cửa sổ thời gian:
+ *  - 60 bản tóm tắt theo phút (vòng, ô = epochMinute % 60)
+ *      + 15 phút  → gộp 15 ô gần nhất
+ *      + 1 giờ    → gộp 60 ô
+ *  - 1 bản tóm tắt cho cả ngày hôm nay (thay mới khi qua ngày)
+ *  → Bộ nhớ và chi phí truy vấn cố định (≤ 60 × capacity phần tử),
+ *    không phụ thuộc số order / order item.
+ *
+ * Nguồn dữ liệu:
+ *  - DishesOrderedEvent SAU KHI COMMIT (TrendingDishListener):
+ *    tạo order + sửa order gọi thêm
+ *  - Món bị hủy sau đó KHÔNG bị trừ (đo nhu cầu gọi món, không phải doanh thu)
+ *
+ * Dựng lại từ order_item (created_at ≥ đầu ngày / 60 phút trước):
+ *  - Khi ứng dụng khởi động xong (ApplicationReadyEvent)
+ *  - Sau khi restore dữ liệu (rebuildAfterCommit)
+ * =====================================================================
+ */
+@Service
+public class TrendingDishTracker {
+
+    /** Số ô phút trong vòng (cửa sổ dài nhất tính theo phút) */
+    private static final int MINUTE_SLOTS = 60;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Số món tối đa mỗi bản tóm tắt giữ lại */
+    private final int capacity;
+
+    private volatile AtomicReferenceArray<SpaceSaving> minutes = new AtomicReferenceArray<>(MINUTE_SLOTS);
+
+    private final AtomicReference<SpaceSaving> today = new AtomicReference<>();
+
+    /** dishId → tên món (để trả về không cần query DB) */
+    private final Map<Long, String> dishNames = new ConcurrentHashMap<>();
+
+    /**
+     * record() giữ read lock (nhiều luồng ghi song song), rebuild() giữ write lock:
+     * ghi nhận tới trong lúc dựng lại phải chờ rồi ghi vào bản MỚI
+     * (không rơi vào bản cũ sắp bị thay → không mất dữ liệu).
+     * Đánh đổi: món commit ngay trước lúc dựng lại có thể được đếm 2 lần
+     * (đã có trong DB lúc đọc + ghi nhận tới sau khi dựng xong).
+     */
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready = false;
+
+    public TrendingDishTracker(JdbcTemplate jdbcTemplate,
+                               @Value("${dashboard.trending.capacity:64}") int capacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.capacity = Math.max(capacity, 8);
+    }
+
+    // =====================================================================
+    // 1. GHI NHẬN (gọi sau commit)
+    // =====================================================================
+
+    /**
+     * Ghi nhận 1 món được gọi.
+     * Thời điểm quá cũ (ngoài 60 phút / không phải hôm nay) → bỏ qua phần tương ứng.
+     */
+    public void record(Long dishId, String dishName, long quantity, LocalDateTime at) {
+        if (dishId == null || quantity <= 0 || at == null) {
+            return;
+        }
+        if (dishName != null) {
+            dishNames.put(dishId, dishName);
+        }
+        rebuildLock.readLock().lock();
+        try {
+            recordInto(minutes, today, dishId, quantity, at, LocalDateTime.now());
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void recordInto(AtomicReferenceArray<SpaceSaving> minuteRing,
+                            AtomicReference<SpaceSaving> dayRef,
+                            Long dishId, long quantity,
+                            LocalDateTime at, LocalDateTime now) {
+
+        long minute = epochMinute(at);
+        long nowMinute = epochMinute(now);
+        if (minute > nowMinute - MINUTE_SLOTS && minute <= nowMinute) {
+            SpaceSaving s = summaryFor(minuteRing, (int) Math.floorMod(minute, (long) MINUTE_SLOTS), minute);
+            if (s != null) {
+                s.add(dishId, quantity);
+            }
+        }
+
+        long day = at.toLocalDate().toEpochDay();
+        if (day == now.toLocalDate().toEpochDay()) {
+            SpaceSaving s = summaryFor(dayRef, day);
+            if (s != null) {
+                s.add(dishId, quantity);
+            }
+        }
+    }
+
+    // =====================================================================
+    // 2. TRUY VẤN
+    // =====================================================================
+
+    /**
+     * Top N món được gọi nhiều nhất trong khung thời gian.
+     */
+    public List<TrendingDishResponse> top(TrendingWindow window, int limit) {
+        if (!ready) {
+            rebuild();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, long[]> merged = new HashMap<>();
+        long totalFloor = 0; // Tổng "số đếm tối thiểu" của các bản tóm tắt đã gộp
+
+        if (window == TrendingWindow.TODAY) {
+            SpaceSaving s = today.get();
+            if (s != null && s.tag == now.toLocalDate().toEpochDay()) {
+                totalFloor += s.mergeInto(merged);
+            }
+        } else {
+            long nowMinute = epochMinute(now);
+            AtomicReferenceArray<SpaceSaving> ring = minutes;
+            for (int i = 0; i < window.getMinutes(); i++) {
+                long minute = nowMinute - i;
+                SpaceSaving s = ring.get((int) Math.floorMod(minute, (long) MINUTE_SLOTS));
+                if (s != null && s.tag == minute) {
+                    totalFloor += s.mergeInto(merged);
+                }
+            }
+        }
+
+        int size = Math.max(limit, 1);
+        long floorSum = totalFloor;
+        return merged.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]))
+                .limit(size)
+                .map(e -> TrendingDishResponse.builder()
+                        .dishId(e.getKey())
+                        .dishName(dishNames.get(e.getKey()))
+                        .quantity(e.getValue()[0])
+                        .overestimate(e.getValue()[1])
+                        // Các bản tóm tắt KHÔNG giữ món này: thiếu tối đa floor của bản đó
+                        .underestimate(floorSum - e.getValue()[2])
+                        .build())
+                .toList();
+    }
+
+    // =====================================================================
+    // 3. DỰNG LẠI TỪ DB
+    // =====================================================================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Dựng lại toàn bộ từ order_item của hôm nay + 60 phút gần nhất
+     * (lọc theo created_at → chỉ chạm partition tháng hiện tại).
+     */
+    public void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
+            LocalDateTime hourAgo = now.minusMinutes(MINUTE_SLOTS);
+            LocalDateTime from = hourAgo.isBefore(startOfDay) ? hourAgo : startOfDay;
+
+            AtomicReferenceArray<SpaceSaving> freshMinutes = new AtomicReferenceArray<>(MINUTE_SLOTS);
+            AtomicReference<SpaceSaving> freshToday = new AtomicReference<>();
+
+            jdbcTemplate.query(
+                    "SELECT oi.dish_id, d.name, oi.quantity, oi.created_at " +
+                            "FROM order_item oi JOIN dish d ON d.id = oi.dish_id " +
+                            "WHERE oi.created_at >= ? AND oi.created_at <= ?",
+                    rs -> {
+                        long dishId = rs.getLong("dish_id");
+                        dishNames.put(dishId, rs.getString("name"));
+                        recordInto(freshMinutes, freshToday, dishId,
+                                rs.getLong("quantity"),
+                                rs.getTimestamp("created_at").toLocalDateTime(), now);
+                    },
+                    Timestamp.valueOf(from), Timestamp.valueOf(now)
+            );
+
+            minutes = freshMinutes;
+            today.set(freshToday.get());
+            ready = true;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Dựng lại SAU KHI transaction hiện tại commit (vd: sau restore).
+     * Không có transaction → dựng ngay.
+     */
+    public void rebuildAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rebuild();
+                }
+            });
+        } else {
+            rebuild();
+        }
+    }
+
+    // =====================================================================
+    // 4. HÀM HỖ TRỢ
+    // =====================================================================
+
+    /**
+     * Bản tóm tắt của 1 phút trong vòng:
+     *  - Ô đang giữ phút cũ hơn → thay bằng bản mới (CAS)
+     *  - Ô đã sang phút mới hơn (event tới trễ) → null
+     */
+    private SpaceSaving summaryFor(AtomicReferenceArray<SpaceSaving> ring, int slot, long tag) {
+        while (true) {
+            SpaceSaving current = ring.get(slot);
+            if (current != null && current.tag == tag) {
+                return current;
+            }
+            if (current != null && current.tag > tag) {
+                return null;
+            }
+            SpaceSaving fresh = new SpaceSaving(tag, capacity);
+            if (ring.compareAndSet(slot, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    /** Bản tóm tắt của ngày (tag = epochDay), cùng quy tắc thay thế như ô phút */
+    private SpaceSaving summaryFor(AtomicReference<SpaceSaving> ref, long tag) {
+        while (true) {
+            SpaceSaving current = ref.get();
+            if (current != null && current.tag == tag) {
+                return current;
+            }
+            if (current != null && current.tag > tag) {
+                return null;
+            }
+            SpaceSaving fresh = new SpaceSaving(tag, capacity);
+            if (ref.compareAndSet(current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static long epochMinute(LocalDateTime t) {
+        return t.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    /**
+     * Bản tóm tắt Space-Saving (Metwally et al.) cho 1 phút / 1 ngày.
+     * counters: dishId → [count, error]; tối đa capacity phần tử.
+     * Ghi ít (mỗi lần gọi món) → synchronized đơn giản là đủ.
+     */
+    private static final class SpaceSaving {
+
+        final long tag;
+        private final int capacity;
+        private final Map<Long, long[]> counters;
+
+        SpaceSaving(long tag, int capacity) {
+            this.tag = tag;
+            this.capacity = capacity;
+            this.counters = new HashMap<>(capacity * 2);
+        }
+
+        synchronized void add(Long key, long quantity) {
+            long[] c = counters.get(key);
+            if (c != null) {
+                c[0] += quantity;
+                return;
+            }
+            if (counters.size() < capacity) {
+                counters.put(key, new long[]{quantity, 0});
+                return;
+            }
+
+            // Đầy → thay món có số đếm nhỏ nhất
+            Long minKey = null;
+            long min = Long.MAX_VALUE;
+            for (Map.Entry<Long, long[]> e : counters.entrySet()) {
+                if (e.getValue()[0] < min) {
+                    min = e.getValue()[0];
+                    minKey = e.getKey();
+                }
+            }
+            counters.remove(minKey);
+            counters.put(key, new long[]{min + quantity, min});
+        }
+
+        /**
+         * Cộng dồn [count, error, floor] của bản tóm tắt này vào acc.
+         * floor = số đếm nhỏ nhất khi đã đầy (món vắng mặt có thể đã đạt tới mức này),
+         * chưa đầy → 0 (món vắng mặt chắc chắn không được gọi).
+         *
+         * @return floor của bản tóm tắt
+         */
+        synchronized long mergeInto(Map<Long, long[]> acc) {
+            long floor = 0;
+            if (counters.size() >= capacity) {
+                floor = Long.MAX_VALUE;
+                for (long[] c : counters.values()) {
+                    floor = Math.min(floor, c[0]);
+                }
+            }
+            for (Map.Entry<Long, long[]> e : counters.entrySet()) {
+                long[] a = acc.computeIfAbsent(e.getKey(), k -> new long[3]);
+                a[0] += e.getValue()[0];
+                a[1] += e.getValue()[1];
+                a[2] += floor;
+            }
+            return floor;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+-- V47__create_order_code_counter.sql
+-- ------------------------------------------------------------------
+-- Mục đích:
+--  - Bộ đếm mã order theo ngày (dùng cho DailyBlockOrderCodeGenerator)
+--  - Mỗi app instance xin 1 "block" số liên tiếp bằng 1 câu UPSERT,
+--    sau đó cấp mã trong RAM → không cần round trip DB cho từng order
+--  - Mã order dạng: ORD20261016-00042 (reset số thứ tự mỗi ngày)
+-- ------------------------------------------------------------------
+
+CREATE TABLE order_code_counter (
+    code_date  DATE   PRIMARY KEY,     -- Ngày cấp mã
+    last_value BIGINT NOT NULL          -- Số thứ tự lớn nhất đã cấp (cuối block gần nhất)
+);
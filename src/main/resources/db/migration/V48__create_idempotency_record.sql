@@ -0,0 +1,20 @@
+-- V48__create_idempotency_record.sql
+-- ------------------------------------------------------------------
+-- Mục đích:
+--  - Lưu kết quả các request POST có header Idempotency-Key
+--    (tạo order, tạo thanh toán) để request retry trả lại kết quả cũ
+--  - Là tầng fallback dùng chung giữa nhiều app instance
+--    (mỗi instance còn có cache trong RAM – IdempotencyService)
+--  - status: PROCESSING (đang xử lý) / COMPLETED (đã có response)
+-- ------------------------------------------------------------------
+
+CREATE TABLE idempotency_record (
+    idem_key      VARCHAR(300) PRIMARY KEY,   -- scope:username:key
+    request_hash  VARCHAR(64)  NOT NULL,      -- SHA-256 body request (phát hiện dùng lại key cho request khác)
+    status        VARCHAR(20)  NOT NULL,
+    response_body TEXT,                       -- JSON response (khi COMPLETED)
+    created_at    TIMESTAMP    NOT NULL DEFAULT NOW(),
+    expires_at    TIMESTAMP    NOT NULL
+);
+
+CREATE INDEX idx_idempotency_record_expires_at ON idempotency_record(expires_at);
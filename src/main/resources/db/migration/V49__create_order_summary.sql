@@ -0,0 +1,49 @@
+-- V49__create_order_summary.sql
+-- ------------------------------------------------------------------
+-- Mục đích:
+--  - Bảng read model cho màn danh sách order (POS / Admin)
+--  - Mỗi order 1 dòng đã "render sẵn": mã, tên bàn, số món, tổng tiền món
+--    còn hiệu lực, trạng thái → API danh sách chỉ đọc 1 bảng hẹp
+--  - Được cập nhật từ domain event (OrderSummaryProjectionListener)
+--    trong CÙNG transaction với thay đổi order
+--  - Có thể dựng lại toàn bộ: OrderSummaryService.rebuild()
+-- ------------------------------------------------------------------
+
+CREATE TABLE order_summary (
+    order_id     BIGINT        PRIMARY KEY,
+    order_code   VARCHAR(50)   NOT NULL,
+    table_id     BIGINT,
+    table_name   VARCHAR(50),                          -- Snapshot tên bàn
+    item_count   INT           NOT NULL DEFAULT 0,     -- Số dòng món chưa hủy
+    active_total NUMERIC(18,2) NOT NULL DEFAULT 0,     -- Tổng tiền các món chưa hủy
+    status       VARCHAR(20)   NOT NULL,
+    created_at   TIMESTAMP     NOT NULL,               -- Thời gian tạo order
+    updated_at   TIMESTAMP     NOT NULL DEFAULT NOW(), -- Lần cập nhật projection gần nhất
+
+    CONSTRAINT fk_order_summary_order
+        FOREIGN KEY (order_id) REFERENCES orders(id)
+        ON DELETE CASCADE                              -- Xóa order → xóa luôn dòng summary
+);
+
+CREATE INDEX idx_order_summary_created_at ON order_summary(created_at DESC);
+CREATE INDEX idx_order_summary_status_created_at ON order_summary(status, created_at DESC);
+CREATE INDEX idx_order_summary_table_id ON order_summary(table_id);
+
+-- Dựng dữ liệu ban đầu từ các bảng gốc
+INSERT INTO order_summary (order_id, order_code, table_id, table_name, item_count, active_total,
+                           status, created_at, updated_at)
+SELECT o.id,
+       o.order_code,
+       o.table_id,
+       t.name,
+       COUNT(oi.id) FILTER (WHERE oi.status <> 'CANCELED'),
+       COALESCE(SUM(COALESCE(oi.snapshot_price, d.price) * oi.quantity)
+                FILTER (WHERE oi.status <> 'CANCELED'), 0),
+       o.status,
+       o.created_at,
+       NOW()
+FROM orders o
+LEFT JOIN restaurant_table t ON t.id = o.table_id
+LEFT JOIN order_item oi ON oi.order_id = o.id
+LEFT JOIN dish d ON d.id = oi.dish_id
+GROUP BY o.id, t.name;
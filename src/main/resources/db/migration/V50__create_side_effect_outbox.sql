@@ -0,0 +1,21 @@
+-- V50__create_side_effect_outbox.sql
+-- ------------------------------------------------------------------
+-- Mục đích:
+--  - Hàng đợi BỀN (outbox) cho các tác vụ phụ sau nghiệp vụ chính:
+--    ghi audit log, tạo thông báo (notification + notification_user_status)
+--  - Dòng outbox được ghi trong CÙNG transaction với nghiệp vụ
+--    → nghiệp vụ commit thì tác vụ phụ chắc chắn không mất, kể cả khi JVM dừng
+--  - SideEffectDispatcher xử lý theo lô rồi XÓA dòng đã xong;
+--    dòng còn lại quá lâu sẽ được SideEffectRecoveryScheduler nạp lại
+-- ------------------------------------------------------------------
+
+CREATE TABLE side_effect_outbox (
+    id          UUID         PRIMARY KEY,            -- Sinh phía ứng dụng
+    type        VARCHAR(30)  NOT NULL,               -- AUDIT_LOG / NOTIFICATION
+    payload     TEXT         NOT NULL,               -- JSON dữ liệu tác vụ (đã chụp sẵn lúc nghiệp vụ chạy)
+    attempts    INT          NOT NULL DEFAULT 0,     -- Số lần xử lý thất bại
+    last_error  TEXT,
+    created_at  TIMESTAMP    NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_side_effect_outbox_created_at ON side_effect_outbox(created_at);
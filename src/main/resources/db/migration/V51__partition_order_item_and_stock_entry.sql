@@ -0,0 +1,198 @@
+-- V51__partition_order_item_and_stock_entry.sql
+-- ------------------------------------------------------------------
+-- Mục đích:
+--  - Chuyển order_item và stock_entry sang PostgreSQL declarative
+--    partitioning theo created_at (mỗi tháng 1 partition)
+--      + Báo cáo / dashboard "hôm nay", "tháng này" chỉ quét 1 partition
+--      + Dữ liệu quá hạn lưu trữ: DETACH partition thay vì DELETE hàng loạt
+--  - Mỗi bảng có thêm partition DEFAULT hứng dữ liệu ngoài các tháng đã tạo
+--    (VD: restore backup cũ) – ensure_monthly_partitions() sẽ chuyển dần
+--    sang partition tháng tương ứng
+--  - Bảng orders GIỮ NGUYÊN (không partition):
+--      + Là bảng cha của order_item / invoice / payment / order_summary (FK)
+--      + Có UNIQUE(order_code) toàn cục – partition sẽ bắt buộc khóa phải
+--        chứa created_at
+--      + Đã có idx_orders_created_at cho truy vấn theo ngày
+--
+-- Lưu ý:
+--  - Khóa chính đổi thành (id, created_at) vì PostgreSQL yêu cầu khóa
+--    của bảng partition chứa cột partition. JPA vẫn map @Id = id như cũ,
+--    id vẫn sinh từ sequence cũ nên không trùng.
+--  - Cần PostgreSQL 13+ (trigger BEFORE UPDATE trên bảng partition)
+--  - Bảo trì định kỳ: PartitionMaintenanceService / PartitionMaintenanceScheduler
+-- ------------------------------------------------------------------
+
+
+-- ==================================================================
+-- 1) HÀM TẠO PARTITION THEO THÁNG (dùng chung, gọi lại được nhiều lần)
+-- ------------------------------------------------------------------
+--  - p_table  : tên bảng cha (order_item / stock_entry)
+--  - p_from   : tháng bắt đầu (lấy ngày đầu tháng)
+--  - p_months : số tháng cần đảm bảo có partition
+--  - Partition đặt tên: <bảng>_YYYYMM
+--  - Nếu partition DEFAULT đang chứa dòng thuộc tháng đó → chuyển các
+--    dòng ấy sang partition mới (bắt buộc, nếu không CREATE sẽ lỗi)
+--  - Trả về số partition vừa tạo
+-- ==================================================================
+CREATE OR REPLACE FUNCTION ensure_monthly_partitions(p_table TEXT, p_from DATE, p_months INT)
+RETURNS INT
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_month     DATE := date_trunc('month', p_from)::DATE;
+    v_next      DATE;
+    v_part      TEXT;
+    v_default   TEXT := p_table || '_default';
+    v_created   INT  := 0;
+    v_has_rows  BOOLEAN;
+BEGIN
+    FOR i IN 1..p_months LOOP
+        v_next := (v_month + INTERVAL '1 month')::DATE;
+        v_part := p_table || '_' || to_char(v_month, 'YYYYMM');
+
+        IF to_regclass(v_part) IS NULL THEN
+            v_has_rows := FALSE;
+            IF to_regclass(v_default) IS NOT NULL THEN
+                EXECUTE format(
+                    'SELECT EXISTS (SELECT 1 FROM %I WHERE created_at >= %L AND created_at < %L)',
+                    v_default, v_month, v_next
+                ) INTO v_has_rows;
+            END IF;
+
+            IF v_has_rows THEN
+                -- Tạm chuyển dòng của tháng này ra khỏi partition DEFAULT
+                EXECUTE format('CREATE TEMP TABLE _partition_moved (LIKE %I) ON COMMIT DROP', p_table);
+                EXECUTE format(
+                    'WITH moved AS (DELETE FROM %I WHERE created_at >= %L AND created_at < %L RETURNING *)
+                     INSERT INTO _partition_moved SELECT * FROM moved',
+                    v_default, v_month, v_next
+                );
+            END IF;
+
+            EXECUTE format(
+                'CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                v_part, p_table, v_month, v_next
+            );
+            v_created := v_created + 1;
+
+            IF v_has_rows THEN
+                EXECUTE format('INSERT INTO %I SELECT * FROM _partition_moved', p_table);
+                DROP TABLE _partition_moved;
+            END IF;
+        END IF;
+
+        v_month := v_next;
+    END LOOP;
+
+    RETURN v_created;
+END;
+$$;
+
+
+-- ==================================================================
+-- 2) ORDER_ITEM
+-- ==================================================================
+ALTER TABLE order_item RENAME TO order_item_legacy;
+
+-- Giữ sequence cũ cho bảng mới (tránh bị DROP theo bảng legacy)
+ALTER SEQUENCE order_item_id_seq OWNED BY NONE;
+
+CREATE TABLE order_item (
+    id              BIGINT        NOT NULL DEFAULT nextval('order_item_id_seq'),
+    order_id        BIGINT        NOT NULL,               -- FK tới orders.id
+    dish_id         BIGINT        NOT NULL,               -- FK tới dish.id
+    quantity        INT           NOT NULL,
+    snapshot_price  NUMERIC(18,2),                        -- Giá món tại thời điểm order
+    status          VARCHAR(40),                          -- NEW / SENT_TO_KITCHEN / COOKING / DONE / CANCELED
+    note            TEXT,
+    created_at      TIMESTAMP     NOT NULL DEFAULT NOW(),
+    updated_at      TIMESTAMP     NOT NULL DEFAULT NOW(),
+
+    CONSTRAINT pk_order_item PRIMARY KEY (id, created_at),
+    CONSTRAINT ck_order_item_quantity_positive CHECK (quantity > 0),
+    CONSTRAINT fk_order_item_order FOREIGN KEY (order_id)
+        REFERENCES orders(id) ON DELETE CASCADE,          -- Xóa order → xóa luôn các order_item
+    CONSTRAINT fk_order_item_dish FOREIGN KEY (dish_id)
+        REFERENCES dish(id) ON DELETE RESTRICT
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE order_item_id_seq OWNED BY order_item.id;
+
+CREATE TABLE order_item_default PARTITION OF order_item DEFAULT;
+
+-- Partition từ tháng có dữ liệu cũ nhất tới 3 tháng sau tháng hiện tại
+DO $$
+DECLARE
+    v_from DATE;
+BEGIN
+    SELECT date_trunc('month', LEAST(COALESCE(MIN(created_at), NOW()), NOW()))::DATE
+    INTO v_from
+    FROM order_item_legacy;
+
+    PERFORM ensure_monthly_partitions(
+        'order_item',
+        v_from,
+        ((EXTRACT(YEAR FROM NOW()) - EXTRACT(YEAR FROM v_from)) * 12
+            + EXTRACT(MONTH FROM NOW()) - EXTRACT(MONTH FROM v_from))::INT + 4
+    );
+END $$;
+
+INSERT INTO order_item (id, order_id, dish_id, quantity, snapshot_price, status, note, created_at, updated_at)
+SELECT id, order_id, dish_id, quantity, snapshot_price, status, note, created_at, updated_at
+FROM order_item_legacy;
+
+DROP TABLE order_item_legacy;
+
+CREATE INDEX idx_order_item_order_id ON order_item(order_id);
+
+CREATE TRIGGER set_timestamp_order_item
+BEFORE UPDATE ON order_item
+FOR EACH ROW
+EXECUTE FUNCTION trigger_set_timestamp();
+
+
+-- ==================================================================
+-- 3) STOCK_ENTRY
+-- ==================================================================
+ALTER TABLE stock_entry RENAME TO stock_entry_legacy;
+
+ALTER SEQUENCE stock_entry_id_seq OWNED BY NONE;
+
+CREATE TABLE stock_entry (
+    id              BIGINT         NOT NULL DEFAULT nextval('stock_entry_id_seq'),
+    ingredient_id   BIGINT         NOT NULL,
+    quantity        NUMERIC(12,2)  NOT NULL,              -- Số lượng nhập (có thể âm nếu điều chỉnh)
+    note            TEXT,
+    created_at      TIMESTAMP      NOT NULL DEFAULT NOW(),
+
+    CONSTRAINT pk_stock_entry PRIMARY KEY (id, created_at),
+    CONSTRAINT fk_stock_entry_ingredient FOREIGN KEY (ingredient_id)
+        REFERENCES ingredient(id)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE stock_entry_id_seq OWNED BY stock_entry.id;
+
+CREATE TABLE stock_entry_default PARTITION OF stock_entry DEFAULT;
+
+-- Partition từ tháng có dữ liệu cũ nhất tới 3 tháng sau tháng hiện tại
+DO $$
+DECLARE
+    v_from DATE;
+BEGIN
+    SELECT date_trunc('month', LEAST(COALESCE(MIN(created_at), NOW()), NOW()))::DATE
+    INTO v_from
+    FROM stock_entry_legacy;
+
+    PERFORM ensure_monthly_partitions(
+        'stock_entry',
+        v_from,
+        ((EXTRACT(YEAR FROM NOW()) - EXTRACT(YEAR FROM v_from)) * 12
+            + EXTRACT(MONTH FROM NOW()) - EXTRACT(MONTH FROM v_from))::INT + 4
+    );
+END $$;
+
+INSERT INTO stock_entry (id, ingredient_id, quantity, note, created_at)
+SELECT id, ingredient_id, quantity, note, created_at
+FROM stock_entry_legacy;
+
+DROP TABLE stock_entry_legacy;
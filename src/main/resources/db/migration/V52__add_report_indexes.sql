@@ -0,0 +1,26 @@
+-- V52__add_report_indexes.sql
+-- ------------------------------------------------------------------
+-- Mục đích:
+--  - Index phục vụ các báo cáo đã chuyển sang GROUP BY trong SQL
+--    (ReportQueryRepository) – mỗi báo cáo chỉ quét đúng khoảng ngày
+--    được chọn, không phụ thuộc tổng lượng dữ liệu lịch sử
+--
+--  + invoice(paid_at) INCLUDE (total_amount)
+--      → báo cáo doanh thu theo ngày đọc được bằng index-only scan
+--  + stock_entry(created_at, ingredient_id) INCLUDE (quantity)
+--      → báo cáo tiêu hao / nhập kho (bảng đã partition theo tháng,
+--        index tạo trên bảng cha sẽ tự tạo cho từng partition)
+--  + orders(created_at): đã có sẵn idx_orders_created_at (V9)
+-- ------------------------------------------------------------------
+
+CREATE INDEX IF NOT EXISTS idx_invoice_paid_at
+    ON invoice(paid_at)
+    INCLUDE (total_amount)
+    WHERE paid_at IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_stock_entry_created_at_ingredient
+    ON stock_entry(created_at, ingredient_id)
+    INCLUDE (quantity);
+
+CREATE INDEX IF NOT EXISTS idx_orders_created_at
+    ON orders(created_at);
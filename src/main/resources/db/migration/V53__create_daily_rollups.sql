@@ -0,0 +1,66 @@
+-- V53__create_daily_rollups.sql
+-- ------------------------------------------------------------------
+-- Mục đích:
+--  - Bảng TỔNG HỢP THEO NGÀY cho báo cáo / dashboard
+--    (báo cáo 12 tháng chỉ đọc ~365 dòng thay vì toàn bộ hóa đơn):
+--      + daily_revenue             : doanh thu + số hóa đơn theo ngày thanh toán
+--      + daily_dish_sales          : số lượng + doanh thu theo món, theo ngày thanh toán
+--                                    (lấy từ invoice_item – giá snapshot lúc thanh toán)
+--      + daily_ingredient_movement : tổng nhập / xuất kho theo nguyên liệu, theo ngày
+--  - Được cộng dồn TRONG CÙNG transaction với nghiệp vụ gốc
+--    (DailyRollupService: tạo hóa đơn, ghi stock_entry)
+--  - Dựng lại 1 khoảng ngày bất kỳ từ bảng gốc: DailyRollupService.rebuild(from, to)
+--    (POST /api/reports/rollups/rebuild)
+-- ------------------------------------------------------------------
+
+CREATE TABLE daily_revenue (
+    day             DATE           PRIMARY KEY,
+    revenue         NUMERIC(18,2)  NOT NULL DEFAULT 0,   -- Tổng invoice.total_amount
+    invoice_count   BIGINT         NOT NULL DEFAULT 0,   -- Số hóa đơn
+    updated_at      TIMESTAMP      NOT NULL DEFAULT NOW()
+);
+
+CREATE TABLE daily_dish_sales (
+    day             DATE           NOT NULL,
+    dish_id         BIGINT         NOT NULL,
+    quantity        BIGINT         NOT NULL DEFAULT 0,   -- Tổng invoice_item.quantity
+    revenue         NUMERIC(18,2)  NOT NULL DEFAULT 0,   -- Tổng invoice_item.subtotal
+    updated_at      TIMESTAMP      NOT NULL DEFAULT NOW(),
+
+    CONSTRAINT pk_daily_dish_sales PRIMARY KEY (day, dish_id)
+);
+
+CREATE TABLE daily_ingredient_movement (
+    day             DATE           NOT NULL,
+    ingredient_id   BIGINT         NOT NULL,
+    quantity_in     NUMERIC(14,2)  NOT NULL DEFAULT 0,   -- Tổng stock_entry.quantity > 0 (nhập / hoàn kho)
+    quantity_out    NUMERIC(14,2)  NOT NULL DEFAULT 0,   -- Tổng |stock_entry.quantity| < 0 (tiêu hao)
+    updated_at      TIMESTAMP      NOT NULL DEFAULT NOW(),
+
+    CONSTRAINT pk_daily_ingredient_movement PRIMARY KEY (day, ingredient_id)
+);
+
+
+-- ==================================================================
+-- BACKFILL TỪ DỮ LIỆU HIỆN CÓ
+-- ==================================================================
+INSERT INTO daily_revenue (day, revenue, invoice_count)
+SELECT CAST(inv.paid_at AS DATE), SUM(inv.total_amount), COUNT(*)
+FROM invoice inv
+WHERE inv.paid_at IS NOT NULL
+GROUP BY 1;
+
+INSERT INTO daily_dish_sales (day, dish_id, quantity, revenue)
+SELECT CAST(inv.paid_at AS DATE), ii.dish_id, SUM(ii.quantity), SUM(ii.subtotal)
+FROM invoice_item ii
+JOIN invoice inv ON inv.id = ii.invoice_id
+WHERE inv.paid_at IS NOT NULL
+GROUP BY 1, 2;
+
+INSERT INTO daily_ingredient_movement (day, ingredient_id, quantity_in, quantity_out)
+SELECT CAST(se.created_at AS DATE),
+       se.ingredient_id,
+       COALESCE(SUM(se.quantity) FILTER (WHERE se.quantity > 0), 0),
+       COALESCE(SUM(-se.quantity) FILTER (WHERE se.quantity < 0), 0)
+FROM stock_entry se
+GROUP BY 1, 2;
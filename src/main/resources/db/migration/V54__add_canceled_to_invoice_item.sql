@@ -0,0 +1,56 @@
+-- V54__add_canceled_to_invoice_item.sql
+-- ------------------------------------------------------------------
+-- Mục đích:
+--  - invoice_item.canceled: snapshot "món đã bị hủy" tại thời điểm thanh toán
+--    (InvoiceService chụp lại từ order_item.status = CANCELED)
+--  - daily_dish_sales thêm canceled_quantity / canceled_revenue
+--    → báo cáo / dashboard top món có thể LOẠI món đã hủy ngay trong
+--      cùng 1 câu truy vấn (tham số excludeCanceled)
+--
+-- Backfill hóa đơn cũ (best-effort):
+--  - InvoiceService tạo invoice_item theo đúng thứ tự order_item của order
+--    (1 order_item → 1 invoice_item) → ghép theo số thứ tự trong cùng order
+--    và cùng dish_id để xác định dòng nào là món đã hủy
+-- ------------------------------------------------------------------
+
+ALTER TABLE invoice_item
+    ADD COLUMN canceled BOOLEAN NOT NULL DEFAULT FALSE;
+
+WITH ii AS (
+    SELECT ii.id, ii.dish_id, inv.order_id,
+           ROW_NUMBER() OVER (PARTITION BY ii.invoice_id ORDER BY ii.id) AS rn
+    FROM invoice_item ii
+    JOIN invoice inv ON inv.id = ii.invoice_id
+),
+oi AS (
+    SELECT oi.order_id, oi.dish_id, oi.status,
+           ROW_NUMBER() OVER (PARTITION BY oi.order_id ORDER BY oi.id) AS rn
+    FROM order_item oi
+    WHERE oi.order_id IN (SELECT order_id FROM invoice)
+)
+UPDATE invoice_item t
+SET canceled = TRUE
+FROM ii
+JOIN oi ON oi.order_id = ii.order_id AND oi.rn = ii.rn AND oi.dish_id = ii.dish_id
+WHERE t.id = ii.id
+  AND oi.status = 'CANCELED';
+
+
+ALTER TABLE daily_dish_sales
+    ADD COLUMN canceled_quantity BIGINT        NOT NULL DEFAULT 0,   -- Phần quantity của món đã hủy
+    ADD COLUMN canceled_revenue  NUMERIC(18,2) NOT NULL DEFAULT 0;   -- Phần revenue của món đã hủy
+
+UPDATE daily_dish_sales ds
+SET canceled_quantity = agg.qty,
+    canceled_revenue  = agg.revenue
+FROM (
+    SELECT CAST(inv.paid_at AS DATE) AS day, ii.dish_id,
+           SUM(ii.quantity) AS qty, SUM(ii.subtotal) AS revenue
+    FROM invoice_item ii
+    JOIN invoice inv ON inv.id = ii.invoice_id
+    WHERE inv.paid_at IS NOT NULL
+      AND ii.canceled
+    GROUP BY 1, 2
+) agg
+WHERE ds.day = agg.day
+  AND ds.dish_id = agg.dish_id;
@@ -0,0 +1,20 @@
+-- V55__add_idempotency_owner_lease.sql
+-- ------------------------------------------------------------------
+-- Mục đích:
+--  - owner_token : mã lần chạy đang giữ key (mỗi lần claim 1 UUID mới)
+--                  → chỉ lần chạy giữ key mới được ghi COMPLETED / xóa key
+--  - lease_until : hạn giữ key khi PROCESSING (idempotency.lease-seconds),
+--                  tách khỏi thời gian chờ của request trùng và dài hơn nhiều
+--                  → request chạy chậm không bị instance khác chạy lại lần 2
+-- ------------------------------------------------------------------
+
+ALTER TABLE idempotency_record
+    ADD COLUMN owner_token VARCHAR(36),
+    ADD COLUMN lease_until TIMESTAMP;
+
+UPDATE idempotency_record
+SET lease_until = created_at + INTERVAL '10 minutes'
+WHERE lease_until IS NULL;
+
+ALTER TABLE idempotency_record
+    ALTER COLUMN lease_until SET NOT NULL;
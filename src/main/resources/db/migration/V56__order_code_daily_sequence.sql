@@ -0,0 +1,70 @@
+-- V56__order_code_daily_sequence.sql
+-- ------------------------------------------------------------------
+-- Mục đích:
+--  - Thay bộ đếm order_code_counter (UPSERT trong transaction REQUIRES_NEW)
+--    bằng SEQUENCE theo ngày: order_code_seq_yyyymmdd
+--  - nextval() không thuộc transaction (rollback không trả số lại)
+--    → xin block ngay trên connection của transaction createOrder,
+--      không cần mở thêm connection thứ 2 từ pool
+--  - INCREMENT BY = kích thước block: mỗi nextval cấp 1 block số liên tiếp
+--
+-- Sequence được tạo TRƯỚC (khi khởi động + job hằng ngày, autocommit),
+-- không tạo trong transaction của order: transaction đó rollback thì
+-- sequence biến mất trong khi block đã cấp vẫn đang được dùng trong RAM.
+-- ------------------------------------------------------------------
+
+-- Tạo sequence cho 1 ngày (nếu chưa có).
+-- Số bắt đầu tiếp nối order_code_counter → ngày đang chạy lúc deploy không cấp trùng mã cũ.
+CREATE OR REPLACE FUNCTION ensure_order_code_sequence(p_day DATE, p_block_size INT)
+RETURNS BOOLEAN
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_seq    TEXT := 'order_code_seq_' || to_char(p_day, 'YYYYMMDD');
+    v_start  BIGINT;
+BEGIN
+    IF to_regclass(v_seq) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    SELECT COALESCE(MAX(last_value), 0) + 1
+    INTO v_start
+    FROM order_code_counter
+    WHERE code_date = p_day;
+
+    EXECUTE format(
+        'CREATE SEQUENCE %I START WITH %s INCREMENT BY %s',
+        v_seq, v_start, GREATEST(p_block_size, 1)
+    );
+    RETURN TRUE;
+EXCEPTION
+    -- Instance khác vừa tạo cùng lúc
+    WHEN duplicate_table OR unique_violation THEN
+        RETURN FALSE;
+END;
+$$;
+
+-- Xin 1 block số của ngày: [block_start, block_end].
+-- block_end tính theo INCREMENT BY thật của sequence (không tin block-size của app,
+-- đổi cấu hình giữa ngày cũng không cấp chồng block).
+CREATE OR REPLACE FUNCTION next_order_code_block(p_day DATE, OUT block_start BIGINT, OUT block_end BIGINT)
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_seq   REGCLASS := to_regclass('order_code_seq_' || to_char(p_day, 'YYYYMMDD'));
+    v_step  BIGINT;
+BEGIN
+    IF v_seq IS NULL THEN
+        RAISE EXCEPTION 'Chưa có sequence mã order cho ngày %', p_day;
+    END IF;
+
+    block_start := nextval(v_seq);
+    SELECT seqincrement INTO v_step FROM pg_sequence WHERE seqrelid = v_seq;
+    block_end := block_start + v_step - 1;
+END;
+$$;
+
+-- Tạo sẵn sequence cho hôm nay + 7 ngày tới (block mặc định 20 số như order.code.block-size).
+-- Các ngày sau do OrderCodeSequenceScheduler tạo trước.
+SELECT ensure_order_code_sequence((CURRENT_DATE + i)::DATE, 20)
+FROM generate_series(0, 7) AS i;
@@ -0,0 +1,25 @@
+-- V57__side_effect_outbox_dead_status.sql
+-- ------------------------------------------------------------------
+-- Mục đích:
+--  - Tác vụ phụ lỗi đủ side-effect.max-attempts lần trước đây nằm lại
+--    outbox mãi mãi (recoverPending bỏ qua nhưng không ai dọn)
+--  - Thêm trạng thái: PENDING (chờ xử lý) / DEAD (hết lượt thử lại)
+--    + DEAD: không nạp lại, không tính vào outboxPending,
+--      giữ lại để tra lỗi rồi xóa sau side-effect.dead-retention-days
+-- ------------------------------------------------------------------
+
+ALTER TABLE side_effect_outbox
+    ADD COLUMN status  VARCHAR(20) NOT NULL DEFAULT 'PENDING',   -- PENDING / DEAD
+    ADD COLUMN dead_at TIMESTAMP;                                -- Lúc chuyển sang DEAD
+
+-- Dòng đã hết lượt thử (max-attempts mặc định = 5)
+UPDATE side_effect_outbox
+SET status = 'DEAD', dead_at = NOW()
+WHERE attempts >= 5;
+
+-- recoverPending chỉ quét dòng PENDING theo created_at
+DROP INDEX IF EXISTS idx_side_effect_outbox_created_at;
+CREATE INDEX idx_side_effect_outbox_pending ON side_effect_outbox(created_at) WHERE status = 'PENDING';
+
+-- Dọn dòng DEAD theo dead_at
+CREATE INDEX idx_side_effect_outbox_dead ON side_effect_outbox(dead_at) WHERE status = 'DEAD';
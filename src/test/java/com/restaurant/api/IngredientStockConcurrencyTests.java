@@ -0,0 +1,170 @@
+package com.restaurant.api;
+
+import com.restaurant.api.repository.IngredientRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IngredientStockConcurrencyTests
+ * ------------------------------------------------------------
+ * Stress test nhiều thread cho cập nhật tồn kho tương đối
+ * (stock_quantity = stock_quantity + ?) trong IngredientRepositoryImpl:
+ *
+ *  1) applyStockDeltas: nhiều transaction cùng cộng / trừ trên 2 nguyên liệu
+ *     (khóa dòng theo thứ tự id) → tồn cuối = tồn đầu + tổng delta,
+ *     không mất cập nhật, không deadlock
+ *  2) applyStockDeltaIfNotNegative: nhiều thread cùng trừ 1 nguyên liệu
+ *     → số lần trừ thành công đúng bằng tồn ban đầu, tồn không bao giờ âm
+ *
+ * Dữ liệu test: nguyên liệu tạm (xóa sau mỗi test).
+ * Cần PostgreSQL của profile dev (giống RestaurantApiApplicationTests).
+ */
+@SpringBootTest
+class IngredientStockConcurrencyTests {
+
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 200;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        for (Long id : createdIds) {
+            jdbcTemplate.update("DELETE FROM ingredient WHERE id = ?", id);
+        }
+        createdIds.clear();
+    }
+
+    @Test
+    void concurrentRelativeDeltasLoseNoUpdate() throws Exception {
+        Long a = createIngredient(new BigDecimal("1000.00"));
+        Long b = createIngredient(new BigDecimal("1000.00"));
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        // Tổng delta thực tế đã commit (đơn vị 0.01)
+        AtomicLong expectedA = new AtomicLong();
+        AtomicLong expectedB = new AtomicLong();
+
+        runConcurrently(threadNo -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                // Thread chẵn: A +1.50, B -0.25 ; thread lẻ: A -0.75, B +1.00
+                BigDecimal da = threadNo % 2 == 0 ? new BigDecimal("1.50") : new BigDecimal("-0.75");
+                BigDecimal db = threadNo % 2 == 0 ? new BigDecimal("-0.25") : new BigDecimal("1.00");
+
+                // Đổi thứ tự key trong Map → repository vẫn phải khóa theo thứ tự id
+                Map<Long, BigDecimal> deltas = new LinkedHashMap<>();
+                if (i % 2 == 0) {
+                    deltas.put(a, da);
+                    deltas.put(b, db);
+                } else {
+                    deltas.put(b, db);
+                    deltas.put(a, da);
+                }
+
+                tx.executeWithoutResult(status -> ingredientRepository.applyStockDeltas(deltas));
+                expectedA.addAndGet(da.movePointRight(2).longValueExact());
+                expectedB.addAndGet(db.movePointRight(2).longValueExact());
+            }
+        });
+
+        assertEquals(new BigDecimal("1000.00").add(BigDecimal.valueOf(expectedA.get(), 2)), stockOf(a));
+        assertEquals(new BigDecimal("1000.00").add(BigDecimal.valueOf(expectedB.get(), 2)), stockOf(b));
+    }
+
+    @Test
+    void concurrentGuardedDecrementsNeverGoNegative() throws Exception {
+        int initialStock = 500;
+        Long id = createIngredient(BigDecimal.valueOf(initialStock));
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        // THREADS × ITERATIONS lần trừ 1 > tồn ban đầu → phải có lần bị từ chối
+        runConcurrently(threadNo -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                Optional<BigDecimal> after = tx.execute(status ->
+                        ingredientRepository.applyStockDeltaIfNotNegative(id, BigDecimal.ONE.negate()));
+
+                if (after.isPresent()) {
+                    assertTrue(after.get().signum() >= 0, "Tồn kho bị âm: " + after.get());
+                    succeeded.incrementAndGet();
+                } else {
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(initialStock, succeeded.get());
+        assertEquals(THREADS * ITERATIONS - initialStock, rejected.get());
+        assertEquals(0, stockOf(id).signum());
+    }
+
+    // =====================================================================
+    // HÀM HỖ TRỢ
+    // =====================================================================
+
+    private interface Worker {
+        void run(int threadNo) throws Exception;
+    }
+
+    /** Chạy worker trên THREADS thread cùng xuất phát, ném lại lỗi đầu tiên */
+    private void runConcurrently(Worker worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int threadNo = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                worker.run(threadNo);
+                return null;
+            }));
+        }
+
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(120, TimeUnit.SECONDS), "Stress test bị treo (nghi deadlock)");
+        for (Future<?> f : futures) {
+            f.get();
+        }
+    }
+
+    private Long createIngredient(BigDecimal stock) {
+        Long id = jdbcTemplate.queryForObject(
+                "INSERT INTO ingredient (name, unit, stock_quantity) VALUES (?, 'g', ?) RETURNING id",
+                Long.class,
+                "stress-test-" + UUID.randomUUID(), stock
+        );
+        createdIds.add(id);
+        return id;
+    }
+
+    private BigDecimal stockOf(Long id) {
+        return jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM ingredient WHERE id = ?", BigDecimal.class, id);
+    }
+}
@@ -0,0 +1,83 @@
+package com.restaurant.api;
+
+import com.restaurant.api.service.OrderCodeGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OrderCodeGeneratorConcurrencyTests
+ * ------------------------------------------------------------
+ * Kiểm tra đồng thời cho DailyBlockOrderCodeGenerator.
+ *
+ * Mô phỏng đúng cách createOrder gọi nextCode():
+ *  - Mỗi thread mở transaction và GIỮ 1 connection (SELECT 1) trước khi xin mã
+ *  - Số thread > kích thước pool (Hikari mặc định 10)
+ *  - THREADS × CODES_PER_THREAD mã → phải xin block mới (nextval) nhiều lần
+ *    trong lúc mọi connection của pool đang bị giữ
+ *
+ * Kỳ vọng:
+ *  - Không deadlock cạn pool (chạy xong trong thời gian giới hạn)
+ *  - Không có mã trùng
+ *
+ * Cần PostgreSQL của profile dev (giống RestaurantApiApplicationTests).
+ */
+@SpringBootTest
+class OrderCodeGeneratorConcurrencyTests {
+
+    private static final int THREADS = 32;
+    private static final int CODES_PER_THREAD = 50;
+
+    @Autowired
+    private OrderCodeGenerator orderCodeGenerator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentNextCodeInsideTransactionsIsUniqueAndDoesNotStarvePool() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < CODES_PER_THREAD; i++) {
+                    String code = tx.execute(status -> {
+                        // Giữ connection như transaction của createOrder
+                        jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+                        return orderCodeGenerator.nextCode();
+                    });
+                    assertTrue(codes.add(code), "Mã order bị trùng: " + code);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        pool.shutdown();
+
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS),
+                "Sinh mã order bị treo (nghi deadlock cạn pool connection)");
+        for (Future<?> f : futures) {
+            f.get();
+        }
+
+        assertEquals(THREADS * CODES_PER_THREAD, codes.size());
+    }
+}
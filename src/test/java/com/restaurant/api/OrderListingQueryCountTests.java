@@ -0,0 +1,113 @@
+package com.restaurant.api;
+
+import com.restaurant.api.dto.order.OrderResponse;
+import com.restaurant.api.service.OrderService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OrderListingQueryCountTests
+ * ------------------------------------------------------------
+ * Kiểm tra OrderService.getOrders luôn chạy ĐÚNG 2 câu SQL
+ * (orders + order_item), không phụ thuộc số order được liệt kê
+ * → không có N+1 (lazy-load bàn / món / item từng dòng).
+ *
+ * Cách làm:
+ *  - Bật Hibernate statistics, đếm số JDBC statement của mỗi lần gọi
+ *  - Dữ liệu test nằm trong 1 khung giờ riêng (năm 2001, rơi vào
+ *    partition DEFAULT của order_item) → không lẫn dữ liệu thật
+ *  - Tăng dần số order (1 → 5 → 25) và so số câu SQL
+ *
+ * Cần PostgreSQL của profile dev (giống RestaurantApiApplicationTests).
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderListingQueryCountTests {
+
+    private static final LocalDateTime WINDOW_FROM = LocalDateTime.of(2001, 1, 1, 0, 0);
+    private static final LocalDateTime WINDOW_TO = LocalDateTime.of(2001, 1, 1, 23, 59, 59);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long categoryId;
+    private Long dishId;
+    private Long secondDishId;
+    private int orderSeq = 0;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString();
+        categoryId = jdbcTemplate.queryForObject(
+                "INSERT INTO category (name) VALUES (?) RETURNING id", Long.class, "qc-test-" + suffix);
+        dishId = jdbcTemplate.queryForObject(
+                "INSERT INTO dish (name, category_id, price) VALUES (?, ?, 50000) RETURNING id",
+                Long.class, "qc-dish-a-" + suffix, categoryId);
+        secondDishId = jdbcTemplate.queryForObject(
+                "INSERT INTO dish (name, category_id, price) VALUES (?, ?, 30000) RETURNING id",
+                Long.class, "qc-dish-b-" + suffix, categoryId);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        // order_item bị xóa theo (ON DELETE CASCADE)
+        jdbcTemplate.update("DELETE FROM orders WHERE created_at BETWEEN ? AND ?",
+                Timestamp.valueOf(WINDOW_FROM), Timestamp.valueOf(WINDOW_TO));
+        jdbcTemplate.update("DELETE FROM dish WHERE category_id = ?", categoryId);
+        jdbcTemplate.update("DELETE FROM category WHERE id = ?", categoryId);
+    }
+
+    @Test
+    void getOrdersRunsTwoStatementsRegardlessOfOrderCount() {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int target : new int[]{1, 5, 25}) {
+            while (orderSeq < target) {
+                createOrderWithItems();
+            }
+
+            stats.clear();
+            List<OrderResponse> orders = orderService.getOrders(null, WINDOW_FROM, WINDOW_TO, null);
+
+            assertEquals(target, orders.size());
+            assertEquals(2, stats.getPrepareStatementCount(),
+                    "getOrders với " + target + " order phải chạy đúng 2 câu SQL");
+        }
+    }
+
+    /** 1 order trong khung giờ test + 2 món (1 món bị hủy) */
+    private void createOrderWithItems() {
+        orderSeq++;
+        Timestamp createdAt = Timestamp.valueOf(WINDOW_FROM.plusMinutes(orderSeq));
+
+        Long orderId = jdbcTemplate.queryForObject(
+                "INSERT INTO orders (order_code, total_price, status, created_at, updated_at) " +
+                        "VALUES (?, 80000, 'NEW', ?, ?) RETURNING id",
+                Long.class, "QC-" + UUID.randomUUID(), createdAt, createdAt);
+
+        jdbcTemplate.update(
+                "INSERT INTO order_item (order_id, dish_id, quantity, snapshot_price, status, created_at, updated_at) " +
+                        "VALUES (?, ?, 1, 50000, 'NEW', ?, ?), (?, ?, 1, 30000, 'CANCELED', ?, ?)",
+                orderId, dishId, createdAt, createdAt,
+                orderId, secondDishId, createdAt, createdAt);
+    }
+}
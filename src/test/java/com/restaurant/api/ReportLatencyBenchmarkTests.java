@@ -0,0 +1,215 @@
+package com.restaurant.api;
+
+import com.restaurant.api.service.DailyRollupService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReportLatencyBenchmarkTests
+ * ------------------------------------------------------------
+ * Benchmark: GROUP BY trên bảng GỐC (invoice / invoice_item / stock_entry)
+ * cho 1 khoảng ngày CỐ ĐỊNH (30 ngày) không chậm dần theo độ dài lịch sử
+ * → điều kiện khoảng thời gian + index V52 (invoice.paid_at,
+ *   stock_entry(created_at, ingredient_id)) chỉ quét đúng khoảng được chọn.
+ *
+ * Cách làm:
+ *  - Tạo order + hóa đơn (2 món) + phiếu kho cho 30 ngày của tháng 01/1999
+ *  - Đo trung vị thời gian DailyRollupService.rebuild cho khoảng đó
+ *    (đúng các câu INSERT ... SELECT GROUP BY theo khoảng ngày trên bảng gốc),
+ *    chạy trong transaction rollback → không để lại rollup
+ *  - Thêm dần lịch sử TRƯỚC khoảng đó (0 → 1.000 → 10.000 ngày) rồi đo lại
+ *  - Kỳ vọng: thời gian với lịch sử lớn nhất không vượt quá
+ *    max(3 × baseline, baseline + 5ms)
+ *
+ * Dữ liệu test (order có mã BENCH-<uuid>-..., hóa đơn của các order đó,
+ * phiếu kho / dish / ingredient / category tạm) được xóa theo đúng khóa đã tạo.
+ * Cần PostgreSQL của profile dev (giống RestaurantApiApplicationTests).
+ */
+@SpringBootTest
+class ReportLatencyBenchmarkTests {
+
+    private static final LocalDate WINDOW_FROM = LocalDate.of(1999, 1, 1);
+    private static final LocalDate WINDOW_TO = LocalDate.of(1999, 1, 30);
+    private static final int WINDOW_DAYS = 30;
+
+    /** Số ngày lịch sử thêm vào TRƯỚC khoảng báo cáo, theo từng mức */
+    private static final int[] HISTORY_DAYS = {0, 1_000, 10_000};
+
+    private static final int INVOICES_PER_DAY = 4;
+    private static final int DISHES = 2;
+    private static final int INGREDIENTS = 3;
+
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 30;
+
+    @Autowired
+    private DailyRollupService dailyRollupService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String orderCodePrefix;
+    private Long categoryId;
+    private final List<Long> dishIds = new ArrayList<>();
+    private final List<Long> ingredientIds = new ArrayList<>();
+    private LocalDate historyStart = WINDOW_FROM;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString();
+        orderCodePrefix = "BENCH-" + suffix + "-";
+
+        categoryId = jdbcTemplate.queryForObject(
+                "INSERT INTO category (name) VALUES (?) RETURNING id", Long.class, "bench-" + suffix);
+        for (int i = 0; i < DISHES; i++) {
+            dishIds.add(jdbcTemplate.queryForObject(
+                    "INSERT INTO dish (name, category_id, price) VALUES (?, ?, 40000) RETURNING id",
+                    Long.class, "bench-dish-" + i + "-" + suffix, categoryId));
+        }
+        for (int i = 0; i < INGREDIENTS; i++) {
+            ingredientIds.add(jdbcTemplate.queryForObject(
+                    "INSERT INTO ingredient (name, unit, stock_quantity) VALUES (?, 'g', 0) RETURNING id",
+                    Long.class, "bench-ingredient-" + i + "-" + suffix));
+        }
+
+        seedDays(WINDOW_FROM, WINDOW_TO);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        for (Long ingredientId : ingredientIds) {
+            jdbcTemplate.update("DELETE FROM stock_entry WHERE ingredient_id = ?", ingredientId);
+            jdbcTemplate.update("DELETE FROM ingredient WHERE id = ?", ingredientId);
+        }
+        // invoice_item bị xóa theo (ON DELETE CASCADE)
+        jdbcTemplate.update(
+                "DELETE FROM invoice WHERE order_id IN (SELECT id FROM orders WHERE order_code LIKE ?)",
+                orderCodePrefix + "%");
+        jdbcTemplate.update("DELETE FROM orders WHERE order_code LIKE ?", orderCodePrefix + "%");
+        for (Long dishId : dishIds) {
+            jdbcTemplate.update("DELETE FROM dish WHERE id = ?", dishId);
+        }
+        jdbcTemplate.update("DELETE FROM category WHERE id = ?", categoryId);
+    }
+
+    @Test
+    void rawAggregationLatencyStaysFlatAsHistoryGrows() {
+        Map<Integer, Double> medianMsByHistory = new LinkedHashMap<>();
+
+        for (int historyDays : HISTORY_DAYS) {
+            LocalDate newStart = WINDOW_FROM.minusDays(historyDays);
+            if (newStart.isBefore(historyStart)) {
+                seedDays(newStart, historyStart.minusDays(1));
+                historyStart = newStart;
+            }
+            for (String table : List.of("orders", "invoice", "invoice_item", "stock_entry")) {
+                jdbcTemplate.execute("ANALYZE " + table);
+            }
+
+            medianMsByHistory.put(historyDays, measureMedianMs());
+        }
+
+        double baseline = medianMsByHistory.get(HISTORY_DAYS[0]);
+        double largest = medianMsByHistory.get(HISTORY_DAYS[HISTORY_DAYS.length - 1]);
+        double allowed = Math.max(baseline * 3, baseline + 5);
+
+        assertTrue(largest <= allowed, String.format(
+                "GROUP BY 30 ngày chậm dần theo lịch sử: %.2f ms → %.2f ms (cho phép %.2f ms)",
+                baseline, largest, allowed));
+    }
+
+    // =====================================================================
+    // HÀM HỖ TRỢ
+    // =====================================================================
+
+    /** Trung vị thời gian tổng hợp khoảng cố định từ bảng gốc */
+    private double measureMedianMs() {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            runAggregation();
+        }
+
+        double[] samples = new double[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long begin = System.nanoTime();
+            runAggregation();
+            samples[i] = (System.nanoTime() - begin) / 1_000_000.0;
+        }
+        Arrays.sort(samples);
+        return samples[MEASURED_RUNS / 2];
+    }
+
+    /**
+     * rebuild(WINDOW) trong transaction rollback:
+     * 30 dòng doanh thu + 30 × DISHES dòng món + 30 × INGREDIENTS dòng nguyên liệu.
+     */
+    private void runAggregation() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            int rows = dailyRollupService.rebuild(WINDOW_FROM, WINDOW_TO);
+            assertEquals(WINDOW_DAYS * (1 + DISHES + INGREDIENTS), rows);
+            status.setRollbackOnly();
+        });
+    }
+
+    /**
+     * Dữ liệu gốc cho mọi ngày trong [from, to] (generate_series, 1 câu / bảng):
+     *  - INVOICES_PER_DAY order + hóa đơn mỗi ngày, mỗi hóa đơn có đủ DISHES món
+     *  - Mỗi nguyên liệu: 1 phiếu nhập + 1 phiếu xuất mỗi ngày
+     */
+    private void seedDays(LocalDate from, LocalDate to) {
+        Timestamp f = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp t = Timestamp.valueOf(to.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+
+        jdbcTemplate.update("""
+                INSERT INTO orders (order_code, total_price, status, created_at, updated_at)
+                SELECT ? || to_char(g, 'YYYYMMDD') || '-' || n, 80000, 'PAID',
+                       g + n * INTERVAL '1 hour', g + n * INTERVAL '1 hour'
+                FROM generate_series(?::timestamp, ?::timestamp, INTERVAL '1 day') g,
+                     generate_series(1, ?) n
+                """, orderCodePrefix, f, t, INVOICES_PER_DAY);
+
+        jdbcTemplate.update("""
+                INSERT INTO invoice (order_id, total_amount, payment_method, paid_at, created_at, updated_at)
+                SELECT o.id, o.total_price, 'CASH', o.created_at, o.created_at, o.created_at
+                FROM orders o
+                WHERE o.order_code LIKE ?
+                  AND o.created_at >= ? AND o.created_at < ?
+                """, orderCodePrefix + "%", f, end);
+
+        jdbcTemplate.update("""
+                INSERT INTO invoice_item (invoice_id, dish_id, dish_name, dish_price, quantity, subtotal, created_at)
+                SELECT inv.id, d.id, d.name, d.price, 1, d.price, inv.paid_at
+                FROM invoice inv
+                JOIN orders o ON o.id = inv.order_id
+                CROSS JOIN dish d
+                WHERE o.order_code LIKE ?
+                  AND inv.paid_at >= ? AND inv.paid_at < ?
+                  AND d.category_id = ?
+                """, orderCodePrefix + "%", f, end, categoryId);
+
+        for (Long ingredientId : ingredientIds) {
+            jdbcTemplate.update("""
+                    INSERT INTO stock_entry (ingredient_id, quantity, note, created_at)
+                    SELECT ?, q, 'bench', g + INTERVAL '8 hours'
+                    FROM generate_series(?::timestamp, ?::timestamp, INTERVAL '1 day') g,
+                         (VALUES (1000), (-250)) AS v(q)
+                    """, ingredientId, f, t);
+        }
+    }
+}